@@ -1,328 +1,1184 @@
-package hr.fer.zemris.java.hw11.jnotepadpp;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Objects;
-
-import javax.swing.ImageIcon;
-import javax.swing.JOptionPane;
-import javax.swing.JScrollPane;
-import javax.swing.JTabbedPane;
-
-import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentListener;
-import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentModel;
-import hr.fer.zemris.java.hw11.interfaces.SingleDocumentListener;
-import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
-import hr.fer.zemris.java.hw11.jnotepadpp.local.FormLocalizationProvider;
-
-/**
- * A default implementation of the {@link MultipleDocumentModel}. Used in the 
- * {@link JNotepadPP} program, in the form of a {@link JTabbedPane}.
- * @author 0036502252
- *
- */
-public class DefaultMultipleDocumentModel extends JTabbedPane
-		implements MultipleDocumentModel {
-
-	/** Default UID */
-	private static final long serialVersionUID = 1L;
-	/**
-	 * The internal list of documents.
-	 */
-	private List<SingleDocumentModel> documents;
-	/**
-	 * This model's listeners.
-	 */
-	private List<MultipleDocumentListener> listeners;
-	/**
-	 * The current document of the model.
-	 */
-	private SingleDocumentModel currentDocument;
-
-	/**
-	 * Red icon. Indicates that the document is modified, and hasn't been saved.
-	 */
-	private ImageIcon redSaveIcon;
-
-	/**
-	 * Green icon. Indicates that the document has been saved.
-	 */
-	private ImageIcon greenSaveIcon;
-	/**
-	 * 
-	 */
-	private FormLocalizationProvider flp;
-
-	/**
-	 * Creates a new {@link DefaultMultipleDocumentModel} with the given 
-	 * localization settings.
-	 * @param flp the localization provider used in various dialogs
-	 */
-	public DefaultMultipleDocumentModel(FormLocalizationProvider flp) {
-		super();
-
-		this.flp = flp;
-		this.documents = new ArrayList<>();
-		this.listeners = new ArrayList<>();
-		this.currentDocument = null;
-		this.redSaveIcon = loadIcon("icons/red.png");
-		this.greenSaveIcon = loadIcon("icons/green.png");
-		this.addChangeListener(e -> {
-			SingleDocumentModel previousModel = currentDocument;
-			if (getSelectedIndex() != -1) {
-				currentDocument = documents.get(getSelectedIndex());
-				listeners.forEach(
-						l -> l.currentDocumentChanged(previousModel,
-						currentDocument)
-				);
-				currentDocument = documents.get(getSelectedIndex());
-			}
-		});
-	}
-
-	/**
-	 * Loads an icon from the given path.
-	 * 
-	 * @param path
-	 *            the path from which the icon will be loaded
-	 * @return the loaded icon
-	 */
-	private ImageIcon loadIcon(String path) {
-		InputStream is = this.getClass().getResourceAsStream(path);
-		byte[] bytes = new byte[1024*1024];
-		try {
-			is.read(bytes);
-			is.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
-		return new ImageIcon(bytes);
-	}
-
-	@Override
-	public Iterator<SingleDocumentModel> iterator() {
-		return documents.iterator();
-	}
-
-	@Override
-	public SingleDocumentModel createNewDocument() {
-		SingleDocumentModel newModel = new DefaultSingleDocumentModel(null, "");
-		documents.add(newModel);
-		newModel.addSingleDocumentListener(new ListenerImpl());
-
-		currentDocument = newModel;
-
-		listeners.forEach(a -> a.documentAdded(newModel));
-
-		this.insertTab(
-				"", 
-				greenSaveIcon,
-				new JScrollPane(currentDocument.getTextComponent()), 
-				"",
-				documents.size() - 1
-		);
-
-		this.setSelectedIndex(documents.indexOf(currentDocument));
-
-		return newModel;
-	}
-
-	@Override
-	public SingleDocumentModel getCurrentDocument() {
-		return getSelectedIndex() == -1 ? 
-				currentDocument
-				: documents.get(getSelectedIndex());
-	}
-
-	@Override
-	public SingleDocumentModel loadDocument(Path path) {
-		Objects.requireNonNull(path, flp.getString("path_non_null"));
-
-		String textContent = "";
-
-		try {
-			textContent = new String(Files.readAllBytes(path),
-					StandardCharsets.UTF_8);
-		} catch (IOException e) {
-			JOptionPane.showMessageDialog(this,
-					flp.getString("error_loading_file"), flp.getString("error"),
-					JOptionPane.ERROR_MESSAGE);
-		}
-
-		boolean modelExists = false;
-		int i = 0; // initialized outside of loop body, so it can be reused
-		for (int n = documents.size(); i < n; i++) {
-			SingleDocumentModel currentModel = documents.get(i);
-			if (currentModel.getFilePath() != null
-					&& currentModel.getFilePath().equals(path)) {
-				
-				modelExists = true;
-				break;
-			}
-		}
-
-		if (modelExists) {
-			SingleDocumentModel newModel = documents.get(i);
-			listeners.forEach(
-					l -> l.currentDocumentChanged(currentDocument, newModel)
-			);
-
-			currentDocument = newModel;
-
-		} else {
-			DefaultSingleDocumentModel newModel = new DefaultSingleDocumentModel(
-					path, 
-					textContent
-			);
-			newModel.addSingleDocumentListener(new ListenerImpl());
-
-			documents.add(newModel);
-
-			listeners.forEach(
-					l -> l.currentDocumentChanged(currentDocument, newModel)
-			);
-			currentDocument = newModel;
-			
-			listeners.forEach(l -> l.documentAdded(newModel)); // notify all
-
-			this.insertTab(
-					path.getFileName().toString(), 
-					greenSaveIcon,
-					new JScrollPane(currentDocument.getTextComponent()),
-					path.toAbsolutePath().toString(), 
-					documents.size() - 1
-			);
-		}
-
-		this.setSelectedIndex(documents.indexOf(currentDocument)); // switch
-
-		return currentDocument;
-	}
-
-	/**
-	 * A custom {@link SingleDocumentListener} implementation which sets the tab
-	 * icon depending on the status of the document in that particular tab
-	 * 
-	 * @author 0036502252
-	 *
-	 */
-	private class ListenerImpl implements SingleDocumentListener {
-
-		@Override
-		public void documentModifyStatusUpdated(SingleDocumentModel model) {
-			int currentIndex = getSelectedIndex();
-
-			if (model.isModified()) {
-				setIconAt(currentIndex, redSaveIcon);
-			} else {
-				setIconAt(currentIndex, greenSaveIcon);
-			}
-		}
-
-		@Override
-		public void documentFilePathUpdated(SingleDocumentModel model) {
-			setTitleAt(getSelectedIndex(),
-					model.getFilePath().getFileName().toString());
-		}
-	}
-
-	@Override
-	public void saveDocument(SingleDocumentModel model, Path newPath) {
-		Path pathToWrite = newPath == null ? model.getFilePath() : newPath;
-
-		for (SingleDocumentModel s : documents) {
-			if (s.getFilePath() == null)
-				continue;
-
-			if (s.getFilePath().equals(pathToWrite) && !getCurrentDocument()
-					.getFilePath().equals(pathToWrite)) {
-				JOptionPane.showMessageDialog(this,
-						flp.getString("file_already_opened"),
-						flp.getString("error"), JOptionPane.ERROR_MESSAGE);
-				return;
-			}
-		}
-
-		byte[] data = model.getTextComponent().getText()
-				.getBytes(StandardCharsets.UTF_8);
-		try {
-			Files.write(pathToWrite, data);
-		} catch (IOException e) {
-			JOptionPane.showMessageDialog(
-					this,
-					flp.getString("error_writing_file"), 
-					flp.getString("error"),
-					JOptionPane.ERROR_MESSAGE
-			);
-			return;
-		}
-
-		JOptionPane.showMessageDialog(
-				this, 
-				flp.getString("file_saved"),
-				flp.getString("info"), 
-				JOptionPane.INFORMATION_MESSAGE
-		);
-
-		currentDocument.addSingleDocumentListener(new ListenerImpl());
-		currentDocument.setModified(false);
-		currentDocument.setFilePath(pathToWrite);
-	}
-
-	@Override
-	public void closeDocument(SingleDocumentModel model) {
-		if (documents.isEmpty()) {
-			JOptionPane.showMessageDialog(
-					this,
-					flp.getString("no_tabs_to_close"), 
-					flp.getString("info"),
-					JOptionPane.INFORMATION_MESSAGE
-			);
-			
-		} else {
-			this.remove(this.getSelectedComponent());
-			documents.remove(model);
-
-			listeners.forEach(a -> a.documentRemoved(model));
-			if (this.getSelectedIndex() >= 0) {
-				SingleDocumentModel newModel = documents.get(
-						this.getSelectedIndex()
-				);
-				
-				listeners.forEach(
-						l -> l.currentDocumentChanged(currentDocument,newModel)
-				);
-
-				currentDocument = newModel;
-			}
-		}
-	}
-
-	@Override
-	public void addMultipleDocumentListener(MultipleDocumentListener l) {
-		listeners.add(l);
-	}
-
-	@Override
-	public void removeMultipleDocumentListener(MultipleDocumentListener l) {
-		listeners.remove(l);
-	}
-
-	@Override
-	public int getNumberOfDocuments() {
-		return documents.size();
-	}
-
-	@Override
-	public SingleDocumentModel getDocument(int index) {
-		return documents.get(index);
-	}
-
-}
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.BorderFactory;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentListener;
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentModel;
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentListener;
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.DocumentTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.DocumentLoadListener;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.DocumentLoader;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.FileBlocks;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.FileReload;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.FileWatcher;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.ResourceCache;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.SaveListener;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.SaveQueue;
+import hr.fer.zemris.java.hw11.jnotepadpp.local.FormLocalizationProvider;
+import hr.fer.zemris.java.hw11.jnotepadpp.session.JournalStore;
+import hr.fer.zemris.java.hw11.jnotepadpp.session.Session;
+import hr.fer.zemris.java.hw11.jnotepadpp.session.SessionEntry;
+
+/**
+ * A default implementation of the {@link MultipleDocumentModel}. Used in the 
+ * {@link JNotepadPP} program, in the form of a {@link JTabbedPane}.
+ * <p>
+ * A tab holds an empty placeholder until it is first selected, and only then
+ * gets the document's text area. Documents which haven't been selected for
+ * {@link #HIBERNATE_AFTER} milliseconds are hibernated, see
+ * {@link DefaultSingleDocumentModel}, and their tabs get a placeholder
+ * again.
+ * @author 0036502252
+ *
+ */
+public class DefaultMultipleDocumentModel extends JTabbedPane
+		implements MultipleDocumentModel {
+
+	/** Default UID */
+	private static final long serialVersionUID = 1L;
+	/**
+	 * The size in bytes from which files are opened memory-mapped. Can be set
+	 * using the <code>jnotepadpp.mappedThreshold</code> system property.
+	 */
+	private static final long MAPPED_THRESHOLD = Long.getLong(
+			"jnotepadpp.mappedThreshold", 64L * 1024 * 1024);
+	/**
+	 * The time in milliseconds after which a document which hasn't been
+	 * selected is hibernated. Can be set using the
+	 * <code>jnotepadpp.hibernateAfter</code> system property.
+	 */
+	private static final long HIBERNATE_AFTER = Long.getLong(
+			"jnotepadpp.hibernateAfter", 10 * 60 * 1000L);
+	/**
+	 * The interval in milliseconds at which documents are checked for
+	 * hibernation.
+	 */
+	private static final int HIBERNATE_CHECK_INTERVAL = 60 * 1000;
+	/**
+	 * The interval in milliseconds at which the edit journals are written and
+	 * forced to the disk. Can be set using the
+	 * <code>jnotepadpp.journalSyncInterval</code> system property.
+	 */
+	private static final long JOURNAL_SYNC_INTERVAL = Long.getLong(
+			"jnotepadpp.journalSyncInterval", 1000);
+	/**
+	 * The directory in which the edit journals are kept. Can be set using the
+	 * <code>jnotepadpp.journalDirectory</code> system property, and defaults
+	 * to {@link JournalStore#defaultDirectory()}.
+	 */
+	private static final String JOURNAL_DIRECTORY = System.getProperty(
+			"jnotepadpp.journalDirectory");
+	/**
+	 * The time in milliseconds for which a file changed by another program
+	 * must not change before it is reloaded. Can be set using the
+	 * <code>jnotepadpp.watchDebounce</code> system property.
+	 */
+	private static final long WATCH_DEBOUNCE = Long.getLong(
+			"jnotepadpp.watchDebounce", 200);
+	/**
+	 * The color of the titles of modified documents whose files were changed
+	 * by another program.
+	 */
+	private static final Color CHANGED_COLOR = Color.RED.darker();
+	/**
+	 * The resource of the icon of modified documents.
+	 */
+	private static final String RED_ICON = "icons/red.png";
+	/**
+	 * The resource of the icon of saved documents.
+	 */
+	private static final String GREEN_ICON = "icons/green.png";
+	/**
+	 * The resource of the icon of documents which are being saved.
+	 */
+	private static final String YELLOW_ICON = "icons/yellow.png";
+	/**
+	 * The open documents, indexed by themselves and by their paths.
+	 */
+	private OpenDocuments documents;
+	/**
+	 * This model's listeners.
+	 */
+	private List<MultipleDocumentListener> listeners;
+	/**
+	 * The current document of the model.
+	 */
+	private SingleDocumentModel currentDocument;
+
+	/**
+	 * Red icon. Indicates that the document is modified, and hasn't been saved.
+	 */
+	private ImageIcon redSaveIcon;
+
+	/**
+	 * Green icon. Indicates that the document has been saved.
+	 */
+	private ImageIcon greenSaveIcon;
+
+	/**
+	 * Yellow icon. Indicates that the document is being saved.
+	 */
+	private ImageIcon savingIcon;
+	/**
+	 * 
+	 */
+	private FormLocalizationProvider flp;
+	/**
+	 * The executor on which files are loaded.
+	 */
+	private ExecutorService ioExecutor;
+	/**
+	 * The loaders of the documents which are still being loaded.
+	 */
+	private Map<SingleDocumentModel, DocumentLoader> loaders;
+	/**
+	 * The executor on which documents are saved.
+	 */
+	private ExecutorService saveExecutor;
+	/**
+	 * The save queue of each document which has been saved.
+	 */
+	private Map<SingleDocumentModel, SaveQueue> saveQueues;
+	/**
+	 * The actions run once each document which is being loaded is loaded.
+	 */
+	private Map<SingleDocumentModel, List<Runnable>> loadedActions;
+	/**
+	 * The store of the journals from which unsaved documents are recovered
+	 * after a crash.
+	 */
+	private JournalStore journals;
+	/**
+	 * Watches the files of the documents for changes made by other programs.
+	 */
+	private FileWatcher watcher;
+	/**
+	 * The documents which are being reloaded.
+	 */
+	private Set<SingleDocumentModel> reloads;
+
+	/**
+	 * Creates a new {@link DefaultMultipleDocumentModel} with the given 
+	 * localization settings.
+	 * @param flp the localization provider used in various dialogs
+	 */
+	public DefaultMultipleDocumentModel(FormLocalizationProvider flp) {
+		super();
+
+		this.flp = flp;
+		this.documents = new OpenDocuments();
+		this.listeners = new ArrayList<>();
+		this.loaders = new IdentityHashMap<>();
+		this.saveQueues = new IdentityHashMap<>();
+		this.loadedActions = new IdentityHashMap<>();
+		this.reloads = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.watcher = new FileWatcher(WATCH_DEBOUNCE, this::fileChanged);
+		this.saveExecutor = Executors.newCachedThreadPool(r -> {
+			Thread thread = new Thread(r, "jnotepadpp-save");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.ioExecutor = Executors.newFixedThreadPool(2, r -> {
+			Thread thread = new Thread(r, "jnotepadpp-io");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.journals = new JournalStore(JOURNAL_DIRECTORY == null
+				? JournalStore.defaultDirectory()
+				: Paths.get(JOURNAL_DIRECTORY),
+				JOURNAL_SYNC_INTERVAL, MAPPED_THRESHOLD);
+		this.currentDocument = null;
+		ResourceCache resources = ResourceCache.getInstance();
+		this.redSaveIcon = resources.getIcon(getClass(), RED_ICON);
+		this.greenSaveIcon = resources.getIcon(getClass(), GREEN_ICON);
+		this.savingIcon = resources.getIcon(getClass(), YELLOW_ICON);
+		this.addChangeListener(e -> {
+			SingleDocumentModel previousModel = currentDocument;
+			if (previousModel != null) {
+				((DefaultSingleDocumentModel) previousModel).touch();
+			}
+			if (getSelectedIndex() != -1) {
+				showTextComponent(getSelectedIndex());
+				currentDocument = documents.get(getSelectedIndex());
+				listeners.forEach(
+						l -> l.currentDocumentChanged(previousModel,
+						currentDocument)
+				);
+				currentDocument = documents.get(getSelectedIndex());
+			}
+		});
+
+		Timer hibernation = new Timer(HIBERNATE_CHECK_INTERVAL,
+				e -> hibernateIdleDocuments());
+		hibernation.start();
+	}
+
+	/**
+	 * Puts the text area of the document at the given index into its tab, if
+	 * the tab still holds a placeholder. A hibernated document whose text has
+	 * to be read from its file is loaded in the background, like a newly
+	 * opened file.
+	 * 
+	 * @param index
+	 *            the index of the tab
+	 */
+	private void showTextComponent(int index) {
+		if (!(getComponentAt(index) instanceof JScrollPane)) {
+			DefaultSingleDocumentModel model =
+					(DefaultSingleDocumentModel) documents.get(index);
+			if (model.wakeForLoading()) {
+				startLoading(model, model.getFilePath());
+			}
+			setComponentAt(index, new JScrollPane(model.getTextComponent()));
+			// once the text area is laid out
+			afterLoading(model,
+					() -> SwingUtilities.invokeLater(model::restoreView));
+			if (!loaders.containsKey(model)
+					&& model.getFileBlocks() == null) {
+				scanFile(model);
+			}
+		}
+	}
+
+	/**
+	 * Hibernates the documents which haven't been selected for
+	 * {@link #HIBERNATE_AFTER} milliseconds, and puts placeholders into their
+	 * tabs.
+	 */
+	private void hibernateIdleDocuments() {
+		for (int i = 0, n = documents.size(); i < n; i++) {
+			DefaultSingleDocumentModel model =
+					(DefaultSingleDocumentModel) documents.get(i);
+			if (i != getSelectedIndex() && !loaders.containsKey(model)
+					&& !reloads.contains(model) && !model.isBusy()
+					&& model.hibernateIfIdle(HIBERNATE_AFTER,
+							MAPPED_THRESHOLD)) {
+				setComponentAt(i, new JPanel());
+			}
+		}
+	}
+
+	/**
+	 * Starts reading and decoding the icons of the tabs on a background
+	 * thread, so they are ready once the first model is created.
+	 */
+	static void preloadIcons() {
+		ResourceCache.getInstance().preloadIcons(
+				DefaultMultipleDocumentModel.class, RED_ICON, GREEN_ICON,
+				YELLOW_ICON);
+	}
+
+	/**
+	 * Adds a document to the end of the list, and indexes it.
+	 * 
+	 * @param model
+	 *            the added document
+	 */
+	private void addDocument(SingleDocumentModel model) {
+		insertDocument(documents.size(), model);
+	}
+
+	/**
+	 * Inserts a document into the list at the given index, and indexes it.
+	 * 
+	 * @param index
+	 *            the index at which the document is inserted
+	 * @param model
+	 *            the inserted document
+	 */
+	private void insertDocument(int index, SingleDocumentModel model) {
+		documents.insert(index, model);
+		indexPath(model);
+		((DefaultSingleDocumentModel) model).setJournals(journals);
+	}
+
+	/**
+	 * Removes the document at the given index from the list and from the
+	 * indexes.
+	 * 
+	 * @param index
+	 *            the index of the removed document
+	 */
+	private void removeDocument(int index) {
+		unindexPath(documents.remove(index));
+	}
+
+	/**
+	 * Finds the index of a document, see
+	 * {@link OpenDocuments#indexOf(SingleDocumentModel)}.
+	 * 
+	 * @param model
+	 *            the document
+	 * @return the index of the document, or -1 if it isn't open
+	 */
+	int indexOfDocument(SingleDocumentModel model) {
+		return documents.indexOf(model);
+	}
+
+	/**
+	 * Indexes a document by the key of its path, if it has one, and watches
+	 * its file.
+	 * 
+	 * @param model
+	 *            the document
+	 */
+	private void indexPath(SingleDocumentModel model) {
+		Path key = documents.indexPath(model);
+		if (key != null) {
+			watcher.watch(key);
+		}
+	}
+
+	/**
+	 * Removes a document from the index of paths, and stops watching its
+	 * file.
+	 * 
+	 * @param model
+	 *            the document
+	 */
+	private void unindexPath(SingleDocumentModel model) {
+		Path key = documents.unindexPath(model);
+		if (key != null) {
+			watcher.unwatch(key);
+		}
+	}
+
+	@Override
+	public Iterator<SingleDocumentModel> iterator() {
+		return documents.iterator();
+	}
+
+	@Override
+	public SingleDocumentModel createNewDocument() {
+		SingleDocumentModel newModel = new DefaultSingleDocumentModel(null, "");
+		addDocument(newModel);
+		newModel.addSingleDocumentListener(new ListenerImpl());
+
+		currentDocument = newModel;
+
+		listeners.forEach(a -> a.documentAdded(newModel));
+
+		this.insertTab(
+				"", 
+				greenSaveIcon,
+				new JPanel(), 
+				"",
+				documents.size() - 1
+		);
+
+		this.setSelectedIndex(indexOfDocument(currentDocument));
+
+		return newModel;
+	}
+
+	@Override
+	public SingleDocumentModel getCurrentDocument() {
+		return getSelectedIndex() == -1 ? 
+				currentDocument
+				: documents.get(getSelectedIndex());
+	}
+
+	@Override
+	public SingleDocumentModel loadDocument(Path path) {
+		Objects.requireNonNull(path, flp.getString("path_non_null"));
+
+		SingleDocumentModel existingModel = documents.find(path);
+
+		if (existingModel != null) {
+			SingleDocumentModel newModel = existingModel;
+			listeners.forEach(
+					l -> l.currentDocumentChanged(currentDocument, newModel)
+			);
+
+			currentDocument = newModel;
+
+		} else {
+			DefaultSingleDocumentModel newModel = new DefaultSingleDocumentModel(
+					path, 
+					new PieceTableDocument()
+			);
+			newModel.setLoading(true);
+			newModel.addSingleDocumentListener(new ListenerImpl());
+
+			addDocument(newModel);
+
+			listeners.forEach(
+					l -> l.currentDocumentChanged(currentDocument, newModel)
+			);
+			currentDocument = newModel;
+			
+			listeners.forEach(l -> l.documentAdded(newModel)); // notify all
+
+			this.insertTab(
+					path.getFileName().toString(), 
+					greenSaveIcon,
+					new JPanel(),
+					path.toAbsolutePath().toString(), 
+					documents.size() - 1
+			);
+
+			startLoading(newModel, path);
+		}
+
+		this.setSelectedIndex(indexOfDocument(currentDocument)); // switch
+
+		return currentDocument;
+	}
+
+	/**
+	 * Opens the documents of the given session after the already open ones.
+	 * The documents are opened without their texts, and the file of each one
+	 * is loaded in the background once its tab is first selected, starting
+	 * with the selected one. Unsaved texts are opened as modified documents. Documents which are already open, and
+	 * documents whose files no longer exist, are skipped.
+	 * <p>
+	 * The documents left in edit journals by a run which didn't exit
+	 * normally are recovered as well. They replace the texts of their
+	 * documents in the session, which were saved earlier, and documents
+	 * which aren't in the session are opened after the others.
+	 * 
+	 * @param session
+	 *            the session
+	 */
+	public void restoreSession(Session session) {
+		List<DefaultSingleDocumentModel> restored = new ArrayList<>();
+		Set<Path> restoredPaths = new HashSet<>();
+		int selected = 0;
+		List<SessionEntry> entries = recoverJournals(session);
+		for (int i = 0, n = entries.size(); i < n; i++) {
+			SessionEntry entry = entries.get(i);
+			Path path = entry.getPath();
+			if (path != null && (documents.find(path) != null
+					|| !restoredPaths.add(OpenDocuments.pathKey(path)))) {
+				continue;
+			}
+			if (entry.getText() == null && !Files.isRegularFile(path)) {
+				continue;
+			}
+			if (i == session.getSelectedIndex()) {
+				selected = restored.size();
+			}
+
+			DefaultSingleDocumentModel model;
+			if (entry.getText() != null) {
+				model = new DefaultSingleDocumentModel(path,
+						new PieceTableDocument(entry.getText()));
+				model.setModified(true);
+			} else {
+				model = DefaultSingleDocumentModel.unloaded(path,
+						MAPPED_THRESHOLD);
+			}
+			model.setView(entry.getCaretPosition(), entry.getTopLine());
+			model.addSingleDocumentListener(new ListenerImpl());
+			restored.add(model);
+		}
+		journals.deleteRecovered();
+		if (restored.isEmpty()) {
+			return;
+		}
+
+		// the selected tab goes in first, so no other tab is ever selected
+		// and loaded on the way
+		int base = documents.size();
+		DefaultSingleDocumentModel selectedModel = restored.get(selected);
+		insertRestored(base, selectedModel);
+		for (int i = 0, n = restored.size(); i < n; i++) {
+			if (i != selected) {
+				insertRestored(base + i, restored.get(i));
+			}
+		}
+
+		// showing the selected tab starts loading it
+		setSelectedIndex(indexOfDocument(selectedModel));
+	}
+
+	/**
+	 * Replaces the texts of the session's documents with the ones recovered
+	 * from the edit journals, and adds the recovered documents which aren't
+	 * in the session.
+	 * 
+	 * @param session
+	 *            the session
+	 * @return the documents of the session, with the recovered ones
+	 */
+	private List<SessionEntry> recoverJournals(Session session) {
+		Map<String, SessionEntry> recovered = journals.recover();
+		List<SessionEntry> entries = new ArrayList<>();
+		for (SessionEntry entry : session.getEntries()) {
+			SessionEntry journaled = entry.getJournal() == null ? null
+					: recovered.remove(entry.getJournal());
+			entries.add(journaled == null ? entry
+					: new SessionEntry(entry.getPath(), journaled.getText(),
+							entry.getCaretPosition(), entry.getTopLine(),
+							null));
+		}
+		entries.addAll(recovered.values());
+		return entries;
+	}
+
+	/**
+	 * Discards the edit journals of all documents. Called when the program
+	 * exits normally, once the unsaved documents are either kept in the
+	 * session or deliberately left unsaved.
+	 */
+	public void discardJournals() {
+		journals.discardAll();
+	}
+
+	/**
+	 * Inserts a restored document and its tab at the given index.
+	 * 
+	 * @param index
+	 *            the index
+	 * @param model
+	 *            the restored document
+	 */
+	private void insertRestored(int index, DefaultSingleDocumentModel model) {
+		insertDocument(index, model);
+		listeners.forEach(l -> l.documentAdded(model));
+
+		Path path = model.getFilePath();
+		this.insertTab(
+				path == null ? "" : path.getFileName().toString(),
+				model.isModified() ? redSaveIcon : greenSaveIcon,
+				new JPanel(),
+				path == null ? "" : path.toAbsolutePath().toString(),
+				index
+		);
+	}
+
+	/**
+	 * Captures the open documents as a session, on the event dispatch
+	 * thread. Only the paths, caret positions and first visible lines are
+	 * taken, together with immutable snapshots of the modified documents, so
+	 * capturing is cheap; the snapshots are compressed when the session is
+	 * written. New documents which were never changed are left out.
+	 * 
+	 * @return the session
+	 */
+	public Session captureSession() {
+		List<SessionEntry> entries = new ArrayList<>();
+		int selected = -1;
+		for (int i = 0, n = documents.size(); i < n; i++) {
+			DefaultSingleDocumentModel model =
+					(DefaultSingleDocumentModel) documents.get(i);
+			if (model.getFilePath() == null && !model.isModified()) {
+				continue;
+			}
+			if (i == getSelectedIndex()) {
+				selected = entries.size();
+			}
+			entries.add(new SessionEntry(
+					model.getFilePath(),
+					model.isModified() ? model.snapshot() : null,
+					model.getCaretPosition(),
+					model.getTopLine(),
+					model.getJournalName()
+			));
+		}
+		return new Session(entries, selected);
+	}
+
+	/**
+	 * Runs the given action once the given document is loaded, or right away
+	 * if it isn't being loaded. The action is dropped if the document is
+	 * closed before it is loaded.
+	 * 
+	 * @param model
+	 *            the document
+	 * @param action
+	 *            the action
+	 */
+	void afterLoading(SingleDocumentModel model, Runnable action) {
+		if (loaders.containsKey(model)) {
+			loadedActions.computeIfAbsent(model, m -> new ArrayList<>())
+					.add(action);
+		} else {
+			action.run();
+		}
+	}
+
+	/**
+	 * Starts loading the file at the given path into the given model on the
+	 * background I/O executor. Until the loading is done, the model's tab
+	 * shows the progress and a button which cancels the loading. Files of at
+	 * least {@link #MAPPED_THRESHOLD} bytes are memory-mapped, and only the
+	 * parts which are displayed are decoded.
+	 * 
+	 * @param model
+	 *            the model into which the file is loaded
+	 * @param path
+	 *            the path of the file
+	 */
+	private void startLoading(DefaultSingleDocumentModel model, Path path) {
+		PieceTableDocument target = model.getDocument();
+		LoadingTab tab = new LoadingTab(path.getFileName().toString());
+
+		DocumentLoader loader = new DocumentLoader(path, target,
+				MAPPED_THRESHOLD, new DocumentLoadListener() {
+
+					@Override
+					public void loadProgressed(int percent) {
+						tab.setProgress(percent);
+					}
+
+					@Override
+					public void loadFinished(PieceTableDocument replacement) {
+						if (loaders.remove(model) == null) {
+							return;
+						}
+						if (replacement != null) {
+							model.setDocument(replacement);
+						}
+						// only large files are handed over mapped
+						model.setMapped(replacement != null);
+						model.setLoading(false);
+						scanFile(model);
+						setTabComponentAt(indexOfDocument(model), null);
+
+						List<Runnable> actions = loadedActions.remove(model);
+						if (actions != null) {
+							actions.forEach(Runnable::run);
+						}
+					}
+
+					@Override
+					public void loadFailed(IOException cause) {
+						if (loaders.remove(model) == null) {
+							return;
+						}
+						closeDocument(model);
+						JOptionPane.showMessageDialog(
+								DefaultMultipleDocumentModel.this,
+								flp.getString("error_loading_file"),
+								flp.getString("error"),
+								JOptionPane.ERROR_MESSAGE
+						);
+					}
+
+					@Override
+					public void loadCancelled() {
+						if (loaders.remove(model) != null) {
+							closeDocument(model);
+						}
+					}
+				});
+
+		loaders.put(model, loader);
+		tab.cancelButton.addActionListener(e -> loader.cancel());
+		setTabComponentAt(indexOfDocument(model), tab);
+
+		ioExecutor.execute(loader);
+	}
+
+	/**
+	 * Reads the blocks of a document's file in the background, so the file
+	 * can be reloaded partially once another program changes it. If the file
+	 * has already changed since the document was loaded or saved, the
+	 * document is checked right away.
+	 * 
+	 * @param model
+	 *            the document
+	 */
+	private void scanFile(DefaultSingleDocumentModel model) {
+		Path path = model.getFilePath();
+		if (path == null) {
+			return;
+		}
+		ioExecutor.execute(() -> {
+			try {
+				FileBlocks blocks = FileBlocks.scan(path);
+				SwingUtilities.invokeLater(() -> {
+					model.setFileBlocks(blocks);
+					checkFile(model);
+				});
+			} catch (IOException ignorable) {
+				// the whole file is reloaded once it changes
+			}
+		});
+	}
+
+	/**
+	 * Checks the document of a watched file, once the file has changed and
+	 * is quiet.
+	 * 
+	 * @param path
+	 *            the key of the document's path
+	 */
+	private void fileChanged(Path path) {
+		SingleDocumentModel model = documents.findByKey(path);
+		if (model != null) {
+			checkFile((DefaultSingleDocumentModel) model);
+		}
+	}
+
+	/**
+	 * Checks whether the file of a document was changed by another program,
+	 * and brings the document up to date. An unmodified document is
+	 * reloaded, and a hibernated one reads the new file once it wakes up. A
+	 * modified document is only marked as changed externally, and the user
+	 * is asked before the new file is saved over. Documents which are being
+	 * loaded, reloaded or saved are checked once that is done.
+	 * 
+	 * @param model
+	 *            the document
+	 */
+	private void checkFile(DefaultSingleDocumentModel model) {
+		if (indexOfDocument(model) == -1 || model.getFilePath() == null
+				|| loaders.containsKey(model) || reloads.contains(model)
+				|| isSaving(model) || model.isBusy()
+				|| model.isFileUnchanged()) {
+			return;
+		}
+
+		if (model.isHibernated()) {
+			if (Files.exists(model.getFilePath())) {
+				model.forgetHibernatedText();
+			}
+		} else if (model.isModified()) {
+			model.setExternallyChanged(true);
+			showExternalChange(model);
+		} else {
+			reload(model);
+		}
+	}
+
+	/**
+	 * Reloads an unmodified document from its changed file in the
+	 * background. Only the changed range of the file is read, if the blocks
+	 * of the file from which the document was loaded are known.
+	 * 
+	 * @param model
+	 *            the document
+	 */
+	private void reload(DefaultSingleDocumentModel model) {
+		reloads.add(model);
+		Path path = model.getFilePath();
+		// a document which failed to read its mapping is reloaded as a whole
+		FileBlocks baseline = model.isMappingStale() ? null
+				: model.getFileBlocks();
+		boolean mapped = model.isMapped();
+		long fingerprint = model.getFingerprint();
+
+		ioExecutor.execute(() -> {
+			FileReload reload;
+			try {
+				reload = FileReload.read(path, baseline, mapped,
+						MAPPED_THRESHOLD);
+			} catch (IOException e) {
+				reload = null;
+			}
+			FileReload result = reload;
+			SwingUtilities.invokeLater(
+					() -> reloaded(model, fingerprint, result));
+		});
+	}
+
+	/**
+	 * Applies a reload read in the background, unless the document was
+	 * edited or closed, or its file changed again, in the meantime. A
+	 * document whose file was deleted is marked as changed externally, and
+	 * is reloaded if the file appears again.
+	 * 
+	 * @param model
+	 *            the document
+	 * @param fingerprint
+	 *            the fingerprint of the document's text when the reload was
+	 *            started
+	 * @param reload
+	 *            the reload, or <code>null</code> if the file couldn't be
+	 *            read
+	 */
+	private void reloaded(DefaultSingleDocumentModel model, long fingerprint,
+			FileReload reload) {
+		reloads.remove(model);
+		if (indexOfDocument(model) == -1) {
+			return;
+		}
+
+		if (reload == null) {
+			// a file which is still being written is reported again
+			if (!Files.exists(model.getFilePath())) {
+				model.setExternallyChanged(true);
+				showExternalChange(model);
+			}
+			return;
+		}
+
+		if (!model.isModified() && model.getFingerprint() == fingerprint
+				&& !isSaving(model)
+				&& reload.getBlocks().isUpToDate(model.getFilePath())) {
+			model.reload(reload);
+			showExternalChange(model);
+		}
+		checkFile(model);
+	}
+
+	/**
+	 * @param model
+	 *            a document
+	 * @return true if a save of the document isn't done yet
+	 */
+	private boolean isSaving(SingleDocumentModel model) {
+		SaveQueue queue = saveQueues.get(model);
+		return queue != null && queue.isSaving();
+	}
+
+	/**
+	 * Marks a document as being changed by a tool in the background, or as
+	 * no longer being changed. A busy document is neither hibernated nor
+	 * reloaded, so changes of its file are only checked once the tool is
+	 * done.
+	 * 
+	 * @param model
+	 *            the document
+	 * @param busy
+	 *            true if a tool is changing the document
+	 */
+	void setBusy(SingleDocumentModel model, boolean busy) {
+		DefaultSingleDocumentModel defaultModel =
+				(DefaultSingleDocumentModel) model;
+		defaultModel.setBusy(busy);
+		if (!busy) {
+			checkFile(defaultModel);
+		}
+	}
+
+	/**
+	 * Shows in the tab of a document whether its file was changed by another
+	 * program while the document was modified.
+	 * 
+	 * @param model
+	 *            the document
+	 */
+	private void showExternalChange(DefaultSingleDocumentModel model) {
+		int index = indexOfDocument(model);
+		Path path = model.getFilePath();
+		if (index == -1 || path == null) {
+			return;
+		}
+
+		if (model.isExternallyChanged()) {
+			setForegroundAt(index, CHANGED_COLOR);
+			setToolTipTextAt(index, flp.getTemplate("file_changed")
+					.format(path.toAbsolutePath()));
+		} else {
+			setForegroundAt(index, null);
+			setToolTipTextAt(index, path.toAbsolutePath().toString());
+		}
+	}
+
+	/**
+	 * The component displayed in the tab of a document which is being 
+	 * loaded. Shows the title, the loading progress, and a button which
+	 * cancels the loading.
+	 * 
+	 * @author 0036502252
+	 *
+	 */
+	private class LoadingTab extends JPanel {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * Shows the loading progress.
+		 */
+		private final JProgressBar progressBar;
+		/**
+		 * Cancels the loading.
+		 */
+		private final JButton cancelButton;
+
+		/**
+		 * Constructs a new {@link LoadingTab}.
+		 * 
+		 * @param title
+		 *            the title of the tab
+		 */
+		LoadingTab(String title) {
+			super(new FlowLayout(FlowLayout.LEFT, 4, 0));
+			setOpaque(false);
+
+			progressBar = new JProgressBar(0, 100);
+			progressBar.setPreferredSize(new Dimension(48, 10));
+
+			cancelButton = new JButton("\u00D7");
+			cancelButton.setBorder(BorderFactory.createEmptyBorder());
+			cancelButton.setContentAreaFilled(false);
+			cancelButton.setToolTipText(flp.getString("cancel_loading"));
+
+			add(new JLabel(title));
+			add(progressBar);
+			add(cancelButton);
+		}
+
+		/**
+		 * @param percent
+		 *            the loaded percentage of the file
+		 */
+		void setProgress(int percent) {
+			progressBar.setValue(percent);
+		}
+	}
+
+	/**
+	 * A custom {@link SingleDocumentListener} implementation which sets the tab
+	 * icon depending on the status of the document in that particular tab
+	 * 
+	 * @author 0036502252
+	 *
+	 */
+	private class ListenerImpl implements SingleDocumentListener {
+
+		@Override
+		public void documentModifyStatusUpdated(SingleDocumentModel model) {
+			int index = indexOfDocument(model);
+			if (index == -1) {
+				return;
+			}
+
+			if (model.isModified()) {
+				setIconAt(index, redSaveIcon);
+			} else {
+				setIconAt(index, greenSaveIcon);
+			}
+			showExternalChange((DefaultSingleDocumentModel) model);
+
+			// the user's edits no longer keep the file's changes out
+			if (!model.isModified() && ((DefaultSingleDocumentModel) model)
+					.isExternallyChanged()) {
+				checkFile((DefaultSingleDocumentModel) model);
+			}
+		}
+
+		@Override
+		public void documentFilePathUpdated(SingleDocumentModel model) {
+			int index = indexOfDocument(model);
+			if (index == -1) {
+				return;
+			}
+
+			unindexPath(model);
+			indexPath(model);
+
+			setTitleAt(index, model.getFilePath().getFileName().toString());
+		}
+
+		@Override
+		public void documentSaved(SingleDocumentModel model) {
+			documentModifyStatusUpdated(model);
+		}
+
+		@Override
+		public void documentSaveFailed(SingleDocumentModel model,
+				IOException cause) {
+			int index = indexOfDocument(model);
+			if (index == -1) {
+				return;
+			}
+
+			setIconAt(index, redSaveIcon);
+			JOptionPane.showMessageDialog(
+					DefaultMultipleDocumentModel.this,
+					flp.getString("error_writing_file"), 
+					flp.getString("error"),
+					JOptionPane.ERROR_MESSAGE
+			);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The document is saved in the background. A snapshot of its text is
+	 * taken immediately, so the document can be edited while it is being
+	 * written. The tab shows a yellow icon until the save is done.
+	 */
+	@Override
+	public void saveDocument(SingleDocumentModel model, Path newPath) {
+		Path pathToWrite = newPath == null ? model.getFilePath() : newPath;
+
+		if (loaders.containsKey(model)) {
+			JOptionPane.showMessageDialog(
+					this,
+					flp.getString("file_still_loading"), 
+					flp.getString("info"),
+					JOptionPane.INFORMATION_MESSAGE
+			);
+			return;
+		}
+
+		SingleDocumentModel existingModel = documents.find(pathToWrite);
+		if (existingModel != null && existingModel != model) {
+			JOptionPane.showMessageDialog(this,
+					flp.getString("file_already_opened"),
+					flp.getString("error"), JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+
+		DefaultSingleDocumentModel defaultModel =
+				(DefaultSingleDocumentModel) model;
+		if (defaultModel.isExternallyChanged()
+				&& pathToWrite.equals(model.getFilePath())
+				&& JOptionPane.showConfirmDialog(this,
+						flp.getString("overwrite_changed_file"),
+						flp.getString("warning"), JOptionPane.YES_NO_OPTION,
+						JOptionPane.WARNING_MESSAGE)
+						!= JOptionPane.YES_OPTION) {
+			return;
+		}
+
+		SaveQueue queue = saveQueues.get(model);
+		if (queue == null) {
+			queue = new SaveQueue(saveExecutor, new SaveListener() {
+				@Override
+				public void saveCompleted(Path path, long fingerprint) {
+					// the text of a closed document was still written
+					if (indexOfDocument(model) == -1) {
+						return;
+					}
+
+					if (!path.equals(model.getFilePath())) {
+						model.setFilePath(path);
+					} else if (documents.isPathIndexed(model)) {
+						// a new file only has a real path once it is written
+						unindexPath(model);
+						indexPath(model);
+					}
+					defaultModel.markSaved(fingerprint);
+					defaultModel.fireDocumentSaved();
+					scanFile(defaultModel);
+				}
+
+				@Override
+				public void saveFailed(Path path, IOException cause) {
+					if (indexOfDocument(model) == -1) {
+						return;
+					}
+					defaultModel.fireDocumentSaveFailed(cause);
+				}
+			});
+			saveQueues.put(model, queue);
+		}
+
+		queue.submit(
+				DocumentTextSource.snapshot(
+						defaultModel.getDocument()),
+				pathToWrite,
+				defaultModel.getFingerprint()
+		);
+
+		// the document gets its new path once it has been written there
+		int index = indexOfDocument(model);
+		if (index != -1) {
+			setIconAt(index, savingIcon);
+		}
+	}
+
+	/**
+	 * Waits until all the submitted saves are written to disk. No saves can
+	 * be submitted afterwards, so this should only be called when the program
+	 * is about to exit.
+	 */
+	public void awaitPendingSaves() {
+		saveExecutor.shutdown();
+		try {
+			saveExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void closeDocument(SingleDocumentModel model) {
+		if (documents.isEmpty()) {
+			JOptionPane.showMessageDialog(
+					this,
+					flp.getString("no_tabs_to_close"), 
+					flp.getString("info"),
+					JOptionPane.INFORMATION_MESSAGE
+			);
+			
+		} else {
+			DocumentLoader loader = loaders.remove(model);
+			if (loader != null) {
+				loader.cancel();
+			}
+			loadedActions.remove(model);
+			saveQueues.remove(model);
+
+			int index = indexOfDocument(model);
+			if (index == -1) {
+				return;
+			}
+			removeDocument(index);
+			this.removeTabAt(index);
+			((DefaultSingleDocumentModel) model).dispose();
+
+			listeners.forEach(a -> a.documentRemoved(model));
+			if (this.getSelectedIndex() >= 0) {
+				SingleDocumentModel newModel = documents.get(
+						this.getSelectedIndex()
+				);
+				
+				listeners.forEach(
+						l -> l.currentDocumentChanged(currentDocument,newModel)
+				);
+
+				currentDocument = newModel;
+			}
+		}
+	}
+
+	@Override
+	public void addMultipleDocumentListener(MultipleDocumentListener l) {
+		listeners.add(l);
+	}
+
+	@Override
+	public void removeMultipleDocumentListener(MultipleDocumentListener l) {
+		listeners.remove(l);
+	}
+
+	@Override
+	public int getNumberOfDocuments() {
+		return documents.size();
+	}
+
+	@Override
+	public SingleDocumentModel getDocument(int index) {
+		return documents.get(index);
+	}
+
+}
@@ -1,149 +1,1017 @@
-package hr.fer.zemris.java.hw11.jnotepadpp;
-
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-
-import javax.swing.JTextArea;
-import javax.swing.event.DocumentEvent;
-import javax.swing.event.DocumentListener;
-import javax.swing.text.Document;
-
-import hr.fer.zemris.java.hw11.interfaces.SingleDocumentListener;
-import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
-
-/**
- * Represents a single document in the {@link JNotepadPP} program. Each program
- * has its path, {@link JTextArea}, and {@link SingleDocumentListener}
- * listeners.
- * 
- * @author 0036502252
- *
- */
-public class DefaultSingleDocumentModel implements SingleDocumentModel {
-	/**
-	 * The path of this document.
-	 */
-	private Path filePath;
-	/**
-	 * The {@link JTextArea} used by this document for editing.
-	 */
-	private JTextArea jta;
-	/**
-	 * Indicates whether this file is modified.
-	 */
-	private boolean isModified;
-	/**
-	 * This document's listeners.
-	 */
-	private List<SingleDocumentListener> listeners;
-
-	/**
-	 * Constructs a new {@link DefaultMultipleDocumentModel}.
-	 * @param filePath the path of the document
-	 * @param textContent the text content of the document
-	 */
-	public DefaultSingleDocumentModel(Path filePath, String textContent) {
-		this.filePath = filePath;
-
-		jta = new JTextArea();
-		jta.setText(textContent);
-		Document doc = jta.getDocument();
-
-		doc.addDocumentListener(new DocumentListener() {
-
-			@Override
-			public void removeUpdate(DocumentEvent arg0) {
-				setModified(true);
-			}
-
-			@Override
-			public void insertUpdate(DocumentEvent arg0) {
-				setModified(true);
-			}
-
-			@Override
-			public void changedUpdate(DocumentEvent arg0) {
-				setModified(true);
-			}
-		});
-
-		listeners = new ArrayList<>();
-	}
-
-	@Override
-	public JTextArea getTextComponent() {
-		return jta;
-	}
-
-	@Override
-	public Path getFilePath() {
-		return filePath;
-	}
-
-	@Override
-	public void setFilePath(Path path) {
-		Objects.requireNonNull(path, "Path must not be null!");
-		this.filePath = path;
-		listeners.forEach(l -> l.documentFilePathUpdated(this));
-	}
-
-	@Override
-	public boolean isModified() {
-		return isModified;
-	}
-
-	@Override
-	public void setModified(boolean modified) {
-		this.isModified = modified;
-		listeners.forEach(l -> l.documentModifyStatusUpdated(this));
-	}
-
-	@Override
-	public void addSingleDocumentListener(SingleDocumentListener l) {
-		listeners.add(l);
-	}
-
-	@Override
-	public void removeSingleDocumentListener(SingleDocumentListener l) {
-		listeners.remove(l);
-	}
-
-	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result
-				+ ((filePath == null) ? 0 : filePath.hashCode());
-		result = prime * result + ((jta == null) ? 0 : jta.hashCode());
-		return result;
-	}
-
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj == null)
-			return false;
-		if (!(obj instanceof DefaultSingleDocumentModel))
-			return false;
-		DefaultSingleDocumentModel other = (DefaultSingleDocumentModel) obj;
-		if (filePath == null) {
-			if (other.filePath != null)
-				return false;
-		} else if (!filePath.equals(other.filePath))
-			return false;
-		if (jta == null) {
-			if (other.jta != null)
-				return false;
-		} else if (jta != other.jta)
-			return false;
-		return true;
-	}
-
-	@Override
-	public String toString() {
-		return jta.getText();
-	}
-}
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.swing.JTextArea;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentListener;
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.CompressedText;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.DocumentDeltaListener;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.DocumentStatistics;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.LineIndex;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.MappedTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.UndoHistory;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.FileBlocks;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.FileReload;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.TextFiles;
+import hr.fer.zemris.java.hw11.jnotepadpp.session.EditJournal;
+import hr.fer.zemris.java.hw11.jnotepadpp.session.JournalStore;
+
+/**
+ * Represents a single document in the {@link JNotepadPP} program. Each program
+ * has its path, {@link JTextArea}, and {@link SingleDocumentListener}
+ * listeners.
+ * <p>
+ * The {@link JTextArea} is only created once it is first needed. A document
+ * which hasn't been used for a while, and has no changes to save or undo,
+ * can be hibernated: its text area and text are dropped, and the text is
+ * kept compressed, or not at all if it can be read again from the unchanged
+ * file. Any method which needs the text wakes the document up again. The
+ * caret position and the first visible line of a document without a text
+ * area are kept, and restored once the text area is shown again.
+ * <p>
+ * An unmodified document can be reloaded when its file is changed by
+ * another program. A modified document is only marked as changed
+ * externally, so the user's edits aren't lost.
+ * 
+ * @author 0036502252
+ *
+ */
+public class DefaultSingleDocumentModel implements SingleDocumentModel {
+	/**
+	 * The delay in milliseconds after an edit before the modification status
+	 * is checked, so all edits made within a single frame are checked once.
+	 */
+	private static final int MODIFICATION_CHECK_DELAY = 16;
+	/**
+	 * The saved fingerprint of a document which was marked as modified
+	 * without being saved. Never equal to an actual fingerprint.
+	 */
+	private static final long NOT_SAVED = -1;
+
+	/**
+	 * The path of this document.
+	 */
+	private Path filePath;
+	/**
+	 * The {@link JTextArea} used by this document for editing, or
+	 * <code>null</code> if it hasn't been created yet.
+	 */
+	private JTextArea jta;
+	/**
+	 * The text of this document, or <code>null</code> while it is
+	 * hibernated.
+	 */
+	private PieceTableDocument document;
+	/**
+	 * Indicates whether this file is modified.
+	 */
+	private boolean isModified;
+	/**
+	 * This document's listeners.
+	 */
+	private List<SingleDocumentListener> listeners;
+	/**
+	 * The listener which schedules a modification check on every change.
+	 */
+	private DocumentListener modificationListener;
+	/**
+	 * Checks whether the document is modified, once the pending changes are
+	 * done.
+	 */
+	private Timer modificationTimer;
+	/**
+	 * The fingerprint of the document's text when it was last saved.
+	 */
+	private long savedFingerprint;
+	/**
+	 * The index of the document's lines.
+	 */
+	private LineIndex lineIndex;
+	/**
+	 * The undo and redo history of the document.
+	 */
+	private UndoHistory undoHistory;
+	/**
+	 * Indicates whether the document is still being loaded.
+	 */
+	private boolean loading;
+	/**
+	 * Indicates whether the document is hibernated.
+	 */
+	private boolean hibernated;
+	/**
+	 * The compressed text of the hibernated document, or <code>null</code>
+	 * if it is read from its file when woken up.
+	 */
+	private CompressedText compressedText;
+	/**
+	 * The size in bytes from which the file of a hibernated document is
+	 * memory-mapped when it is read again.
+	 */
+	private long mappedThreshold;
+	/**
+	 * The time in milliseconds at which the document was last used.
+	 */
+	private long lastUsed;
+	/**
+	 * The size of the document's file when it was last loaded or saved, or
+	 * -1 if unknown.
+	 */
+	private long fileSize;
+	/**
+	 * The modification time of the document's file when it was last loaded
+	 * or saved.
+	 */
+	private FileTime fileModified;
+	/**
+	 * The caret position kept while the document has no text area.
+	 */
+	private int caretPosition;
+	/**
+	 * The first visible line kept while the document has no text area.
+	 */
+	private int topLine;
+	/**
+	 * Indicates whether the kept caret position and first visible line are
+	 * still to be restored.
+	 */
+	private boolean viewPending;
+	/**
+	 * The store in which the journals of the document are kept, or
+	 * <code>null</code> if the edits aren't journaled.
+	 */
+	private JournalStore journals;
+	/**
+	 * The journal of the edits made since the document was last loaded or
+	 * saved, or <code>null</code> if there is none.
+	 */
+	private EditJournal journal;
+	/**
+	 * Passes the edits on to the current journal.
+	 */
+	private DocumentDeltaListener journalListener;
+	/**
+	 * The blocks of the document's file as it was last loaded, saved or
+	 * reloaded, or <code>null</code> if they aren't known.
+	 */
+	private FileBlocks fileBlocks;
+	/**
+	 * Indicates whether the text may be read from a memory mapping of the
+	 * document's file.
+	 */
+	private boolean mapped;
+	/**
+	 * Indicates whether the document's file was changed by another program
+	 * while the document was modified.
+	 */
+	private boolean externallyChanged;
+	/**
+	 * Indicates whether a tool is changing the document in the background.
+	 */
+	private boolean busy;
+
+	/**
+	 * Constructs a new {@link DefaultMultipleDocumentModel}.
+	 * @param filePath the path of the document
+	 * @param textContent the text content of the document
+	 */
+	public DefaultSingleDocumentModel(Path filePath, String textContent) {
+		this(filePath, new PieceTableDocument(textContent));
+	}
+
+	/**
+	 * Constructs a new {@link DefaultMultipleDocumentModel} which displays the
+	 * given document.
+	 * @param filePath the path of the document
+	 * @param document the text content of the document
+	 */
+	public DefaultSingleDocumentModel(Path filePath,
+			PieceTableDocument document) {
+		this.filePath = filePath;
+		this.fileSize = -1;
+		this.lastUsed = System.currentTimeMillis();
+
+		modificationTimer = new Timer(MODIFICATION_CHECK_DELAY,
+				e -> updateModified(getFingerprint() != savedFingerprint));
+		modificationTimer.setRepeats(false);
+		savedFingerprint = document.fingerprint();
+
+		modificationListener = new DocumentListener() {
+
+			@Override
+			public void removeUpdate(DocumentEvent arg0) {
+				scheduleModificationCheck();
+			}
+
+			@Override
+			public void insertUpdate(DocumentEvent arg0) {
+				scheduleModificationCheck();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent arg0) {
+				scheduleModificationCheck();
+			}
+		};
+		journalListener = new DocumentDeltaListener() {
+			@Override
+			public void textInserted(PieceTableDocument document, int offset,
+					int length) {
+				EditJournal current = journal;
+				if (current != null) {
+					current.textInserted(document, offset, length);
+				}
+			}
+
+			@Override
+			public void textRemoving(PieceTableDocument document, int offset,
+					int length) {
+				EditJournal current = journal;
+				if (current != null) {
+					current.textRemoving(document, offset, length);
+				}
+			}
+		};
+		attach(document);
+
+		listeners = new ArrayList<>();
+	}
+
+	/**
+	 * Creates a document which isn't loaded yet. Like a hibernated document,
+	 * it gets its text once it is first needed - once its tab is selected,
+	 * its file is loaded in the background, see {@link #wakeForLoading()}.
+	 * 
+	 * @param filePath
+	 *            the path of the document
+	 * @param mappedThreshold
+	 *            the size in bytes from which the file is memory-mapped when
+	 *            it is read
+	 * @return the document
+	 */
+	static DefaultSingleDocumentModel unloaded(Path filePath,
+			long mappedThreshold) {
+		DefaultSingleDocumentModel model = new DefaultSingleDocumentModel(
+				filePath, new PieceTableDocument());
+		model.mappedThreshold = mappedThreshold;
+		model.hibernate();
+		return model;
+	}
+
+	/**
+	 * Makes the given document the text of this model, and creates its undo
+	 * history.
+	 * 
+	 * @param document
+	 *            the document
+	 */
+	private void attach(PieceTableDocument document) {
+		this.document = document;
+		document.addDocumentListener(modificationListener);
+
+		lineIndex = document.getLineIndex();
+		document.addDocumentDeltaListener(journalListener);
+
+		undoHistory = new UndoHistory(document);
+		undoHistory.setRecording(!loading);
+
+		TextSource original = document.getOriginal();
+		if (original instanceof MappedTextSource) {
+			((MappedTextSource) original).setChangeListener(
+					() -> SwingUtilities.invokeLater(() -> mappingChanged(
+							document)));
+		}
+	}
+
+	/**
+	 * Detaches the current document from this model, and releases its undo
+	 * history.
+	 */
+	private void detach() {
+		document.removeDocumentListener(modificationListener);
+		document.removeDocumentDeltaListener(journalListener);
+		undoHistory.dispose();
+
+		TextSource original = document.getOriginal();
+		if (original instanceof MappedTextSource) {
+			((MappedTextSource) original).setChangeListener(null);
+		}
+	}
+
+	/**
+	 * Called once the file mapped by the given document turns out to have
+	 * been changed by another program, so some of the document's text could
+	 * not be read from it. The document is marked as externally changed,
+	 * which lets it be reloaded.
+	 *
+	 * @param document
+	 *            the document whose mapping changed
+	 */
+	private void mappingChanged(PieceTableDocument document) {
+		if (this.document != document || externallyChanged) {
+			return;
+		}
+		externallyChanged = true;
+		listeners.forEach(l -> l.documentModifyStatusUpdated(this));
+	}
+
+	/**
+	 * Replaces the document displayed by this model, e.g. once a file which
+	 * was loaded in the background is ready.
+	 * 
+	 * @param document
+	 *            the new document
+	 */
+	void setDocument(PieceTableDocument document) {
+		wake();
+		detach();
+		attach(document);
+		if (jta != null) {
+			jta.setDocument(document);
+		}
+	}
+
+	/**
+	 * Releases the resources held by this model once its document is
+	 * closed.
+	 */
+	void dispose() {
+		discardJournal();
+		modificationTimer.stop();
+		if (!hibernated) {
+			undoHistory.dispose();
+		}
+	}
+
+	/**
+	 * Journals the edits of this document in the given store from now on.
+	 * 
+	 * @param journals
+	 *            the store
+	 */
+	void setJournals(JournalStore journals) {
+		this.journals = journals;
+		startJournal();
+	}
+
+	/**
+	 * Starts a new journal, unless the document already has one, or isn't
+	 * journaled at the moment. The journal of an unmodified document starts
+	 * from its file, the journal of a modified one from a snapshot of its
+	 * text.
+	 */
+	private void startJournal() {
+		if (journals == null || journal != null || loading || hibernated) {
+			return;
+		}
+		long modified = fileModified == null ? 0 : fileModified.toMillis();
+		journal = journals.open(filePath,
+				isModified ? document.snapshot() : null, fileSize, modified);
+	}
+
+	/**
+	 * Discards the current journal, if there is one.
+	 */
+	private void discardJournal() {
+		if (journal != null) {
+			journals.discard(journal);
+			journal = null;
+		}
+	}
+
+	/**
+	 * @return the name of the document's journal, or <code>null</code> if it
+	 *         has none
+	 */
+	String getJournalName() {
+		return journal == null ? null : journal.getName();
+	}
+
+	/**
+	 * @return the text of this document, woken up if it was hibernated
+	 */
+	PieceTableDocument getDocument() {
+		wake();
+		return document;
+	}
+
+	/**
+	 * Creates an immutable snapshot of the document's text. A hibernated
+	 * document is not woken up.
+	 * 
+	 * @return the snapshot of the text
+	 */
+	TextSource snapshot() {
+		if (hibernated) {
+			try {
+				return readHibernatedText();
+			} catch (IOException e) {
+				return new ArrayTextSource(new char[0]);
+			}
+		}
+		return document.snapshot();
+	}
+
+	/**
+	 * Supplies an immutable snapshot of the document's text. The text of a
+	 * hibernated document is read only when the snapshot is supplied, e.g. by
+	 * a search task, and the document is not woken up.
+	 * 
+	 * @return the supplier of the snapshot, which throws an
+	 *         {@link UncheckedIOException} if the text can't be read
+	 */
+	Supplier<TextSource> snapshotSupplier() {
+		if (!hibernated) {
+			TextSource snapshot = document.snapshot();
+			return () -> snapshot;
+		}
+		CompressedText compressed = compressedText;
+		Path path = filePath;
+		long threshold = mappedThreshold;
+		return () -> {
+			if (compressed != null) {
+				return compressed.decompress();
+			}
+			try {
+				return TextFiles.read(path, threshold);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * Records that the document is used now.
+	 */
+	void touch() {
+		lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Hibernates the document if it hasn't been used for the given time, is
+	 * not being loaded, and has no changes to save, undo or redo. The text
+	 * area and the text are dropped. If the document's file hasn't changed
+	 * since it was loaded or saved, the text will be read from it again,
+	 * otherwise it is kept compressed.
+	 * 
+	 * @param idleTime
+	 *            the time in milliseconds for which the document must not
+	 *            have been used
+	 * @param mappedThreshold
+	 *            the size in bytes from which the file is memory-mapped when
+	 *            it is read again
+	 * @return true if the document has been hibernated
+	 */
+	boolean hibernateIfIdle(long idleTime, long mappedThreshold) {
+		if (hibernated || loading || isModified
+				|| System.currentTimeMillis() - lastUsed < idleTime
+				|| undoHistory.canUndo() || undoHistory.canRedo()) {
+			return false;
+		}
+
+		if (!isFileUnchanged()) {
+			compressedText = CompressedText.compress(document.snapshot());
+		}
+		this.mappedThreshold = mappedThreshold;
+		hibernate();
+		return true;
+	}
+
+	/**
+	 * Drops the text area and the text of the document, keeping the caret
+	 * position and the first visible line.
+	 */
+	private void hibernate() {
+		discardJournal();
+		if (jta != null) {
+			setView(getCaretPosition(), getTopLine());
+		}
+		modificationTimer.stop();
+		detach();
+		document = null;
+		lineIndex = null;
+		undoHistory = null;
+		jta = null;
+		hibernated = true;
+	}
+
+	/**
+	 * Wakes up the document if it is hibernated, restoring its text. If the
+	 * text can't be read from the file anymore, the document is left empty
+	 * and marked as modified.
+	 */
+	private void wake() {
+		if (!hibernated) {
+			return;
+		}
+		TextSource text;
+		boolean lost = false;
+		try {
+			text = readHibernatedText();
+		} catch (IOException e) {
+			text = new ArrayTextSource(new char[0]);
+			lost = true;
+		}
+		if (compressedText == null && !lost) {
+			recordFileStamp();
+		}
+		mapped = text instanceof MappedTextSource;
+		hibernated = false;
+		compressedText = null;
+		touch();
+
+		PieceTableDocument restored = new PieceTableDocument(text);
+		attach(restored);
+		savedFingerprint = restored.fingerprint();
+		if (lost) {
+			setModified(true);
+		}
+		startJournal();
+	}
+
+	/**
+	 * Wakes up the hibernated document without its text, if the text has to
+	 * be read from the document's file, so the file can be loaded in the
+	 * background like a newly opened one. The document is empty and loading
+	 * until then. A document whose text is kept compressed is not woken up.
+	 * 
+	 * @return true if the document was woken up, and its file has to be
+	 *         loaded
+	 */
+	boolean wakeForLoading() {
+		if (!hibernated || compressedText != null) {
+			return false;
+		}
+		hibernated = false;
+		touch();
+		attach(new PieceTableDocument());
+		setLoading(true);
+		return true;
+	}
+
+	/**
+	 * @return the text of the hibernated document
+	 * @throws IOException
+	 *             if the text has to be read from the file, and can't be
+	 */
+	private TextSource readHibernatedText() throws IOException {
+		if (compressedText != null) {
+			return compressedText.decompress();
+		}
+		return TextFiles.read(filePath, mappedThreshold);
+	}
+
+	/**
+	 * Records the size and the modification time of the document's file, so
+	 * it can later be checked whether the file has changed.
+	 */
+	private void recordFileStamp() {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(filePath,
+					BasicFileAttributes.class);
+			fileSize = attributes.size();
+			fileModified = attributes.lastModifiedTime();
+		} catch (IOException e) {
+			fileSize = -1;
+		}
+	}
+
+	/**
+	 * @return true if the document's file has the size and modification time
+	 *         recorded when it was last loaded or saved
+	 */
+	boolean isFileUnchanged() {
+		if (filePath == null || fileSize < 0) {
+			return false;
+		}
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(filePath,
+					BasicFileAttributes.class);
+			return attributes.size() == fileSize
+					&& attributes.lastModifiedTime().equals(fileModified);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Schedules a check of the modification status, unless the document is
+	 * being loaded or a check is already scheduled.
+	 */
+	private void scheduleModificationCheck() {
+		if (!loading && !modificationTimer.isRunning()) {
+			modificationTimer.start();
+		}
+	}
+
+	/**
+	 * @return the fingerprint of the document's current text
+	 */
+	long getFingerprint() {
+		return getDocument().fingerprint();
+	}
+
+	/**
+	 * Marks the text with the given fingerprint as saved. The document stays
+	 * modified if it was changed since the saved text was taken.
+	 * 
+	 * @param fingerprint
+	 *            the fingerprint of the saved text
+	 */
+	void markSaved(long fingerprint) {
+		recordFileStamp();
+		// the file was replaced, so a mapping refers to the old one
+		mapped = false;
+		externallyChanged = false;
+		savedFingerprint = fingerprint;
+		updateModified(getFingerprint() != fingerprint);
+
+		// the saved edits don't have to be recovered anymore
+		discardJournal();
+		startJournal();
+	}
+
+	/**
+	 * @return the blocks of the document's file as it was last loaded, saved
+	 *         or reloaded, or <code>null</code> if they aren't known
+	 */
+	FileBlocks getFileBlocks() {
+		if (fileBlocks == null || fileBlocks.getSize() != fileSize
+				|| !fileBlocks.getModified().equals(fileModified)) {
+			// not the blocks of the file the text was taken from
+			return null;
+		}
+		return fileBlocks;
+	}
+
+	/**
+	 * Sets the blocks of the document's file. They are only used if the file
+	 * had the same size and modification time when the document was last
+	 * loaded or saved.
+	 * 
+	 * @param fileBlocks
+	 *            the blocks
+	 */
+	void setFileBlocks(FileBlocks fileBlocks) {
+		this.fileBlocks = fileBlocks;
+	}
+
+	/**
+	 * @return true if the text may be read from a memory mapping of the
+	 *         document's file
+	 */
+	boolean isMapped() {
+		return mapped;
+	}
+
+	/**
+	 * @param mapped
+	 *            true if the text may be read from a memory mapping of the
+	 *            document's file
+	 */
+	void setMapped(boolean mapped) {
+		this.mapped = mapped;
+	}
+
+	/**
+	 * @return true if some of the document's text could not be read from
+	 *         the memory mapping of its file, because another program
+	 *         changed the file
+	 */
+	boolean isMappingStale() {
+		if (document == null) {
+			return false;
+		}
+		TextSource original = document.getOriginal();
+		return original instanceof MappedTextSource
+				&& ((MappedTextSource) original).isStale();
+	}
+
+	/**
+	 * @return true if a tool is changing the document in the background
+	 */
+	boolean isBusy() {
+		return busy;
+	}
+
+	/**
+	 * Sets whether a tool is changing the document in the background. The
+	 * user can't edit a busy document.
+	 * 
+	 * @param busy
+	 *            true if a tool is changing the document
+	 */
+	void setBusy(boolean busy) {
+		this.busy = busy;
+		if (jta != null) {
+			jta.setEditable(!loading && !busy);
+		}
+	}
+
+	/**
+	 * @return true if the document's file was changed by another program
+	 *         while the document was modified
+	 */
+	boolean isExternallyChanged() {
+		return externallyChanged;
+	}
+
+	/**
+	 * @param externallyChanged
+	 *            true if the document's file was changed by another program
+	 *            while the document was modified
+	 */
+	void setExternallyChanged(boolean externallyChanged) {
+		this.externallyChanged = externallyChanged;
+	}
+
+	/**
+	 * @return true if the document is hibernated
+	 */
+	boolean isHibernated() {
+		return hibernated;
+	}
+
+	/**
+	 * Forgets the text kept for the hibernated document after its file was
+	 * changed by another program, so the new file is read once the document
+	 * wakes up.
+	 */
+	void forgetHibernatedText() {
+		compressedText = null;
+	}
+
+	/**
+	 * Brings the unmodified document up to date with its file, which was
+	 * changed by another program. If only a range of the text changed, only
+	 * the lines of the range which differ are replaced, so the caret and the
+	 * view stay where they were. The reload can't be undone, and the undo
+	 * history is cleared.
+	 * 
+	 * @param reload
+	 *            the changes read from the file
+	 */
+	void reload(FileReload reload) {
+		wake();
+		if (reload.isWhole()) {
+			int caret = getCaretPosition();
+			setDocument(reload.getWholeDocument());
+			mapped = reload.isMapped();
+			if (jta != null && !viewPending) {
+				jta.setCaretPosition(Math.min(caret, document.getLength()));
+			}
+		} else {
+			undoHistory.setRecording(false);
+			try {
+				document.replaceLines(reload.getStart(),
+						reload.getEnd() - reload.getStart(),
+						reload.getChangedText());
+			} catch (BadLocationException e) {
+				throw new IllegalStateException(e);
+			}
+			undoHistory.setRecording(!loading);
+		}
+		undoHistory.clear();
+
+		fileBlocks = reload.getBlocks();
+		fileSize = fileBlocks.getSize();
+		fileModified = fileBlocks.getModified();
+		externallyChanged = false;
+		savedFingerprint = getFingerprint();
+		updateModified(false);
+
+		// the journal starts from the new file
+		discardJournal();
+		startJournal();
+	}
+
+	/**
+	 * Notifies the listeners that the document has been written to disk.
+	 */
+	void fireDocumentSaved() {
+		listeners.forEach(l -> l.documentSaved(this));
+	}
+
+	/**
+	 * Notifies the listeners that the document could not be written to disk.
+	 * 
+	 * @param cause
+	 *            the cause of the failure
+	 */
+	void fireDocumentSaveFailed(IOException cause) {
+		listeners.forEach(l -> l.documentSaveFailed(this, cause));
+	}
+
+	/**
+	 * @return true if the document is still being loaded
+	 */
+	boolean isLoading() {
+		return loading;
+	}
+
+	/**
+	 * Sets the loading status of this document. Changes made to the document
+	 * while it is loading don't modify it, and the user can't edit it.
+	 * 
+	 * @param loading
+	 *            true if the document is being loaded
+	 */
+	void setLoading(boolean loading) {
+		this.loading = loading;
+		if (jta != null) {
+			jta.setEditable(!loading && !busy);
+		}
+		undoHistory.setRecording(!loading);
+		if (!loading) {
+			savedFingerprint = getFingerprint();
+			undoHistory.clear();
+			if (filePath != null) {
+				recordFileStamp();
+			}
+			startJournal();
+		} else {
+			discardJournal();
+		}
+	}
+
+	/**
+	 * @return the position of the caret
+	 */
+	int getCaretPosition() {
+		return jta == null || viewPending ? caretPosition
+				: jta.getCaretPosition();
+	}
+
+	/**
+	 * @return the index of the first visible line, as far as it is known
+	 */
+	int getTopLine() {
+		if (jta == null || viewPending
+				|| !(jta.getParent() instanceof JViewport)) {
+			return topLine;
+		}
+		Point position = ((JViewport) jta.getParent()).getViewPosition();
+		try {
+			return lineIndex.getLineOfOffset(jta.viewToModel(position));
+		} catch (BadLocationException e) {
+			return topLine;
+		}
+	}
+
+	/**
+	 * Sets the caret position and the first visible line, which are
+	 * restored once the text area is shown, see {@link #restoreView()}.
+	 * 
+	 * @param caretPosition
+	 *            the position of the caret
+	 * @param topLine
+	 *            the index of the first visible line
+	 */
+	void setView(int caretPosition, int topLine) {
+		this.caretPosition = caretPosition;
+		this.topLine = topLine;
+		this.viewPending = true;
+	}
+
+	/**
+	 * Restores the caret position and the first visible line set by
+	 * {@link #setView(int, int)}, if the text area is shown in a viewport.
+	 * Positions past the end of the text are moved to its end.
+	 */
+	void restoreView() {
+		if (!viewPending || jta == null
+				|| !(jta.getParent() instanceof JViewport)) {
+			return;
+		}
+		viewPending = false;
+		JViewport viewport = (JViewport) jta.getParent();
+
+		jta.setCaretPosition(Math.min(caretPosition, document.getLength()));
+		try {
+			int line = Math.min(topLine, lineIndex.getLineCount() - 1);
+			Rectangle top = jta.modelToView(lineIndex.getLineStartOffset(line));
+			if (top != null) {
+				// after the caret has scrolled itself into view
+				SwingUtilities.invokeLater(() -> viewport
+						.setViewPosition(new Point(0, top.y)));
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public JTextArea getTextComponent() {
+		wake();
+		if (jta == null) {
+			jta = new JTextArea(document);
+			jta.setEditable(!loading && !busy);
+		}
+		return jta;
+	}
+
+	/**
+	 * @return the index of the lines of this document, which is kept up to
+	 *         date as the document changes
+	 */
+	public LineIndex getLineIndex() {
+		wake();
+		return lineIndex;
+	}
+
+	/**
+	 * @return the statistics of this document, which are kept up to date as
+	 *         the document changes
+	 */
+	public DocumentStatistics getStatistics() {
+		return getDocument().getStatistics();
+	}
+
+	/**
+	 * @return the undo and redo history of this document
+	 */
+	public UndoHistory getUndoHistory() {
+		wake();
+		return undoHistory;
+	}
+
+	@Override
+	public Path getFilePath() {
+		return filePath;
+	}
+
+	@Override
+	public void setFilePath(Path path) {
+		Objects.requireNonNull(path, "Path must not be null!");
+		this.filePath = path;
+		listeners.forEach(l -> l.documentFilePathUpdated(this));
+	}
+
+	@Override
+	public boolean isModified() {
+		return isModified;
+	}
+
+	@Override
+	public void setModified(boolean modified) {
+		savedFingerprint = modified ? NOT_SAVED : getFingerprint();
+		updateModified(modified);
+	}
+
+	/**
+	 * Sets the modification status, notifying the listeners only if it
+	 * changed.
+	 * 
+	 * @param modified
+	 *            true if the document is modified
+	 */
+	private void updateModified(boolean modified) {
+		if (isModified == modified) {
+			return;
+		}
+		this.isModified = modified;
+		listeners.forEach(l -> l.documentModifyStatusUpdated(this));
+	}
+
+	@Override
+	public void addSingleDocumentListener(SingleDocumentListener l) {
+		listeners.add(l);
+	}
+
+	@Override
+	public void removeSingleDocumentListener(SingleDocumentListener l) {
+		listeners.remove(l);
+	}
+
+	@Override
+	public String toString() {
+		PieceTableDocument text = getDocument();
+		try {
+			return text.getText(0, text.getLength());
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,553 @@
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentListener;
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentModel;
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.local.ILocalizationListener;
+import hr.fer.zemris.java.hw11.jnotepadpp.local.ILocalizationProvider;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.SearchEngine;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.SearchHits;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.SearchListener;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.SearchQuery;
+
+/**
+ * A dialog which finds text in the current document as the user types it.
+ * Every search runs in the background on a snapshot of the document, and
+ * the hits are shown as they are found. When the typed text only grows, the
+ * new hits are looked for among the previous ones instead of searching the
+ * whole document again. The same text can also be searched for in all open
+ * documents, see {@link SearchResultsPanel}.
+ *
+ * @author 0036502252
+ *
+ */
+public class FindDialog extends JDialog {
+	/** Default UID */
+	private static final long serialVersionUID = 1L;
+	/**
+	 * The number of hits found before they are shown.
+	 */
+	private static final int BATCH_SIZE = 4096;
+	/**
+	 * The maximum number of highlighted hits.
+	 */
+	private static final int MAX_HIGHLIGHTS = 10000;
+	/**
+	 * Paints the highlighted hits.
+	 */
+	private static final Highlighter.HighlightPainter PAINTER =
+			new DefaultHighlighter.DefaultHighlightPainter(Color.YELLOW);
+
+	/**
+	 * The searched documents.
+	 */
+	private final MultipleDocumentModel documents;
+	/**
+	 * The localization provider.
+	 */
+	private final ILocalizationProvider flp;
+	/**
+	 * The field with the searched text.
+	 */
+	private final JTextField field;
+	/**
+	 * Selects whether the case must match.
+	 */
+	private final JCheckBox matchCase;
+	/**
+	 * Selects whether the text is a regular expression.
+	 */
+	private final JCheckBox regex;
+	/**
+	 * Shows the number of hits.
+	 */
+	private final JLabel status;
+	/**
+	 * The executor on which the searches are run.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * The running search, or <code>null</code>.
+	 */
+	private Future<?> task;
+	/**
+	 * The number of the current search. Results of older searches are
+	 * ignored.
+	 */
+	private int generation;
+	/**
+	 * The searched document.
+	 */
+	private SingleDocumentModel searchedModel;
+	/**
+	 * The snapshot of the searched document.
+	 */
+	private TextSource searchedSource;
+	/**
+	 * The fingerprint of the searched document's text.
+	 */
+	private long searchedFingerprint;
+	/**
+	 * The query of the current search.
+	 */
+	private SearchQuery searchedQuery;
+	/**
+	 * The hits found so far.
+	 */
+	private SearchHits hits;
+	/**
+	 * Indicates whether the current search is complete.
+	 */
+	private boolean complete;
+	/**
+	 * Indicates whether the next shown hits should move the selection.
+	 */
+	private boolean selectPending;
+	/**
+	 * The tags of the highlighted hits.
+	 */
+	private final List<Object> highlights;
+
+	/**
+	 * Constructs a new {@link FindDialog}.
+	 *
+	 * @param owner
+	 *            the owner of the dialog, which also searches all documents
+	 * @param documents
+	 *            the searched documents
+	 * @param flp
+	 *            the localization provider
+	 */
+	public FindDialog(JNotepadPP owner, MultipleDocumentModel documents,
+			ILocalizationProvider flp) {
+		super(owner, false);
+		this.documents = documents;
+		this.flp = flp;
+		this.highlights = new ArrayList<>();
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "jnotepadpp-search");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		field = new JTextField(30);
+		matchCase = new JCheckBox();
+		regex = new JCheckBox();
+		status = new JLabel(" ");
+		JButton next = new JButton();
+		JButton previous = new JButton();
+		JButton findAll = new JButton();
+
+		JPanel options = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		options.add(matchCase);
+		options.add(regex);
+		JPanel buttons = new JPanel(new GridLayout(3, 1));
+		buttons.add(next);
+		buttons.add(previous);
+		buttons.add(findAll);
+
+		JPanel center = new JPanel(new BorderLayout());
+		center.add(field, BorderLayout.NORTH);
+		center.add(options, BorderLayout.CENTER);
+		center.add(status, BorderLayout.SOUTH);
+		getContentPane().add(center, BorderLayout.CENTER);
+		getContentPane().add(buttons, BorderLayout.EAST);
+
+		ILocalizationListener texts = () -> {
+			setTitle(flp.getString("find"));
+			matchCase.setText(flp.getString("match_case"));
+			regex.setText(flp.getString("regex"));
+			next.setText(flp.getString("find_next"));
+			previous.setText(flp.getString("find_previous"));
+			findAll.setText(flp.getString("find_all"));
+		};
+		texts.localizationChanged();
+		flp.addLocalizationListener(texts);
+
+		field.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				search();
+			}
+
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				search();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				search();
+			}
+		});
+		matchCase.addActionListener(e -> search());
+		regex.addActionListener(e -> search());
+		field.addActionListener(e -> findNext(true));
+		next.addActionListener(e -> findNext(true));
+		previous.addActionListener(e -> findNext(false));
+		findAll.addActionListener(e -> {
+			SearchQuery query = createQuery();
+			if (query != null) {
+				owner.findInAllDocuments(query);
+			}
+		});
+
+		getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+				.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "close");
+		getRootPane().getActionMap().put("close", new AbstractAction() {
+			/** Default UID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				setVisible(false);
+			}
+		});
+
+		documents.addMultipleDocumentListener(new MultipleDocumentListener() {
+			@Override
+			public void documentRemoved(SingleDocumentModel model) {
+				if (model == searchedModel) {
+					clear();
+				}
+			}
+
+			@Override
+			public void documentAdded(SingleDocumentModel model) {
+			}
+
+			@Override
+			public void currentDocumentChanged(SingleDocumentModel previousModel,
+					SingleDocumentModel currentModel) {
+				if (isVisible()) {
+					search();
+				}
+			}
+		});
+
+		pack();
+		setLocationRelativeTo(owner);
+	}
+
+	/**
+	 * Shows the dialog, with the selected text of the current document as
+	 * the searched text if there is one.
+	 */
+	public void showDialog() {
+		SingleDocumentModel model = documents.getCurrentDocument();
+		if (model != null) {
+			String selected = model.getTextComponent().getSelectedText();
+			if (selected != null && !selected.isEmpty()
+					&& selected.indexOf('\n') < 0) {
+				field.setText(selected);
+			}
+		}
+		setVisible(true);
+		field.selectAll();
+		field.requestFocusInWindow();
+		search();
+	}
+
+	@Override
+	public void setVisible(boolean visible) {
+		if (!visible) {
+			clear();
+		}
+		super.setVisible(visible);
+	}
+
+	/**
+	 * Starts a new search of the current document with the text in the
+	 * field, cancelling the previous search.
+	 */
+	private void search() {
+		SearchQuery previousQuery = searchedQuery;
+		SearchHits previousHits = hits;
+		SingleDocumentModel previousModel = searchedModel;
+		boolean previousComplete = complete;
+		clear();
+
+		SingleDocumentModel model = documents.getCurrentDocument();
+		SearchQuery query = createQuery();
+		if (model == null || query == null) {
+			return;
+		}
+
+		PieceTableDocument document = (PieceTableDocument) model
+				.getTextComponent().getDocument();
+		long fingerprint = document.fingerprint();
+		boolean refine = previousComplete && model == previousModel
+				&& fingerprint == searchedFingerprint
+				&& query.refines(previousQuery);
+
+		if (!refine) {
+			searchedSource = document.snapshot();
+		}
+		searchedModel = model;
+		searchedFingerprint = fingerprint;
+		searchedQuery = query;
+		hits = new SearchHits();
+		selectPending = true;
+		status.setText(flp.getString("searching"));
+
+		TextSource source = searchedSource;
+		SearchTask search = new SearchTask(generation);
+		task = executor.submit(() -> {
+			try {
+				if (refine) {
+					SearchEngine.refine(source, query, previousHits, search);
+				} else {
+					SearchEngine.find(source, 0, source.length(), query,
+							search);
+				}
+				search.finish();
+			} catch (CancellationException ignorable) {
+			}
+		});
+	}
+
+	/**
+	 * Creates a query from the text in the field and the selected options.
+	 * If the text is not a valid regular expression, a message is shown.
+	 *
+	 * @return the query, or <code>null</code> if the text is empty or
+	 *         invalid
+	 */
+	private SearchQuery createQuery() {
+		String text = field.getText();
+		if (text.isEmpty()) {
+			return null;
+		}
+		SearchQuery query = new SearchQuery(text, regex.isSelected(),
+				matchCase.isSelected());
+		if (query.isRegex()) {
+			try {
+				query.getPattern();
+			} catch (PatternSyntaxException e) {
+				status.setText(flp.getString("invalid_regex"));
+				return null;
+			}
+		}
+		return query;
+	}
+
+	/**
+	 * Cancels the current search and removes its hits.
+	 */
+	private void clear() {
+		generation++;
+		if (task != null) {
+			task.cancel(true);
+			task = null;
+		}
+		removeHighlights();
+		searchedModel = null;
+		searchedQuery = null;
+		hits = null;
+		complete = false;
+		status.setText(" ");
+	}
+
+	/**
+	 * Selects the next or the previous hit, relative to the current
+	 * selection. If the document changed since it was searched, it is
+	 * searched again, and the first found hit is selected.
+	 *
+	 * @param forward
+	 *            true for the next hit, false for the previous one
+	 */
+	private void findNext(boolean forward) {
+		SingleDocumentModel model = documents.getCurrentDocument();
+		if (model == null) {
+			return;
+		}
+		PieceTableDocument document = (PieceTableDocument) model
+				.getTextComponent().getDocument();
+		if (hits == null || model != searchedModel
+				|| document.fingerprint() != searchedFingerprint) {
+			search();
+			return;
+		}
+		if (hits.size() == 0) {
+			return;
+		}
+
+		JTextArea area = model.getTextComponent();
+		int index;
+		if (forward) {
+			index = hits.indexAtOrAfter(area.getSelectionStart() + 1);
+			if (index == hits.size()) {
+				index = 0;
+			}
+		} else {
+			index = hits.indexAtOrAfter(area.getSelectionStart()) - 1;
+			if (index < 0) {
+				index = hits.size() - 1;
+			}
+		}
+		select(area, index);
+	}
+
+	/**
+	 * Selects a hit in the editor.
+	 *
+	 * @param area
+	 *            the editor
+	 * @param index
+	 *            the index of the hit
+	 */
+	private void select(JTextArea area, int index) {
+		int offset = hits.getOffset(index);
+		area.select(offset, offset + hits.getLength(index));
+		area.getCaret().setSelectionVisible(true);
+	}
+
+	/**
+	 * Shows a batch of found hits.
+	 *
+	 * @param batch
+	 *            the hits
+	 */
+	private void showHits(SearchHits batch) {
+		int first = hits.size();
+		hits.addAll(batch);
+
+		JTextArea area = searchedModel.getTextComponent();
+		Highlighter highlighter = area.getHighlighter();
+		for (int i = first; i < hits.size()
+				&& highlights.size() < MAX_HIGHLIGHTS; i++) {
+			try {
+				highlights.add(highlighter.addHighlight(hits.getOffset(i),
+						hits.getOffset(i) + hits.getLength(i), PAINTER));
+			} catch (BadLocationException ignorable) {
+			}
+		}
+
+		if (selectPending && hits.size() > 0) {
+			int index = hits.indexAtOrAfter(area.getSelectionStart());
+			if (index < hits.size() || complete) {
+				selectPending = false;
+				select(area, index < hits.size() ? index : 0);
+			}
+		}
+		updateStatus();
+	}
+
+	/**
+	 * Shows the number of hits found so far.
+	 */
+	private void updateStatus() {
+		status.setText(flp.getString(complete ? "hits" : "searching") + " "
+				+ hits.size());
+	}
+
+	/**
+	 * Removes the highlights of the hits.
+	 */
+	private void removeHighlights() {
+		if (searchedModel != null) {
+			Highlighter highlighter = searchedModel.getTextComponent()
+					.getHighlighter();
+			for (Object highlight : highlights) {
+				highlighter.removeHighlight(highlight);
+			}
+		}
+		highlights.clear();
+	}
+
+	/**
+	 * Receives the hits of a single search on the searching thread, and
+	 * passes them to the event dispatch thread in batches.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private class SearchTask implements SearchListener {
+		/**
+		 * The number of the search.
+		 */
+		private final int searchGeneration;
+		/**
+		 * The hits which haven't been passed on yet.
+		 */
+		private SearchHits batch;
+
+		/**
+		 * Constructs a new {@link SearchTask}.
+		 *
+		 * @param searchGeneration
+		 *            the number of the search
+		 */
+		SearchTask(int searchGeneration) {
+			this.searchGeneration = searchGeneration;
+			this.batch = new SearchHits();
+		}
+
+		@Override
+		public void hitFound(int offset, int length) {
+			batch.hitFound(offset, length);
+			if (batch.size() >= BATCH_SIZE) {
+				flush(false);
+			}
+		}
+
+		/**
+		 * Passes the remaining hits on, and marks the search as complete.
+		 */
+		void finish() {
+			flush(true);
+		}
+
+		/**
+		 * Passes the collected hits to the event dispatch thread.
+		 *
+		 * @param last
+		 *            true if the search is complete
+		 */
+		private void flush(boolean last) {
+			SearchHits found = batch;
+			batch = new SearchHits();
+			SwingUtilities.invokeLater(() -> {
+				if (searchGeneration != generation) {
+					return;
+				}
+				complete = last;
+				showHits(found);
+			});
+		}
+	}
+}
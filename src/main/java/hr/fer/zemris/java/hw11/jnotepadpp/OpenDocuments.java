@@ -0,0 +1,226 @@
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
+
+/**
+ * The list of the open documents of a {@link DefaultMultipleDocumentModel},
+ * indexed by the documents themselves and by the keys of their paths, so
+ * that a document or the document of a file is found in constant time even
+ * with thousands of open documents.
+ *
+ * @author 0036502252
+ *
+ */
+class OpenDocuments implements Iterable<SingleDocumentModel> {
+	/**
+	 * The documents, in the order of their tabs.
+	 */
+	private final List<SingleDocumentModel> documents;
+	/**
+	 * The index of each document in the list. Only the indexes which are
+	 * lower than <code>firstStaleIndex</code> are up to date; the rest are
+	 * renumbered when one of them is next looked up, so closing a document
+	 * does not renumber all documents after it.
+	 */
+	private final Map<SingleDocumentModel, Integer> indexes;
+	/**
+	 * The lowest index which may be out of date.
+	 */
+	private int firstStaleIndex;
+	/**
+	 * The documents by the keys of their paths, see {@link #pathKey(Path)}.
+	 */
+	private final Map<Path, SingleDocumentModel> documentsByPath;
+	/**
+	 * The key of each document's path in <code>documentsByPath</code>.
+	 */
+	private final Map<SingleDocumentModel, Path> pathKeys;
+
+	/**
+	 * Constructs new, empty {@link OpenDocuments}.
+	 */
+	OpenDocuments() {
+		documents = new ArrayList<>();
+		indexes = new IdentityHashMap<>();
+		documentsByPath = new HashMap<>();
+		pathKeys = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Inserts a document into the list at the given index. The document is
+	 * not indexed by its path, see {@link #indexPath(SingleDocumentModel)}.
+	 *
+	 * @param index
+	 *            the index at which the document is inserted
+	 * @param model
+	 *            the inserted document
+	 */
+	void insert(int index, SingleDocumentModel model) {
+		if (index == documents.size() && firstStaleIndex == index) {
+			firstStaleIndex++;
+		} else {
+			firstStaleIndex = Math.min(firstStaleIndex, index);
+		}
+		indexes.put(model, index);
+		documents.add(index, model);
+	}
+
+	/**
+	 * Removes the document at the given index from the list. The document
+	 * stays indexed by its path, see
+	 * {@link #unindexPath(SingleDocumentModel)}.
+	 *
+	 * @param index
+	 *            the index of the removed document
+	 * @return the removed document
+	 */
+	SingleDocumentModel remove(int index) {
+		SingleDocumentModel model = documents.remove(index);
+		indexes.remove(model);
+		firstStaleIndex = Math.min(firstStaleIndex, index);
+		return model;
+	}
+
+	/**
+	 * Finds the index of a document in constant time, unless documents
+	 * before it were inserted or removed since it was last looked up.
+	 *
+	 * @param model
+	 *            the document
+	 * @return the index of the document, or -1 if it isn't in the list
+	 */
+	int indexOf(SingleDocumentModel model) {
+		Integer index = indexes.get(model);
+		if (index == null) {
+			return -1;
+		}
+		if (index < firstStaleIndex) {
+			return index;
+		}
+		for (int i = firstStaleIndex, n = documents.size(); i < n; i++) {
+			indexes.put(documents.get(i), i);
+		}
+		firstStaleIndex = documents.size();
+		return indexes.get(model);
+	}
+
+	/**
+	 * @param index
+	 *            the index of a document
+	 * @return the document
+	 */
+	SingleDocumentModel get(int index) {
+		return documents.get(index);
+	}
+
+	/**
+	 * @return the number of documents
+	 */
+	int size() {
+		return documents.size();
+	}
+
+	/**
+	 * @return true if there are no documents
+	 */
+	boolean isEmpty() {
+		return documents.isEmpty();
+	}
+
+	@Override
+	public Iterator<SingleDocumentModel> iterator() {
+		return documents.iterator();
+	}
+
+	/**
+	 * Indexes a document by the key of its current path, if it has one.
+	 *
+	 * @param model
+	 *            the document
+	 * @return the key of the path, or <code>null</code> if the document has
+	 *         no path
+	 */
+	Path indexPath(SingleDocumentModel model) {
+		if (model.getFilePath() == null) {
+			return null;
+		}
+		Path key = pathKey(model.getFilePath());
+		pathKeys.put(model, key);
+		documentsByPath.put(key, model);
+		return key;
+	}
+
+	/**
+	 * Removes a document from the index of paths.
+	 *
+	 * @param model
+	 *            the document
+	 * @return the key under which the document was indexed, or
+	 *         <code>null</code> if it wasn't
+	 */
+	Path unindexPath(SingleDocumentModel model) {
+		Path key = pathKeys.remove(model);
+		if (key != null) {
+			documentsByPath.remove(key, model);
+		}
+		return key;
+	}
+
+	/**
+	 * @param model
+	 *            a document
+	 * @return true if the document is indexed by its path
+	 */
+	boolean isPathIndexed(SingleDocumentModel model) {
+		return pathKeys.containsKey(model);
+	}
+
+	/**
+	 * Finds the document with the given path.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the document, or <code>null</code> if there is none
+	 */
+	SingleDocumentModel find(Path path) {
+		return documentsByPath.get(pathKey(path));
+	}
+
+	/**
+	 * Finds the document whose path has the given key.
+	 *
+	 * @param key
+	 *            the key of a path, see {@link #pathKey(Path)}
+	 * @return the document, or <code>null</code> if there is none
+	 */
+	SingleDocumentModel findByKey(Path key) {
+		return documentsByPath.get(key);
+	}
+
+	/**
+	 * Creates the key under which a document with the given path is
+	 * indexed. Different paths of the same file have the same key, as long
+	 * as the file exists.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the real path of the file, or the normalized absolute path if
+	 *         the file doesn't exist
+	 */
+	static Path pathKey(Path path) {
+		try {
+			return path.toRealPath();
+		} catch (IOException e) {
+			return path.toAbsolutePath().normalize();
+		}
+	}
+}
@@ -0,0 +1,501 @@
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import javax.swing.AbstractListModel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentListener;
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.LineIndex;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.local.ILocalizationProvider;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.FileSearch;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.ParallelSearch;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.SearchQuery;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.SearchResult;
+import hr.fer.zemris.java.hw11.jnotepadpp.search.SearchResultListener;
+
+/**
+ * A panel which searches all open documents, or all files in a directory
+ * tree, and lists the results as they are found. A result is shown in its
+ * document by double clicking it or pressing enter; results in files are
+ * shown by opening the files.
+ *
+ * @author 0036502252
+ *
+ */
+public class SearchResultsPanel extends JPanel {
+	/** Default UID */
+	private static final long serialVersionUID = 1L;
+	/**
+	 * The maximum number of listed results. Further results are only
+	 * counted.
+	 */
+	private static final int MAX_RESULTS = 100000;
+
+	/**
+	 * The searched documents.
+	 */
+	private final DefaultMultipleDocumentModel documents;
+	/**
+	 * The localization provider.
+	 */
+	private final ILocalizationProvider flp;
+	/**
+	 * The listed results.
+	 */
+	private final ResultListModel results;
+	/**
+	 * Shows the query and the number of results.
+	 */
+	private final JLabel header;
+
+	/**
+	 * Cancels the running search, or <code>null</code>.
+	 */
+	private Runnable cancelSearch;
+	/**
+	 * The root of the searched directory tree, or <code>null</code> if the
+	 * open documents are searched.
+	 */
+	private Path root;
+	/**
+	 * The number of the current search. Results of older searches are
+	 * ignored.
+	 */
+	private int generation;
+	/**
+	 * The query of the last search.
+	 */
+	private SearchQuery query;
+	/**
+	 * The number of results found by the last search.
+	 */
+	private int found;
+	/**
+	 * Indicates whether the last search is complete.
+	 */
+	private boolean complete;
+
+	/**
+	 * Constructs a new {@link SearchResultsPanel}.
+	 *
+	 * @param documents
+	 *            the searched documents
+	 * @param flp
+	 *            the localization provider
+	 */
+	public SearchResultsPanel(DefaultMultipleDocumentModel documents,
+			ILocalizationProvider flp) {
+		super(new BorderLayout());
+		this.documents = documents;
+		this.flp = flp;
+		this.results = new ResultListModel();
+		this.header = new JLabel(" ");
+
+		JList<SearchResult<?>> list = new JList<>(results);
+		list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		list.setCellRenderer(new ResultRenderer());
+		list.setPrototypeCellValue(
+				new SearchResult<>(null, 0, 0, 0, "prototype"));
+		list.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2) {
+					show(list.getSelectedValue());
+				}
+			}
+		});
+		list.addKeyListener(new KeyAdapter() {
+			@Override
+			public void keyPressed(KeyEvent e) {
+				if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+					show(list.getSelectedValue());
+				}
+			}
+		});
+
+		JButton close = new JButton(flp.getString("close"));
+		close.addActionListener(e -> {
+			cancel();
+			setVisible(false);
+		});
+
+		JPanel top = new JPanel(new BorderLayout());
+		top.add(header, BorderLayout.CENTER);
+		top.add(close, BorderLayout.EAST);
+		add(top, BorderLayout.NORTH);
+		add(new JScrollPane(list), BorderLayout.CENTER);
+
+		flp.addLocalizationListener(() -> {
+			close.setText(flp.getString("close"));
+			updateHeader();
+		});
+		documents.addMultipleDocumentListener(new MultipleDocumentListener() {
+			@Override
+			public void documentRemoved(SingleDocumentModel model) {
+				if (root == null) {
+					results.removeOwner(model);
+				}
+			}
+
+			@Override
+			public void documentAdded(SingleDocumentModel model) {
+			}
+
+			@Override
+			public void currentDocumentChanged(SingleDocumentModel previousModel,
+					SingleDocumentModel currentModel) {
+			}
+		});
+	}
+
+	/**
+	 * Searches all open documents, replacing the results of the previous
+	 * search. The documents are read from snapshots, so they can be edited
+	 * during the search. The texts of hibernated documents are read by the
+	 * search, and those which can't be read are listed as failures.
+	 *
+	 * @param query
+	 *            the query
+	 */
+	public void search(SearchQuery query) {
+		reset(query, null);
+
+		Map<SingleDocumentModel, Supplier<TextSource>> sources =
+				new LinkedHashMap<>();
+		for (SingleDocumentModel model : documents) {
+			sources.put(model,
+					((DefaultSingleDocumentModel) model).snapshotSupplier());
+		}
+
+		ParallelSearch<SingleDocumentModel> search = new ParallelSearch<>(
+				query, new Collector<>(generation));
+		cancelSearch = search::cancel;
+		search.start(ForkJoinPool.commonPool(), sources);
+	}
+
+	/**
+	 * Searches all files in a directory tree, replacing the results of the
+	 * previous search.
+	 *
+	 * @param query
+	 *            the query
+	 * @param root
+	 *            the root of the tree
+	 */
+	public void searchFiles(SearchQuery query, Path root) {
+		reset(query, root);
+
+		FileSearch search = new FileSearch(query, new Collector<>(generation));
+		cancelSearch = search::cancel;
+		search.start(ForkJoinPool.commonPool(), root);
+	}
+
+	/**
+	 * Cancels the running search, removes its results, and shows the panel
+	 * for a new search.
+	 *
+	 * @param query
+	 *            the query of the new search
+	 * @param root
+	 *            the root of the searched directory tree, or
+	 *            <code>null</code>
+	 */
+	private void reset(SearchQuery query, Path root) {
+		cancel();
+		results.clear();
+		this.query = query;
+		this.root = root;
+		this.found = 0;
+		this.complete = false;
+		updateHeader();
+		setVisible(true);
+	}
+
+	/**
+	 * Cancels the running search.
+	 */
+	private void cancel() {
+		generation++;
+		if (cancelSearch != null) {
+			cancelSearch.run();
+			cancelSearch = null;
+		}
+	}
+
+	/**
+	 * Lists found results.
+	 *
+	 * @param found
+	 *            the results
+	 */
+	private void addResults(List<? extends SearchResult<?>> found) {
+		this.found += found.size();
+		int room = MAX_RESULTS - results.getSize();
+		if (room > 0) {
+			results.addAll(found.size() <= room ? found
+					: found.subList(0, room));
+		}
+		updateHeader();
+	}
+
+	/**
+	 * Lists a result reporting a text which couldn't be searched. It isn't
+	 * counted as a hit.
+	 *
+	 * @param failure
+	 *            the result
+	 */
+	private void addFailure(SearchResult<?> failure) {
+		if (results.getSize() < MAX_RESULTS) {
+			results.addAll(Collections.singletonList(failure));
+		}
+	}
+
+	/**
+	 * Shows the query and the number of results in the header.
+	 */
+	private void updateHeader() {
+		if (query == null) {
+			return;
+		}
+		header.setText(flp.getString(complete ? "hits" : "searching") + " "
+				+ found + " - \"" + query.getText() + "\""
+				+ (root == null ? "" : " - " + root));
+	}
+
+	/**
+	 * Selects a result in its document. A result in a file is shown by
+	 * opening the file, once it is loaded.
+	 *
+	 * @param result
+	 *            the result, may be <code>null</code>
+	 */
+	private void show(SearchResult<?> result) {
+		if (result == null) {
+			return;
+		}
+		if (result.getOwner() instanceof Path) {
+			SingleDocumentModel model = documents
+					.loadDocument((Path) result.getOwner());
+			documents.afterLoading(model, () -> select(model, result));
+			return;
+		}
+		SingleDocumentModel model = (SingleDocumentModel) result.getOwner();
+		int index = documents.indexOfDocument(model);
+		if (index != -1) {
+			documents.setSelectedIndex(index);
+			if (!result.isFailure()) {
+				select(model, result);
+			}
+		}
+	}
+
+	/**
+	 * Selects a result in a document. If the document has changed so that
+	 * the result is no longer on its line, the start of the line is selected.
+	 *
+	 * @param model
+	 *            the document
+	 * @param result
+	 *            the result
+	 */
+	private void select(SingleDocumentModel model, SearchResult<?> result) {
+		JTextArea area = model.getTextComponent();
+		LineIndex lines = ((DefaultSingleDocumentModel) model).getLineIndex();
+		int length = area.getDocument().getLength();
+		int start = Math.min(result.getOffset(), length);
+		int end = Math.min(start + result.getLength(), length);
+		try {
+			if (lines.getLineOfOffset(start) != result.getLine()
+					&& result.getLine() < lines.getLineCount()) {
+				start = end = lines.getLineStartOffset(result.getLine());
+			}
+		} catch (BadLocationException ignorable) {
+		}
+		area.select(start, end);
+		area.getCaret().setSelectionVisible(true);
+		area.requestFocusInWindow();
+	}
+
+	/**
+	 * Passes the results of a single search to the event dispatch thread.
+	 *
+	 * @author 0036502252
+	 *
+	 * @param <T>
+	 *            the type of the objects whose text is searched
+	 */
+	private class Collector<T> implements SearchResultListener<T> {
+		/**
+		 * The number of the search.
+		 */
+		private final int searchGeneration;
+
+		/**
+		 * Constructs a new {@link Collector}.
+		 *
+		 * @param searchGeneration
+		 *            the number of the search
+		 */
+		Collector(int searchGeneration) {
+			this.searchGeneration = searchGeneration;
+		}
+
+		@Override
+		public void resultsFound(List<SearchResult<T>> found) {
+			SwingUtilities.invokeLater(() -> {
+				if (searchGeneration == generation) {
+					addResults(found);
+				}
+			});
+		}
+
+		@Override
+		public void searchFailed(T owner, IOException cause) {
+			SearchResult<T> failure = SearchResult.failure(owner,
+					String.valueOf(cause.getMessage()));
+			SwingUtilities.invokeLater(() -> {
+				if (searchGeneration == generation) {
+					addFailure(failure);
+				}
+			});
+		}
+
+		@Override
+		public void searchFinished() {
+			SwingUtilities.invokeLater(() -> {
+				if (searchGeneration == generation) {
+					complete = true;
+					updateHeader();
+				}
+			});
+		}
+	}
+
+	/**
+	 * The listed results, which are added in batches.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class ResultListModel
+			extends AbstractListModel<SearchResult<?>> {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The results.
+		 */
+		private final List<SearchResult<?>> results = new ArrayList<>();
+
+		@Override
+		public int getSize() {
+			return results.size();
+		}
+
+		@Override
+		public SearchResult<?> getElementAt(int index) {
+			return results.get(index);
+		}
+
+		/**
+		 * Adds results to the end of the list.
+		 *
+		 * @param added
+		 *            the results
+		 */
+		void addAll(List<? extends SearchResult<?>> added) {
+			int first = results.size();
+			results.addAll(added);
+			fireIntervalAdded(this, first, results.size() - 1);
+		}
+
+		/**
+		 * Removes the results of a document.
+		 *
+		 * @param owner
+		 *            the document
+		 */
+		void removeOwner(SingleDocumentModel owner) {
+			if (results.removeIf(r -> r.getOwner() == owner)) {
+				fireContentsChanged(this, 0, Integer.MAX_VALUE);
+			}
+		}
+
+		/**
+		 * Removes all results.
+		 */
+		void clear() {
+			int size = results.size();
+			results.clear();
+			if (size > 0) {
+				fireIntervalRemoved(this, 0, size - 1);
+			}
+		}
+	}
+
+	/**
+	 * Renders a result as the name of its document or the path of its file
+	 * relative to the searched tree, its line and the text around it.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private class ResultRenderer extends DefaultListCellRenderer {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Component getListCellRendererComponent(JList<?> list,
+				Object value, int index, boolean isSelected,
+				boolean cellHasFocus) {
+			SearchResult<?> result = (SearchResult<?>) value;
+			Object owner = result.getOwner();
+			String name;
+			if (owner instanceof Path) {
+				name = root.relativize((Path) owner).toString();
+			} else if (owner == null
+					|| ((SingleDocumentModel) owner).getFilePath() == null) {
+				name = flp.getString("blank");
+			} else {
+				name = ((SingleDocumentModel) owner).getFilePath()
+						.getFileName().toString();
+			}
+			if (result.isFailure()) {
+				return super.getListCellRendererComponent(list,
+						name + ": " + flp.getString("unreadable") + " "
+								+ result.getPreview(),
+						index, isSelected, cellHasFocus);
+			}
+			return super.getListCellRendererComponent(list,
+					name + ":" + (result.getLine() + 1) + ": "
+							+ result.getPreview().trim(),
+					index, isSelected, cellHasFocus);
+		}
+	}
+}
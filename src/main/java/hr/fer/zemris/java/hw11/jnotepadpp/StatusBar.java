@@ -0,0 +1,370 @@
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.GridLayout;
+import java.awt.HeadlessException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
+import javax.swing.border.BevelBorder;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.JTextComponent;
+
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentModel;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.DocumentStatistics;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.LineIndex;
+import hr.fer.zemris.java.hw11.jnotepadpp.local.ILocalizationProvider;
+
+/**
+ * The status bar at the bottom of the program's frame, showing the length,
+ * line count and caret information of the current document, and a clock.
+ * <p>
+ * Changes only mark the affected labels as dirty. The dirty labels are
+ * rendered together at most once per display frame, so a held arrow key or a
+ * dragged selection costs one update per frame instead of one per caret
+ * event. A label's text is only set when the values it shows have changed,
+ * and the clock is only rendered when its second changes.
+ *
+ * @author 0036502252
+ *
+ */
+public class StatusBar extends JPanel {
+	/** Default UID */
+	private static final long serialVersionUID = 1L;
+	/**
+	 * The interval in milliseconds at which dirty labels are rendered, set
+	 * by the <code>jnotepadpp.statusFrameInterval</code> system property. By
+	 * default, the frame interval of the screen.
+	 */
+	private static final int FRAME_INTERVAL = Integer.getInteger(
+			"jnotepadpp.statusFrameInterval", screenFrameInterval());
+	/**
+	 * The format of the clock.
+	 */
+	private static final DateTimeFormatter CLOCK_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy/MM/dd HH:mm:ss");
+	/**
+	 * The value of a number which hasn't been rendered.
+	 */
+	private static final long UNKNOWN = -1;
+	/**
+	 * Flag of the labels showing the length and statistics of the document.
+	 */
+	private static final int DOCUMENT = 1;
+	/**
+	 * Flag of the label showing the caret information.
+	 */
+	private static final int CARET = 2;
+	/**
+	 * Flag of the clock.
+	 */
+	private static final int CLOCK = 4;
+
+	/**
+	 * The documents whose current document is shown.
+	 */
+	private final MultipleDocumentModel documents;
+	/**
+	 * The localization provider.
+	 */
+	private final ILocalizationProvider flp;
+	/**
+	 * The label indicating total document length.
+	 */
+	private final JLabel lengthLabel;
+	/**
+	 * The label indicating the number of lines and non-blank characters.
+	 */
+	private final JLabel statsLabel;
+	/**
+	 * The label indicating the caret information.
+	 */
+	private final JLabel caretInfoLabel;
+	/**
+	 * The label which serves as a clock.
+	 */
+	private final JLabel clock;
+	/**
+	 * The builder reused for the texts of the labels.
+	 */
+	private final StringBuilder barText;
+	/**
+	 * Renders the dirty labels once the current frame is over.
+	 */
+	private final Timer frameTimer;
+	/**
+	 * Marks the clock as dirty at the start of every second.
+	 */
+	private final Timer clockTimer;
+
+	/**
+	 * The flags of the dirty labels.
+	 */
+	private int dirty;
+	/**
+	 * The rendered document length.
+	 */
+	private long length = UNKNOWN;
+	/**
+	 * The rendered number of lines.
+	 */
+	private long lines = UNKNOWN;
+	/**
+	 * The rendered number of non-blank characters.
+	 */
+	private long nonBlank = UNKNOWN;
+	/**
+	 * The rendered caret line.
+	 */
+	private long row = UNKNOWN;
+	/**
+	 * The rendered caret column.
+	 */
+	private long column = UNKNOWN;
+	/**
+	 * The rendered selection length.
+	 */
+	private long selection = UNKNOWN;
+	/**
+	 * The rendered second of the clock, since the epoch.
+	 */
+	private long second = UNKNOWN;
+
+	/**
+	 * Constructs a new {@link StatusBar}.
+	 *
+	 * @param documents
+	 *            the documents whose current document is shown
+	 * @param flp
+	 *            the localization provider
+	 */
+	public StatusBar(MultipleDocumentModel documents,
+			ILocalizationProvider flp) {
+		super(new GridLayout(1, 4));
+		this.documents = documents;
+		this.flp = flp;
+		this.barText = new StringBuilder();
+
+		setBorder(BorderFactory.createBevelBorder(BevelBorder.LOWERED));
+
+		lengthLabel = new JLabel();
+		statsLabel = new JLabel();
+		caretInfoLabel = new JLabel();
+		clock = new JLabel();
+
+		lengthLabel.setHorizontalAlignment(SwingConstants.LEFT);
+		statsLabel.setHorizontalAlignment(SwingConstants.LEFT);
+		caretInfoLabel.setHorizontalAlignment(SwingConstants.LEFT);
+
+		add(lengthLabel);
+		add(statsLabel);
+		add(caretInfoLabel);
+		add(clock);
+
+		frameTimer = new Timer(FRAME_INTERVAL, e -> render());
+		frameTimer.setRepeats(false);
+
+		clockTimer = new Timer(0, e -> tick());
+		clockTimer.setRepeats(false);
+		clockTimer.start();
+
+		flp.addLocalizationListener(() -> {
+			forgetDocument();
+			forgetCaret();
+			markDirty(DOCUMENT | CARET);
+		});
+	}
+
+	/**
+	 * Marks the whole status bar as dirty, e.g. when another document
+	 * becomes the current one, or when the last document is closed.
+	 */
+	public void documentChanged() {
+		markDirty(DOCUMENT | CARET);
+	}
+
+	/**
+	 * Marks the status bar as dirty after the caret of the current document
+	 * has moved. The document may have been edited as well.
+	 */
+	public void caretMoved() {
+		markDirty(DOCUMENT | CARET);
+	}
+
+	/**
+	 * Marks labels as dirty, and schedules their rendering at the end of the
+	 * current frame unless it is already scheduled.
+	 *
+	 * @param flags
+	 *            the flags of the labels
+	 */
+	private void markDirty(int flags) {
+		dirty |= flags;
+		if (!frameTimer.isRunning()) {
+			frameTimer.start();
+		}
+	}
+
+	/**
+	 * Marks the clock as dirty, and schedules the next tick at the start of
+	 * the next second.
+	 */
+	private void tick() {
+		markDirty(CLOCK);
+		clockTimer.setInitialDelay(
+				(int) (1000 - System.currentTimeMillis() % 1000));
+		clockTimer.start();
+	}
+
+	/**
+	 * Renders the dirty labels.
+	 */
+	private void render() {
+		int flags = dirty;
+		dirty = 0;
+
+		if ((flags & (DOCUMENT | CARET)) != 0) {
+			DefaultSingleDocumentModel model =
+					documents.getNumberOfDocuments() == 0 ? null
+							: (DefaultSingleDocumentModel) documents
+									.getCurrentDocument();
+			if ((flags & DOCUMENT) != 0) {
+				renderDocument(model);
+			}
+			if ((flags & CARET) != 0) {
+				renderCaret(model);
+			}
+		}
+		if ((flags & CLOCK) != 0) {
+			renderClock();
+		}
+	}
+
+	/**
+	 * Renders the length and statistics of the document, if they have
+	 * changed.
+	 *
+	 * @param model
+	 *            the current document, or <code>null</code> if there is none
+	 */
+	private void renderDocument(DefaultSingleDocumentModel model) {
+		if (model == null) {
+			forgetDocument();
+			lengthLabel.setText("");
+			statsLabel.setText("");
+			return;
+		}
+
+		long newLength = model.getLineIndex().getLength();
+		if (newLength != length) {
+			length = newLength;
+			barText.setLength(0);
+			lengthLabel.setText(flp.getTemplate("status_length")
+					.appendTo(barText, length).toString());
+		}
+
+		DocumentStatistics stats = model.getStatistics();
+		if (stats.getLines() != lines
+				|| stats.getNonBlankCharacters() != nonBlank) {
+			lines = stats.getLines();
+			nonBlank = stats.getNonBlankCharacters();
+			barText.setLength(0);
+			statsLabel.setText(flp.getTemplate("status_stats")
+					.appendTo(barText, lines, nonBlank).toString());
+		}
+	}
+
+	/**
+	 * Renders the caret information of the document, if it has changed.
+	 *
+	 * @param model
+	 *            the current document, or <code>null</code> if there is none
+	 */
+	private void renderCaret(DefaultSingleDocumentModel model) {
+		if (model == null) {
+			forgetCaret();
+			caretInfoLabel.setText("");
+			return;
+		}
+
+		JTextComponent editor = model.getTextComponent();
+		LineIndex index = model.getLineIndex();
+		int caret = editor.getCaretPosition();
+		int newRow = 0;
+		int newColumn = 0;
+		try {
+			newRow = index.getLineOfOffset(caret);
+			newColumn = caret - index.getLineStartOffset(newRow);
+		} catch (BadLocationException ignorable) {
+		}
+		int newSelection = Math.abs(
+				editor.getCaret().getDot() - editor.getCaret().getMark());
+
+		if (newRow != row || newColumn != column
+				|| newSelection != selection) {
+			row = newRow;
+			column = newColumn;
+			selection = newSelection;
+			barText.setLength(0);
+			caretInfoLabel.setText(flp.getTemplate("status_caret")
+					.appendTo(barText, row, column, selection).toString());
+		}
+	}
+
+	/**
+	 * Renders the clock, if its second has changed.
+	 */
+	private void renderClock() {
+		long now = System.currentTimeMillis();
+		if (now / 1000 == second) {
+			return;
+		}
+		second = now / 1000;
+		barText.setLength(0);
+		CLOCK_FORMAT.formatTo(LocalDateTime.ofInstant(
+				Instant.ofEpochMilli(now), ZoneId.systemDefault()), barText);
+		clock.setText(barText.toString());
+	}
+
+	/**
+	 * Forgets the rendered length and statistics, so they are rendered
+	 * again.
+	 */
+	private void forgetDocument() {
+		length = UNKNOWN;
+		lines = UNKNOWN;
+		nonBlank = UNKNOWN;
+	}
+
+	/**
+	 * Forgets the rendered caret information, so it is rendered again.
+	 */
+	private void forgetCaret() {
+		row = UNKNOWN;
+		column = UNKNOWN;
+		selection = UNKNOWN;
+	}
+
+	/**
+	 * @return the frame interval in milliseconds of the default screen, or
+	 *         that of a 60 Hz screen if it is unknown
+	 */
+	private static int screenFrameInterval() {
+		int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+		try {
+			refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice().getDisplayMode()
+					.getRefreshRate();
+		} catch (HeadlessException ignorable) {
+		}
+		return refreshRate > 0 ? Math.max(1, 1000 / refreshRate) : 16;
+	}
+}
@@ -0,0 +1,72 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * A {@link TextSource} backed by a part of a character array. The array is
+ * shared, and must not be modified once the source is created.
+ *
+ * @author 0036502252
+ *
+ */
+public class ArrayTextSource implements TextSource {
+	/**
+	 * The array holding the characters.
+	 */
+	private final char[] array;
+	/**
+	 * The index of the first character in the array.
+	 */
+	private final int offset;
+	/**
+	 * The number of characters.
+	 */
+	private final int length;
+
+	/**
+	 * Constructs a new {@link ArrayTextSource} over the entire array.
+	 *
+	 * @param array
+	 *            the array holding the characters
+	 */
+	public ArrayTextSource(char[] array) {
+		this(array, 0, array.length);
+	}
+
+	/**
+	 * Constructs a new {@link ArrayTextSource} over a part of the array.
+	 *
+	 * @param array
+	 *            the array holding the characters
+	 * @param offset
+	 *            the index of the first character
+	 * @param length
+	 *            the number of characters
+	 */
+	public ArrayTextSource(char[] array, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > array.length) {
+			throw new IndexOutOfBoundsException(
+					"Invalid range: " + offset + ", " + length);
+		}
+		this.array = array;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public void getChars(int where, int len, Segment txt)
+			throws BadLocationException {
+		if (where < 0 || len < 0 || where + len > length) {
+			throw new BadLocationException("Invalid location", where);
+		}
+		txt.array = array;
+		txt.offset = offset + where;
+		txt.count = len;
+	}
+}
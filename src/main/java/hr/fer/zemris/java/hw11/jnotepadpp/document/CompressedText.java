@@ -0,0 +1,157 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * The text of a {@link TextSource}, encoded as UTF-8 and compressed with
+ * {@link Deflater}. Plain text usually shrinks to a fraction of the two bytes
+ * per character it takes in memory, so documents which aren't used are kept
+ * in this form.
+ *
+ * @author 0036502252
+ *
+ */
+public class CompressedText {
+	/**
+	 * The compressed bytes.
+	 */
+	private final byte[] data;
+	/**
+	 * The number of characters of the text.
+	 */
+	private final int length;
+
+	/**
+	 * Constructs a new {@link CompressedText}.
+	 *
+	 * @param data
+	 *            the compressed bytes
+	 * @param length
+	 *            the number of characters of the text
+	 */
+	private CompressedText(byte[] data, int length) {
+		this.data = data;
+		this.length = length;
+	}
+
+	/**
+	 * Compresses the text of the given source.
+	 *
+	 * @param source
+	 *            the source
+	 * @return the compressed text
+	 */
+	public static CompressedText compress(TextSource source) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+
+		try (Writer writer = new OutputStreamWriter(
+				new DeflaterOutputStream(bytes, deflater),
+				StandardCharsets.UTF_8)) {
+			int position = 0;
+			while (position < source.length()) {
+				source.getChars(position, source.length() - position, segment);
+				writer.write(segment.array, segment.offset, segment.count);
+				position += segment.count;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		} finally {
+			deflater.end();
+		}
+		return new CompressedText(bytes.toByteArray(), source.length());
+	}
+
+	/**
+	 * Decompresses the text.
+	 *
+	 * @return a source with the text
+	 */
+	public TextSource decompress() {
+		char[] chars = new char[length];
+		try (Reader reader = new InputStreamReader(
+				new InflaterInputStream(new ByteArrayInputStream(data)),
+				StandardCharsets.UTF_8)) {
+			int read = 0;
+			while (read < length) {
+				int n = reader.read(chars, read, length - read);
+				if (n < 0) {
+					throw new IllegalStateException("Compressed text is cut.");
+				}
+				read += n;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new ArrayTextSource(chars);
+	}
+
+	/**
+	 * Writes the compressed text to the given output, so it can be read back
+	 * with {@link #readFrom(DataInput)}.
+	 *
+	 * @param out
+	 *            the output
+	 * @throws IOException
+	 *             if the text can not be written
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(length);
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	/**
+	 * Reads a compressed text written by {@link #writeTo(DataOutput)}.
+	 *
+	 * @param in
+	 *            the input
+	 * @return the compressed text
+	 * @throws IOException
+	 *             if the text can not be read
+	 */
+	public static CompressedText readFrom(DataInput in) throws IOException {
+		int length = in.readInt();
+		int size = in.readInt();
+		if (length < 0 || size < 0) {
+			throw new IOException("Invalid compressed text.");
+		}
+		byte[] data = new byte[size];
+		in.readFully(data);
+		return new CompressedText(data, length);
+	}
+
+	/**
+	 * @return the number of characters of the text
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the number of compressed bytes
+	 */
+	public int getCompressedSize() {
+		return data.length;
+	}
+}
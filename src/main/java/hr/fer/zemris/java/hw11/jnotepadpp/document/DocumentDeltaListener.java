@@ -0,0 +1,41 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.util.EventListener;
+
+/**
+ * Interface for an observer to register to receive notifications about the
+ * changes of a {@link PieceTableDocument}'s text. Unlike a
+ * {@link javax.swing.event.DocumentListener}, it is notified about a removal
+ * while the removed text is still in the document. The notifications are
+ * given while the document is locked for writing, so the listener may read
+ * the document, but must not modify it.
+ *
+ * @author 0036502252
+ *
+ */
+public interface DocumentDeltaListener extends EventListener {
+	/**
+	 * Gives notification that text was inserted into the document.
+	 *
+	 * @param document
+	 *            the changed document
+	 * @param offset
+	 *            the offset at which the text was inserted
+	 * @param length
+	 *            the length of the inserted text
+	 */
+	void textInserted(PieceTableDocument document, int offset, int length);
+
+	/**
+	 * Gives notification that text is about to be removed from the document.
+	 * The text is still in the document.
+	 *
+	 * @param document
+	 *            the changed document
+	 * @param offset
+	 *            the offset of the removed text
+	 * @param length
+	 *            the length of the removed text
+	 */
+	void textRemoving(PieceTableDocument document, int offset, int length);
+}
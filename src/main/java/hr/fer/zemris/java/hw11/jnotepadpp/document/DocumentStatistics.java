@@ -0,0 +1,246 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * Statistics of a {@link PieceTableDocument}'s text: the number of
+ * characters, non-blank characters and lines. The text is counted once, and
+ * afterwards only the inserted and removed text is counted, so reading the
+ * statistics takes constant time. The initial text of a document is counted
+ * by the {@link TextScan} which reads it.
+ * <p>
+ * A character is blank if it matches <code>\s</code> in a regular
+ * expression. Lines are separated by <code>\n</code>, <code>\r</code> or
+ * <code>\r\n</code>, so a text without any line breaks has a single line.
+ *
+ * @author 0036502252
+ *
+ */
+public class DocumentStatistics implements DocumentDeltaListener {
+	/**
+	 * The number of characters.
+	 */
+	private int characters;
+	/**
+	 * The number of blank characters.
+	 */
+	private int blanks;
+	/**
+	 * The number of <code>\n</code> and <code>\r</code> characters.
+	 */
+	private int breaks;
+	/**
+	 * The number of <code>\r\n</code> pairs, which count as a single line
+	 * break.
+	 */
+	private int pairs;
+	/**
+	 * Segment used for reading the text.
+	 */
+	private final Segment segment;
+
+	/**
+	 * Constructs new {@link DocumentStatistics} of an empty text, to which
+	 * the counted text is added.
+	 */
+	DocumentStatistics() {
+		this.segment = new Segment();
+		this.segment.setPartialReturn(true);
+	}
+
+	/**
+	 * Constructs new {@link DocumentStatistics} of the given document, and
+	 * counts its text. The statistics still have to be registered as a
+	 * listener of the document.
+	 *
+	 * @param document
+	 *            the counted document
+	 */
+	public DocumentStatistics(PieceTableDocument document) {
+		this();
+		document.readLock();
+		try {
+			count(document, 0, document.getLength(), 1);
+		} finally {
+			document.readUnlock();
+		}
+	}
+
+	/**
+	 * @return the number of characters
+	 */
+	public int getCharacters() {
+		return characters;
+	}
+
+	/**
+	 * @return the number of characters which are not blank
+	 */
+	public int getNonBlankCharacters() {
+		return characters - blanks;
+	}
+
+	/**
+	 * @return the number of lines
+	 */
+	public int getLines() {
+		return breaks - pairs + 1;
+	}
+
+	@Override
+	public void textInserted(PieceTableDocument document, int offset,
+			int length) {
+		int end = offset + length;
+		if (isPair(document, offset - 1, end)) {
+			// the inserted text separated a pair
+			pairs--;
+		}
+		count(document, offset, end, 1);
+		if (isPair(document, offset - 1, offset)) {
+			pairs++;
+		}
+		if (length > 0 && isPair(document, end - 1, end)) {
+			pairs++;
+		}
+	}
+
+	@Override
+	public void textRemoving(PieceTableDocument document, int offset,
+			int length) {
+		int end = offset + length;
+		count(document, offset, end, -1);
+		if (isPair(document, offset - 1, offset)) {
+			pairs--;
+		}
+		if (length > 0 && isPair(document, end - 1, end)) {
+			pairs--;
+		}
+		if (isPair(document, offset - 1, end)) {
+			// the removal joins a pair
+			pairs++;
+		}
+	}
+
+	/**
+	 * Counts a range of the text, and adds the counts to the statistics.
+	 *
+	 * @param document
+	 *            the document
+	 * @param start
+	 *            the start of the range
+	 * @param end
+	 *            the end of the range
+	 * @param sign
+	 *            1 if the range is added, -1 if it is removed
+	 */
+	private void count(PieceTableDocument document, int start, int end,
+			int sign) {
+		char previous = 0;
+		try {
+			int offset = start;
+			while (offset < end) {
+				document.getText(offset, end - offset, segment);
+				previous = count(segment.array, segment.offset,
+						segment.offset + segment.count, previous, sign);
+				offset += segment.count;
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Counts a range of an array, which continues the text counted so far,
+	 * and adds the counts to the statistics.
+	 *
+	 * @param array
+	 *            the array
+	 * @param from
+	 *            the start of the range
+	 * @param to
+	 *            the end of the range
+	 * @param previous
+	 *            the character before the range, or zero if the range is
+	 *            at the start of the counted text
+	 * @param sign
+	 *            1 if the range is added, -1 if it is removed
+	 * @return the last character of the range, or <code>previous</code> if
+	 *         the range is empty
+	 */
+	char count(char[] array, int from, int to, char previous, int sign) {
+		int blank = 0;
+		int lineBreaks = 0;
+		int crlf = 0;
+
+		for (int i = from; i < to; i++) {
+			char c = array[i];
+			switch (c) {
+			case '\n':
+				lineBreaks++;
+				if (previous == '\r') {
+					crlf++;
+				}
+				blank++;
+				break;
+			case '\r':
+				lineBreaks++;
+				blank++;
+				break;
+			case ' ':
+			case '\t':
+			case '\u000B':
+			case '\f':
+				blank++;
+				break;
+			default:
+				break;
+			}
+			previous = c;
+		}
+
+		characters += sign * (to - from);
+		blanks += sign * blank;
+		breaks += sign * lineBreaks;
+		pairs += sign * crlf;
+		return previous;
+	}
+
+	/**
+	 * Checks whether the given characters form a <code>\r\n</code> pair.
+	 *
+	 * @param document
+	 *            the document
+	 * @param first
+	 *            the offset of the first character
+	 * @param second
+	 *            the offset of the second character
+	 * @return true if the first character is <code>\r</code> and the second
+	 *         one is <code>\n</code>
+	 */
+	private boolean isPair(PieceTableDocument document, int first,
+			int second) {
+		return charAt(document, first) == '\r'
+				&& charAt(document, second) == '\n';
+	}
+
+	/**
+	 * @param document
+	 *            the document
+	 * @param offset
+	 *            the offset of the character
+	 * @return the character at the given offset, or zero if the offset is
+	 *         outside of the document's text
+	 */
+	private char charAt(PieceTableDocument document, int offset) {
+		if (offset < 0 || offset >= document.getLength()) {
+			return 0;
+		}
+		try {
+			document.getText(offset, 1, segment);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		return segment.array[segment.offset];
+	}
+}
@@ -0,0 +1,62 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+/**
+ * A {@link TextSource} view of a {@link Document}. The view is live, so the
+ * document must not be changed while the view is being read.
+ *
+ * @author 0036502252
+ *
+ */
+public class DocumentTextSource implements TextSource {
+	/**
+	 * The viewed document.
+	 */
+	private final Document document;
+
+	/**
+	 * Constructs a new {@link DocumentTextSource}.
+	 *
+	 * @param document
+	 *            the viewed document
+	 */
+	public DocumentTextSource(Document document) {
+		this.document = document;
+	}
+
+	/**
+	 * Creates an immutable snapshot of the given document's text, which can
+	 * be read from any thread. Cheap for a {@link PieceTableDocument}, other
+	 * documents have their text copied.
+	 *
+	 * @param document
+	 *            the document
+	 * @return the snapshot of the text
+	 */
+	public static TextSource snapshot(Document document) {
+		if (document instanceof PieceTableDocument) {
+			return ((PieceTableDocument) document).snapshot();
+		}
+
+		try {
+			return new ArrayTextSource(
+					document.getText(0, document.getLength()).toCharArray());
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public int length() {
+		return document.getLength();
+	}
+
+	@Override
+	public void getChars(int where, int len, Segment txt)
+			throws BadLocationException {
+		document.getText(where, len, txt);
+	}
+}
@@ -0,0 +1,304 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the differences between two lists of lines, as a list of
+ * {@link Change}s which turn the old lines into the new ones. The common
+ * beginning and end of the lists are skipped first, and the rest is compared
+ * with Myers' algorithm, which finds the smallest number of removed and
+ * inserted lines. If the lists differ too much for that to be cheap, the
+ * whole differing middle is reported as a single change.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineDiff {
+	/**
+	 * The maximum number of removed and inserted lines found by Myers'
+	 * algorithm before falling back to a single change.
+	 */
+	private static final int MAX_DISTANCE = 1024;
+	/**
+	 * The maximum number of lines compared by Myers' algorithm before falling
+	 * back to a single change.
+	 */
+	private static final long MAX_WORK = 1 << 24;
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private LineDiff() {
+	}
+
+	/**
+	 * Computes the changes which turn the old lines into the new ones.
+	 *
+	 * @param oldLines
+	 *            the old lines
+	 * @param newLines
+	 *            the new lines
+	 * @return the changes, ordered by their position and not overlapping
+	 */
+	public static List<Change> diff(List<String> oldLines,
+			List<String> newLines) {
+		int oldEnd = oldLines.size();
+		int newEnd = newLines.size();
+
+		int prefix = 0;
+		while (prefix < oldEnd && prefix < newEnd
+				&& oldLines.get(prefix).equals(newLines.get(prefix))) {
+			prefix++;
+		}
+		while (oldEnd > prefix && newEnd > prefix && oldLines.get(oldEnd - 1)
+				.equals(newLines.get(newEnd - 1))) {
+			oldEnd--;
+			newEnd--;
+		}
+
+		List<Change> changes = new ArrayList<>();
+		if (prefix == oldEnd && prefix == newEnd) {
+			return changes;
+		}
+		if (prefix == oldEnd || prefix == newEnd) {
+			changes.add(new Change(prefix, oldEnd - prefix, prefix,
+					newEnd - prefix));
+			return changes;
+		}
+
+		// lines are compared as numbers from here on
+		Map<String, Integer> ids = new HashMap<>();
+		int[] a = toIds(oldLines.subList(prefix, oldEnd), ids);
+		int[] b = toIds(newLines.subList(prefix, newEnd), ids);
+
+		boolean[] removed = new boolean[a.length];
+		boolean[] inserted = new boolean[b.length];
+		if (!myers(a, b, removed, inserted)) {
+			changes.add(new Change(prefix, oldEnd - prefix, prefix,
+					newEnd - prefix));
+			return changes;
+		}
+
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (i < a.length && j < b.length && !removed[i] && !inserted[j]) {
+				i++;
+				j++;
+				continue;
+			}
+
+			int oldStart = i;
+			int newStart = j;
+			while (i < a.length && removed[i] || j < b.length && inserted[j]) {
+				if (i < a.length && removed[i]) {
+					i++;
+				}
+				if (j < b.length && inserted[j]) {
+					j++;
+				}
+			}
+			changes.add(new Change(prefix + oldStart, i - oldStart,
+					prefix + newStart, j - newStart));
+		}
+		return changes;
+	}
+
+	/**
+	 * Replaces lines by numbers, so that equal lines get equal numbers.
+	 *
+	 * @param lines
+	 *            the lines
+	 * @param ids
+	 *            the numbers given to the lines so far
+	 * @return the numbers of the lines
+	 */
+	private static int[] toIds(List<String> lines, Map<String, Integer> ids) {
+		int[] result = new int[lines.size()];
+		for (int i = 0; i < result.length; i++) {
+			Integer id = ids.get(lines.get(i));
+			if (id == null) {
+				id = ids.size();
+				ids.put(lines.get(i), id);
+			}
+			result[i] = id;
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the shortest edit script between two sequences with Myers'
+	 * algorithm, and marks the removed and inserted elements.
+	 *
+	 * @param a
+	 *            the old sequence
+	 * @param b
+	 *            the new sequence
+	 * @param removed
+	 *            receives the removed elements of the old sequence
+	 * @param inserted
+	 *            receives the inserted elements of the new sequence
+	 * @return true if the script was found, false if it took too long
+	 */
+	private static boolean myers(int[] a, int[] b, boolean[] removed,
+			boolean[] inserted) {
+		int n = a.length;
+		int m = b.length;
+		int max = Math.min(n + m, MAX_DISTANCE);
+		int[] v = new int[2 * max + 3];
+		int center = max + 1;
+		List<int[]> trace = new ArrayList<>();
+		long work = 0;
+
+		for (int d = 0; d <= max; d++) {
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || k != d && v[center + k - 1] < v[center + k + 1]) {
+					x = v[center + k + 1];
+				} else {
+					x = v[center + k - 1] + 1;
+				}
+				int y = x - k;
+				int snakeStart = x;
+				while (x < n && y < m && a[x] == b[y]) {
+					x++;
+					y++;
+				}
+				v[center + k] = x;
+				work += x - snakeStart + 1;
+
+				if (x >= n && y >= m) {
+					trace.add(Arrays.copyOfRange(v, center - d,
+							center + d + 1));
+					backtrack(trace, n, m, removed, inserted);
+					return true;
+				}
+			}
+			if (work > MAX_WORK) {
+				return false;
+			}
+			trace.add(Arrays.copyOfRange(v, center - d,
+					center + d + 1));
+		}
+		return false;
+	}
+
+	/**
+	 * Walks the steps of Myers' algorithm back from the end of both
+	 * sequences, and marks the removed and inserted elements.
+	 *
+	 * @param trace
+	 *            the furthest reaching paths after every step, where the path
+	 *            of diagonal <code>k</code> after step <code>d</code> is at
+	 *            index <code>k + d</code>
+	 * @param n
+	 *            the length of the old sequence
+	 * @param m
+	 *            the length of the new sequence
+	 * @param removed
+	 *            receives the removed elements of the old sequence
+	 * @param inserted
+	 *            receives the inserted elements of the new sequence
+	 */
+	private static void backtrack(List<int[]> trace, int n, int m,
+			boolean[] removed, boolean[] inserted) {
+		int x = n;
+		int y = m;
+		for (int d = trace.size() - 1; d > 0; d--) {
+			int[] previous = trace.get(d - 1);
+			int k = x - y;
+
+			boolean down = k == -d || k != d
+					&& previous[k - 1 + d - 1] < previous[k + 1 + d - 1];
+			int previousK = down ? k + 1 : k - 1;
+			int previousX = previous[previousK + d - 1];
+			int previousY = previousX - previousK;
+
+			if (down) {
+				inserted[previousY] = true;
+			} else {
+				removed[previousX] = true;
+			}
+			x = previousX;
+			y = previousY;
+		}
+	}
+
+	/**
+	 * A single change: a range of old lines replaced by a range of new lines.
+	 * Either range may be empty.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	public static final class Change {
+		/**
+		 * The index of the first replaced old line.
+		 */
+		private final int oldStart;
+		/**
+		 * The number of replaced old lines.
+		 */
+		private final int oldCount;
+		/**
+		 * The index of the first new line.
+		 */
+		private final int newStart;
+		/**
+		 * The number of new lines.
+		 */
+		private final int newCount;
+
+		/**
+		 * Constructs a new {@link Change}.
+		 *
+		 * @param oldStart
+		 *            the index of the first replaced old line
+		 * @param oldCount
+		 *            the number of replaced old lines
+		 * @param newStart
+		 *            the index of the first new line
+		 * @param newCount
+		 *            the number of new lines
+		 */
+		public Change(int oldStart, int oldCount, int newStart,
+				int newCount) {
+			this.oldStart = oldStart;
+			this.oldCount = oldCount;
+			this.newStart = newStart;
+			this.newCount = newCount;
+		}
+
+		/**
+		 * @return the index of the first replaced old line
+		 */
+		public int getOldStart() {
+			return oldStart;
+		}
+
+		/**
+		 * @return the number of replaced old lines
+		 */
+		public int getOldCount() {
+			return oldCount;
+		}
+
+		/**
+		 * @return the index of the first new line
+		 */
+		public int getNewStart() {
+			return newStart;
+		}
+
+		/**
+		 * @return the number of new lines
+		 */
+		public int getNewCount() {
+			return newCount;
+		}
+	}
+}
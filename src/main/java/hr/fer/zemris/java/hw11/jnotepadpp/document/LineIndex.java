@@ -0,0 +1,706 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * An index of the lines of a document, which answers offset and line lookups
+ * without reading the text. The lengths of the lines, each including its
+ * newline, are kept in blocks of at most {@value #MAX_BLOCK} lines, and two
+ * Fenwick trees hold the number of characters and lines of the blocks. A
+ * lookup finds its block in O(log n), and then only scans that block.
+ * <p>
+ * The lengths of a block are only loaded, by reading the text of the block,
+ * when a lookup needs them, and at most {@value #LOADED_BLOCKS} blocks stay
+ * loaded, so the memory used by the index depends on the length of the text
+ * instead of the number of its lines. A new index only knows the number of
+ * lines and characters of its blocks, as counted by a {@link TextScan}.
+ * <p>
+ * The index belongs to a {@link PieceTableDocument}, which updates it on every
+ * change. Like the document itself, it must only be used on the event
+ * dispatch thread.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineIndex {
+	/**
+	 * The maximum number of lines in a single block.
+	 */
+	private static final int MAX_BLOCK = 512;
+	/**
+	 * The number of lines put into each block when blocks are created.
+	 */
+	private static final int FILL_BLOCK = MAX_BLOCK / 2;
+	/**
+	 * Blocks with fewer lines than this are merged with a neighbour if
+	 * possible.
+	 */
+	private static final int MIN_BLOCK = MAX_BLOCK / 8;
+	/**
+	 * The maximum number of blocks whose lengths are loaded at once.
+	 */
+	private static final int LOADED_BLOCKS = 1024;
+
+	/**
+	 * The indexed text, including the implied trailing newline.
+	 */
+	private final TextSource text;
+	/**
+	 * The blocks of line lengths, in order.
+	 */
+	private final List<Block> blocks;
+	/**
+	 * Fenwick tree of the number of characters in each block.
+	 */
+	private int[] charTree;
+	/**
+	 * Fenwick tree of the number of lines in each block.
+	 */
+	private int[] lineTree;
+	/**
+	 * The total number of characters, including the implied trailing newline.
+	 */
+	private int length;
+	/**
+	 * The total number of lines.
+	 */
+	private int lineCount;
+	/**
+	 * The blocks whose lengths are loaded, in the order they were loaded.
+	 */
+	private final Deque<Block> loaded;
+	/**
+	 * The offset at which text was inserted into the text while the index
+	 * doesn't contain it yet.
+	 */
+	private int pendingOffset;
+	/**
+	 * The length of the text inserted at <code>pendingOffset</code>, or zero
+	 * if the index matches the text.
+	 */
+	private int pendingLength;
+	/**
+	 * Segment used for reading the text.
+	 */
+	private final Segment segment;
+
+	/**
+	 * Constructs a new {@link LineIndex} of the given text, whose blocks were
+	 * counted by the given scan.
+	 *
+	 * @param text
+	 *            the indexed text, including the implied trailing newline
+	 * @param scan
+	 *            the finished scan of the text
+	 */
+	LineIndex(TextSource text, TextScan scan) {
+		this.text = text;
+		this.blocks = new ArrayList<>(scan.getBlockCount());
+		this.loaded = new ArrayDeque<>();
+		this.segment = new Segment();
+		this.segment.setPartialReturn(true);
+
+		for (int i = 0, n = scan.getBlockCount(); i < n; i++) {
+			Block b = new Block(scan.getBlockLines(i), scan.getBlockChars(i));
+			blocks.add(b);
+			length += b.chars;
+			lineCount += b.size;
+		}
+		rebuildTrees();
+	}
+
+	/**
+	 * @return the length of the document, in O(1)
+	 */
+	public int getLength() {
+		return length - 1;
+	}
+
+	/**
+	 * @return the number of lines in the document
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * Finds the line containing the given offset.
+	 *
+	 * @param offset
+	 *            the offset in the document
+	 * @return the index of the line, starting from zero
+	 * @throws BadLocationException
+	 *             if the offset is outside of the document
+	 */
+	public int getLineOfOffset(int offset) throws BadLocationException {
+		trim();
+		return lineOfOffset(offset);
+	}
+
+	/**
+	 * Finds the offset at which the given line starts.
+	 *
+	 * @param line
+	 *            the index of the line
+	 * @return the starting offset of the line
+	 * @throws BadLocationException
+	 *             if there is no such line
+	 */
+	public int getLineStartOffset(int line) throws BadLocationException {
+		trim();
+		return lineStartOffset(line);
+	}
+
+	/**
+	 * Finds the offset at which the given line ends. Like
+	 * {@link javax.swing.JTextArea#getLineEndOffset(int)}, the offset is after
+	 * the line's newline, except for the last line.
+	 *
+	 * @param line
+	 *            the index of the line
+	 * @return the ending offset of the line
+	 * @throws BadLocationException
+	 *             if there is no such line
+	 */
+	public int getLineEndOffset(int line) throws BadLocationException {
+		trim();
+		int end = lineStartOffset(line) + lineLength(line);
+		return line == lineCount - 1 ? end - 1 : end;
+	}
+
+	/**
+	 * @param line
+	 *            the index of the line
+	 * @return the length of the line, including its newline
+	 * @throws BadLocationException
+	 *             if there is no such line
+	 */
+	public int getLineLength(int line) throws BadLocationException {
+		trim();
+		return lineLength(line);
+	}
+
+	/**
+	 * Updates the index after text was inserted into the indexed text.
+	 *
+	 * @param offset
+	 *            the offset at which the text was inserted
+	 * @param inserted
+	 *            the length of the inserted text
+	 * @return the number of lines added by the insert
+	 */
+	int insert(int offset, int inserted) {
+		trim();
+		pendingOffset = offset;
+		pendingLength = inserted;
+		try {
+			int line = lineOfOffset(offset);
+			int lineStart = lineStartOffset(line);
+			int lineLength = lineLength(line);
+
+			int[] lengths = new int[4];
+			int count = 0;
+			int start = lineStart;
+			int position = offset;
+			int end = offset + inserted;
+
+			while (position < end) {
+				text.getChars(position, end - position, segment);
+				for (int i = 0; i < segment.count; i++) {
+					if (segment.array[segment.offset + i] == '\n') {
+						int lineEnd = position + i + 1;
+						if (count == lengths.length) {
+							lengths = grow(lengths);
+						}
+						lengths[count++] = lineEnd - start;
+						start = lineEnd;
+					}
+				}
+				position += segment.count;
+			}
+
+			if (count == lengths.length) {
+				lengths = grow(lengths);
+			}
+			// the rest of the split line follows the last inserted newline
+			lengths[count++] = lineStart + lineLength + inserted - start;
+
+			replaceLines(line, 1, lineLength, lengths, count);
+			return count - 1;
+		} catch (BadLocationException ex) {
+			throw new IllegalStateException(ex);
+		} finally {
+			pendingLength = 0;
+		}
+	}
+
+	/**
+	 * Updates the index before text is removed from the indexed text, while
+	 * the removed text is still there.
+	 *
+	 * @param offset
+	 *            the offset of the removed text
+	 * @param removed
+	 *            the length of the removed text
+	 * @return the number of lines removed by the removal
+	 */
+	int remove(int offset, int removed) {
+		trim();
+		int end = offset + removed;
+
+		try {
+			int first = lineOfOffset(offset);
+			int firstStart = lineStartOffset(first);
+			int last = lineOfOffset(end);
+			int lastEnd = lineStartOffset(last) + lineLength(last);
+
+			int removedChars = lastEnd - firstStart;
+			int merged = removedChars - removed;
+			replaceLines(first, last - first + 1, removedChars,
+					new int[] { merged }, 1);
+			return last - first;
+		} catch (BadLocationException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Finds the line containing the given offset.
+	 *
+	 * @param offset
+	 *            the offset in the document
+	 * @return the index of the line
+	 * @throws BadLocationException
+	 *             if the offset is outside of the document
+	 */
+	private int lineOfOffset(int offset) throws BadLocationException {
+		if (offset < 0 || offset >= length) {
+			throw new BadLocationException("Invalid offset", offset);
+		}
+
+		int block = search(charTree, offset);
+		int line = sum(lineTree, block);
+		int start = sum(charTree, block);
+
+		int[] lengths = lengths(block);
+		int i = 0;
+		while (start + lengths[i] <= offset) {
+			start += lengths[i++];
+		}
+		return line + i;
+	}
+
+	/**
+	 * Finds the offset at which the given line starts.
+	 *
+	 * @param line
+	 *            the index of the line
+	 * @return the starting offset of the line
+	 * @throws BadLocationException
+	 *             if there is no such line
+	 */
+	private int lineStartOffset(int line) throws BadLocationException {
+		if (line < 0 || line >= lineCount) {
+			throw new BadLocationException("Invalid line", line);
+		}
+
+		int block = search(lineTree, line);
+		int start = sum(charTree, block);
+		int[] lengths = lengths(block);
+		for (int i = 0, n = line - sum(lineTree, block); i < n; i++) {
+			start += lengths[i];
+		}
+		return start;
+	}
+
+	/**
+	 * @param line
+	 *            the index of the line
+	 * @return the length of the line, including its newline
+	 * @throws BadLocationException
+	 *             if there is no such line
+	 */
+	private int lineLength(int line) throws BadLocationException {
+		if (line < 0 || line >= lineCount) {
+			throw new BadLocationException("Invalid line", line);
+		}
+
+		int block = search(lineTree, line);
+		return lengths(block)[line - sum(lineTree, block)];
+	}
+
+	/**
+	 * Replaces a range of lines with lines of the given lengths.
+	 *
+	 * @param line
+	 *            the index of the first replaced line
+	 * @param count
+	 *            the number of replaced lines
+	 * @param removedChars
+	 *            the total length of the replaced lines
+	 * @param lengths
+	 *            the lengths of the new lines
+	 * @param added
+	 *            the number of new lines
+	 */
+	private void replaceLines(int line, int count, int removedChars,
+			int[] lengths, int added) {
+		int block = line == lineCount ? blocks.size() - 1
+				: search(lineTree, line);
+		int inBlock = line - sum(lineTree, block);
+		Block b = blocks.get(block);
+
+		int lastBlock = block;
+		int remaining = count - (b.size - inBlock);
+		while (remaining > 0) {
+			lastBlock++;
+			remaining -= blocks.get(lastBlock).size;
+		}
+		// loads every block which is changed or may be merged, while the
+		// index still matches the offsets it loads them from
+		for (int i : new int[] { block - 1, block, lastBlock, lastBlock + 1 }) {
+			if (i >= 0 && i < blocks.size()) {
+				lengths(i);
+			}
+		}
+
+		int addedChars = 0;
+		for (int i = 0; i < added; i++) {
+			addedChars += lengths[i];
+		}
+		length += addedChars - removedChars;
+		lineCount += added - count;
+
+		if (inBlock + count <= b.size && b.size - count + added <= MAX_BLOCK) {
+			// the common case, everything happens inside of a single block
+			int[] array = b.lengths;
+			if (b.size - count + added > array.length) {
+				int[] grown = new int[MAX_BLOCK];
+				System.arraycopy(array, 0, grown, 0, b.size);
+				array = grown;
+				b.lengths = grown;
+			}
+			System.arraycopy(array, inBlock + count, array, inBlock + added,
+					b.size - inBlock - count);
+			System.arraycopy(lengths, 0, array, inBlock, added);
+			b.size += added - count;
+			b.chars += addedChars - removedChars;
+
+			if (b.size >= MIN_BLOCK || blocks.size() == 1) {
+				update(charTree, block, addedChars - removedChars);
+				update(lineTree, block, added - count);
+				return;
+			}
+			mergeSmallBlock(block);
+			rebuildTrees();
+			return;
+		}
+
+		// collect the lines around the replaced range from all touched blocks
+		Block tail = blocks.get(lastBlock);
+		int tailStart = tail.size + remaining;
+
+		int total = inBlock + added + (tail.size - tailStart);
+		int[] all = new int[total];
+		System.arraycopy(b.lengths, 0, all, 0, inBlock);
+		System.arraycopy(lengths, 0, all, inBlock, added);
+		System.arraycopy(tail.lengths, tailStart, all, inBlock + added,
+				tail.size - tailStart);
+
+		List<Block> replacement = new ArrayList<>();
+		for (int start = 0; start < total; start += FILL_BLOCK) {
+			int size = Math.min(FILL_BLOCK, total - start);
+			int[] array = new int[MAX_BLOCK];
+			System.arraycopy(all, start, array, 0, size);
+			replacement.add(new Block(array, size));
+		}
+		if (replacement.isEmpty() && blocks.size() == lastBlock - block + 1) {
+			replacement.add(new Block(new int[MAX_BLOCK], 0));
+		}
+		loaded.addAll(replacement);
+
+		List<Block> touched = blocks.subList(block, lastBlock + 1);
+		touched.clear();
+		touched.addAll(replacement);
+
+		if (!replacement.isEmpty()) {
+			mergeSmallBlock(block + replacement.size() - 1);
+		}
+		rebuildTrees();
+	}
+
+	/**
+	 * Merges the given block with one of its neighbours, if it is small and
+	 * the merged block fits.
+	 *
+	 * @param block
+	 *            the index of the block
+	 */
+	private void mergeSmallBlock(int block) {
+		Block b = blocks.get(block);
+		if (b.size >= MIN_BLOCK) {
+			return;
+		}
+
+		if (block + 1 < blocks.size()
+				&& b.size + blocks.get(block + 1).size <= MAX_BLOCK) {
+			b.append(blocks.remove(block + 1));
+		} else if (block > 0
+				&& blocks.get(block - 1).size + b.size <= MAX_BLOCK) {
+			blocks.get(block - 1).append(blocks.remove(block));
+		}
+	}
+
+	/**
+	 * Gets the lengths of the lines of a block, loading them if needed.
+	 *
+	 * @param block
+	 *            the index of the block
+	 * @return the lengths of the lines of the block
+	 */
+	private int[] lengths(int block) {
+		Block b = blocks.get(block);
+		if (b.lengths == null) {
+			load(b, sum(charTree, block));
+		}
+		return b.lengths;
+	}
+
+	/**
+	 * Loads the lengths of the lines of a block by finding the newlines in
+	 * its text. Text inserted at <code>pendingOffset</code>, which the index
+	 * doesn't contain yet, is skipped.
+	 *
+	 * @param b
+	 *            the block
+	 * @param start
+	 *            the offset at which the block starts in the index
+	 */
+	private void load(Block b, int start) {
+		int[] lengths = new int[b.size];
+		if (b.size == 1) {
+			// a single line doesn't have to be read
+			lengths[0] = b.chars;
+		} else {
+			int end = start + b.chars;
+			int split = Math.min(end, Math.max(start, pendingOffset));
+			int[] position = { 0, start };
+			scan(start, split, 0, lengths, position);
+			scan(split, end, pendingLength, lengths, position);
+			if (position[0] != b.size) {
+				throw new IllegalStateException("Lines of a block changed.");
+			}
+		}
+		b.lengths = lengths;
+		loaded.add(b);
+	}
+
+	/**
+	 * Finds the newlines of a range of the index, adding the lengths of the
+	 * lines they end.
+	 *
+	 * @param start
+	 *            the start of the range in the index
+	 * @param end
+	 *            the end of the range in the index
+	 * @param shift
+	 *            the distance between the offsets of the index and the
+	 *            offsets of the text
+	 * @param lengths
+	 *            the lengths of the lines
+	 * @param position
+	 *            the number of found lines, and the index offset at which
+	 *            the current line starts
+	 */
+	private void scan(int start, int end, int shift, int[] lengths,
+			int[] position) {
+		try {
+			while (start < end) {
+				text.getChars(start + shift, end - start, segment);
+				for (int i = 0; i < segment.count; i++) {
+					if (segment.array[segment.offset + i] == '\n') {
+						int lineEnd = start + i + 1;
+						lengths[position[0]++] = lineEnd - position[1];
+						position[1] = lineEnd;
+					}
+				}
+				start += segment.count;
+			}
+		} catch (BadLocationException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalStateException("Lines of a block changed.", e);
+		}
+	}
+
+	/**
+	 * Unloads the oldest loaded blocks, until at most
+	 * {@value #LOADED_BLOCKS} blocks are loaded. Only done when a lookup
+	 * starts, so a block is never unloaded while it is being used.
+	 */
+	private void trim() {
+		while (loaded.size() > LOADED_BLOCKS) {
+			loaded.poll().lengths = null;
+		}
+	}
+
+	/**
+	 * Rebuilds both Fenwick trees from the blocks, in linear time.
+	 */
+	private void rebuildTrees() {
+		int n = blocks.size();
+		charTree = new int[n + 1];
+		lineTree = new int[n + 1];
+
+		for (int i = 1; i <= n; i++) {
+			Block b = blocks.get(i - 1);
+			charTree[i] += b.chars;
+			lineTree[i] += b.size;
+			int parent = i + (i & -i);
+			if (parent <= n) {
+				charTree[parent] += charTree[i];
+				lineTree[parent] += lineTree[i];
+			}
+		}
+	}
+
+	/**
+	 * Adds a value to a single block of a Fenwick tree.
+	 *
+	 * @param tree
+	 *            the tree
+	 * @param block
+	 *            the index of the block
+	 * @param delta
+	 *            the value to be added
+	 */
+	private static void update(int[] tree, int block, int delta) {
+		for (int i = block + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	/**
+	 * Sums the values of the blocks before the given block.
+	 *
+	 * @param tree
+	 *            the tree
+	 * @param block
+	 *            the index of the block
+	 * @return the sum of the values of all preceding blocks
+	 */
+	private static int sum(int[] tree, int block) {
+		int sum = 0;
+		for (int i = block; i > 0; i -= i & -i) {
+			sum += tree[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Finds the block containing the given value, i.e. the last block whose
+	 * preceding blocks sum up to at most the value.
+	 *
+	 * @param tree
+	 *            the tree
+	 * @param value
+	 *            the searched value
+	 * @return the index of the block
+	 */
+	private static int search(int[] tree, int value) {
+		int n = tree.length - 1;
+		int index = 0;
+		for (int bit = Integer.highestOneBit(Math.max(n, 1)); bit > 0;
+				bit >>>= 1) {
+			int next = index + bit;
+			if (next <= n && tree[next] <= value) {
+				index = next;
+				value -= tree[next];
+			}
+		}
+		return Math.min(index, n - 1);
+	}
+
+	/**
+	 * @param array
+	 *            the array to be grown
+	 * @return a copy of the array with twice the capacity
+	 */
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * A block of consecutive lines.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class Block {
+		/**
+		 * The lengths of the lines in this block, or null if they aren't
+		 * loaded.
+		 */
+		int[] lengths;
+		/**
+		 * The number of lines in this block.
+		 */
+		int size;
+		/**
+		 * The total length of the lines in this block.
+		 */
+		int chars;
+
+		/**
+		 * Constructs a new {@link Block}.
+		 *
+		 * @param lengths
+		 *            the array holding the lengths of the lines
+		 * @param size
+		 *            the number of lines in the array
+		 */
+		Block(int[] lengths, int size) {
+			this.lengths = lengths;
+			this.size = size;
+			for (int i = 0; i < size; i++) {
+				chars += lengths[i];
+			}
+		}
+
+		/**
+		 * Constructs a new {@link Block} whose lengths aren't loaded.
+		 *
+		 * @param size
+		 *            the number of lines of the block
+		 * @param chars
+		 *            the total length of the lines of the block
+		 */
+		Block(int size, int chars) {
+			this.size = size;
+			this.chars = chars;
+		}
+
+		/**
+		 * Appends all lines of the given block to this block.
+		 *
+		 * @param other
+		 *            the appended block
+		 */
+		void append(Block other) {
+			if (lengths.length < MAX_BLOCK) {
+				int[] grown = new int[MAX_BLOCK];
+				System.arraycopy(lengths, 0, grown, 0, size);
+				lengths = grown;
+			}
+			System.arraycopy(other.lengths, 0, lengths, size, other.size);
+			size += other.size;
+			chars += other.chars;
+		}
+	}
+}
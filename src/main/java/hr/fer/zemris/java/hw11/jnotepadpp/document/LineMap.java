@@ -0,0 +1,587 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+
+/**
+ * The root element of a {@link PieceTableDocument}, which has an element for
+ * every line of the document, like the root element of a
+ * {@link javax.swing.text.PlainDocument}. The lines are kept by a
+ * {@link LineIndex} instead of an element with two positions per line, and an
+ * element is only created when it is asked for.
+ * <p>
+ * Views keep some of the elements, and compare them by identity, e.g. to
+ * find out whether the longest line was removed. So the same line always has
+ * the same element as long as it is referenced, and the element follows its
+ * line as lines are added and removed before it.
+ *
+ * @author 0036502252
+ *
+ */
+final class LineMap implements Element {
+	/**
+	 * The document whose root element this is.
+	 */
+	private final Document document;
+	/**
+	 * The lines of the document.
+	 */
+	private final LineIndex index;
+	/**
+	 * The elements which were handed out, by their lines.
+	 */
+	private final TreeMap<Integer, LineReference> elements;
+	/**
+	 * Queue of the elements which are no longer referenced.
+	 */
+	private final ReferenceQueue<LineElement> queue;
+
+	/**
+	 * Constructs a new {@link LineMap}.
+	 *
+	 * @param document
+	 *            the document whose root element this is
+	 * @param index
+	 *            the lines of the document
+	 */
+	LineMap(Document document, LineIndex index) {
+		this.document = document;
+		this.index = index;
+		this.elements = new TreeMap<>();
+		this.queue = new ReferenceQueue<>();
+	}
+
+	/**
+	 * @return the lines of the document
+	 */
+	LineIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Updates the lines after text was inserted into the document.
+	 *
+	 * @param offset
+	 *            the offset of the inserted text
+	 * @param length
+	 *            the length of the inserted text
+	 * @return the edit which undoes the update, and also describes the
+	 *         changed lines if the number of lines changed
+	 */
+	AbstractUndoableEdit insert(int offset, int length) {
+		int added = index.insert(offset, length);
+		if (added == 0) {
+			return new LineEdit(offset, length, true);
+		}
+		return new LineChange(offset, length, true, lineOf(offset), 1,
+				added + 1);
+	}
+
+	/**
+	 * Updates the lines before text is removed from the document.
+	 *
+	 * @param offset
+	 *            the offset of the removed text
+	 * @param length
+	 *            the length of the removed text
+	 * @return the edit which undoes the update, and also describes the
+	 *         changed lines if the number of lines changed
+	 */
+	AbstractUndoableEdit remove(int offset, int length) {
+		int removed = index.remove(offset, length);
+		if (removed == 0) {
+			return new LineEdit(offset, length, false);
+		}
+		return new LineChange(offset, length, false, lineOf(offset),
+				removed + 1, 1);
+	}
+
+	@Override
+	public Document getDocument() {
+		return document;
+	}
+
+	@Override
+	public Element getParentElement() {
+		return null;
+	}
+
+	@Override
+	public String getName() {
+		return AbstractDocument.ParagraphElementName;
+	}
+
+	@Override
+	public AttributeSet getAttributes() {
+		return SimpleAttributeSet.EMPTY;
+	}
+
+	@Override
+	public int getStartOffset() {
+		return 0;
+	}
+
+	@Override
+	public int getEndOffset() {
+		return index.getLength() + 1;
+	}
+
+	@Override
+	public int getElementIndex(int offset) {
+		return lineOf(Math.max(0, Math.min(offset, index.getLength())));
+	}
+
+	@Override
+	public int getElementCount() {
+		return index.getLineCount();
+	}
+
+	@Override
+	public Element getElement(int line) {
+		if (line < 0 || line >= index.getLineCount()) {
+			return null;
+		}
+		purge();
+
+		LineReference reference = elements.get(line);
+		LineElement element = reference == null ? null : reference.get();
+		if (element == null) {
+			element = new LineElement(line);
+			elements.put(line, new LineReference(element, queue));
+		}
+		return element;
+	}
+
+	@Override
+	public boolean isLeaf() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "LineMap(" + getElementCount() + " lines)";
+	}
+
+	/**
+	 * @param offset
+	 *            an offset in the document
+	 * @return the line containing the offset
+	 */
+	private int lineOf(int offset) {
+		try {
+			return index.getLineOfOffset(offset);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Forgets the elements which are no longer referenced.
+	 */
+	private void purge() {
+		LineReference reference;
+		while ((reference = (LineReference) queue.poll()) != null) {
+			elements.remove(reference.line, reference);
+		}
+	}
+
+	/**
+	 * Replaces lines of the handed out elements. The elements of the removed
+	 * lines are detached, and the elements after them follow their lines.
+	 *
+	 * @param line
+	 *            the first replaced line
+	 * @param removed
+	 *            the number of removed lines
+	 * @param added
+	 *            the number of added lines
+	 * @param offset
+	 *            the offset at which the lines were replaced
+	 * @return the detached elements, by their lines
+	 */
+	private SortedMap<Integer, LineElement> replace(int line, int removed,
+			int added, int offset) {
+		purge();
+		SortedMap<Integer, LineReference> tail = elements.tailMap(line);
+		List<LineReference> moved = new ArrayList<>(tail.values());
+		tail.clear();
+
+		SortedMap<Integer, LineElement> detached = new TreeMap<>();
+		for (LineReference reference : moved) {
+			LineElement element = reference.get();
+			if (element == null) {
+				continue;
+			}
+			if (reference.line < line + removed) {
+				detached.put(reference.line, element);
+				element.detach(offset);
+			} else {
+				reference.line += added - removed;
+				element.line = reference.line;
+				elements.put(reference.line, reference);
+			}
+		}
+		return detached;
+	}
+
+	/**
+	 * Makes a detached element the element of a line again.
+	 *
+	 * @param element
+	 *            the element
+	 * @param line
+	 *            the line of the element
+	 */
+	private void attach(LineElement element, int line) {
+		element.line = line;
+		elements.put(line, new LineReference(element, queue));
+	}
+
+	/**
+	 * The element of a single line, whose offsets are looked up in the index
+	 * of its line.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private final class LineElement implements Element {
+		/**
+		 * The line of this element, or -1 if the line was removed.
+		 */
+		int line;
+		/**
+		 * The offset at which the line was removed.
+		 */
+		int removedOffset;
+
+		/**
+		 * Constructs a new {@link LineElement}.
+		 *
+		 * @param line
+		 *            the line of the element
+		 */
+		LineElement(int line) {
+			this.line = line;
+		}
+
+		/**
+		 * Detaches this element from its line, which was removed.
+		 *
+		 * @param offset
+		 *            the offset at which the line was removed
+		 */
+		void detach(int offset) {
+			line = -1;
+			removedOffset = offset;
+		}
+
+		@Override
+		public Document getDocument() {
+			return document;
+		}
+
+		@Override
+		public Element getParentElement() {
+			return LineMap.this;
+		}
+
+		@Override
+		public String getName() {
+			return AbstractDocument.ContentElementName;
+		}
+
+		@Override
+		public AttributeSet getAttributes() {
+			return SimpleAttributeSet.EMPTY;
+		}
+
+		@Override
+		public int getStartOffset() {
+			if (line < 0) {
+				return removedOffset;
+			}
+			try {
+				return index.getLineStartOffset(line);
+			} catch (BadLocationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public int getEndOffset() {
+			if (line < 0) {
+				return removedOffset;
+			}
+			try {
+				return index.getLineStartOffset(line)
+						+ index.getLineLength(line);
+			} catch (BadLocationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public int getElementIndex(int offset) {
+			return -1;
+		}
+
+		@Override
+		public int getElementCount() {
+			return 0;
+		}
+
+		@Override
+		public Element getElement(int index) {
+			return null;
+		}
+
+		@Override
+		public boolean isLeaf() {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return "LineElement(" + line + ")";
+		}
+	}
+
+	/**
+	 * A weak reference to a handed out element, which knows the line under
+	 * which it is kept.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class LineReference
+			extends WeakReference<LineElement> {
+		/**
+		 * The line under which the reference is kept.
+		 */
+		int line;
+
+		/**
+		 * Constructs a new {@link LineReference}.
+		 *
+		 * @param element
+		 *            the referenced element
+		 * @param queue
+		 *            the queue of the map of the element
+		 */
+		LineReference(LineElement element,
+				ReferenceQueue<? super LineElement> queue) {
+			super(element, queue);
+			this.line = element.line;
+		}
+	}
+
+	/**
+	 * The update of the lines by a single insert or removal, which doesn't
+	 * change the number of lines. Undoing it updates the lines as the
+	 * opposite change would, so it must be undone while the document has the
+	 * text it had right after the change, as the edits of a document event
+	 * are.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private class LineEdit extends AbstractUndoableEdit {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The offset of the changed text.
+		 */
+		final int offset;
+		/**
+		 * The length of the changed text.
+		 */
+		final int length;
+		/**
+		 * Indicates whether the text was inserted or removed.
+		 */
+		final boolean insert;
+
+		/**
+		 * Constructs a new {@link LineEdit}.
+		 *
+		 * @param offset
+		 *            the offset of the changed text
+		 * @param length
+		 *            the length of the changed text
+		 * @param insert
+		 *            true if the text was inserted, false if it was removed
+		 */
+		LineEdit(int offset, int length, boolean insert) {
+			this.offset = offset;
+			this.length = length;
+			this.insert = insert;
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			apply(!insert);
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			apply(insert);
+		}
+
+		/**
+		 * Updates the lines for an insert or removal of the changed text.
+		 *
+		 * @param inserted
+		 *            true if the text is inserted, false if it is removed
+		 */
+		void apply(boolean inserted) {
+			if (inserted) {
+				index.insert(offset, length);
+			} else {
+				index.remove(offset, length);
+			}
+		}
+	}
+
+	/**
+	 * The update of the lines by a single insert or removal, which changed
+	 * the number of lines. Like a {@link javax.swing.text.PlainDocument}, it
+	 * replaces the lines from the one containing the changed text with new
+	 * lines. The element arrays are only created once a view asks for them.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private final class LineChange extends LineEdit
+			implements DocumentEvent.ElementChange {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The first replaced line.
+		 */
+		private final int line;
+		/**
+		 * The number of removed lines.
+		 */
+		private final int removed;
+		/**
+		 * The number of added lines.
+		 */
+		private final int added;
+		/**
+		 * The handed out elements which were detached by the change, by
+		 * their lines.
+		 */
+		private final SortedMap<Integer, LineElement> detached;
+		/**
+		 * The elements of the removed lines, or null if not created yet.
+		 */
+		private Element[] removedElements;
+		/**
+		 * The elements of the added lines, or null if not created yet.
+		 */
+		private Element[] addedElements;
+
+		/**
+		 * Constructs a new {@link LineChange}, and updates the handed out
+		 * elements.
+		 *
+		 * @param offset
+		 *            the offset of the changed text
+		 * @param length
+		 *            the length of the changed text
+		 * @param insert
+		 *            true if the text was inserted, false if it was removed
+		 * @param line
+		 *            the first replaced line
+		 * @param removed
+		 *            the number of removed lines
+		 * @param added
+		 *            the number of added lines
+		 */
+		LineChange(int offset, int length, boolean insert, int line,
+				int removed, int added) {
+			super(offset, length, insert);
+			this.line = line;
+			this.removed = removed;
+			this.added = added;
+			this.detached = replace(line, removed, added, offset);
+		}
+
+		@Override
+		public Element getElement() {
+			return LineMap.this;
+		}
+
+		@Override
+		public int getIndex() {
+			return line;
+		}
+
+		@Override
+		public Element[] getChildrenRemoved() {
+			if (removedElements == null) {
+				removedElements = new Element[removed];
+				for (int i = 0; i < removed; i++) {
+					LineElement element = detached.get(line + i);
+					if (element == null) {
+						element = new LineElement(line + i);
+						element.detach(offset);
+					}
+					removedElements[i] = element;
+				}
+			}
+			return removedElements;
+		}
+
+		@Override
+		public Element[] getChildrenAdded() {
+			if (addedElements == null) {
+				addedElements = new Element[added];
+				for (int i = 0; i < added; i++) {
+					addedElements[i] = LineMap.this.getElement(line + i);
+				}
+			}
+			return addedElements;
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			// the elements of the change become those of the undo
+			getChildrenAdded();
+			getChildrenRemoved();
+			super.undo();
+			replace(line, added, removed, offset);
+			for (int i = 0; i < removed; i++) {
+				attach((LineElement) removedElements[i], line + i);
+			}
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			replace(line, removed, added, offset);
+			for (int i = 0; i < added; i++) {
+				attach((LineElement) addedElements[i], line + i);
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * Reads the lines of a range of a {@link TextSource} one by one, so the range
+ * never has to be copied as a whole. Lines are separated by <code>\n</code>,
+ * which is not part of the returned lines. A newline at the end of the range
+ * ends the last line, and doesn't start a new one.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineReader {
+	/**
+	 * The read source.
+	 */
+	private final TextSource source;
+	/**
+	 * The end of the read range.
+	 */
+	private final int end;
+	/**
+	 * The offset of the next unread character.
+	 */
+	private int position;
+	/**
+	 * Segment used for reading the source.
+	 */
+	private final Segment segment;
+	/**
+	 * Builds lines which span several segments.
+	 */
+	private final StringBuilder line;
+
+	/**
+	 * Constructs a new {@link LineReader}.
+	 *
+	 * @param source
+	 *            the read source
+	 * @param start
+	 *            the start of the read range
+	 * @param end
+	 *            the end of the read range
+	 */
+	public LineReader(TextSource source, int start, int end) {
+		this.source = source;
+		this.position = start;
+		this.end = end;
+		this.segment = new Segment();
+		this.segment.setPartialReturn(true);
+		this.line = new StringBuilder();
+	}
+
+	/**
+	 * @return the offset of the next unread character
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Reads the next line.
+	 *
+	 * @return the next line, without its newline, or <code>null</code> if the
+	 *         whole range has been read
+	 * @throws BadLocationException
+	 *             if the range is outside of the source
+	 */
+	public String readLine() throws BadLocationException {
+		if (position >= end) {
+			return null;
+		}
+
+		line.setLength(0);
+		while (position < end) {
+			source.getChars(position, end - position, segment);
+			char[] array = segment.array;
+			for (int i = segment.offset, n = i + segment.count; i < n; i++) {
+				if (array[i] == '\n') {
+					line.append(array, segment.offset, i - segment.offset);
+					position += i - segment.offset + 1;
+					return line.toString();
+				}
+			}
+			line.append(array, segment.offset, segment.count);
+			position += segment.count;
+		}
+		return line.toString();
+	}
+}
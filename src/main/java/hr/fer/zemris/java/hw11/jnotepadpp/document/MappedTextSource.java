@@ -0,0 +1,508 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * A {@link TextSource} over a memory-mapped UTF-8 file. The file is split into
+ * pages of roughly {@value #PAGE_BYTES} bytes, and only the pages which are
+ * actually read are decoded. A bounded number of decoded pages is cached, so
+ * the heap used by the source does not depend on the size of the file.
+ * <p>
+ * When opened, the file is decoded once, page by page, in order to find the
+ * character offset of every page. Nothing decoded during that pass is kept,
+ * except for a checksum of every page, but the decoded pages can be given to
+ * a {@link TextScan}, so a document of the file doesn't read it again.
+ * <p>
+ * The mapping reflects later changes of the file, so a page decoded again
+ * after it was evicted from the cache is checked against its checksum and its
+ * length. If another program changed or truncated the file in the meantime,
+ * the page is padded or cut to its original length, so the offsets of the
+ * source stay consistent, the source is marked as stale and the change
+ * listener is notified. A file which was deleted, or replaced by another file
+ * of the same path, e.g. when a document is saved over it, stays mapped as it
+ * was.
+ *
+ * @author 0036502252
+ *
+ */
+public class MappedTextSource implements TextSource {
+	/**
+	 * The nominal size of a single page, in bytes.
+	 */
+	private static final int PAGE_BYTES = 64 * 1024;
+	/**
+	 * The size of a single mapped region, in bytes. Must be a multiple of
+	 * <code>PAGE_BYTES</code>.
+	 */
+	private static final long REGION_BYTES = 1L << 30;
+	/**
+	 * The maximum number of decoded pages kept in memory.
+	 */
+	private static final int CACHED_PAGES = 64;
+
+	/**
+	 * The path of the mapped file.
+	 */
+	private final Path path;
+	/**
+	 * The key identifying the mapped file, or null if the file system has no
+	 * file keys.
+	 */
+	private final Object fileKey;
+	/**
+	 * The mapped regions of the file.
+	 */
+	private final MappedByteBuffer[] regions;
+	/**
+	 * The byte offset at which each page starts. Has one more element than
+	 * there are pages, the last one being the size of the file.
+	 */
+	private final long[] pageByteStart;
+	/**
+	 * The character offset at which each page starts. Has one more element
+	 * than there are pages, the last one being the length of the source.
+	 */
+	private final int[] pageCharStart;
+	/**
+	 * The CRC32 checksum of the bytes of each page.
+	 */
+	private final int[] pageChecksums;
+	/**
+	 * The decoded pages, in access order.
+	 */
+	private final Map<Integer, char[]> cache;
+	/**
+	 * Buffer reused for reading the bytes of a single page.
+	 */
+	private final byte[] pageBuffer;
+	/**
+	 * Buffer reused for decoding a single page.
+	 */
+	private final CharBuffer charBuffer;
+	/**
+	 * The decoder used for decoding pages.
+	 */
+	private final CharsetDecoder decoder;
+	/**
+	 * Computes the checksum of the page last read into
+	 * <code>pageBuffer</code>.
+	 */
+	private final CRC32 checksum;
+	/**
+	 * Indicates whether the file has changed since it was opened.
+	 */
+	private volatile boolean stale;
+	/**
+	 * Notified once the file turns out to have changed.
+	 */
+	private volatile Runnable changeListener;
+
+	/**
+	 * Constructs a new {@link MappedTextSource}.
+	 *
+	 * @param path
+	 *            the path of the mapped file
+	 * @param fileKey
+	 *            the key identifying the mapped file, or null
+	 * @param regions
+	 *            the mapped regions of the file
+	 * @param size
+	 *            the size of the file in bytes
+	 * @param progress
+	 *            notified with the scanned percentage of the file
+	 * @param scan
+	 *            the scan to which the decoded pages are added, or null
+	 * @throws IOException
+	 *             if the file has more characters than a document can hold
+	 */
+	private MappedTextSource(Path path, Object fileKey,
+			MappedByteBuffer[] regions, long size, IntConsumer progress,
+			TextScan scan) throws IOException {
+		this.path = path;
+		this.fileKey = fileKey;
+		this.regions = regions;
+		this.pageBuffer = new byte[PAGE_BYTES + 4];
+		// an UTF-8 page never decodes to more characters than it has bytes
+		this.charBuffer = CharBuffer.allocate(pageBuffer.length);
+		this.decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.checksum = new CRC32();
+		this.cache = new LinkedHashMap<Integer, char[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Integer, char[]> eldest) {
+				return size() > CACHED_PAGES;
+			}
+		};
+
+		int pageCount = (int) ((size + PAGE_BYTES - 1) / PAGE_BYTES);
+		this.pageByteStart = new long[pageCount + 1];
+		this.pageCharStart = new int[pageCount + 1];
+		this.pageChecksums = new int[pageCount];
+
+		for (int i = 1; i < pageCount; i++) {
+			pageByteStart[i] = alignToCharacter((long) i * PAGE_BYTES, size);
+		}
+		pageByteStart[pageCount] = size;
+
+		long chars = 0;
+		for (int i = 0; i < pageCount; i++) {
+			try {
+				int decoded = decode(i);
+				chars += decoded;
+				if (scan != null && chars < Integer.MAX_VALUE) {
+					scan.add(charBuffer.array(), 0, decoded);
+				}
+			} catch (InternalError e) {
+				// the file was truncated while being scanned
+				throw new IOException("File changed while being read.", e);
+			}
+			pageChecksums[i] = (int) checksum.getValue();
+			// one character is needed for the implied newline
+			if (chars >= Integer.MAX_VALUE) {
+				throw new IOException("File has too many characters.");
+			}
+			pageCharStart[i + 1] = (int) chars;
+			progress.accept((int) ((long) (i + 1) * 100 / pageCount));
+		}
+		if (scan != null) {
+			scan.finish();
+		}
+	}
+
+	/**
+	 * Opens the file at the given path as a {@link MappedTextSource}.
+	 *
+	 * @param path
+	 *            the path of a UTF-8 encoded file
+	 * @return the opened source
+	 * @throws IOException
+	 *             if the file can not be read or mapped
+	 */
+	public static MappedTextSource open(Path path) throws IOException {
+		return open(path, percent -> {
+		});
+	}
+
+	/**
+	 * Opens the file at the given path as a {@link MappedTextSource},
+	 * reporting the progress of the initial scan.
+	 *
+	 * @param path
+	 *            the path of a UTF-8 encoded file
+	 * @param progress
+	 *            notified with the scanned percentage of the file, may throw
+	 *            an unchecked exception to abort opening
+	 * @return the opened source
+	 * @throws IOException
+	 *             if the file can not be read or mapped
+	 */
+	public static MappedTextSource open(Path path, IntConsumer progress)
+			throws IOException {
+		return open(path, progress, null);
+	}
+
+	/**
+	 * Opens the file at the given path as a {@link MappedTextSource},
+	 * reporting the progress of the initial scan, and adding the decoded
+	 * text to the given scan.
+	 *
+	 * @param path
+	 *            the path of a UTF-8 encoded file
+	 * @param progress
+	 *            notified with the scanned percentage of the file, may throw
+	 *            an unchecked exception to abort opening
+	 * @param scan
+	 *            a new scan, which is finished once the file is open, or
+	 *            null
+	 * @return the opened source
+	 * @throws IOException
+	 *             if the file can not be read or mapped
+	 */
+	public static MappedTextSource open(Path path, IntConsumer progress,
+			TextScan scan) throws IOException {
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.READ)) {
+			long size = channel.size();
+			Object fileKey = Files
+					.readAttributes(path, BasicFileAttributes.class).fileKey();
+			int regionCount = (int) ((size + REGION_BYTES - 1) / REGION_BYTES);
+			MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+
+			for (int i = 0; i < regionCount; i++) {
+				long start = i * REGION_BYTES;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+						Math.min(REGION_BYTES, size - start));
+			}
+
+			// the mapping stays valid after the channel is closed
+			return new MappedTextSource(path, fileKey, regions, size,
+					progress, scan);
+		}
+	}
+
+	/**
+	 * Sets the listener notified once the file turns out to have been
+	 * changed by another program since it was opened. The listener may be
+	 * called on any thread reading the source.
+	 *
+	 * @param listener
+	 *            the listener, or null
+	 */
+	public void setChangeListener(Runnable listener) {
+		this.changeListener = listener;
+	}
+
+	/**
+	 * @return true if the file has been changed since it was opened, so
+	 *         some of the read text does not match it
+	 */
+	public boolean isStale() {
+		return stale;
+	}
+
+	@Override
+	public int length() {
+		return pageCharStart[pageCharStart.length - 1];
+	}
+
+	@Override
+	public synchronized void getChars(int where, int len, Segment txt)
+			throws BadLocationException {
+		if (where < 0 || len < 0 || where + len > length()) {
+			throw new BadLocationException("Invalid location", where);
+		}
+		if (len == 0) {
+			txt.array = charBuffer.array();
+			txt.offset = 0;
+			txt.count = 0;
+			return;
+		}
+
+		int page = findPage(where);
+		char[] chars = getPage(page);
+		int inPage = where - pageCharStart[page];
+		int available = chars.length - inPage;
+
+		if (len <= available || txt.isPartialReturn()) {
+			txt.array = chars;
+			txt.offset = inPage;
+			txt.count = Math.min(len, available);
+			return;
+		}
+
+		char[] copy = new char[len];
+		int copied = 0;
+		while (copied < len) {
+			chars = getPage(page++);
+			int count = Math.min(len - copied, chars.length - inPage);
+			System.arraycopy(chars, inPage, copy, copied, count);
+			copied += count;
+			inPage = 0;
+		}
+
+		txt.array = copy;
+		txt.offset = 0;
+		txt.count = len;
+	}
+
+	/**
+	 * Finds the page containing the given character offset.
+	 *
+	 * @param offset
+	 *            the character offset
+	 * @return the index of the page
+	 */
+	private int findPage(int offset) {
+		int low = 0;
+		int high = pageCharStart.length - 2;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (pageCharStart[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Gets the decoded characters of the given page, decoding it if it isn't
+	 * cached.
+	 *
+	 * @param page
+	 *            the index of the page
+	 * @return the characters of the page
+	 */
+	private char[] getPage(int page) {
+		char[] chars = cache.get(page);
+		if (chars != null) {
+			return chars;
+		}
+
+		chars = new char[pageCharStart[page + 1] - pageCharStart[page]];
+		try {
+			// reading past the end of a truncated file faults
+			if (isTruncated(pageByteStart[page + 1])) {
+				throw new InternalError("Page is no longer in the file.");
+			}
+			int decoded = decode(page);
+			charBuffer.get(chars, 0, Math.min(decoded, chars.length));
+			if (decoded != chars.length
+					|| (int) checksum.getValue() != pageChecksums[page]) {
+				Arrays.fill(chars, Math.min(decoded, chars.length),
+						chars.length, '\uFFFD');
+				markStale();
+			}
+		} catch (InternalError e) {
+			// the mapped part of the file no longer exists
+			Arrays.fill(chars, '\uFFFD');
+			markStale();
+		}
+		cache.put(page, chars);
+		return chars;
+	}
+
+	/**
+	 * Checks whether the mapped file was truncated before the given offset.
+	 * Only the size of the mapped file itself matters, as a file replaced or
+	 * deleted since it was opened stays mapped. Without file keys, as on
+	 * Windows, a mapped file can't be truncated at all.
+	 *
+	 * @param end
+	 *            the byte offset up to which the file is read
+	 * @return true if the mapped file is now shorter than the given offset
+	 */
+	private boolean isTruncated(long end) {
+		if (fileKey == null) {
+			return false;
+		}
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path,
+					BasicFileAttributes.class);
+			return fileKey.equals(attributes.fileKey())
+					&& attributes.size() < end;
+		} catch (IOException e) {
+			// a deleted file stays mapped
+			return false;
+		}
+	}
+
+	/**
+	 * Marks the source as stale, notifying the change listener the first
+	 * time.
+	 */
+	private void markStale() {
+		if (stale) {
+			return;
+		}
+		stale = true;
+		Runnable listener = changeListener;
+		if (listener != null) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Decodes the given page into <code>charBuffer</code>, which is left
+	 * flipped for reading, and computes the checksum of its bytes.
+	 *
+	 * @param page
+	 *            the index of the page
+	 * @return the number of decoded characters
+	 * @throws InternalError
+	 *             if the page is no longer in the file
+	 */
+	private int decode(int page) {
+		long start = pageByteStart[page];
+		int length = (int) (pageByteStart[page + 1] - start);
+		read(start, pageBuffer, length);
+		checksum.reset();
+		checksum.update(pageBuffer, 0, length);
+
+		charBuffer.clear();
+		decoder.reset();
+		decoder.decode(ByteBuffer.wrap(pageBuffer, 0, length), charBuffer,
+				true);
+		decoder.flush(charBuffer);
+		charBuffer.flip();
+
+		return charBuffer.remaining();
+	}
+
+	/**
+	 * Finds the first byte at or after the given offset which starts a
+	 * character, so that pages never split a multi-byte sequence.
+	 *
+	 * @param offset
+	 *            the byte offset
+	 * @param size
+	 *            the size of the file
+	 * @return the aligned byte offset
+	 */
+	private long alignToCharacter(long offset, long size) {
+		// an UTF-8 sequence has at most three continuation bytes
+		for (int i = 0; i < 3 && offset < size; i++, offset++) {
+			if ((byteAt(offset) & 0xC0) != 0x80) {
+				break;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * @param offset
+	 *            the byte offset
+	 * @return the byte at the given offset of the file
+	 */
+	private byte byteAt(long offset) {
+		return regions[(int) (offset / REGION_BYTES)]
+				.get((int) (offset % REGION_BYTES));
+	}
+
+	/**
+	 * Reads bytes from the mapped file into the given array.
+	 *
+	 * @param offset
+	 *            the byte offset to read from
+	 * @param dst
+	 *            the destination array
+	 * @param length
+	 *            the number of bytes to read
+	 */
+	private void read(long offset, byte[] dst, int length) {
+		int copied = 0;
+		while (copied < length) {
+			ByteBuffer region = regions[(int) (offset / REGION_BYTES)]
+					.duplicate();
+			region.position((int) (offset % REGION_BYTES));
+			int count = Math.min(length - copied, region.remaining());
+			region.get(dst, copied, count);
+			copied += count;
+			offset += count;
+		}
+	}
+}
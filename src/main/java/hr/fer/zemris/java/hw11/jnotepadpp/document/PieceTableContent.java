@@ -0,0 +1,1154 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * An implementation of the {@link AbstractDocument.Content} interface which
+ * stores its text in a piece table. The text is described by a list of
+ * pieces, each of which points into one of two buffers: the original buffer,
+ * which holds the text the content was created with and is never modified,
+ * and the add buffer, to which every inserted string is appended.
+ * <p>
+ * Inserting or removing text only splits and rearranges pieces, so the cost
+ * of an edit depends on the number of pieces instead of the length of the
+ * text. Consecutive inserts (e.g. typing) are merged into a single piece.
+ * Since neither buffer is ever overwritten, removed text is kept by the undo
+ * edits as a slice of the pieces which held it, see {@link #slice(int, int)},
+ * and an undo puts those pieces back without copying the text.
+ * <p>
+ * Positions are tracked the same way {@link javax.swing.text.GapContent}
+ * tracks them - the marks are kept sorted, and a virtual gap is moved through
+ * them, so only the marks between two consecutive edit locations have to be
+ * updated.
+ * <p>
+ * Every piece stores the hash of its text, computed when the piece is
+ * created, so a fingerprint of the whole text is combined from the pieces
+ * alone, see {@link #fingerprint()}. The original buffer is hashed once,
+ * block by block, when the content is created or by the {@link TextScan}
+ * which read it, so a piece which is split or trimmed gets its hash from the
+ * prefix hashes of its buffer without reading more than a block of it.
+ *
+ * @author 0036502252
+ *
+ */
+public class PieceTableContent
+		implements AbstractDocument.Content, TextSource {
+	/**
+	 * The initial capacity of the add buffer.
+	 */
+	private static final int INITIAL_ADD_CAPACITY = 1024;
+	/**
+	 * The initial length of the virtual gap used for mark tracking. Marks
+	 * only need to be moved when more than this many characters were inserted
+	 * without a gap move, so the gap practically never has to grow.
+	 */
+	private static final long INITIAL_GAP_LENGTH = 1L << 40;
+
+	/**
+	 * The buffer holding the text this content was created with.
+	 */
+	private final TextSource original;
+	/**
+	 * The append-only buffer holding all inserted text.
+	 */
+	private char[] add;
+	/**
+	 * The number of used characters in the add buffer.
+	 */
+	private int addLength;
+	/**
+	 * The prefix hashes of the original buffer.
+	 */
+	private final PrefixHashes originalHashes;
+	/**
+	 * The prefix hashes of the add buffer, computed as text is appended.
+	 */
+	private final PrefixHashes addHashes;
+	/**
+	 * The pieces which, read in order, make up the text of this content.
+	 */
+	private final List<Piece> pieces;
+	/**
+	 * The length of the text, including the implied trailing newline.
+	 */
+	private int length;
+
+	/**
+	 * The index of the most recently looked up piece.
+	 */
+	private int cachedPiece;
+	/**
+	 * The starting offset of the most recently looked up piece.
+	 */
+	private int cachedPieceStart;
+
+	/**
+	 * The marks backing the created positions, sorted by their index.
+	 */
+	private MarkData[] marks;
+	/**
+	 * The number of used elements in the <code>marks</code> array.
+	 */
+	private int markCount;
+	/**
+	 * The start of the virtual gap in the mark index space.
+	 */
+	private long gapStart;
+	/**
+	 * The length of the virtual gap in the mark index space.
+	 */
+	private long gapLength;
+	/**
+	 * Queue of the marks whose positions are no longer referenced.
+	 */
+	private final ReferenceQueue<StickyPosition> queue;
+	/**
+	 * The number of marks known to be unused.
+	 */
+	private int unusedMarks;
+
+	/**
+	 * Constructs a new, empty {@link PieceTableContent}.
+	 */
+	public PieceTableContent() {
+		this(new ArrayTextSource(new char[0]));
+	}
+
+	/**
+	 * Constructs a new {@link PieceTableContent} with the given initial text.
+	 *
+	 * @param text
+	 *            the initial text of the content
+	 */
+	public PieceTableContent(String text) {
+		this(new ArrayTextSource(text.toCharArray()));
+	}
+
+	/**
+	 * Constructs a new {@link PieceTableContent} which uses the given source
+	 * as its original buffer. The whole source is read and hashed, so a large
+	 * content should be created on a background thread.
+	 *
+	 * @param original
+	 *            the initial text of the content
+	 */
+	public PieceTableContent(TextSource original) {
+		this(original, new PrefixHashes(original));
+	}
+
+	/**
+	 * Constructs a new {@link PieceTableContent} which uses the given source
+	 * as its original buffer, whose prefix hashes are already known, e.g.
+	 * from a {@link TextScan}.
+	 *
+	 * @param original
+	 *            the initial text of the content
+	 * @param originalHashes
+	 *            the prefix hashes of the source
+	 */
+	PieceTableContent(TextSource original, PrefixHashes originalHashes) {
+		this.original = original;
+		this.add = new char[INITIAL_ADD_CAPACITY];
+		this.pieces = new ArrayList<>();
+		this.originalHashes = originalHashes;
+		this.addHashes = new PrefixHashes(new AddBuffer());
+
+		if (original.length() > 0) {
+			originalHashes.extendTo(original.length());
+			pieces.add(piece(false, 0, original.length()));
+		}
+
+		// the implied newline every document ends with
+		add[addLength++] = '\n';
+		addHashes.extendTo(addLength);
+		pieces.add(piece(true, 0, 1));
+		length = original.length() + 1;
+
+		marks = new MarkData[16];
+		gapStart = length;
+		gapLength = INITIAL_GAP_LENGTH;
+		queue = new ReferenceQueue<>();
+	}
+
+	/**
+	 * @return the original buffer of this content
+	 */
+	public TextSource getOriginal() {
+		return original;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the number of pieces the text currently consists of
+	 */
+	public int getPieceCount() {
+		return pieces.size();
+	}
+
+	@Override
+	public UndoableEdit insertString(int where, String str)
+			throws BadLocationException {
+		if (where >= length || where < 0) {
+			throw new BadLocationException("Invalid insert", length);
+		}
+
+		int n = str.length();
+		if (n == 0) {
+			return null;
+		}
+
+		int addStart = appendToAddBuffer(str);
+		Piece inserted = new Piece(true, addStart, n, PrefixHashes.hash(str),
+				PrefixHashes.power(n));
+		int index = findPiece(where);
+		int pieceStart = cachedPieceStart;
+
+		if (where == pieceStart && index > 0) {
+			Piece previous = pieces.get(index - 1);
+			if (previous.added && previous.start + previous.length == addStart) {
+				// typing right after the last insert, just extend the piece
+				pieces.set(index - 1, new Piece(true, previous.start,
+						previous.length + n,
+						PrefixHashes.concat(previous.hash, inserted.hash,
+								inserted.power),
+						PrefixHashes.multiply(previous.power,
+								inserted.power)));
+				cachedPiece = index - 1;
+				cachedPieceStart = pieceStart - previous.length;
+			} else {
+				pieces.add(index, inserted);
+			}
+
+		} else if (where == pieceStart) {
+			pieces.add(index, inserted);
+
+		} else {
+			Piece piece = pieces.get(index);
+			int split = where - pieceStart;
+			pieces.set(index, piece(piece.added, piece.start, split));
+			pieces.add(index + 1, inserted);
+			pieces.add(index + 2, piece(piece.added, piece.start + split,
+					piece.length - split));
+		}
+
+		length += n;
+		updateMarksForInsert(where, n);
+
+		return new InsertUndo(where, n);
+	}
+
+	@Override
+	public UndoableEdit remove(int where, int nitems)
+			throws BadLocationException {
+		if (where + nitems >= length || where < 0 || nitems < 0) {
+			throw new BadLocationException("Invalid remove", length);
+		}
+		if (nitems == 0) {
+			return null;
+		}
+
+		Snapshot removed = createSlice(where, nitems);
+
+		int first = findPiece(where);
+		int firstStart = cachedPieceStart;
+		int end = where + nitems;
+
+		int last = first;
+		int lastStart = firstStart;
+		while (lastStart + pieces.get(last).length < end) {
+			lastStart += pieces.get(last).length;
+			last++;
+		}
+
+		Piece firstPiece = pieces.get(first);
+		Piece lastPiece = pieces.get(last);
+		List<Piece> remainder = new ArrayList<>(2);
+
+		if (where > firstStart) {
+			remainder.add(piece(firstPiece.added, firstPiece.start,
+					where - firstStart));
+		}
+		int lastEnd = lastStart + lastPiece.length;
+		if (end < lastEnd) {
+			remainder.add(piece(lastPiece.added,
+					lastPiece.start + (end - lastStart), lastEnd - end));
+		}
+
+		pieces.subList(first, last + 1).clear();
+		pieces.addAll(first, remainder);
+		cachedPiece = 0;
+		cachedPieceStart = 0;
+
+		length -= nitems;
+		updateMarksForRemove(where, nitems);
+
+		return new RemoveUndo(where, removed);
+	}
+
+	@Override
+	public String getString(int where, int len) throws BadLocationException {
+		Segment s = new Segment();
+		getChars(where, len, s);
+		return new String(s.array, s.offset, s.count);
+	}
+
+	@Override
+	public void getChars(int where, int len, Segment txt)
+			throws BadLocationException {
+		if (where < 0 || len < 0 || where + len > length) {
+			throw new BadLocationException("Invalid location", length);
+		}
+		if (len == 0) {
+			txt.array = add;
+			txt.offset = 0;
+			txt.count = 0;
+			return;
+		}
+
+		int index = findPiece(where);
+		Piece piece = pieces.get(index);
+		int inPiece = where - cachedPieceStart;
+		int available = piece.length - inPiece;
+
+		if (len <= available || txt.isPartialReturn()) {
+			// the text is contiguous in one of the buffers, so share it
+			int count = Math.min(len, available);
+			if (piece.added) {
+				txt.array = add;
+				txt.offset = piece.start + inPiece;
+				txt.count = count;
+			} else {
+				original.getChars(piece.start + inPiece, count, txt);
+			}
+			return;
+		}
+
+		char[] copy = new char[len];
+		Segment chunk = new Segment();
+		chunk.setPartialReturn(true);
+
+		int copied = 0;
+		while (copied < len) {
+			piece = pieces.get(index++);
+			int count = Math.min(len - copied, piece.length - inPiece);
+
+			if (piece.added) {
+				System.arraycopy(add, piece.start + inPiece, copy, copied,
+						count);
+				copied += count;
+			} else {
+				int end = copied + count;
+				while (copied < end) {
+					original.getChars(piece.start + inPiece, end - copied,
+							chunk);
+					System.arraycopy(chunk.array, chunk.offset, copy, copied,
+							chunk.count);
+					copied += chunk.count;
+					inPiece += chunk.count;
+				}
+			}
+			inPiece = 0;
+		}
+
+		txt.array = copy;
+		txt.offset = 0;
+		txt.count = len;
+	}
+
+	/**
+	 * Creates an immutable snapshot of the current text, without the implied
+	 * trailing newline. Since both buffers are never overwritten, the snapshot
+	 * only copies the list of pieces, and can be read from any thread while
+	 * the content keeps changing.
+	 *
+	 * @return the snapshot of the text
+	 */
+	public TextSource snapshot() {
+		return createSlice(0, length - 1);
+	}
+
+	/**
+	 * Creates an immutable snapshot of a range of the current text. Like
+	 * {@link #snapshot()}, the slice only copies the pieces covering the
+	 * range, so its cost doesn't depend on the length of the range.
+	 *
+	 * @param where
+	 *            the start of the range
+	 * @param len
+	 *            the length of the range
+	 * @return the slice of the text
+	 * @throws BadLocationException
+	 *             if the range is not in the content
+	 */
+	public TextSource slice(int where, int len) throws BadLocationException {
+		if (where < 0 || len < 0 || where + len > length) {
+			throw new BadLocationException("Invalid location", length);
+		}
+		return createSlice(where, len);
+	}
+
+	/**
+	 * Computes a fingerprint of the current text. Equal texts always have the
+	 * same fingerprint, and different texts have the same fingerprint with a
+	 * negligible probability, so the fingerprint can be used to tell whether
+	 * the text changed, e.g. whether an undo restored the saved text.
+	 * <p>
+	 * The fingerprint is combined from the hashes stored in the pieces, so
+	 * its cost only depends on the number of pieces.
+	 *
+	 * @return the fingerprint of the text
+	 */
+	public long fingerprint() {
+		long hash = 0;
+		for (Piece piece : pieces) {
+			hash = PrefixHashes.concat(hash, piece.hash, piece.power);
+		}
+		return hash;
+	}
+
+	/**
+	 * Creates a piece, computing its hash from the prefix hashes of its
+	 * buffer.
+	 *
+	 * @param added
+	 *            true if the piece points into the add buffer
+	 * @param start
+	 *            the starting index in the buffer
+	 * @param length
+	 *            the number of characters
+	 * @return the piece
+	 */
+	private Piece piece(boolean added, int start, int length) {
+		PrefixHashes hashes = added ? addHashes : originalHashes;
+		return new Piece(added, start, length, hashes.range(start, length),
+				PrefixHashes.power(length));
+	}
+
+	/**
+	 * Creates a slice of a range which is known to be in the content.
+	 *
+	 * @param where
+	 *            the start of the range
+	 * @param len
+	 *            the length of the range
+	 * @return the slice of the text
+	 */
+	private Snapshot createSlice(int where, int len) {
+		if (len == 0) {
+			return new Snapshot(original, new char[0][], new Piece[0],
+					new int[1], 0);
+		}
+
+		int first = findPiece(where);
+		int inPiece = where - cachedPieceStart;
+		int last = first;
+		int covered = pieces.get(first).length - inPiece;
+		while (covered < len) {
+			covered += pieces.get(++last).length;
+		}
+
+		int count = last - first + 1;
+		char[][] arrays = new char[count][];
+		Piece[] slicePieces = new Piece[count];
+		int[] offsets = new int[count + 1];
+
+		for (int i = 0; i < count; i++) {
+			Piece piece = pieces.get(first + i);
+			int skipped = i == 0 ? inPiece : 0;
+			int pieceLength = Math.min(len - offsets[i],
+					piece.length - skipped);
+			arrays[i] = piece.added ? add : null;
+			// only the pieces at the ends of the range may have to be trimmed
+			slicePieces[i] = pieceLength == piece.length ? piece
+					: piece(piece.added, piece.start + skipped, pieceLength);
+			offsets[i + 1] = offsets[i] + pieceLength;
+		}
+
+		return new Snapshot(original, arrays, slicePieces, offsets, len);
+	}
+
+	/**
+	 * Inserts the pieces of a slice taken from this content, e.g. when a
+	 * removal is undone. The text isn't copied, since the slice points into
+	 * the buffers of this content.
+	 *
+	 * @param where
+	 *            the offset at which the slice is inserted
+	 * @param slice
+	 *            the slice
+	 * @throws BadLocationException
+	 *             if the offset is not in the content
+	 */
+	private void insertSlice(int where, Snapshot slice)
+			throws BadLocationException {
+		if (where >= length || where < 0) {
+			throw new BadLocationException("Invalid insert", length);
+		}
+
+		int n = slice.length();
+		if (n == 0) {
+			return;
+		}
+
+		int index = findPiece(where);
+		int pieceStart = cachedPieceStart;
+		if (where > pieceStart) {
+			Piece piece = pieces.get(index);
+			int split = where - pieceStart;
+			pieces.set(index, piece(piece.added, piece.start, split));
+			pieces.add(index + 1, piece(piece.added, piece.start + split,
+					piece.length - split));
+			index++;
+		}
+		pieces.addAll(index, slice.getPieces());
+		cachedPiece = 0;
+		cachedPieceStart = 0;
+
+		length += n;
+		updateMarksForInsert(where, n);
+	}
+
+	@Override
+	public Position createPosition(int offset) throws BadLocationException {
+		while (queue.poll() != null) {
+			unusedMarks++;
+		}
+		if (unusedMarks > Math.max(5, markCount / 10)) {
+			removeUnusedMarks();
+		}
+
+		long index = offset < gapStart ? offset : offset + gapLength;
+		int sortIndex = findSortIndex(index);
+
+		if (sortIndex < markCount && marks[sortIndex].index == index) {
+			StickyPosition position = marks[sortIndex].get();
+			if (position != null) {
+				return position;
+			}
+		}
+
+		StickyPosition position = new StickyPosition();
+		MarkData mark = new MarkData(index, position, queue);
+		position.mark = mark;
+		insertMark(sortIndex, mark);
+
+		return position;
+	}
+
+	/**
+	 * Appends the given string to the end of the add buffer, growing it if
+	 * needed.
+	 *
+	 * @param str
+	 *            the string to be appended
+	 * @return the index in the add buffer at which the string starts
+	 */
+	private int appendToAddBuffer(String str) {
+		int n = str.length();
+		if (addLength + n > add.length) {
+			int capacity = Math.max(add.length * 2, addLength + n);
+			char[] grown = new char[capacity];
+			System.arraycopy(add, 0, grown, 0, addLength);
+			// segments previously returned keep referencing the old array,
+			// which is fine since the text they cover never changes
+			add = grown;
+		}
+
+		int start = addLength;
+		str.getChars(0, n, add, start);
+		addLength += n;
+		addHashes.extendTo(addLength);
+
+		return start;
+	}
+
+	/**
+	 * Finds the piece which contains the given offset. The starting offset of
+	 * the found piece is stored in <code>cachedPieceStart</code>. The search
+	 * starts from the previously found piece, since most edits and reads are
+	 * close to each other.
+	 *
+	 * @param offset
+	 *            the offset to be looked up
+	 * @return the index of the piece containing the offset
+	 */
+	private int findPiece(int offset) {
+		int index = cachedPiece;
+		int start = cachedPieceStart;
+
+		if (index >= pieces.size() || offset < start) {
+			index = 0;
+			start = 0;
+		}
+
+		while (index < pieces.size() - 1
+				&& start + pieces.get(index).length <= offset) {
+			start += pieces.get(index).length;
+			index++;
+		}
+
+		cachedPiece = index;
+		cachedPieceStart = start;
+
+		return index;
+	}
+
+	/**
+	 * Updates the marks after <code>length</code> characters were inserted at
+	 * <code>offset</code>. Marks at the insertion offset move forward with
+	 * the text, except for the marks at the start of the document.
+	 *
+	 * @param offset
+	 *            the offset of the insert
+	 * @param length
+	 *            the number of inserted characters
+	 */
+	private void updateMarksForInsert(int offset, int length) {
+		moveGap(offset);
+
+		if (offset == 0) {
+			// marks at zero stay at the start of the document
+			long gapEnd = gapStart + gapLength;
+			for (int i = 0; i < markCount && marks[i].index == gapEnd; i++) {
+				marks[i].index = 0;
+			}
+		}
+
+		if (gapLength <= length) {
+			long gapEnd = gapStart + gapLength;
+			for (int i = findSortIndex(gapEnd); i < markCount; i++) {
+				marks[i].index += INITIAL_GAP_LENGTH;
+			}
+			gapLength += INITIAL_GAP_LENGTH;
+		}
+
+		gapStart += length;
+		gapLength -= length;
+	}
+
+	/**
+	 * Updates the marks after <code>length</code> characters were removed at
+	 * <code>offset</code>. Marks inside the removed range collapse to its
+	 * start.
+	 *
+	 * @param offset
+	 *            the offset of the removal
+	 * @param length
+	 *            the number of removed characters
+	 */
+	private void updateMarksForRemove(int offset, int length) {
+		moveGap(offset);
+
+		long gapEnd = gapStart + gapLength;
+		long newGapEnd = gapEnd + length;
+		for (int i = findSortIndex(gapEnd); i < markCount
+				&& marks[i].index < newGapEnd; i++) {
+			marks[i].index = newGapEnd;
+		}
+
+		gapLength += length;
+	}
+
+	/**
+	 * Moves the virtual gap to the given offset. Afterwards every mark at an
+	 * offset lower than <code>offset</code> is before the gap, and every other
+	 * mark is after it.
+	 *
+	 * @param offset
+	 *            the new start of the gap
+	 */
+	private void moveGap(long offset) {
+		if (offset < gapStart) {
+			for (int i = findSortIndex(offset), n = findSortIndex(gapStart);
+					i < n; i++) {
+				marks[i].index += gapLength;
+			}
+		} else if (offset > gapStart) {
+			long gapEnd = gapStart + gapLength;
+			for (int i = findSortIndex(gapEnd),
+					n = findSortIndex(offset + gapLength); i < n; i++) {
+				marks[i].index -= gapLength;
+			}
+		}
+		gapStart = offset;
+	}
+
+	/**
+	 * Finds the index of the first mark whose index is not lower than the
+	 * given one.
+	 *
+	 * @param index
+	 *            the mark index to be looked up
+	 * @return the position in the <code>marks</code> array
+	 */
+	private int findSortIndex(long index) {
+		int low = 0;
+		int high = markCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (marks[mid].index < index) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Inserts a mark at the given position of the <code>marks</code> array.
+	 *
+	 * @param sortIndex
+	 *            the position of the new mark
+	 * @param mark
+	 *            the mark to be inserted
+	 */
+	private void insertMark(int sortIndex, MarkData mark) {
+		if (markCount == marks.length) {
+			MarkData[] grown = new MarkData[marks.length * 2];
+			System.arraycopy(marks, 0, grown, 0, markCount);
+			marks = grown;
+		}
+		System.arraycopy(marks, sortIndex, marks, sortIndex + 1,
+				markCount - sortIndex);
+		marks[sortIndex] = mark;
+		markCount++;
+	}
+
+	/**
+	 * Removes all marks whose positions are no longer referenced.
+	 */
+	private void removeUnusedMarks() {
+		int kept = 0;
+		for (int i = 0; i < markCount; i++) {
+			if (marks[i].get() != null) {
+				marks[kept++] = marks[i];
+			}
+		}
+		for (int i = kept; i < markCount; i++) {
+			marks[i] = null;
+		}
+		markCount = kept;
+		unusedMarks = 0;
+	}
+
+	/**
+	 * Calculates the offset of the given mark.
+	 *
+	 * @param mark
+	 *            the mark
+	 * @return the offset the mark currently points to
+	 */
+	private int getOffset(MarkData mark) {
+		long index = mark.index;
+		return (int) (index < gapStart ? index : index - gapLength);
+	}
+
+	/**
+	 * A single piece of the table. Pieces are immutable.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class Piece {
+		/**
+		 * True if the piece points into the add buffer, false if it points
+		 * into the original buffer.
+		 */
+		final boolean added;
+		/**
+		 * The starting index of the piece in its buffer.
+		 */
+		final int start;
+		/**
+		 * The number of characters in the piece.
+		 */
+		final int length;
+		/**
+		 * The hash of the text of the piece.
+		 */
+		final long hash;
+		/**
+		 * The base of the hash raised to the length of the piece, used for
+		 * appending the piece to a hashed text.
+		 */
+		final long power;
+
+		/**
+		 * Constructs a new {@link Piece}.
+		 *
+		 * @param added
+		 *            true if the piece points into the add buffer
+		 * @param start
+		 *            the starting index in the buffer
+		 * @param length
+		 *            the number of characters
+		 * @param hash
+		 *            the hash of the text of the piece
+		 * @param power
+		 *            the base of the hash raised to the length of the piece
+		 */
+		Piece(boolean added, int start, int length, long hash, long power) {
+			this.added = added;
+			this.start = start;
+			this.length = length;
+			this.hash = hash;
+			this.power = power;
+		}
+	}
+
+	/**
+	 * A view of the used part of the add buffer.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private final class AddBuffer implements TextSource {
+
+		@Override
+		public int length() {
+			return addLength;
+		}
+
+		@Override
+		public void getChars(int where, int len, Segment txt)
+				throws BadLocationException {
+			if (where < 0 || len < 0 || where + len > addLength) {
+				throw new BadLocationException("Invalid location", where);
+			}
+			txt.array = add;
+			txt.offset = where;
+			txt.count = len;
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the text of a {@link PieceTableContent}, or of
+	 * a range of it.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	static final class Snapshot implements TextSource {
+		/**
+		 * The original buffer.
+		 */
+		private final TextSource original;
+		/**
+		 * The add buffer of every piece, or <code>null</code> for the pieces
+		 * pointing into the original buffer.
+		 */
+		private final char[][] arrays;
+		/**
+		 * The pieces of the snapshot, trimmed to its range.
+		 */
+		private final Piece[] pieces;
+		/**
+		 * The offset at which every piece starts in the text. Has one more
+		 * element than there are pieces.
+		 */
+		private final int[] offsets;
+		/**
+		 * The length of the snapshot.
+		 */
+		private final int length;
+
+		/**
+		 * Constructs a new {@link Snapshot}.
+		 *
+		 * @param original
+		 *            the original buffer
+		 * @param arrays
+		 *            the add buffer of every piece
+		 * @param pieces
+		 *            the pieces of the snapshot
+		 * @param offsets
+		 *            the offset at which every piece starts
+		 * @param length
+		 *            the length of the snapshot
+		 */
+		Snapshot(TextSource original, char[][] arrays, Piece[] pieces,
+				int[] offsets, int length) {
+			this.original = original;
+			this.arrays = arrays;
+			this.pieces = pieces;
+			this.offsets = offsets;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		/**
+		 * @return the number of pieces the snapshot consists of
+		 */
+		int getPieceCount() {
+			return pieces.length;
+		}
+
+		/**
+		 * @return the pieces of the snapshot
+		 */
+		List<Piece> getPieces() {
+			// an older add buffer has the same text at the same index
+			return Arrays.asList(pieces);
+		}
+
+		@Override
+		public void getChars(int where, int len, Segment txt)
+				throws BadLocationException {
+			if (where < 0 || len < 0 || where + len > length) {
+				throw new BadLocationException("Invalid location", where);
+			}
+			if (len == 0) {
+				txt.array = new char[0];
+				txt.offset = 0;
+				txt.count = 0;
+				return;
+			}
+
+			int index = Arrays.binarySearch(offsets, where);
+			if (index < 0) {
+				index = -index - 2;
+			}
+
+			int inPiece = where - offsets[index];
+			int count = Math.min(len, offsets[index + 1] - where);
+
+			if (count == len || txt.isPartialReturn()) {
+				getPieceChars(index, inPiece, count, txt);
+				return;
+			}
+
+			char[] copy = new char[len];
+			Segment chunk = new Segment();
+			chunk.setPartialReturn(true);
+
+			int copied = 0;
+			while (copied < len) {
+				getPieceChars(index, inPiece, Math.min(len - copied,
+						offsets[index + 1] - offsets[index] - inPiece), chunk);
+				System.arraycopy(chunk.array, chunk.offset, copy, copied,
+						chunk.count);
+				copied += chunk.count;
+				inPiece += chunk.count;
+				if (offsets[index] + inPiece == offsets[index + 1]) {
+					index++;
+					inPiece = 0;
+				}
+			}
+
+			txt.array = copy;
+			txt.offset = 0;
+			txt.count = len;
+		}
+
+		/**
+		 * Fetches characters from a single piece.
+		 *
+		 * @param index
+		 *            the index of the piece
+		 * @param inPiece
+		 *            the offset inside of the piece
+		 * @param count
+		 *            the number of characters
+		 * @param txt
+		 *            the segment which receives the characters
+		 * @throws BadLocationException
+		 *             if the range is outside of the source
+		 */
+		private void getPieceChars(int index, int inPiece, int count,
+				Segment txt) throws BadLocationException {
+			if (arrays[index] != null) {
+				txt.array = arrays[index];
+				txt.offset = pieces[index].start + inPiece;
+				txt.count = count;
+			} else {
+				original.getChars(pieces[index].start + inPiece, count, txt);
+			}
+		}
+	}
+
+	/**
+	 * Holds the index of a mark. The mark is weakly bound to its position, so
+	 * unused marks can be removed once the position is garbage collected.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class MarkData extends WeakReference<StickyPosition> {
+		/**
+		 * The index of the mark in the virtual gap space.
+		 */
+		long index;
+
+		/**
+		 * Constructs a new {@link MarkData}.
+		 *
+		 * @param index
+		 *            the index of the mark
+		 * @param position
+		 *            the position backed by this mark
+		 * @param queue
+		 *            the queue which is notified once the position is unused
+		 */
+		MarkData(long index, StickyPosition position,
+				ReferenceQueue<? super StickyPosition> queue) {
+			super(position, queue);
+			this.index = index;
+		}
+	}
+
+	/**
+	 * A {@link Position} which follows the text it points to as the content
+	 * changes.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private final class StickyPosition implements Position {
+		/**
+		 * The mark backing this position.
+		 */
+		MarkData mark;
+
+		@Override
+		public int getOffset() {
+			return PieceTableContent.this.getOffset(mark);
+		}
+
+		@Override
+		public String toString() {
+			return Integer.toString(getOffset());
+		}
+	}
+
+	/**
+	 * An undoable edit for an insert into this content.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private final class InsertUndo extends AbstractUndoableEdit {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The offset of the insert.
+		 */
+		private final int offset;
+		/**
+		 * The number of inserted characters.
+		 */
+		private final int length;
+		/**
+		 * The inserted text, kept only while the edit is undone.
+		 */
+		private Snapshot text;
+
+		/**
+		 * Constructs a new {@link InsertUndo}.
+		 *
+		 * @param offset
+		 *            the offset of the insert
+		 * @param length
+		 *            the number of inserted characters
+		 */
+		InsertUndo(int offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			try {
+				text = createSlice(offset, length);
+				remove(offset, length);
+			} catch (BadLocationException e) {
+				throw new CannotUndoException();
+			}
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			try {
+				insertSlice(offset, text);
+				text = null;
+			} catch (BadLocationException e) {
+				throw new CannotRedoException();
+			}
+		}
+	}
+
+	/**
+	 * An undoable edit for a removal from this content.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private final class RemoveUndo extends AbstractUndoableEdit {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The offset of the removal.
+		 */
+		private final int offset;
+		/**
+		 * The removed text, as a slice of the pieces which held it.
+		 */
+		private final Snapshot text;
+
+		/**
+		 * Constructs a new {@link RemoveUndo}.
+		 *
+		 * @param offset
+		 *            the offset of the removal
+		 * @param text
+		 *            the removed text
+		 */
+		RemoveUndo(int offset, Snapshot text) {
+			this.offset = offset;
+			this.text = text;
+		}
+
+		@Override
+		public void undo() throws CannotUndoException {
+			super.undo();
+			try {
+				insertSlice(offset, text);
+			} catch (BadLocationException e) {
+				throw new CannotUndoException();
+			}
+		}
+
+		@Override
+		public void redo() throws CannotRedoException {
+			super.redo();
+			try {
+				remove(offset, text.length());
+			} catch (BadLocationException e) {
+				throw new CannotRedoException();
+			}
+		}
+	}
+}
@@ -0,0 +1,378 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import javax.swing.undo.CompoundEdit;
+
+/**
+ * A plain text document whose text is stored in a {@link PieceTableContent}.
+ * The initial text of the document is used as the original buffer of the
+ * piece table, so it is never copied by later edits. The initial text can
+ * come from any {@link TextSource}, e.g. a memory-mapped file.
+ * <p>
+ * Like a {@link PlainDocument}, the document has an element for every line,
+ * but the lines are kept by a {@link LineIndex}, whose memory use doesn't
+ * depend on the number of lines. The initial text is read once, by a
+ * {@link TextScan} which also hashes it and counts its statistics.
+ * <p>
+ * Besides the usual document listeners, the document notifies
+ * {@link DocumentDeltaListener}s, which also see the text which is being
+ * removed. Several edits, e.g. only the lines of a range which changed, can
+ * be applied as a single undoable edit.
+ *
+ * @author 0036502252
+ *
+ */
+public class PieceTableDocument extends AbstractDocument {
+
+	/** Default UID */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The root element, with an element for every line.
+	 */
+	private final transient LineMap lineMap;
+	/**
+	 * The statistics of the document.
+	 */
+	private final transient DocumentStatistics statistics;
+	/**
+	 * Collects the edits applied by {@link #applyEdits(List)}, or
+	 * <code>null</code> if no edits are being applied.
+	 */
+	private transient CompoundEdit replacement;
+
+	/**
+	 * Constructs a new, empty {@link PieceTableDocument}.
+	 */
+	public PieceTableDocument() {
+		this(new ArrayTextSource(new char[0]));
+	}
+
+	/**
+	 * Constructs a new {@link PieceTableDocument} with the given text.
+	 *
+	 * @param text
+	 *            the initial text of the document
+	 */
+	public PieceTableDocument(String text) {
+		this(new ArrayTextSource(text.toCharArray()));
+	}
+
+	/**
+	 * Constructs a new {@link PieceTableDocument} which uses the given source
+	 * as its original text. The whole source is read, so a large document
+	 * should be created on a background thread.
+	 *
+	 * @param text
+	 *            the initial text of the document
+	 */
+	public PieceTableDocument(TextSource text) {
+		this(text, TextScan.of(text));
+	}
+
+	/**
+	 * Constructs a new {@link PieceTableDocument} which uses the given source
+	 * as its original text, which was already read by the given scan, e.g.
+	 * by {@link MappedTextSource#open(java.nio.file.Path,
+	 * java.util.function.IntConsumer, TextScan)}. The source isn't read
+	 * again.
+	 *
+	 * @param text
+	 *            the initial text of the document
+	 * @param scan
+	 *            the finished scan of the whole text
+	 * @throws IllegalArgumentException
+	 *             if the scan didn't read a text of the source's length
+	 */
+	public PieceTableDocument(TextSource text, TextScan scan) {
+		super(new PieceTableContent(text, scan.getHashes(text)));
+		if (scan.getLength() != text.length()) {
+			throw new IllegalArgumentException(
+					"The scan didn't read the text.");
+		}
+		putProperty(PlainDocument.tabSizeAttribute, Integer.valueOf(8));
+
+		PieceTableContent content = (PieceTableContent) getContent();
+		lineMap = new LineMap(this, new LineIndex(content, scan));
+		statistics = scan.getStatistics();
+		addDocumentDeltaListener(statistics);
+	}
+
+	/**
+	 * @return the text the document was created with
+	 * @see PieceTableContent#getOriginal()
+	 */
+	public TextSource getOriginal() {
+		return ((PieceTableContent) getContent()).getOriginal();
+	}
+
+	/**
+	 * Creates an immutable snapshot of the document's text, which can be read
+	 * from any thread.
+	 *
+	 * @return the snapshot of the text
+	 */
+	public TextSource snapshot() {
+		readLock();
+		try {
+			return ((PieceTableContent) getContent()).snapshot();
+		} finally {
+			readUnlock();
+		}
+	}
+
+	/**
+	 * Creates an immutable snapshot of a range of the document's text, which
+	 * can be read from any thread. Its cost doesn't depend on the length of
+	 * the range.
+	 *
+	 * @param offset
+	 *            the start of the range
+	 * @param length
+	 *            the length of the range
+	 * @return the slice of the text
+	 * @throws BadLocationException
+	 *             if the range is not in the document
+	 * @see PieceTableContent#slice(int, int)
+	 */
+	public TextSource slice(int offset, int length)
+			throws BadLocationException {
+		readLock();
+		try {
+			return ((PieceTableContent) getContent()).slice(offset, length);
+		} finally {
+			readUnlock();
+		}
+	}
+
+	/**
+	 * Computes a fingerprint of the document's text, which changes whenever
+	 * the text changes.
+	 *
+	 * @return the fingerprint of the text
+	 * @see PieceTableContent#fingerprint()
+	 */
+	public long fingerprint() {
+		readLock();
+		try {
+			return ((PieceTableContent) getContent()).fingerprint();
+		} finally {
+			readUnlock();
+		}
+	}
+
+	/**
+	 * Gets the statistics of the document, which are kept up to date as the
+	 * document changes.
+	 *
+	 * @return the statistics of the document
+	 */
+	public DocumentStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Gets the index of the document's lines, which is kept up to date as the
+	 * document changes. Like the document, it must only be used on the event
+	 * dispatch thread.
+	 *
+	 * @return the index of the lines
+	 */
+	public LineIndex getLineIndex() {
+		return lineMap.getIndex();
+	}
+
+	@Override
+	public Element getDefaultRootElement() {
+		return lineMap;
+	}
+
+	@Override
+	public Element getParagraphElement(int pos) {
+		return lineMap.getElement(lineMap.getElementIndex(pos));
+	}
+
+	/**
+	 * Replaces a range of text with the given text, but only removes and
+	 * inserts the lines which actually differ, so the views and listeners of
+	 * the document only see the changed lines. The changes are applied by
+	 * {@link #applyEdits(List)}.
+	 *
+	 * @param offset
+	 *            the start of the replaced range
+	 * @param length
+	 *            the length of the replaced range
+	 * @param text
+	 *            the replacement text
+	 * @throws BadLocationException
+	 *             if the range is not in the document
+	 */
+	public void replaceLines(int offset, int length, String text)
+			throws BadLocationException {
+		writeLock();
+		try {
+			String old = getText(offset, length);
+			int[] oldStarts = lineStarts(old);
+			int[] newStarts = lineStarts(text);
+			List<LineDiff.Change> changes = LineDiff.diff(
+					lines(old, oldStarts), lines(text, newStarts));
+
+			List<TextEdit> edits = new ArrayList<>(changes.size());
+			for (LineDiff.Change change : changes) {
+				int from = oldStarts[change.getOldStart()];
+				int to = oldStarts[change.getOldStart()
+						+ change.getOldCount()];
+				edits.add(new TextEdit(offset + from, to - from,
+						text.substring(newStarts[change.getNewStart()],
+								newStarts[change.getNewStart()
+										+ change.getNewCount()])));
+			}
+			applyEdits(edits);
+		} finally {
+			writeUnlock();
+		}
+	}
+
+	/**
+	 * Applies the given edits to the document. All the edits are done under a
+	 * single write lock and undone as a single edit.
+	 *
+	 * @param edits
+	 *            the edits, ordered by their offsets and not overlapping,
+	 *            with the offsets of the text before any of them is applied
+	 * @throws BadLocationException
+	 *             if an edited range is not in the document
+	 */
+	public void applyEdits(List<TextEdit> edits) throws BadLocationException {
+		writeLock();
+		try {
+			replacement = new CompoundEdit();
+			// applied back to front, so the earlier offsets stay valid
+			for (int i = edits.size() - 1; i >= 0; i--) {
+				TextEdit edit = edits.get(i);
+				if (edit.getLength() > 0) {
+					remove(edit.getOffset(), edit.getLength());
+				}
+				if (!edit.getText().isEmpty()) {
+					insertString(edit.getOffset(), edit.getText(), null);
+				}
+			}
+		} finally {
+			CompoundEdit compound = replacement;
+			replacement = null;
+			compound.end();
+			if (compound.isSignificant()) {
+				super.fireUndoableEditUpdate(
+						new UndoableEditEvent(this, compound));
+			}
+			writeUnlock();
+		}
+	}
+
+	/**
+	 * Adds a {@link DocumentDeltaListener} to this document.
+	 *
+	 * @param l
+	 *            the listener to be added
+	 */
+	public void addDocumentDeltaListener(DocumentDeltaListener l) {
+		listenerList.add(DocumentDeltaListener.class, l);
+	}
+
+	/**
+	 * Removes a {@link DocumentDeltaListener} from this document.
+	 *
+	 * @param l
+	 *            the listener to be removed
+	 */
+	public void removeDocumentDeltaListener(DocumentDeltaListener l) {
+		listenerList.remove(DocumentDeltaListener.class, l);
+	}
+
+	@Override
+	protected void insertUpdate(DefaultDocumentEvent chng, AttributeSet attr) {
+		chng.addEdit(lineMap.insert(chng.getOffset(), chng.getLength()));
+		super.insertUpdate(chng, attr);
+		for (DocumentDeltaListener l : listenerList
+				.getListeners(DocumentDeltaListener.class)) {
+			l.textInserted(this, chng.getOffset(), chng.getLength());
+		}
+	}
+
+	@Override
+	protected void removeUpdate(DefaultDocumentEvent chng) {
+		for (DocumentDeltaListener l : listenerList
+				.getListeners(DocumentDeltaListener.class)) {
+			l.textRemoving(this, chng.getOffset(), chng.getLength());
+		}
+		chng.addEdit(lineMap.remove(chng.getOffset(), chng.getLength()));
+		super.removeUpdate(chng);
+	}
+
+	@Override
+	protected void fireUndoableEditUpdate(UndoableEditEvent e) {
+		if (replacement != null) {
+			replacement.addEdit(e.getEdit());
+			return;
+		}
+		super.fireUndoableEditUpdate(e);
+	}
+
+	/**
+	 * Finds the starts of the lines of a text. Every line includes its
+	 * newline, and the length of the text is added as the end of the last
+	 * line.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the offsets at which the lines start, followed by the length of
+	 *         the text
+	 */
+	private static int[] lineStarts(String text) {
+		int count = 1;
+		for (int i = 0, n = text.length(); i < n; i++) {
+			if (text.charAt(i) == '\n' && i + 1 < n) {
+				count++;
+			}
+		}
+		if (text.isEmpty()) {
+			count = 0;
+		}
+
+		int[] starts = new int[count + 1];
+		int line = 1;
+		for (int i = 0, n = text.length(); i < n; i++) {
+			if (text.charAt(i) == '\n' && i + 1 < n) {
+				starts[line++] = i + 1;
+			}
+		}
+		starts[count] = text.length();
+		return starts;
+	}
+
+	/**
+	 * Splits a text into lines.
+	 *
+	 * @param text
+	 *            the text
+	 * @param starts
+	 *            the starts of the lines, as found by
+	 *            {@link #lineStarts(String)}
+	 * @return the lines, including their newlines
+	 */
+	private static List<String> lines(String text, int[] starts) {
+		List<String> lines = new ArrayList<>(starts.length - 1);
+		for (int i = 0; i + 1 < starts.length; i++) {
+			lines.add(text.substring(starts[i], starts[i + 1]));
+		}
+		return lines;
+	}
+}
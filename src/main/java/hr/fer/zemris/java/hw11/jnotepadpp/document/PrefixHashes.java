@@ -0,0 +1,268 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * Polynomial hashes of the prefixes of a {@link TextSource} which only ever
+ * grows at its end. The hash of a prefix is computed by Horner's scheme,
+ * modulo the Mersenne prime 2<sup>61</sup>-1, so the hash of any range of the
+ * source can be derived from the hashes of two prefixes, and the hashes of
+ * consecutive ranges can be combined without reading them again.
+ * <p>
+ * Only the hash of every {@value #BLOCK}-th prefix is kept. Blocks are hashed
+ * the first time they are needed, or ahead of time by
+ * {@link #extendTo(int)} or a {@link TextScan}, and stay valid since the text
+ * before the end of the source never changes.
+ *
+ * @author 0036502252
+ *
+ */
+final class PrefixHashes {
+	/**
+	 * The modulus of the hashes.
+	 */
+	static final long MOD = (1L << 61) - 1;
+	/**
+	 * The base of the hashes.
+	 */
+	private static final long BASE = 0x5DEECE66DL;
+	/**
+	 * The number of characters between two kept prefix hashes.
+	 */
+	static final int BLOCK = 4096;
+	/**
+	 * Mask of the lower 30 bits.
+	 */
+	private static final long MASK30 = (1L << 30) - 1;
+	/**
+	 * Mask of the lower 31 bits.
+	 */
+	private static final long MASK31 = (1L << 31) - 1;
+
+	/**
+	 * The hashed source.
+	 */
+	private final TextSource source;
+	/**
+	 * The hash of the prefix ending at each block boundary.
+	 */
+	private long[] blocks;
+	/**
+	 * The number of known elements in the <code>blocks</code> array.
+	 */
+	private int blockCount;
+	/**
+	 * Segment reused for reading the source.
+	 */
+	private final Segment segment;
+
+	/**
+	 * Constructs a new {@link PrefixHashes}.
+	 *
+	 * @param source
+	 *            the hashed source, which may only grow at its end
+	 */
+	PrefixHashes(TextSource source) {
+		this(source, new long[16], 1);
+	}
+
+	/**
+	 * Constructs a new {@link PrefixHashes} whose first blocks are already
+	 * hashed.
+	 *
+	 * @param source
+	 *            the hashed source, which may only grow at its end
+	 * @param blocks
+	 *            the hash of the prefix ending at each block boundary,
+	 *            starting with the empty prefix
+	 * @param blockCount
+	 *            the number of known elements in the array, at least one
+	 */
+	PrefixHashes(TextSource source, long[] blocks, int blockCount) {
+		this.source = source;
+		this.blocks = blocks;
+		this.blockCount = blockCount;
+		this.segment = new Segment();
+		this.segment.setPartialReturn(true);
+	}
+
+	/**
+	 * Hashes all complete blocks up to the given length of the source.
+	 *
+	 * @param length
+	 *            the number of characters which should be hashed
+	 */
+	synchronized void extendTo(int length) {
+		int last = length / BLOCK;
+		while (blockCount <= last) {
+			if (blockCount == blocks.length) {
+				long[] grown = new long[blocks.length * 2];
+				System.arraycopy(blocks, 0, grown, 0, blockCount);
+				blocks = grown;
+			}
+			int start = (blockCount - 1) * BLOCK;
+			blocks[blockCount] = hash(blocks[blockCount - 1], start,
+					start + BLOCK);
+			blockCount++;
+		}
+	}
+
+	/**
+	 * Computes the hash of a range of the source.
+	 *
+	 * @param start
+	 *            the start of the range
+	 * @param length
+	 *            the length of the range
+	 * @return the hash of the range
+	 */
+	synchronized long range(int start, int length) {
+		long head = prefix(start);
+		long whole = prefix(start + length);
+		long h = whole - multiply(head, power(length));
+		return h < 0 ? h + MOD : h;
+	}
+
+	/**
+	 * Appends a range with the given hash to a hashed text.
+	 *
+	 * @param hash
+	 *            the hash of the text
+	 * @param rangeHash
+	 *            the hash of the appended range
+	 * @param rangePower
+	 *            the base raised to the length of the appended range, see
+	 *            {@link #power(int)}
+	 * @return the hash of the concatenated text
+	 */
+	static long concat(long hash, long rangeHash, long rangePower) {
+		long h = multiply(hash, rangePower) + rangeHash;
+		return h >= MOD ? h - MOD : h;
+	}
+
+	/**
+	 * Computes the hash of a string, which is the same as the hash of an
+	 * equal range of any source.
+	 *
+	 * @param text
+	 *            the string
+	 * @return the hash of the string
+	 */
+	static long hash(String text) {
+		long h = 0;
+		for (int i = 0, n = text.length(); i < n; i++) {
+			h = multiply(h, BASE) + text.charAt(i) + 1;
+			if (h >= MOD) {
+				h -= MOD;
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Computes the hash of the prefix of the given length.
+	 *
+	 * @param length
+	 *            the length of the prefix
+	 * @return the hash of the prefix
+	 */
+	private long prefix(int length) {
+		int block = length / BLOCK;
+		extendTo(block * BLOCK);
+		return hash(blocks[block], block * BLOCK, length);
+	}
+
+	/**
+	 * Continues hashing a text with a range of the source.
+	 *
+	 * @param h
+	 *            the hash of the text so far
+	 * @param start
+	 *            the start of the range
+	 * @param end
+	 *            the end of the range
+	 * @return the hash of the text followed by the range
+	 */
+	private long hash(long h, int start, int end) {
+		try {
+			while (start < end) {
+				source.getChars(start, end - start, segment);
+				h = hash(h, segment.array, segment.offset,
+						segment.offset + segment.count);
+				start += segment.count;
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		return h;
+	}
+
+	/**
+	 * Continues hashing a text with a range of an array.
+	 *
+	 * @param h
+	 *            the hash of the text so far
+	 * @param array
+	 *            the array
+	 * @param from
+	 *            the start of the range
+	 * @param to
+	 *            the end of the range
+	 * @return the hash of the text followed by the range
+	 */
+	static long hash(long h, char[] array, int from, int to) {
+		for (int i = from; i < to; i++) {
+			// shifted by one, so that leading zeros change the hash
+			h = multiply(h, BASE) + array[i] + 1;
+			if (h >= MOD) {
+				h -= MOD;
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Computes the given power of the base.
+	 *
+	 * @param exponent
+	 *            the exponent
+	 * @return the base raised to the exponent, modulo {@link #MOD}
+	 */
+	static long power(int exponent) {
+		long result = 1;
+		long base = BASE;
+		while (exponent > 0) {
+			if ((exponent & 1) != 0) {
+				result = multiply(result, base);
+			}
+			base = multiply(base, base);
+			exponent >>>= 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Multiplies two numbers modulo {@link #MOD}, without overflowing. Both
+	 * numbers are split into their upper and lower bits, and the partial
+	 * products are reduced using 2<sup>61</sup> = 1.
+	 *
+	 * @param a
+	 *            the first factor, less than {@link #MOD}
+	 * @param b
+	 *            the second factor, less than {@link #MOD}
+	 * @return the product modulo {@link #MOD}
+	 */
+	static long multiply(long a, long b) {
+		long au = a >>> 31;
+		long ad = a & MASK31;
+		long bu = b >>> 31;
+		long bd = b & MASK31;
+		long mid = ad * bu + au * bd;
+		// the sum may overflow as a signed number, but not as an unsigned one
+		long x = (au * bu << 1) + (mid >>> 30) + ((mid & MASK30) << 31)
+				+ ad * bd;
+		long r = (x & MOD) + (x >>> 61);
+		return r >= MOD ? r - MOD : r;
+	}
+}
@@ -0,0 +1,60 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+/**
+ * A single edit of a text: a range of the text replaced by a new text.
+ * Either the range or the new text may be empty.
+ *
+ * @author 0036502252
+ *
+ */
+public class TextEdit {
+	/**
+	 * The start of the replaced range.
+	 */
+	private final int offset;
+	/**
+	 * The length of the replaced range.
+	 */
+	private final int length;
+	/**
+	 * The new text.
+	 */
+	private final String text;
+
+	/**
+	 * Constructs a new {@link TextEdit}.
+	 *
+	 * @param offset
+	 *            the start of the replaced range
+	 * @param length
+	 *            the length of the replaced range
+	 * @param text
+	 *            the new text
+	 */
+	public TextEdit(int offset, int length, String text) {
+		this.offset = offset;
+		this.length = length;
+		this.text = text;
+	}
+
+	/**
+	 * @return the start of the replaced range
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the length of the replaced range
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the new text
+	 */
+	public String getText() {
+		return text;
+	}
+}
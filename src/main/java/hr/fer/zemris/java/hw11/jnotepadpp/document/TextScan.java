@@ -0,0 +1,293 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * Collects everything a {@link PieceTableDocument} needs to know about its
+ * initial text in a single pass over it: the prefix hashes of the text, its
+ * {@link DocumentStatistics}, and the number of lines and characters of the
+ * blocks of a {@link LineIndex}. The text is added chunk by chunk as it is
+ * read, e.g. by {@link MappedTextSource} while it decodes a file, so the text
+ * never has to be read again when the document is created.
+ * <p>
+ * The lines are grouped into blocks of roughly {@value #BLOCK_CHARS}
+ * characters, but only their counts are kept, so the memory used by a scan
+ * only depends on the length of the text, not on the number of its lines. A
+ * single line longer than that gets a block of its own.
+ *
+ * @author 0036502252
+ *
+ */
+public final class TextScan {
+	/**
+	 * The number of characters after which a block of lines is ended.
+	 */
+	private static final int BLOCK_CHARS = 8 * 1024;
+
+	/**
+	 * The number of characters of each block of lines.
+	 */
+	private int[] blockChars;
+	/**
+	 * The number of lines of each block.
+	 */
+	private int[] blockLines;
+	/**
+	 * The number of complete blocks.
+	 */
+	private int blockCount;
+	/**
+	 * The number of characters of the complete lines of the current block.
+	 */
+	private int currentChars;
+	/**
+	 * The number of complete lines of the current block.
+	 */
+	private int currentLines;
+	/**
+	 * The number of characters of the current line so far.
+	 */
+	private int lineChars;
+
+	/**
+	 * The hash of the prefix ending at each hashed block boundary.
+	 */
+	private long[] hashes;
+	/**
+	 * The number of known elements in the <code>hashes</code> array.
+	 */
+	private int hashCount;
+	/**
+	 * The hash of the text so far.
+	 */
+	private long hash;
+
+	/**
+	 * The statistics of the text so far.
+	 */
+	private final DocumentStatistics statistics;
+	/**
+	 * The last character of the text so far, or zero.
+	 */
+	private char previous;
+
+	/**
+	 * The number of characters added so far.
+	 */
+	private int length;
+	/**
+	 * Indicates whether the whole text was added.
+	 */
+	private boolean finished;
+
+	/**
+	 * Constructs a new {@link TextScan} of an empty text.
+	 */
+	public TextScan() {
+		this.blockChars = new int[16];
+		this.blockLines = new int[16];
+		this.hashes = new long[16];
+		this.hashCount = 1;
+		this.statistics = new DocumentStatistics();
+	}
+
+	/**
+	 * Scans the whole text of a source.
+	 *
+	 * @param text
+	 *            the scanned text
+	 * @return the finished scan
+	 */
+	static TextScan of(TextSource text) {
+		TextScan scan = new TextScan();
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		try {
+			int offset = 0;
+			int length = text.length();
+			while (offset < length) {
+				text.getChars(offset, length - offset, segment);
+				scan.add(segment.array, segment.offset, segment.count);
+				offset += segment.count;
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		scan.finish();
+		return scan;
+	}
+
+	/**
+	 * Adds the next chunk of the text.
+	 *
+	 * @param array
+	 *            the array holding the chunk
+	 * @param offset
+	 *            the start of the chunk in the array
+	 * @param count
+	 *            the length of the chunk
+	 */
+	void add(char[] array, int offset, int count) {
+		if (finished) {
+			throw new IllegalStateException("The scan is finished.");
+		}
+		int end = offset + count;
+
+		for (int i = offset; i < end; i++) {
+			if (array[i] == '\n') {
+				addLine();
+			} else {
+				lineChars++;
+			}
+		}
+
+		previous = statistics.count(array, offset, end, previous, 1);
+
+		while (offset < end) {
+			int blockEnd = Math.min(end,
+					offset + PrefixHashes.BLOCK - length % PrefixHashes.BLOCK);
+			hash = PrefixHashes.hash(hash, array, offset, blockEnd);
+			length += blockEnd - offset;
+			offset = blockEnd;
+			if (length % PrefixHashes.BLOCK == 0) {
+				if (hashCount == hashes.length) {
+					hashes = grow(hashes);
+				}
+				hashes[hashCount++] = hash;
+			}
+		}
+	}
+
+	/**
+	 * Ends the text, adding the implied newline every document ends with.
+	 */
+	void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		addLine();
+		endBlock();
+	}
+
+	/**
+	 * @return the number of characters of the scanned text
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * @param text
+	 *            the scanned text
+	 * @return the prefix hashes of the text, of which the scanned blocks are
+	 *         already hashed
+	 */
+	PrefixHashes getHashes(TextSource text) {
+		checkFinished();
+		return new PrefixHashes(text, hashes, hashCount);
+	}
+
+	/**
+	 * @return the statistics of the scanned text
+	 */
+	DocumentStatistics getStatistics() {
+		checkFinished();
+		return statistics;
+	}
+
+	/**
+	 * @return the number of blocks of lines
+	 */
+	int getBlockCount() {
+		checkFinished();
+		return blockCount;
+	}
+
+	/**
+	 * @param block
+	 *            the index of a block
+	 * @return the number of characters of the block, including the implied
+	 *         newline in the last block
+	 */
+	int getBlockChars(int block) {
+		return blockChars[block];
+	}
+
+	/**
+	 * @param block
+	 *            the index of a block
+	 * @return the number of lines of the block
+	 */
+	int getBlockLines(int block) {
+		return blockLines[block];
+	}
+
+	/**
+	 * Ends the current line, at a newline of the text or the implied one.
+	 */
+	private void addLine() {
+		int line = lineChars + 1;
+		lineChars = 0;
+		if (currentLines > 0 && currentChars + line > 2 * BLOCK_CHARS) {
+			// a long line isn't appended to a block which is already full
+			endBlock();
+		}
+		currentChars += line;
+		currentLines++;
+		if (currentChars >= BLOCK_CHARS) {
+			endBlock();
+		}
+	}
+
+	/**
+	 * Ends the current block, if it has any lines.
+	 */
+	private void endBlock() {
+		if (currentLines == 0) {
+			return;
+		}
+		if (blockCount == blockChars.length) {
+			blockChars = grow(blockChars);
+			blockLines = grow(blockLines);
+		}
+		blockChars[blockCount] = currentChars;
+		blockLines[blockCount] = currentLines;
+		blockCount++;
+		currentChars = 0;
+		currentLines = 0;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if the scan isn't finished yet
+	 */
+	private void checkFinished() {
+		if (!finished) {
+			throw new IllegalStateException("The scan isn't finished.");
+		}
+	}
+
+	/**
+	 * @param array
+	 *            the array to be grown
+	 * @return a copy of the array with twice the capacity
+	 */
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * @param array
+	 *            the array to be grown
+	 * @return a copy of the array with twice the capacity
+	 */
+	private static long[] grow(long[] array) {
+		long[] grown = new long[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
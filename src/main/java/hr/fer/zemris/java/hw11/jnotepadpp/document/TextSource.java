@@ -0,0 +1,37 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * A read-only, random access source of characters. Used as the original
+ * buffer of a {@link PieceTableContent}, so the text a document was created
+ * with does not have to be kept in a single array.
+ *
+ * @author 0036502252
+ *
+ */
+public interface TextSource {
+	/**
+	 * @return the number of characters in this source
+	 */
+	int length();
+
+	/**
+	 * Fetches the characters in the given range into the given
+	 * {@link Segment}. The segment may share the source's internal array, so
+	 * it must not be modified. If the segment's partial return flag is set,
+	 * only a leading part of the range may be returned.
+	 *
+	 * @param where
+	 *            the starting offset
+	 * @param len
+	 *            the number of characters
+	 * @param txt
+	 *            the segment which receives the characters
+	 * @throws BadLocationException
+	 *             if the range is outside of the source
+	 */
+	void getChars(int where, int len, Segment txt)
+			throws BadLocationException;
+}
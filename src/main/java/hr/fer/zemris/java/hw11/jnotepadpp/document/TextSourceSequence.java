@@ -0,0 +1,112 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+/**
+ * A {@link CharSequence} view of a range of a {@link TextSource}, e.g. for
+ * running regular expressions over a document without copying its text. The
+ * characters are read one segment at a time, and the current segment is
+ * kept, so reading the characters in order is almost as fast as reading an
+ * array.
+ *
+ * @author 0036502252
+ *
+ */
+public class TextSourceSequence implements CharSequence {
+	/**
+	 * The viewed source.
+	 */
+	private final TextSource source;
+	/**
+	 * The start of the viewed range.
+	 */
+	private final int start;
+	/**
+	 * The end of the viewed range.
+	 */
+	private final int end;
+	/**
+	 * The current segment.
+	 */
+	private final Segment segment;
+	/**
+	 * The index of the first character of the current segment.
+	 */
+	private int segmentStart;
+	/**
+	 * The index after the last character of the current segment.
+	 */
+	private int segmentEnd;
+
+	/**
+	 * Constructs a new {@link TextSourceSequence}.
+	 *
+	 * @param source
+	 *            the viewed source
+	 * @param start
+	 *            the start of the viewed range
+	 * @param end
+	 *            the end of the viewed range
+	 */
+	public TextSourceSequence(TextSource source, int start, int end) {
+		this.source = source;
+		this.start = start;
+		this.end = end;
+		this.segment = new Segment();
+		this.segment.setPartialReturn(true);
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < segmentStart || index >= segmentEnd) {
+			if (index < 0 || index >= length()) {
+				throw new IndexOutOfBoundsException("Invalid index: " + index);
+			}
+			load(index);
+		}
+		return segment.array[segment.offset + index - segmentStart];
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		if (from < 0 || to > length() || from > to) {
+			throw new IndexOutOfBoundsException(
+					"Invalid range: " + from + "-" + to);
+		}
+		return new TextSourceSequence(source, start + from, start + to);
+	}
+
+	@Override
+	public String toString() {
+		Segment text = new Segment();
+		try {
+			source.getChars(start, end - start, text);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Reads the segment which starts at the given index. Called whenever a
+	 * character outside of the current segment is needed.
+	 *
+	 * @param index
+	 *            the index of the needed character
+	 */
+	protected void load(int index) {
+		try {
+			source.getChars(start + index, end - start - index, segment);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		segmentStart = index;
+		segmentEnd = index + segment.count;
+	}
+}
@@ -0,0 +1,683 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.text.BadLocationException;
+
+/**
+ * The undo and redo history of a {@link PieceTableDocument}. Every change is
+ * stored as a list of compact deltas - an offset, the removed text and the
+ * inserted text - which are collected while the document is being changed,
+ * and grouped into a single entry once the document reports an undoable
+ * edit. The texts of a delta are slices of the document's buffers, see
+ * {@link PieceTableDocument#slice(int, int)}, so recording a change costs the
+ * pieces of the slices instead of a copy of the text, and the text is only
+ * copied once the change is undone or redone. A compound edit, such as {@link PieceTableDocument#applyEdits(List)},
+ * therefore becomes a single entry with only the changed text. Consecutive
+ * typed or deleted characters of a word are merged into one entry.
+ * <p>
+ * The entries are kept in a ring buffer of at most {@value #MAX_ENTRIES}
+ * entries. The memory used by the entries is limited per document and for
+ * all documents together, and the oldest entries are evicted when either
+ * limit is exceeded. The limits can be set using the
+ * <code>jnotepadpp.undoBudget</code> and
+ * <code>jnotepadpp.globalUndoBudget</code> system properties, in bytes.
+ *
+ * @author 0036502252
+ *
+ */
+public class UndoHistory
+		implements DocumentDeltaListener, UndoableEditListener {
+	/**
+	 * The maximum number of entries in a single history.
+	 */
+	private static final int MAX_ENTRIES = 1024;
+	/**
+	 * The maximum memory used by the entries of a single history, in bytes.
+	 */
+	private static final long DOCUMENT_BUDGET = Long.getLong(
+			"jnotepadpp.undoBudget", 32L * 1024 * 1024);
+	/**
+	 * The maximum memory used by the entries of all histories, in bytes.
+	 */
+	private static final long GLOBAL_BUDGET = Long.getLong(
+			"jnotepadpp.globalUndoBudget", 128L * 1024 * 1024);
+	/**
+	 * The estimated memory used by a delta besides its text, in bytes.
+	 */
+	private static final int DELTA_OVERHEAD = 64;
+	/**
+	 * The estimated memory used by a piece of a slice, in bytes.
+	 */
+	private static final int PIECE_OVERHEAD = 24;
+
+	/**
+	 * The text of a delta which removes or inserts nothing.
+	 */
+	private static final TextSource EMPTY = new ArrayTextSource(new char[0]);
+
+	/**
+	 * All histories which haven't been disposed, used for enforcing
+	 * {@link #GLOBAL_BUDGET}.
+	 */
+	private static final List<UndoHistory> HISTORIES = new ArrayList<>();
+	/**
+	 * The memory used by the entries of all histories.
+	 */
+	private static long globalUsage;
+	/**
+	 * The number of entries created so far, used for ordering the entries of
+	 * all histories by their age.
+	 */
+	private static long entriesCreated;
+
+	/**
+	 * The document whose history this is.
+	 */
+	private final PieceTableDocument document;
+	/**
+	 * The ring buffer of the entries.
+	 */
+	private final Entry[] entries;
+	/**
+	 * The index of the oldest entry in the ring buffer.
+	 */
+	private int head;
+	/**
+	 * The number of entries.
+	 */
+	private int count;
+	/**
+	 * The number of entries which can be undone. The rest can be redone.
+	 */
+	private int undoable;
+	/**
+	 * The memory used by the entries of this history.
+	 */
+	private long usage;
+	/**
+	 * The deltas of the change which is in progress.
+	 */
+	private final List<Delta> pending;
+	/**
+	 * Indicates whether changes of the document are recorded.
+	 */
+	private boolean recording;
+	/**
+	 * Indicates whether the history itself is changing the document.
+	 */
+	private boolean applying;
+	/**
+	 * Indicates whether the changes are collected into a single entry, see
+	 * {@link #beginGroup()}.
+	 */
+	private boolean grouping;
+
+	/**
+	 * Constructs a new, empty {@link UndoHistory} of the given document, and
+	 * registers it as a listener of the document.
+	 *
+	 * @param document
+	 *            the document
+	 */
+	public UndoHistory(PieceTableDocument document) {
+		this.document = document;
+		this.entries = new Entry[MAX_ENTRIES];
+		this.pending = new ArrayList<>();
+		this.recording = true;
+
+		document.addDocumentDeltaListener(this);
+		document.addUndoableEditListener(this);
+		synchronized (HISTORIES) {
+			HISTORIES.add(this);
+		}
+	}
+
+	/**
+	 * @return true if there is a change which can be undone
+	 */
+	public boolean canUndo() {
+		return undoable > 0;
+	}
+
+	/**
+	 * @return true if there is a change which can be redone
+	 */
+	public boolean canRedo() {
+		return undoable < count;
+	}
+
+	/**
+	 * Undoes the last change, if there is one.
+	 *
+	 * @return the offset at which the change was undone, or -1 if there was
+	 *         nothing to undo
+	 */
+	public int undo() {
+		if (!canUndo()) {
+			return -1;
+		}
+		Entry entry = entry(undoable - 1);
+		entry.mergeable = false;
+
+		List<Delta> deltas = entry.deltas;
+		int caret = -1;
+		applying = true;
+		try {
+			for (int i = deltas.size() - 1; i >= 0; i--) {
+				Delta delta = deltas.get(i);
+				if (delta.inserted.length() > 0) {
+					document.remove(delta.offset, delta.inserted.length());
+				}
+				if (delta.removed.length() > 0) {
+					document.insertString(delta.offset,
+							toString(delta.removed), null);
+				}
+				caret = delta.offset + delta.removed.length();
+			}
+		} catch (BadLocationException e) {
+			clear();
+			throw new IllegalStateException(e);
+		} finally {
+			applying = false;
+		}
+
+		undoable--;
+		return caret;
+	}
+
+	/**
+	 * Redoes the last undone change, if there is one.
+	 *
+	 * @return the offset at which the change was redone, or -1 if there was
+	 *         nothing to redo
+	 */
+	public int redo() {
+		if (!canRedo()) {
+			return -1;
+		}
+		Entry entry = entry(undoable);
+		entry.mergeable = false;
+
+		int caret = -1;
+		applying = true;
+		try {
+			for (Delta delta : entry.deltas) {
+				if (delta.removed.length() > 0) {
+					document.remove(delta.offset, delta.removed.length());
+				}
+				if (delta.inserted.length() > 0) {
+					document.insertString(delta.offset,
+							toString(delta.inserted), null);
+				}
+				caret = delta.offset + delta.inserted.length();
+			}
+		} catch (BadLocationException e) {
+			clear();
+			throw new IllegalStateException(e);
+		} finally {
+			applying = false;
+		}
+
+		undoable++;
+		return caret;
+	}
+
+	/**
+	 * Sets whether the changes of the document are recorded, e.g. so that
+	 * the text inserted while a file is loading can't be undone.
+	 *
+	 * @param recording
+	 *            true if the changes should be recorded
+	 */
+	public void setRecording(boolean recording) {
+		this.recording = recording;
+		pending.clear();
+	}
+
+	/**
+	 * Starts collecting the following changes of the document into a single
+	 * entry, e.g. for a tool which inserts its result in chunks, so the whole
+	 * result is undone at once. The entry is added by {@link #endGroup(boolean)}.
+	 */
+	public void beginGroup() {
+		grouping = true;
+		pending.clear();
+	}
+
+	/**
+	 * Stops collecting the changes started by {@link #beginGroup()}, and adds
+	 * them to the history as a single entry.
+	 *
+	 * @param record
+	 *            false if the changes shouldn't be recorded, e.g. because
+	 *            they were all reverted
+	 */
+	public void endGroup(boolean record) {
+		grouping = false;
+		if (!record || !recording || pending.isEmpty()) {
+			pending.clear();
+			return;
+		}
+		commit(false);
+	}
+
+	/**
+	 * Removes all entries from the history.
+	 */
+	public void clear() {
+		while (count > 0) {
+			evictOldest();
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Removes all entries from the history and unregisters it from the
+	 * document. The history can't be used afterwards.
+	 */
+	public void dispose() {
+		clear();
+		document.removeDocumentDeltaListener(this);
+		document.removeUndoableEditListener(this);
+		synchronized (HISTORIES) {
+			HISTORIES.remove(this);
+		}
+	}
+
+	@Override
+	public void textInserted(PieceTableDocument document, int offset,
+			int length) {
+		if (!recording || applying) {
+			return;
+		}
+		TextSource inserted = read(offset, length);
+
+		// a removal followed by an insertion at the same offset is a single
+		// replacement
+		if (!pending.isEmpty()) {
+			Delta last = pending.get(pending.size() - 1);
+			if (last.offset == offset && last.inserted.length() == 0) {
+				pending.set(pending.size() - 1,
+						new Delta(offset, last.removed, inserted));
+				return;
+			}
+		}
+		pending.add(new Delta(offset, EMPTY, inserted));
+	}
+
+	@Override
+	public void textRemoving(PieceTableDocument document, int offset,
+			int length) {
+		if (!recording || applying) {
+			return;
+		}
+		pending.add(new Delta(offset, read(offset, length), EMPTY));
+	}
+
+	@Override
+	public void undoableEditHappened(UndoableEditEvent e) {
+		if (!recording || applying || grouping || pending.isEmpty()) {
+			return;
+		}
+		commit(true);
+	}
+
+	/**
+	 * Adds the pending deltas to the history.
+	 *
+	 * @param mergeable
+	 *            true if a single typed or deleted character may be merged
+	 *            into the last entry
+	 */
+	private void commit(boolean mergeable) {
+		List<Delta> deltas = new ArrayList<>(pending);
+		pending.clear();
+
+		// the undone changes can't be redone after a new change
+		while (count > undoable) {
+			removeNewest();
+		}
+
+		if (mergeable && deltas.size() == 1 && merge(deltas.get(0))) {
+			return;
+		}
+
+		Entry entry = new Entry(deltas);
+		add(entry);
+	}
+
+	/**
+	 * Merges a typed or deleted character into the last entry, if the last
+	 * entry consists of characters typed or deleted right next to it within
+	 * the same word.
+	 *
+	 * @param delta
+	 *            the delta of the change
+	 * @return true if the delta was merged
+	 */
+	private boolean merge(Delta delta) {
+		if (undoable == 0) {
+			return false;
+		}
+		Entry last = entry(undoable - 1);
+		if (!last.mergeable || !isSingleCharacter(delta)) {
+			return false;
+		}
+		Delta previous = last.deltas.get(0);
+		Delta merged = null;
+
+		if (delta.removed.length() == 0 && previous.removed.length() == 0) {
+			String text = toString(previous.inserted);
+			String typed = toString(delta.inserted);
+			if (delta.offset == previous.offset + text.length()
+					&& !startsWord(text.charAt(text.length() - 1),
+							typed.charAt(0))) {
+				merged = new Delta(previous.offset, EMPTY,
+						source(text + typed));
+			}
+		} else if (delta.inserted.length() == 0
+				&& previous.inserted.length() == 0) {
+			String text = toString(previous.removed);
+			String deleted = toString(delta.removed);
+			if (delta.offset == previous.offset - 1
+					&& !startsWord(deleted.charAt(0), text.charAt(0))) {
+				// backspace
+				merged = new Delta(delta.offset, source(deleted + text),
+						EMPTY);
+			} else if (delta.offset == previous.offset
+					&& !startsWord(text.charAt(text.length() - 1),
+							deleted.charAt(0))) {
+				// delete
+				merged = new Delta(previous.offset, source(text + deleted),
+						EMPTY);
+			}
+		}
+
+		if (merged == null) {
+			return false;
+		}
+		long oldCost = last.cost;
+		last.deltas.set(0, merged);
+		last.cost = cost(last.deltas);
+		changeUsage(last.cost - oldCost);
+		enforceBudgets();
+		return true;
+	}
+
+	/**
+	 * @param delta
+	 *            a delta
+	 * @return true if the delta inserts or removes a single character, which
+	 *         is not a line break
+	 */
+	private static boolean isSingleCharacter(Delta delta) {
+		TextSource text = delta.removed.length() == 0 ? delta.inserted
+				: delta.removed;
+		return delta.removed.length() + delta.inserted.length() == 1
+				&& toString(text).charAt(0) != '\n';
+	}
+
+	/**
+	 * @param before
+	 *            a character
+	 * @param after
+	 *            the character which follows it
+	 * @return true if a new word starts between the characters
+	 */
+	private static boolean startsWord(char before, char after) {
+		return Character.isWhitespace(before)
+				&& !Character.isWhitespace(after);
+	}
+
+	/**
+	 * Adds a new entry after the last undoable entry, and evicts the oldest
+	 * entries if needed.
+	 *
+	 * @param entry
+	 *            the entry
+	 */
+	private void add(Entry entry) {
+		if (count == MAX_ENTRIES) {
+			evictOldest();
+		}
+		entries[(head + count) % MAX_ENTRIES] = entry;
+		count++;
+		undoable++;
+		changeUsage(entry.cost);
+		enforceBudgets();
+	}
+
+	/**
+	 * Evicts the oldest entries of this history while it exceeds its budget,
+	 * and the oldest entries of all histories while they exceed the global
+	 * budget.
+	 */
+	private void enforceBudgets() {
+		while (usage > DOCUMENT_BUDGET && count > 0) {
+			evictOldest();
+		}
+
+		synchronized (HISTORIES) {
+			while (globalUsage > GLOBAL_BUDGET) {
+				UndoHistory oldest = null;
+				for (UndoHistory history : HISTORIES) {
+					if (history.count > 0 && (oldest == null
+							|| history.entry(0).sequence < oldest
+									.entry(0).sequence)) {
+						oldest = history;
+					}
+				}
+				if (oldest == null) {
+					break;
+				}
+				oldest.evictOldest();
+			}
+		}
+	}
+
+	/**
+	 * Evicts the oldest entry. If there is nothing left to undo, the oldest
+	 * entry can be redone next, and the entries after it can't be redone
+	 * without it, so all entries are evicted.
+	 */
+	private void evictOldest() {
+		if (undoable == 0) {
+			while (count > 0) {
+				removeNewest();
+			}
+			return;
+		}
+
+		changeUsage(-entry(0).cost);
+		entries[head] = null;
+		head = (head + 1) % MAX_ENTRIES;
+		count--;
+		undoable--;
+	}
+
+	/**
+	 * Removes the newest entry.
+	 */
+	private void removeNewest() {
+		int index = (head + count - 1) % MAX_ENTRIES;
+		changeUsage(-entries[index].cost);
+		entries[index] = null;
+		count--;
+		undoable = Math.min(undoable, count);
+	}
+
+	/**
+	 * @param index
+	 *            the index of an entry, with 0 being the oldest entry
+	 * @return the entry
+	 */
+	private Entry entry(int index) {
+		return entries[(head + index) % MAX_ENTRIES];
+	}
+
+	/**
+	 * Changes the memory used by this history.
+	 *
+	 * @param delta
+	 *            the change of the used memory
+	 */
+	private void changeUsage(long delta) {
+		usage += delta;
+		synchronized (HISTORIES) {
+			globalUsage += delta;
+		}
+	}
+
+	/**
+	 * Takes a slice of a range of the document.
+	 *
+	 * @param offset
+	 *            the start of the range
+	 * @param length
+	 *            the length of the range
+	 * @return the slice of the range
+	 */
+	private TextSource read(int offset, int length) {
+		try {
+			return document.slice(offset, length);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Copies the text of a delta.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the copy of the text
+	 */
+	private static String toString(TextSource text) {
+		return new TextSourceSequence(text, 0, text.length()).toString();
+	}
+
+	/**
+	 * @param text
+	 *            a string
+	 * @return the string as a text of a delta
+	 */
+	private static TextSource source(String text) {
+		return new ArrayTextSource(text.toCharArray());
+	}
+
+	/**
+	 * Estimates the memory used by the given deltas. A slice only costs its
+	 * pieces, since the text it points to is kept by the document anyway.
+	 *
+	 * @param deltas
+	 *            the deltas
+	 * @return the estimated memory in bytes
+	 */
+	private static long cost(List<Delta> deltas) {
+		long cost = 0;
+		for (Delta delta : deltas) {
+			cost += DELTA_OVERHEAD + cost(delta.removed)
+					+ cost(delta.inserted);
+		}
+		return cost;
+	}
+
+	/**
+	 * Estimates the memory used by a text of a delta.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the estimated memory in bytes
+	 */
+	private static long cost(TextSource text) {
+		if (text instanceof PieceTableContent.Snapshot) {
+			return (long) PIECE_OVERHEAD
+					* ((PieceTableContent.Snapshot) text).getPieceCount();
+		}
+		return 2L * text.length();
+	}
+
+	/**
+	 * A single change of the document's text.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class Delta {
+		/**
+		 * The offset of the change.
+		 */
+		final int offset;
+		/**
+		 * The removed text.
+		 */
+		final TextSource removed;
+		/**
+		 * The text inserted in place of the removed text.
+		 */
+		final TextSource inserted;
+
+		/**
+		 * Constructs a new {@link Delta}.
+		 *
+		 * @param offset
+		 *            the offset of the change
+		 * @param removed
+		 *            the removed text
+		 * @param inserted
+		 *            the text inserted in place of the removed text
+		 */
+		Delta(int offset, TextSource removed, TextSource inserted) {
+			this.offset = offset;
+			this.removed = removed;
+			this.inserted = inserted;
+		}
+	}
+
+	/**
+	 * An entry of the history: the deltas of a single undoable edit, in the
+	 * order in which they were made.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class Entry {
+		/**
+		 * The deltas of the edit.
+		 */
+		final List<Delta> deltas;
+		/**
+		 * The age of the entry among the entries of all histories.
+		 */
+		final long sequence;
+		/**
+		 * The estimated memory used by the entry.
+		 */
+		long cost;
+		/**
+		 * Indicates whether the next typed or deleted character may be
+		 * merged into the entry.
+		 */
+		boolean mergeable;
+
+		/**
+		 * Constructs a new {@link Entry}.
+		 *
+		 * @param deltas
+		 *            the deltas of the edit
+		 */
+		Entry(List<Delta> deltas) {
+			this.deltas = deltas;
+			this.cost = cost(deltas);
+			this.mergeable = deltas.size() == 1
+					&& isSingleCharacter(deltas.get(0));
+			synchronized (HISTORIES) {
+				this.sequence = entriesCreated++;
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.Semaphore;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * A {@link Writer} which inserts the written text into a document, for use
+ * by background threads which produce a lot of text. The text is collected
+ * into chunks, and each chunk is inserted on the event dispatch thread right
+ * after the previously inserted one. Only a few chunks may wait to be
+ * inserted, so the writer never gets far ahead of the event dispatch thread.
+ *
+ * @author 0036502252
+ *
+ */
+public class DocumentChunkWriter extends Writer {
+	/**
+	 * The number of characters collected before they are inserted.
+	 */
+	private static final int CHUNK_CHARS = 1024 * 1024;
+	/**
+	 * The maximum number of chunks waiting to be inserted.
+	 */
+	private static final int MAX_PENDING_CHUNKS = 4;
+
+	/**
+	 * The document into which the text is inserted.
+	 */
+	private final Document document;
+	/**
+	 * The offset at which the first chunk is inserted.
+	 */
+	private final int start;
+	/**
+	 * The offset at which the next chunk is inserted.
+	 */
+	private int offset;
+	/**
+	 * The text which hasn't been submitted for insertion yet.
+	 */
+	private final StringBuilder chunk;
+	/**
+	 * Limits the number of chunks waiting to be inserted.
+	 */
+	private final Semaphore pendingChunks;
+
+	/**
+	 * Constructs a new {@link DocumentChunkWriter}.
+	 *
+	 * @param document
+	 *            the document into which the text is inserted
+	 * @param offset
+	 *            the offset at which the text is inserted
+	 */
+	public DocumentChunkWriter(Document document, int offset) {
+		this.document = document;
+		this.start = offset;
+		this.offset = offset;
+		this.chunk = new StringBuilder();
+		this.pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		chunk.append(cbuf, off, len);
+		if (chunk.length() >= CHUNK_CHARS) {
+			submit();
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		chunk.append(str, off, off + len);
+		if (chunk.length() >= CHUNK_CHARS) {
+			submit();
+		}
+	}
+
+	/**
+	 * Submits the collected text for insertion, without waiting for it to be
+	 * inserted.
+	 */
+	@Override
+	public void flush() throws IOException {
+		submit();
+	}
+
+	/**
+	 * Submits the collected text, and waits until all submitted text is
+	 * inserted into the document.
+	 */
+	@Override
+	public void close() throws IOException {
+		submit();
+		try {
+			pendingChunks.acquire(MAX_PENDING_CHUNKS);
+			pendingChunks.release(MAX_PENDING_CHUNKS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * @return the total length of the text submitted for insertion
+	 */
+	public int getWritten() {
+		return offset - start;
+	}
+
+	/**
+	 * Submits the collected text for insertion.
+	 *
+	 * @throws IOException
+	 *             if the thread is interrupted while waiting for the event
+	 *             dispatch thread
+	 */
+	private void submit() throws IOException {
+		if (chunk.length() == 0) {
+			return;
+		}
+
+		String text = chunk.toString();
+		int where = offset;
+		offset += text.length();
+		chunk.setLength(0);
+
+		try {
+			pendingChunks.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+
+		SwingUtilities.invokeLater(() -> {
+			try {
+				document.insertString(where, text, null);
+			} catch (BadLocationException ignorable) {
+			} finally {
+				pendingChunks.release();
+			}
+		});
+	}
+}
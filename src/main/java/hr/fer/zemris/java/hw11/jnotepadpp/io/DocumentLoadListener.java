@@ -0,0 +1,46 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+
+/**
+ * Interface for an observer to register to receive notifications about the
+ * progress of a {@link DocumentLoader}. All notifications are given on the
+ * event dispatch thread.
+ *
+ * @author 0036502252
+ *
+ */
+public interface DocumentLoadListener {
+	/**
+	 * Gives notification that the loading has progressed.
+	 *
+	 * @param percent
+	 *            the loaded percentage of the file
+	 */
+	void loadProgressed(int percent);
+
+	/**
+	 * Gives notification that the file has been loaded.
+	 *
+	 * @param replacement
+	 *            the document which should replace the target document, or
+	 *            <code>null</code> if the file was loaded into the target
+	 *            document
+	 */
+	void loadFinished(PieceTableDocument replacement);
+
+	/**
+	 * Gives notification that the file could not be loaded.
+	 *
+	 * @param cause
+	 *            the cause of the failure
+	 */
+	void loadFailed(IOException cause);
+
+	/**
+	 * Gives notification that the loading has been cancelled.
+	 */
+	void loadCancelled();
+}
@@ -0,0 +1,248 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.MappedTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextScan;
+
+/**
+ * Loads a UTF-8 file into a document on a background thread. Smaller files
+ * are decoded in chunks, and each chunk is appended to the target document on
+ * the event dispatch thread as soon as it is decoded. Files of at least the
+ * given threshold are opened as a {@link MappedTextSource}, and the document
+ * created from it is handed over once it is ready.
+ * <p>
+ * The loader is meant to be submitted to an executor. It can be cancelled at
+ * any time, and reports its progress to a {@link DocumentLoadListener}.
+ *
+ * @author 0036502252
+ *
+ */
+public class DocumentLoader implements Runnable {
+	/**
+	 * The number of characters decoded before they are appended to the
+	 * document.
+	 */
+	private static final int CHUNK_CHARS = 1024 * 1024;
+	/**
+	 * The size of the buffer used for reading the file.
+	 */
+	private static final int READ_BYTES = 64 * 1024;
+	/**
+	 * The maximum number of decoded chunks waiting to be appended, so the
+	 * loader can not get too far ahead of the event dispatch thread.
+	 */
+	private static final int MAX_PENDING_CHUNKS = 4;
+
+	/**
+	 * The path of the loaded file.
+	 */
+	private final Path path;
+	/**
+	 * The document into which the file is loaded.
+	 */
+	private final PieceTableDocument target;
+	/**
+	 * The size in bytes from which files are memory-mapped.
+	 */
+	private final long mappedThreshold;
+	/**
+	 * The listener notified about the loading progress.
+	 */
+	private final DocumentLoadListener listener;
+	/**
+	 * Limits the number of chunks waiting to be appended.
+	 */
+	private final Semaphore pendingChunks;
+	/**
+	 * Indicates whether the loading has been cancelled.
+	 */
+	private volatile boolean cancelled;
+	/**
+	 * The last reported progress.
+	 */
+	private int progress;
+
+	/**
+	 * Constructs a new {@link DocumentLoader}.
+	 *
+	 * @param path
+	 *            the path of the file to be loaded
+	 * @param target
+	 *            the empty document into which the file is loaded
+	 * @param mappedThreshold
+	 *            the size in bytes from which files are memory-mapped
+	 * @param listener
+	 *            the listener notified about the loading progress
+	 */
+	public DocumentLoader(Path path, PieceTableDocument target,
+			long mappedThreshold, DocumentLoadListener listener) {
+		this.path = path;
+		this.target = target;
+		this.mappedThreshold = mappedThreshold;
+		this.listener = listener;
+		this.pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+		this.progress = -1;
+	}
+
+	/**
+	 * Cancels the loading. The listener is notified once the loader stops.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return true if the loading has been cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public void run() {
+		try {
+			PieceTableDocument replacement = null;
+
+			if (Files.size(path) >= mappedThreshold) {
+				// the file is decoded, hashed and counted in a single pass
+				TextScan scan = new TextScan();
+				MappedTextSource source = MappedTextSource.open(path,
+						percent -> {
+							checkCancelled();
+							reportProgress(percent);
+						}, scan);
+				replacement = new PieceTableDocument(source, scan);
+			} else {
+				stream();
+			}
+
+			checkCancelled();
+			PieceTableDocument document = replacement;
+			SwingUtilities.invokeLater(() -> listener.loadFinished(document));
+
+		} catch (CancellationException e) {
+			SwingUtilities.invokeLater(listener::loadCancelled);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			SwingUtilities.invokeLater(listener::loadCancelled);
+		} catch (IOException e) {
+			SwingUtilities.invokeLater(() -> listener.loadFailed(e));
+		}
+	}
+
+	/**
+	 * Decodes the file in chunks and appends them to the target document.
+	 *
+	 * @throws IOException
+	 *             if the file can not be read
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the event
+	 *             dispatch thread
+	 */
+	private void stream() throws IOException, InterruptedException {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocate(READ_BYTES);
+		CharBuffer chars = CharBuffer.allocate(CHUNK_CHARS);
+
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.READ)) {
+			long size = Math.max(1, channel.size());
+			long read = 0;
+			boolean eof = false;
+
+			while (!eof) {
+				checkCancelled();
+
+				int n = channel.read(bytes);
+				eof = n < 0;
+				read += Math.max(0, n);
+
+				bytes.flip();
+				CoderResult result = decoder.decode(bytes, chars, eof);
+				while (result.isOverflow()) {
+					append(chars);
+					result = decoder.decode(bytes, chars, eof);
+				}
+				bytes.compact();
+
+				reportProgress((int) (Math.min(read, size) * 100 / size));
+			}
+
+			while (decoder.flush(chars).isOverflow()) {
+				append(chars);
+			}
+			append(chars);
+		}
+	}
+
+	/**
+	 * Appends the decoded characters to the end of the target document on
+	 * the event dispatch thread, and clears the buffer.
+	 *
+	 * @param chars
+	 *            the buffer holding the decoded characters
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the event
+	 *             dispatch thread
+	 */
+	private void append(CharBuffer chars) throws InterruptedException {
+		chars.flip();
+		if (chars.hasRemaining()) {
+			String chunk = chars.toString();
+			pendingChunks.acquire();
+
+			SwingUtilities.invokeLater(() -> {
+				try {
+					target.insertString(target.getLength(), chunk, null);
+				} catch (BadLocationException ignorable) {
+				} finally {
+					pendingChunks.release();
+				}
+			});
+		}
+		chars.clear();
+	}
+
+	/**
+	 * Notifies the listener about the progress, if it has changed since the
+	 * last notification.
+	 *
+	 * @param percent
+	 *            the loaded percentage of the file
+	 */
+	private void reportProgress(int percent) {
+		if (percent != progress) {
+			progress = percent;
+			SwingUtilities.invokeLater(() -> listener.loadProgressed(percent));
+		}
+	}
+
+	/**
+	 * @throws CancellationException
+	 *             if the loading has been cancelled
+	 */
+	private void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+	}
+}
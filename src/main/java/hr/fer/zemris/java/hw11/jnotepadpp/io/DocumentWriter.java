@@ -0,0 +1,275 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Writes text to a file as UTF-8 without ever holding a copy of the entire
+ * text. The text is read segment by segment, encoded into a direct buffer and
+ * written to a temporary file next to the target, which then atomically
+ * replaces the target. If anything fails, the target is left untouched.
+ * <p>
+ * A target which can't be replaced, as a file mapped by a document on
+ * Windows, is first renamed aside, and deleted once it is no longer used.
+ * <p>
+ * The buffers are allocated once and reused by every write, so a writer must
+ * only be used by one thread at a time.
+ *
+ * @author 0036502252
+ *
+ */
+public class DocumentWriter {
+	/**
+	 * The size of the buffer holding the characters being encoded.
+	 */
+	private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+	/**
+	 * The size of the buffer holding the encoded bytes.
+	 */
+	private static final int BYTE_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The encoder used for encoding the text.
+	 */
+	private final CharsetEncoder encoder;
+	/**
+	 * Buffer holding the characters being encoded.
+	 */
+	private final CharBuffer chars;
+	/**
+	 * Buffer holding the encoded bytes.
+	 */
+	private final ByteBuffer bytes;
+	/**
+	 * Segment into which the text is read.
+	 */
+	private final Segment segment;
+
+	/**
+	 * Constructs a new {@link DocumentWriter}.
+	 */
+	public DocumentWriter() {
+		encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+		bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+		segment = new Segment();
+		segment.setPartialReturn(true);
+	}
+
+	/**
+	 * Writes the text of the given source to the given path.
+	 *
+	 * @param source
+	 *            the text to be written
+	 * @param path
+	 *            the path of the file
+	 * @throws IOException
+	 *             if the file can not be written
+	 */
+	public void write(TextSource source, Path path) throws IOException {
+		Path target = path.toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(),
+				"." + target.getFileName(), ".tmp");
+
+		try {
+			try (FileChannel channel = FileChannel.open(temp,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				encode(source, channel);
+				channel.force(true);
+			}
+
+			if (Files.exists(target)) {
+				copyPermissions(target, temp);
+			}
+			move(temp, target);
+
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Encodes the text of the given source and writes it to the channel.
+	 *
+	 * @param source
+	 *            the text to be written
+	 * @param channel
+	 *            the channel to which the text is written
+	 * @throws IOException
+	 *             if the text can not be written
+	 */
+	private void encode(TextSource source, FileChannel channel)
+			throws IOException {
+		encoder.reset();
+		chars.clear();
+		bytes.clear();
+
+		int length = source.length();
+		int offset = 0;
+		try {
+			while (offset < length) {
+				source.getChars(offset,
+						Math.min(length - offset, chars.remaining()), segment);
+				chars.put(segment.array, segment.offset, segment.count);
+				offset += segment.count;
+
+				chars.flip();
+				encode(channel, false);
+				// keeps a high surrogate whose pair is in the next segment
+				chars.compact();
+			}
+		} catch (BadLocationException e) {
+			throw new IOException(e);
+		}
+
+		chars.flip();
+		encode(channel, true);
+		while (encoder.flush(bytes).isOverflow()) {
+			drain(channel);
+		}
+		drain(channel);
+	}
+
+	/**
+	 * Encodes the characters in the char buffer, writing the byte buffer to
+	 * the channel whenever it fills up.
+	 *
+	 * @param channel
+	 *            the channel to which the bytes are written
+	 * @param endOfInput
+	 *            true if there are no more characters to be encoded
+	 * @throws IOException
+	 *             if the bytes can not be written
+	 */
+	private void encode(FileChannel channel, boolean endOfInput)
+			throws IOException {
+		CoderResult result = encoder.encode(chars, bytes, endOfInput);
+		while (result.isOverflow()) {
+			drain(channel);
+			result = encoder.encode(chars, bytes, endOfInput);
+		}
+	}
+
+	/**
+	 * Writes the byte buffer to the channel, and clears it.
+	 *
+	 * @param channel
+	 *            the channel to which the bytes are written
+	 * @throws IOException
+	 *             if the bytes can not be written
+	 */
+	private void drain(FileChannel channel) throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+
+	/**
+	 * Gives the temporary file the permissions of the file it replaces.
+	 *
+	 * @param target
+	 *            the replaced file
+	 * @param temp
+	 *            the temporary file
+	 */
+	private static void copyPermissions(Path target, Path temp) {
+		try {
+			Files.setPosixFilePermissions(temp,
+					Files.getPosixFilePermissions(target));
+		} catch (UnsupportedOperationException | IOException ignorable) {
+		}
+	}
+
+	/**
+	 * Moves the temporary file to the target path, atomically if the file
+	 * system supports it.
+	 *
+	 * @param temp
+	 *            the temporary file
+	 * @param target
+	 *            the target path
+	 * @throws IOException
+	 *             if the file can not be moved
+	 */
+	private static void move(Path temp, Path target) throws IOException {
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		} catch (FileSystemException e) {
+			if (!Files.isRegularFile(target)) {
+				throw e;
+			}
+			try {
+				replaceAside(temp, target);
+			} catch (IOException | RuntimeException aside) {
+				aside.addSuppressed(e);
+				throw aside;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the target with the temporary file by first renaming the
+	 * target aside, as Windows renames a mapped file but doesn't replace it.
+	 * The renamed target is deleted, or deleted on exit if it is still in
+	 * use. If the temporary file can not be moved, the target is restored.
+	 *
+	 * @param temp
+	 *            the temporary file
+	 * @param target
+	 *            the existing target file
+	 * @throws IOException
+	 *             if the target can not be replaced
+	 */
+	static void replaceAside(Path temp, Path target) throws IOException {
+		Path aside = Files.createTempFile(target.getParent(),
+				"." + target.getFileName(), ".old");
+		try {
+			Files.move(target, aside, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(aside);
+			throw e;
+		}
+
+		try {
+			Files.move(temp, target);
+		} catch (IOException | RuntimeException e) {
+			try {
+				Files.move(aside, target);
+			} catch (IOException restore) {
+				e.addSuppressed(restore);
+			}
+			throw e;
+		}
+
+		try {
+			Files.delete(aside);
+		} catch (IOException e) {
+			aside.toFile().deleteOnExit();
+		}
+	}
+}
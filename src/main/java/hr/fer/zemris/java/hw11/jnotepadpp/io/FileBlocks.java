@@ -0,0 +1,418 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The contents of a UTF-8 file as a list of blocks, each with the CRC-32 of
+ * its bytes and the number of characters it decodes to. Comparing the blocks
+ * of two versions of a file finds the byte range which changed, and the
+ * character range of the old text which it replaces, without keeping either
+ * version of the file.
+ * <p>
+ * Blocks end at line ends chosen by the content of the lines, so an insertion
+ * or removal only changes the blocks around it, and the blocks after it line
+ * up again. Every block starts at a character boundary, so blocks can be
+ * decoded separately.
+ *
+ * @author 0036502252
+ *
+ */
+public class FileBlocks {
+	/**
+	 * The minimum size of a block in bytes, unless it is the last one.
+	 */
+	private static final int MIN_BLOCK = 4 * 1024;
+	/**
+	 * The size in bytes after which a block ends at the next ASCII character,
+	 * even if it isn't at a line end.
+	 */
+	private static final int MAX_BLOCK = 1024 * 1024;
+	/**
+	 * The number of the mixed line hash's top bits which must be zero for a
+	 * block to end after the line, which makes blocks about 512 lines long.
+	 */
+	private static final int CUT_BITS = 9;
+	/**
+	 * The multiplier which mixes the bits of a line hash, so its top bits
+	 * depend on the whole line.
+	 */
+	private static final int MIX = 0x9E3779B1;
+	/**
+	 * The hash of an empty line. Not a cut point once mixed, since empty
+	 * lines are often so frequent that blocks ending at every one of them
+	 * wouldn't line up again after a change.
+	 */
+	private static final int EMPTY_LINE = 1;
+	/**
+	 * The size of the buffer used for reading the file.
+	 */
+	private static final int READ_BYTES = 64 * 1024;
+
+	/**
+	 * The byte offset at which each block ends.
+	 */
+	private final long[] byteEnds;
+	/**
+	 * The character offset at which each block ends.
+	 */
+	private final int[] charEnds;
+	/**
+	 * The CRC-32 of each block.
+	 */
+	private final int[] crcs;
+	/**
+	 * The number of blocks.
+	 */
+	private final int count;
+	/**
+	 * The modification time of the file when it was scanned.
+	 */
+	private final FileTime modified;
+
+	/**
+	 * Constructs a new {@link FileBlocks}.
+	 *
+	 * @param byteEnds
+	 *            the byte offset at which each block ends
+	 * @param charEnds
+	 *            the character offset at which each block ends
+	 * @param crcs
+	 *            the CRC-32 of each block
+	 * @param count
+	 *            the number of blocks
+	 * @param modified
+	 *            the modification time of the file
+	 */
+	private FileBlocks(long[] byteEnds, int[] charEnds, int[] crcs, int count,
+			FileTime modified) {
+		this.byteEnds = byteEnds;
+		this.charEnds = charEnds;
+		this.crcs = crcs;
+		this.count = count;
+		this.modified = modified;
+	}
+
+	/**
+	 * Reads the file at the given path and splits it into blocks.
+	 *
+	 * @param path
+	 *            the path of a UTF-8 encoded file
+	 * @return the blocks of the file
+	 * @throws IOException
+	 *             if the file can not be read, has more characters than a
+	 *             document can hold, or changed while it was read
+	 */
+	public static FileBlocks scan(Path path) throws IOException {
+		BasicFileAttributes before = Files.readAttributes(path,
+				BasicFileAttributes.class);
+		Splitter splitter = new Splitter();
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES);
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				splitter.scan(buffer.array(), buffer.limit());
+				buffer.clear();
+			}
+		}
+		splitter.cut();
+
+		BasicFileAttributes after = Files.readAttributes(path,
+				BasicFileAttributes.class);
+		if (after.size() != splitter.size || after.size() != before.size()
+				|| !after.lastModifiedTime()
+						.equals(before.lastModifiedTime())) {
+			throw new IOException("File changed while it was read: " + path);
+		}
+		return new FileBlocks(splitter.byteEnds, splitter.charEnds,
+				splitter.crcs, splitter.count, after.lastModifiedTime());
+	}
+
+	/**
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return count;
+	}
+
+	/**
+	 * @return the size of the file in bytes
+	 */
+	public long getSize() {
+		return count == 0 ? 0 : byteEnds[count - 1];
+	}
+
+	/**
+	 * @return the number of characters the file decodes to
+	 */
+	public int getLength() {
+		return count == 0 ? 0 : charEnds[count - 1];
+	}
+
+	/**
+	 * @return the modification time of the file when it was scanned
+	 */
+	public FileTime getModified() {
+		return modified;
+	}
+
+	/**
+	 * Checks whether a file still has the size and modification time which
+	 * the scanned file had.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @return true if the file has the same size and modification time
+	 */
+	public boolean isUpToDate(Path path) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path,
+					BasicFileAttributes.class);
+			return attributes.size() == getSize()
+					&& attributes.lastModifiedTime().equals(modified);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param block
+	 *            the index of a block, or the number of blocks for the end of
+	 *            the file
+	 * @return the byte offset at which the block starts
+	 */
+	public long getByteStart(int block) {
+		return block == 0 ? 0 : byteEnds[block - 1];
+	}
+
+	/**
+	 * @param block
+	 *            the index of a block, or the number of blocks for the end of
+	 *            the file
+	 * @return the character offset at which the block starts
+	 */
+	public int getCharStart(int block) {
+		return block == 0 ? 0 : charEnds[block - 1];
+	}
+
+	/**
+	 * Counts the blocks at the start of this file which are equal to the
+	 * blocks at the start of another.
+	 *
+	 * @param other
+	 *            the other file
+	 * @return the number of equal blocks
+	 */
+	public int commonPrefix(FileBlocks other) {
+		int prefix = 0;
+		while (prefix < count && prefix < other.count
+				&& blockEquals(prefix, other, prefix)) {
+			prefix++;
+		}
+		return prefix;
+	}
+
+	/**
+	 * Counts the blocks at the end of this file which are equal to the
+	 * blocks at the end of another, without counting blocks of the common
+	 * prefix.
+	 *
+	 * @param other
+	 *            the other file
+	 * @param prefix
+	 *            the number of blocks in the common prefix
+	 * @return the number of equal blocks
+	 */
+	public int commonSuffix(FileBlocks other, int prefix) {
+		int suffix = 0;
+		while (suffix < count - prefix && suffix < other.count - prefix
+				&& blockEquals(count - 1 - suffix, other,
+						other.count - 1 - suffix)) {
+			suffix++;
+		}
+		return suffix;
+	}
+
+	/**
+	 * Compares a block of this file to a block of another.
+	 *
+	 * @param block
+	 *            the index of the block of this file
+	 * @param other
+	 *            the other file
+	 * @param otherBlock
+	 *            the index of the block of the other file
+	 * @return true if the blocks have the same size, length and CRC
+	 */
+	private boolean blockEquals(int block, FileBlocks other, int otherBlock) {
+		return crcs[block] == other.crcs[otherBlock]
+				&& blockSize(block) == other.blockSize(otherBlock)
+				&& blockLength(block) == other.blockLength(otherBlock);
+	}
+
+	/**
+	 * @param block
+	 *            the index of a block
+	 * @return the size of the block in bytes
+	 */
+	private long blockSize(int block) {
+		return byteEnds[block] - getByteStart(block);
+	}
+
+	/**
+	 * @param block
+	 *            the index of a block
+	 * @return the number of characters the block decodes to
+	 */
+	private int blockLength(int block) {
+		return charEnds[block] - getCharStart(block);
+	}
+
+	/**
+	 * Splits the bytes of a file into blocks as they are read.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class Splitter {
+		/**
+		 * Computes the CRC of a block.
+		 */
+		private final CRC32 crc = new CRC32();
+		/**
+		 * Decodes a block to count its characters.
+		 */
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8
+				.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		/**
+		 * The bytes of the current block.
+		 */
+		private byte[] block = new byte[MIN_BLOCK];
+		/**
+		 * The number of bytes in the current block.
+		 */
+		private int blockSize;
+		/**
+		 * Receives the characters of a decoded block.
+		 */
+		private CharBuffer chars = CharBuffer.allocate(MIN_BLOCK);
+		/**
+		 * The hash of the current line.
+		 */
+		private int lineHash = EMPTY_LINE;
+		/**
+		 * The byte offset at which each block ends.
+		 */
+		private long[] byteEnds = new long[16];
+		/**
+		 * The character offset at which each block ends.
+		 */
+		private int[] charEnds = new int[16];
+		/**
+		 * The CRC-32 of each block.
+		 */
+		private int[] crcs = new int[16];
+		/**
+		 * The number of blocks.
+		 */
+		private int count;
+		/**
+		 * The number of bytes in the finished blocks.
+		 */
+		private long size;
+		/**
+		 * The number of characters in the finished blocks.
+		 */
+		private long length;
+
+		/**
+		 * Adds read bytes to the blocks.
+		 *
+		 * @param bytes
+		 *            the read bytes
+		 * @param n
+		 *            the number of read bytes
+		 * @throws IOException
+		 *             if the file has too many characters
+		 */
+		void scan(byte[] bytes, int n) throws IOException {
+			for (int i = 0; i < n; i++) {
+				byte b = bytes[i];
+				if (blockSize == block.length) {
+					block = Arrays.copyOf(block, block.length * 2);
+				}
+				block[blockSize++] = b;
+
+				if (b == '\n') {
+					if (blockSize >= MIN_BLOCK
+							&& (lineHash * MIX) >>> (32 - CUT_BITS) == 0) {
+						cut();
+					}
+					lineHash = EMPTY_LINE;
+				} else {
+					lineHash = lineHash * 31 + b;
+					// only ASCII bytes are character boundaries
+					if (blockSize >= MAX_BLOCK && b >= 0) {
+						cut();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Ends the current block, if it isn't empty.
+		 *
+		 * @throws IOException
+		 *             if the file has too many characters
+		 */
+		void cut() throws IOException {
+			if (blockSize == 0) {
+				return;
+			}
+
+			crc.reset();
+			crc.update(block, 0, blockSize);
+
+			// an UTF-8 block never decodes to more characters than it has
+			if (chars.capacity() < blockSize) {
+				chars = CharBuffer.allocate(block.length);
+			}
+			chars.clear();
+			decoder.reset();
+			decoder.decode(ByteBuffer.wrap(block, 0, blockSize), chars, true);
+			decoder.flush(chars);
+
+			size += blockSize;
+			length += chars.position();
+			// one character is needed for the implied newline
+			if (length >= Integer.MAX_VALUE) {
+				throw new IOException("File has too many characters.");
+			}
+
+			if (count == crcs.length) {
+				byteEnds = Arrays.copyOf(byteEnds, count * 2);
+				charEnds = Arrays.copyOf(charEnds, count * 2);
+				crcs = Arrays.copyOf(crcs, count * 2);
+			}
+			byteEnds[count] = size;
+			charEnds[count] = (int) length;
+			crcs[count] = (int) crc.getValue();
+			count++;
+			blockSize = 0;
+		}
+	}
+}
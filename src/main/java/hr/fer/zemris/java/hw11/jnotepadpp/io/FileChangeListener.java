@@ -0,0 +1,22 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.nio.file.Path;
+
+/**
+ * Interface for an observer to register to receive notifications about the
+ * files watched by a {@link FileWatcher} which were changed. All
+ * notifications are given on the event dispatch thread.
+ *
+ * @author 0036502252
+ *
+ */
+public interface FileChangeListener {
+	/**
+	 * Gives notification that a file has been created, changed or deleted,
+	 * and hasn't changed again for a while.
+	 *
+	 * @param path
+	 *            the path of the file, as it was given to the watcher
+	 */
+	void fileChanged(Path path);
+}
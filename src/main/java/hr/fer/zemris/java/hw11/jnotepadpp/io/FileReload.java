@@ -0,0 +1,222 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.MappedTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSourceSequence;
+
+/**
+ * The changes which bring a document up to date with its file after another
+ * program changed the file, read on a background thread. If the
+ * {@link FileBlocks} of the file from which the document was last loaded
+ * are known, only the bytes between the blocks which didn't change are read
+ * and decoded, so a file which was appended to or partially rewritten is
+ * reloaded at the cost of the change. Otherwise, the whole file is read.
+ * <p>
+ * A document may still read the unchanged parts of its text from a memory
+ * mapping of its file. If the file was rewritten in place, only the bytes
+ * before the change are still what they were, so such a document is only
+ * reloaded partially when the file grew and nothing after the change is
+ * kept.
+ *
+ * @author 0036502252
+ *
+ */
+public class FileReload {
+	/**
+	 * The blocks of the file as it was read.
+	 */
+	private final FileBlocks blocks;
+	/**
+	 * The start of the replaced range of the old text.
+	 */
+	private final int start;
+	/**
+	 * The end of the replaced range of the old text, or -1 if the whole text
+	 * is replaced.
+	 */
+	private final int end;
+	/**
+	 * The text replacing the range, if the text is only replaced partially.
+	 */
+	private final String changedText;
+	/**
+	 * The new document, if the whole text is replaced.
+	 */
+	private final PieceTableDocument wholeDocument;
+
+	/**
+	 * Constructs a new {@link FileReload}.
+	 *
+	 * @param blocks
+	 *            the blocks of the file as it was read
+	 * @param start
+	 *            the start of the replaced range of the old text
+	 * @param end
+	 *            the end of the replaced range, or -1 if the whole text is
+	 *            replaced
+	 * @param changedText
+	 *            the text replacing the range, or <code>null</code>
+	 * @param wholeDocument
+	 *            the new document, or <code>null</code>
+	 */
+	private FileReload(FileBlocks blocks, int start, int end,
+			String changedText, PieceTableDocument wholeDocument) {
+		this.blocks = blocks;
+		this.start = start;
+		this.end = end;
+		this.changedText = changedText;
+		this.wholeDocument = wholeDocument;
+	}
+
+	/**
+	 * Reads the changes of a file.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @param baseline
+	 *            the blocks of the file from which the document was last
+	 *            loaded, or <code>null</code> if they aren't known
+	 * @param mapped
+	 *            true if the document may read its text from a memory
+	 *            mapping of the file
+	 * @param mappedThreshold
+	 *            the size in bytes from which the whole file is
+	 *            memory-mapped; larger changes are reloaded as a whole file
+	 * @return the changes
+	 * @throws IOException
+	 *             if the file can not be read, or changed while it was read
+	 */
+	public static FileReload read(Path path, FileBlocks baseline,
+			boolean mapped, long mappedThreshold) throws IOException {
+		FileBlocks blocks = FileBlocks.scan(path);
+		FileReload reload = null;
+
+		if (baseline != null) {
+			int prefix = baseline.commonPrefix(blocks);
+			int suffix = baseline.commonSuffix(blocks, prefix);
+			long from = blocks.getByteStart(prefix);
+			long to = blocks.getByteStart(blocks.getBlockCount() - suffix);
+			boolean safe = !mapped
+					|| suffix == 0 && blocks.getSize() >= baseline.getSize();
+			if (safe && to - from < mappedThreshold) {
+				reload = new FileReload(blocks,
+						baseline.getCharStart(prefix),
+						baseline.getCharStart(
+								baseline.getBlockCount() - suffix),
+						changed(readRange(path, from, (int) (to - from))),
+						null);
+			}
+		}
+		if (reload == null) {
+			reload = new FileReload(blocks, 0, -1, null,
+					TextFiles.readDocument(path, mappedThreshold));
+		}
+
+		BasicFileAttributes after = Files.readAttributes(path,
+				BasicFileAttributes.class);
+		if (after.size() != blocks.getSize()
+				|| !after.lastModifiedTime().equals(blocks.getModified())) {
+			throw new IOException("File changed while it was read: " + path);
+		}
+		return reload;
+	}
+
+	/**
+	 * @return the blocks of the file as it was read
+	 */
+	public FileBlocks getBlocks() {
+		return blocks;
+	}
+
+	/**
+	 * @return true if the whole text is replaced
+	 */
+	public boolean isWhole() {
+		return end == -1;
+	}
+
+	/**
+	 * @return true if the new whole text is read from a memory mapping of
+	 *         the file
+	 */
+	public boolean isMapped() {
+		return wholeDocument != null
+				&& wholeDocument.getOriginal() instanceof MappedTextSource;
+	}
+
+	/**
+	 * @return the start of the replaced range of the old text
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return the end of the replaced range of the old text
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return the text replacing the range, if the text is only replaced
+	 *         partially
+	 */
+	public String getChangedText() {
+		return changedText;
+	}
+
+	/**
+	 * @return the new document, if the whole text is replaced
+	 */
+	public PieceTableDocument getWholeDocument() {
+		return wholeDocument;
+	}
+
+	/**
+	 * Reads a range of a file.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @param offset
+	 *            the offset at which the range starts
+	 * @param length
+	 *            the length of the range
+	 * @return the bytes of the range
+	 * @throws IOException
+	 *             if the range can not be read
+	 */
+	private static byte[] readRange(Path path, long offset, int length)
+			throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(length);
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.READ)) {
+			while (bytes.hasRemaining()) {
+				if (channel.read(bytes, offset + bytes.position()) < 0) {
+					throw new EOFException("File was cut: " + path);
+				}
+			}
+		}
+		return bytes.array();
+	}
+
+	/**
+	 * @param bytes
+	 *            the changed bytes of a file
+	 * @return the changed text, decoded as when loading documents
+	 */
+	private static String changed(byte[] bytes) {
+		TextSource text = TextFiles.decode(bytes);
+		return new TextSourceSequence(text, 0, text.length()).toString();
+	}
+}
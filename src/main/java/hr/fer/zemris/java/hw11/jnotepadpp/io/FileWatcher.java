@@ -0,0 +1,295 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Watches files for changes made by other programs. The directories of all
+ * watched files are registered with a single {@link WatchService}, whose
+ * events are handled on a single background thread.
+ * <p>
+ * Events are debounced: a file is only reported once it hasn't changed for
+ * the debounce interval, so a program which writes a file in many small
+ * pieces, or replaces it through a temporary file, causes a single
+ * notification. A file which keeps changing, such as a log, is still reported
+ * every {@value #MAX_DELAYS} debounce intervals. If the file system can't be
+ * watched, no changes are reported.
+ *
+ * @author 0036502252
+ *
+ */
+public class FileWatcher {
+	/**
+	 * The number of debounce intervals after which a file which keeps
+	 * changing is reported anyway.
+	 */
+	private static final int MAX_DELAYS = 10;
+
+	/**
+	 * The watch service, or <code>null</code> if the file system can't be
+	 * watched.
+	 */
+	private final WatchService service;
+	/**
+	 * The listener notified about changed files.
+	 */
+	private final FileChangeListener listener;
+	/**
+	 * The time in milliseconds for which a file must not change before it is
+	 * reported.
+	 */
+	private final long debounce;
+	/**
+	 * The watched directories, by their keys.
+	 */
+	private final Map<WatchKey, Path> directories;
+	/**
+	 * The keys of the watched directories.
+	 */
+	private final Map<Path, WatchKey> keys;
+	/**
+	 * The watched files, by their directories.
+	 */
+	private final Map<Path, Set<Path>> files;
+	/**
+	 * The changed files waiting to be reported. Only used by the watching
+	 * thread.
+	 */
+	private final Map<Path, Pending> pending;
+
+	/**
+	 * Constructs a new {@link FileWatcher} and starts its thread.
+	 *
+	 * @param debounce
+	 *            the time in milliseconds for which a file must not change
+	 *            before it is reported
+	 * @param listener
+	 *            the listener notified about changed files
+	 */
+	public FileWatcher(long debounce, FileChangeListener listener) {
+		this.listener = listener;
+		this.debounce = debounce;
+		this.directories = new HashMap<>();
+		this.keys = new HashMap<>();
+		this.files = new HashMap<>();
+		this.pending = new HashMap<>();
+
+		WatchService created;
+		try {
+			created = FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e) {
+			created = null;
+		}
+		this.service = created;
+
+		if (service != null) {
+			Thread thread = new Thread(this::watch, "jnotepadpp-watcher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Starts watching a file. Its directory is registered unless another
+	 * file in it is already watched.
+	 *
+	 * @param file
+	 *            the absolute path of the file
+	 */
+	public synchronized void watch(Path file) {
+		Path directory = file.getParent();
+		if (service == null || directory == null) {
+			return;
+		}
+
+		Set<Path> watched = files.get(directory);
+		if (watched == null) {
+			try {
+				WatchKey key = directory.register(service,
+						StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_DELETE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+				directories.put(key, directory);
+				keys.put(directory, key);
+			} catch (IOException e) {
+				// the directory can't be watched, its files aren't reported
+				return;
+			}
+			watched = new HashSet<>();
+			files.put(directory, watched);
+		}
+		watched.add(file);
+	}
+
+	/**
+	 * Stops watching a file. Its directory is unregistered if no other file
+	 * in it is watched.
+	 *
+	 * @param file
+	 *            the path of the file, as it was given to
+	 *            {@link #watch(Path)}
+	 */
+	public synchronized void unwatch(Path file) {
+		Path directory = file.getParent();
+		Set<Path> watched = directory == null ? null : files.get(directory);
+		if (watched == null || !watched.remove(file) || !watched.isEmpty()) {
+			return;
+		}
+
+		files.remove(directory);
+		WatchKey key = keys.remove(directory);
+		directories.remove(key);
+		key.cancel();
+	}
+
+	/**
+	 * Takes the events of the watched directories, and reports the changed
+	 * files once they are quiet. Runs on the watching thread until the
+	 * service is closed.
+	 */
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key;
+				if (pending.isEmpty()) {
+					key = service.take();
+				} else {
+					long wait = nextDeadline() - System.currentTimeMillis();
+					key = service.poll(Math.max(wait, 0),
+							TimeUnit.MILLISECONDS);
+				}
+
+				if (key != null) {
+					handle(key);
+				}
+				reportQuiet();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// the watcher is done
+		}
+	}
+
+	/**
+	 * Marks the watched files affected by the events of a key as changed.
+	 *
+	 * @param key
+	 *            the key
+	 */
+	private void handle(WatchKey key) {
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			Path directory = directories.get(key);
+			Set<Path> watched = directory == null ? null
+					: files.get(directory);
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (watched == null) {
+					continue;
+				}
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					// any of the files may have changed
+					for (Path file : watched) {
+						changed(file, now);
+					}
+					continue;
+				}
+				Path file = directory.resolve((Path) event.context());
+				if (watched.contains(file)) {
+					changed(file, now);
+				}
+			}
+		}
+		key.reset();
+	}
+
+	/**
+	 * Postpones the report of a changed file until it is quiet, but not past
+	 * {@link #MAX_DELAYS} debounce intervals after its first change.
+	 *
+	 * @param file
+	 *            the file
+	 * @param now
+	 *            the time of the change
+	 */
+	private void changed(Path file, long now) {
+		Pending changed = pending.get(file);
+		if (changed == null) {
+			pending.put(file, new Pending(now, now + debounce));
+		} else {
+			changed.deadline = Math.min(now + debounce,
+					changed.firstChange + MAX_DELAYS * debounce);
+		}
+	}
+
+	/**
+	 * @return the earliest time at which a pending file is reported
+	 */
+	private long nextDeadline() {
+		long next = Long.MAX_VALUE;
+		for (Pending changed : pending.values()) {
+			next = Math.min(next, changed.deadline);
+		}
+		return next;
+	}
+
+	/**
+	 * Reports the pending files which haven't changed for the debounce
+	 * interval.
+	 */
+	private void reportQuiet() {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<Path, Pending>> it = pending.entrySet()
+				.iterator();
+		while (it.hasNext()) {
+			Map.Entry<Path, Pending> entry = it.next();
+			if (entry.getValue().deadline <= now) {
+				it.remove();
+				Path file = entry.getKey();
+				SwingUtilities.invokeLater(() -> listener.fileChanged(file));
+			}
+		}
+	}
+
+	/**
+	 * A changed file waiting to be reported.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class Pending {
+		/**
+		 * The time of the first change since the file was last reported.
+		 */
+		private final long firstChange;
+		/**
+		 * The time at which the file is reported unless it changes again.
+		 */
+		private long deadline;
+
+		/**
+		 * Constructs a new {@link Pending}.
+		 *
+		 * @param firstChange
+		 *            the time of the first change
+		 * @param deadline
+		 *            the time at which the file is reported
+		 */
+		Pending(long firstChange, long deadline) {
+			this.firstChange = firstChange;
+			this.deadline = deadline;
+		}
+	}
+}
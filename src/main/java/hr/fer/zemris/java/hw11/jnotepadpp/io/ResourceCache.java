@@ -0,0 +1,201 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.swing.ImageIcon;
+
+/**
+ * A process-wide cache of classpath resources, using the Singleton design
+ * pattern. Every resource is read once, into a buffer of its actual size,
+ * and every icon is decoded once and then shared, so windows and tabs which
+ * show icons allocate nothing for them. Resources can be preloaded on a
+ * background thread, so the event dispatch thread doesn't have to read or
+ * decode them.
+ * <p>
+ * Resources are named relative to a class, as with
+ * {@link Class#getResource(String)}.
+ *
+ * @author 0036502252
+ *
+ */
+public class ResourceCache {
+	/**
+	 * The size of the buffer used for resources of unknown size.
+	 */
+	private static final int UNKNOWN_SIZE_BUFFER = 8192;
+	/**
+	 * The instance of this cache.
+	 */
+	private static final ResourceCache instance = new ResourceCache();
+
+	/**
+	 * The contents of the read resources, by their absolute names.
+	 */
+	private final Map<String, byte[]> resources;
+	/**
+	 * The decoded icons, by the absolute names of their resources.
+	 */
+	private final Map<String, ImageIcon> icons;
+
+	/**
+	 * Private constructor, as part of the Singleton design pattern.
+	 */
+	private ResourceCache() {
+		this.resources = new ConcurrentHashMap<>();
+		this.icons = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return the instance of this cache
+	 */
+	public static ResourceCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the contents of a resource. The returned array is shared, and
+	 * must not be modified.
+	 *
+	 * @param owner
+	 *            the class relative to which the resource is named
+	 * @param name
+	 *            the name of the resource
+	 * @return the contents of the resource
+	 * @throws IllegalArgumentException
+	 *             if there is no such resource
+	 * @throws UncheckedIOException
+	 *             if the resource can not be read
+	 */
+	public byte[] getBytes(Class<?> owner, String name) {
+		return resources.computeIfAbsent(absoluteName(owner, name),
+				key -> read(owner, name));
+	}
+
+	/**
+	 * Returns the icon decoded from an image resource. The icon is shared.
+	 *
+	 * @param owner
+	 *            the class relative to which the resource is named
+	 * @param name
+	 *            the name of the resource
+	 * @return the icon
+	 * @throws IllegalArgumentException
+	 *             if there is no such resource
+	 * @throws UncheckedIOException
+	 *             if the resource can not be read
+	 */
+	public ImageIcon getIcon(Class<?> owner, String name) {
+		return icons.computeIfAbsent(absoluteName(owner, name),
+				key -> new ImageIcon(getBytes(owner, name)));
+	}
+
+	/**
+	 * Reads and decodes the given icons on a background thread. Icons which
+	 * can't be loaded are left to fail when they are requested.
+	 *
+	 * @param owner
+	 *            the class relative to which the resources are named
+	 * @param names
+	 *            the names of the image resources
+	 */
+	public void preloadIcons(Class<?> owner, String... names) {
+		Thread thread = new Thread(() -> {
+			for (String name : names) {
+				try {
+					getIcon(owner, name);
+				} catch (IllegalArgumentException
+						| UncheckedIOException ignorable) {
+				}
+			}
+		}, "jnotepadpp-resources");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Resolves the name of a resource relative to a class, as
+	 * {@link Class#getResource(String)} does.
+	 *
+	 * @param owner
+	 *            the class
+	 * @param name
+	 *            the relative name
+	 * @return the absolute name, without a leading slash
+	 */
+	private static String absoluteName(Class<?> owner, String name) {
+		if (name.startsWith("/")) {
+			return name.substring(1);
+		}
+		String className = owner.getName();
+		int lastDot = className.lastIndexOf('.');
+		return lastDot == -1 ? name
+				: className.substring(0, lastDot).replace('.', '/') + "/"
+						+ name;
+	}
+
+	/**
+	 * Reads a resource whole, into an array of its size if the size is
+	 * known.
+	 *
+	 * @param owner
+	 *            the class relative to which the resource is named
+	 * @param name
+	 *            the name of the resource
+	 * @return the contents of the resource
+	 */
+	private static byte[] read(Class<?> owner, String name) {
+		URL url = owner.getResource(name);
+		if (url == null) {
+			throw new IllegalArgumentException("No such resource: " + name);
+		}
+
+		try {
+			URLConnection connection = url.openConnection();
+			long size = connection.getContentLengthLong();
+			try (InputStream in = connection.getInputStream()) {
+				if (size < 0 || size > Integer.MAX_VALUE) {
+					return readUnknownSize(in);
+				}
+				byte[] bytes = new byte[(int) size];
+				int read = 0;
+				while (read < bytes.length) {
+					int n = in.read(bytes, read, bytes.length - read);
+					if (n < 0) {
+						throw new IOException("Resource is cut: " + name);
+					}
+					read += n;
+				}
+				return bytes;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads a stream of unknown size whole.
+	 *
+	 * @param in
+	 *            the stream
+	 * @return the contents of the stream
+	 * @throws IOException
+	 *             if the stream can not be read
+	 */
+	private static byte[] readUnknownSize(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(
+				UNKNOWN_SIZE_BUFFER);
+		byte[] buffer = new byte[UNKNOWN_SIZE_BUFFER];
+		int n;
+		while ((n = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+}
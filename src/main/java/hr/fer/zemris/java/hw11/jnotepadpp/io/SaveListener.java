@@ -0,0 +1,34 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Interface for an observer to register to receive notifications about the
+ * saves performed by a {@link SaveQueue}. All notifications are given on the
+ * event dispatch thread.
+ *
+ * @author 0036502252
+ *
+ */
+public interface SaveListener {
+	/**
+	 * Gives notification that a snapshot has been written to disk.
+	 *
+	 * @param path
+	 *            the path to which the snapshot was written
+	 * @param version
+	 *            the version given when the save was submitted
+	 */
+	void saveCompleted(Path path, long version);
+
+	/**
+	 * Gives notification that a snapshot could not be written to disk.
+	 *
+	 * @param path
+	 *            the path to which the snapshot should have been written
+	 * @param cause
+	 *            the cause of the failure
+	 */
+	void saveFailed(Path path, IOException cause);
+}
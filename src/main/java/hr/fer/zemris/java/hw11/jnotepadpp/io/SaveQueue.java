@@ -0,0 +1,201 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * A serial queue of saves for a single document. Saves are written one
+ * after another on a background executor, so the caller never waits for the
+ * disk. A save submitted while an older save of the same path is still
+ * waiting replaces it, since only the newest content matters.
+ * <p>
+ * The submitted text must be an immutable snapshot, as it is read on a
+ * background thread.
+ *
+ * @author 0036502252
+ *
+ */
+public class SaveQueue {
+	/**
+	 * The writers used by the background threads, one per thread since a
+	 * writer reuses its buffers.
+	 */
+	private static final ThreadLocal<DocumentWriter> WRITERS = ThreadLocal
+			.withInitial(DocumentWriter::new);
+
+	/**
+	 * The executor on which the saves are written.
+	 */
+	private final Executor executor;
+	/**
+	 * The listener notified once a save is done.
+	 */
+	private final SaveListener listener;
+	/**
+	 * The saves waiting to be written.
+	 */
+	private final Deque<SaveRequest> pending;
+	/**
+	 * Indicates whether a task draining the queue is scheduled.
+	 */
+	private boolean scheduled;
+	/**
+	 * The number of submitted saves whose listener hasn't been notified yet,
+	 * not counting replaced saves. Only used on the event dispatch thread.
+	 */
+	private int unfinished;
+
+	/**
+	 * Constructs a new {@link SaveQueue}.
+	 *
+	 * @param executor
+	 *            the executor on which the saves are written
+	 * @param listener
+	 *            the listener notified once a save is done
+	 */
+	public SaveQueue(Executor executor, SaveListener listener) {
+		this.executor = executor;
+		this.listener = listener;
+		this.pending = new ArrayDeque<>();
+	}
+
+	/**
+	 * Submits a save to the queue. Must be called on the event dispatch
+	 * thread, on which the listener is notified.
+	 *
+	 * @param snapshot
+	 *            the immutable text to be saved
+	 * @param path
+	 *            the path to which the text is saved
+	 * @param version
+	 *            a value identifying the saved state, passed back to the
+	 *            listener
+	 */
+	public synchronized void submit(TextSource snapshot, Path path,
+			long version) {
+		Iterator<SaveRequest> it = pending.iterator();
+		while (it.hasNext()) {
+			if (it.next().path.equals(path)) {
+				it.remove();
+				unfinished--;
+			}
+		}
+		pending.add(new SaveRequest(snapshot, path, version));
+		unfinished++;
+
+		if (!scheduled) {
+			scheduled = true;
+			executor.execute(this::drain);
+		}
+	}
+
+	/**
+	 * Checks whether a save is still being written, or its listener still
+	 * has to be notified, e.g. so the file changed by the save isn't taken
+	 * for one changed by another program. Must be called on the event
+	 * dispatch thread, on which saves are submitted.
+	 *
+	 * @return true if a submitted save isn't done yet
+	 */
+	public boolean isSaving() {
+		return unfinished > 0;
+	}
+
+	/**
+	 * Writes the waiting saves in order, until there are none left. If the
+	 * thread dies anyway, the queue is left to be drained by the next save.
+	 */
+	private void drain() {
+		boolean drained = false;
+		try {
+			while (true) {
+				SaveRequest request;
+				synchronized (this) {
+					request = pending.poll();
+					if (request == null) {
+						scheduled = false;
+						drained = true;
+						return;
+					}
+				}
+				write(request);
+			}
+		} finally {
+			if (!drained) {
+				synchronized (this) {
+					scheduled = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a single save, and notifies the listener on the event dispatch
+	 * thread. Any exception of the writer is reported as a failed save, e.g.
+	 * one thrown by a broken snapshot.
+	 *
+	 * @param request
+	 *            the written save
+	 */
+	private void write(SaveRequest request) {
+		try {
+			WRITERS.get().write(request.snapshot, request.path);
+			SwingUtilities.invokeLater(() -> {
+				unfinished--;
+				listener.saveCompleted(request.path, request.version);
+			});
+		} catch (IOException | RuntimeException e) {
+			IOException cause = e instanceof IOException ? (IOException) e
+					: new IOException("Saving failed: " + request.path, e);
+			SwingUtilities.invokeLater(() -> {
+				unfinished--;
+				listener.saveFailed(request.path, cause);
+			});
+		}
+	}
+
+	/**
+	 * A single save waiting in the queue.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class SaveRequest {
+		/**
+		 * The text to be saved.
+		 */
+		final TextSource snapshot;
+		/**
+		 * The path to which the text is saved.
+		 */
+		final Path path;
+		/**
+		 * The value identifying the saved state.
+		 */
+		final long version;
+
+		/**
+		 * Constructs a new {@link SaveRequest}.
+		 *
+		 * @param snapshot
+		 *            the text to be saved
+		 * @param path
+		 *            the path to which the text is saved
+		 * @param version
+		 *            the value identifying the saved state
+		 */
+		SaveRequest(TextSource snapshot, Path path, long version) {
+			this.snapshot = snapshot;
+			this.path = path;
+			this.version = version;
+		}
+	}
+}
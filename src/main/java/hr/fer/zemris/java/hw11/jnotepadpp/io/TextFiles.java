@@ -0,0 +1,99 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.MappedTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextScan;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Reads UTF-8 files as {@link TextSource}s on the calling thread, for the
+ * cases in which a file is needed at once, unlike {@link DocumentLoader}
+ * which loads documents in the background. Malformed input is replaced, as
+ * when loading documents.
+ *
+ * @author 0036502252
+ *
+ */
+public class TextFiles {
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private TextFiles() {
+	}
+
+	/**
+	 * Reads the file at the given path. Files of at least the given size are
+	 * memory-mapped, smaller ones are read whole.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @param mappedThreshold
+	 *            the size in bytes from which files are memory-mapped
+	 * @return the text of the file
+	 * @throws IOException
+	 *             if the file can not be read
+	 */
+	public static TextSource read(Path path, long mappedThreshold)
+			throws IOException {
+		if (Files.size(path) >= mappedThreshold) {
+			return MappedTextSource.open(path);
+		}
+		return decode(Files.readAllBytes(path));
+	}
+
+	/**
+	 * Reads the file at the given path as a new document. Files of at least
+	 * the given size are memory-mapped, and decoded only once for both the
+	 * source and the document.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @param mappedThreshold
+	 *            the size in bytes from which files are memory-mapped
+	 * @return the document of the file
+	 * @throws IOException
+	 *             if the file can not be read
+	 */
+	public static PieceTableDocument readDocument(Path path,
+			long mappedThreshold) throws IOException {
+		if (Files.size(path) >= mappedThreshold) {
+			TextScan scan = new TextScan();
+			MappedTextSource source = MappedTextSource.open(path,
+					percent -> {
+					}, scan);
+			return new PieceTableDocument(source, scan);
+		}
+		return new PieceTableDocument(decode(Files.readAllBytes(path)));
+	}
+
+	/**
+	 * Decodes the bytes of a UTF-8 file.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @return the decoded text
+	 */
+	public static TextSource decode(byte[] bytes) {
+		try {
+			CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE)
+					.decode(ByteBuffer.wrap(bytes));
+			return new ArrayTextSource(chars.array(), 0, chars.limit());
+		} catch (CharacterCodingException e) {
+			// can't happen, all errors are replaced
+			throw new IllegalStateException(e);
+		}
+	}
+}
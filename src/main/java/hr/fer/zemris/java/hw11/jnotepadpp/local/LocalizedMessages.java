@@ -0,0 +1,94 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.local;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+/**
+ * The messages of a single language, compiled from a {@link ResourceBundle}
+ * into flat tables. Unlike a bundle, which looks a key up through its chain
+ * of parent bundles, every key is a single hash lookup, and every message is
+ * already parsed into a {@link MessageTemplate}. Instances are immutable, so
+ * a provider can switch languages by replacing its instance.
+ *
+ * @author 0036502252
+ *
+ */
+public class LocalizedMessages {
+	/**
+	 * The messages by their keys.
+	 */
+	private final Map<String, String> strings;
+	/**
+	 * The parsed messages by their keys.
+	 */
+	private final Map<String, MessageTemplate> templates;
+	/**
+	 * The base name of the compiled bundle, for error messages.
+	 */
+	private final String baseName;
+
+	/**
+	 * Compiles the messages of the given bundle, including the ones it
+	 * inherits from its parents.
+	 *
+	 * @param bundle
+	 *            the bundle
+	 */
+	public LocalizedMessages(ResourceBundle bundle) {
+		this.strings = new HashMap<>();
+		this.templates = new HashMap<>();
+		this.baseName = bundle.getBaseBundleName();
+
+		Enumeration<String> keys = bundle.getKeys();
+		while (keys.hasMoreElements()) {
+			String key = keys.nextElement();
+			String message = bundle.getString(key);
+			strings.put(key, message);
+			templates.put(key, MessageTemplate.parse(message));
+		}
+	}
+
+	/**
+	 * @param key
+	 *            the key of the message
+	 * @return the message
+	 * @throws MissingResourceException
+	 *             if there is no message for the key
+	 */
+	public String getString(String key) {
+		String message = strings.get(key);
+		if (message == null) {
+			throw missing(key);
+		}
+		return message;
+	}
+
+	/**
+	 * @param key
+	 *            the key of the message
+	 * @return the parsed message
+	 * @throws MissingResourceException
+	 *             if there is no message for the key
+	 */
+	public MessageTemplate getTemplate(String key) {
+		MessageTemplate template = templates.get(key);
+		if (template == null) {
+			throw missing(key);
+		}
+		return template;
+	}
+
+	/**
+	 * @param key
+	 *            the missing key
+	 * @return the exception thrown for the key
+	 */
+	private MissingResourceException missing(String key) {
+		return new MissingResourceException(
+				"Can't find resource for bundle " + baseName + ", key " + key,
+				baseName, key);
+	}
+}
@@ -0,0 +1,210 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A localized message with numbered arguments, such as
+ * <code>ln: {0} col: {1}</code>, parsed once into its literal parts and
+ * argument indexes. Formatting numbers into a {@link StringBuilder}
+ * allocates nothing besides growing the builder.
+ * <p>
+ * Unlike {@link java.text.MessageFormat}, only plain <code>{n}</code>
+ * arguments are supported, and apostrophes are ordinary characters. An
+ * argument for which no value is given is kept as it is written.
+ *
+ * @author 0036502252
+ *
+ */
+public class MessageTemplate {
+	/**
+	 * The literal parts; the part at index <code>i</code> precedes the
+	 * argument at index <code>i</code>, and the last part follows the last
+	 * argument.
+	 */
+	private final String[] literals;
+	/**
+	 * The indexes of the values of the arguments, in the order in which the
+	 * arguments appear.
+	 */
+	private final int[] arguments;
+	/**
+	 * The arguments as they are written, kept in the message when they have
+	 * no values.
+	 */
+	private final String[] written;
+
+	/**
+	 * Constructs a new {@link MessageTemplate}.
+	 *
+	 * @param literals
+	 *            the literal parts
+	 * @param arguments
+	 *            the indexes of the values of the arguments
+	 * @param written
+	 *            the arguments as they are written
+	 */
+	private MessageTemplate(String[] literals, int[] arguments,
+			String[] written) {
+		this.literals = literals;
+		this.arguments = arguments;
+		this.written = written;
+	}
+
+	/**
+	 * Parses a message. Braces which don't enclose an argument index are
+	 * literal.
+	 *
+	 * @param pattern
+	 *            the message
+	 * @return the parsed template
+	 */
+	public static MessageTemplate parse(String pattern) {
+		List<String> literals = new ArrayList<>();
+		List<Integer> arguments = new ArrayList<>();
+		List<String> written = new ArrayList<>();
+
+		int literalStart = 0;
+		int i = 0;
+		while (i < pattern.length()) {
+			int end = argumentEnd(pattern, i);
+			if (end == -1) {
+				i++;
+				continue;
+			}
+			literals.add(pattern.substring(literalStart, i));
+			arguments.add(Integer.parseInt(pattern.substring(i + 1, end)));
+			written.add(pattern.substring(i, end + 1));
+			i = end + 1;
+			literalStart = i;
+		}
+		literals.add(pattern.substring(literalStart));
+
+		int[] indexes = new int[arguments.size()];
+		for (int j = 0; j < indexes.length; j++) {
+			indexes[j] = arguments.get(j);
+		}
+		return new MessageTemplate(literals.toArray(new String[0]), indexes,
+				written.toArray(new String[0]));
+	}
+
+	/**
+	 * Checks whether an argument starts at the given index.
+	 *
+	 * @param pattern
+	 *            the message
+	 * @param index
+	 *            the index
+	 * @return the index of the argument's closing brace, or -1 if no
+	 *         argument starts at the index
+	 */
+	private static int argumentEnd(String pattern, int index) {
+		if (pattern.charAt(index) != '{') {
+			return -1;
+		}
+		int i = index + 1;
+		while (i < pattern.length() && i - index <= 2
+				&& Character.isDigit(pattern.charAt(i))) {
+			i++;
+		}
+		return i > index + 1 && i < pattern.length()
+				&& pattern.charAt(i) == '}' ? i : -1;
+	}
+
+	/**
+	 * Appends the message with a single value.
+	 *
+	 * @param sb
+	 *            the builder to which the message is appended
+	 * @param value0
+	 *            the value of argument 0
+	 * @return the builder
+	 */
+	public StringBuilder appendTo(StringBuilder sb, long value0) {
+		return appendTo(sb, 1, value0, 0, 0);
+	}
+
+	/**
+	 * Appends the message with two values.
+	 *
+	 * @param sb
+	 *            the builder to which the message is appended
+	 * @param value0
+	 *            the value of argument 0
+	 * @param value1
+	 *            the value of argument 1
+	 * @return the builder
+	 */
+	public StringBuilder appendTo(StringBuilder sb, long value0, long value1) {
+		return appendTo(sb, 2, value0, value1, 0);
+	}
+
+	/**
+	 * Appends the message with three values.
+	 *
+	 * @param sb
+	 *            the builder to which the message is appended
+	 * @param value0
+	 *            the value of argument 0
+	 * @param value1
+	 *            the value of argument 1
+	 * @param value2
+	 *            the value of argument 2
+	 * @return the builder
+	 */
+	public StringBuilder appendTo(StringBuilder sb, long value0, long value1,
+			long value2) {
+		return appendTo(sb, 3, value0, value1, value2);
+	}
+
+	/**
+	 * Appends the message with up to three values.
+	 *
+	 * @param sb
+	 *            the builder to which the message is appended
+	 * @param count
+	 *            the number of given values
+	 * @param value0
+	 *            the value of argument 0
+	 * @param value1
+	 *            the value of argument 1
+	 * @param value2
+	 *            the value of argument 2
+	 * @return the builder
+	 */
+	private StringBuilder appendTo(StringBuilder sb, int count, long value0,
+			long value1, long value2) {
+		for (int i = 0; i < arguments.length; i++) {
+			sb.append(literals[i]);
+			int index = arguments[i];
+			if (index >= count) {
+				sb.append(written[i]);
+			} else {
+				sb.append(index == 0 ? value0 : index == 1 ? value1 : value2);
+			}
+		}
+		return sb.append(literals[arguments.length]);
+	}
+
+	/**
+	 * Formats the message with the given values, which are converted to
+	 * strings.
+	 *
+	 * @param values
+	 *            the values of the arguments
+	 * @return the formatted message
+	 */
+	public String format(Object... values) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < arguments.length; i++) {
+			sb.append(literals[i]);
+			int index = arguments[i];
+			if (index >= values.length) {
+				sb.append(written[i]);
+			} else {
+				sb.append(values[index]);
+			}
+		}
+		return sb.append(literals[arguments.length]).toString();
+	}
+}
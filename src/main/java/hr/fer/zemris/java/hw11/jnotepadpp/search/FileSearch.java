@@ -0,0 +1,242 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+import javax.swing.text.BadLocationException;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.MappedTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.TextFiles;
+
+/**
+ * Searches all files in a directory tree, without opening them as
+ * documents. The tree is walked on a separate thread, and every file is
+ * searched as a separate task on a {@link ForkJoinPool}. Only a bounded
+ * number of files is queued at once, so the memory used does not depend on
+ * the size of the tree.
+ * <p>
+ * Files which contain a zero byte among their first
+ * {@value #BINARY_PROBE_BYTES} bytes are taken to be binary, and skipped.
+ * Files of at least {@value #MAPPED_THRESHOLD_DEFAULT} bytes are
+ * memory-mapped, smaller ones are read whole. Files which can't be read are
+ * skipped.
+ *
+ * @author 0036502252
+ *
+ */
+public class FileSearch {
+	/**
+	 * The default size in bytes from which files are memory-mapped.
+	 */
+	private static final long MAPPED_THRESHOLD_DEFAULT = 4 * 1024 * 1024;
+	/**
+	 * The size in bytes from which files are memory-mapped, taken from the
+	 * <code>jnotepadpp.searchMappedThreshold</code> system property.
+	 */
+	private static final long MAPPED_THRESHOLD = Long.getLong(
+			"jnotepadpp.searchMappedThreshold", MAPPED_THRESHOLD_DEFAULT);
+	/**
+	 * The number of bytes at the start of a file checked for a zero byte.
+	 */
+	private static final int BINARY_PROBE_BYTES = 8192;
+	/**
+	 * The number of queued files per thread of the pool.
+	 */
+	private static final int QUEUED_PER_THREAD = 4;
+
+	/**
+	 * The query.
+	 */
+	private final SearchQuery query;
+	/**
+	 * The listener which receives the results.
+	 */
+	private final SearchResultListener<Path> listener;
+	/**
+	 * Indicates whether the search has been cancelled.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructs a new {@link FileSearch}.
+	 *
+	 * @param query
+	 *            the query
+	 * @param listener
+	 *            the listener which receives the results
+	 */
+	public FileSearch(SearchQuery query, SearchResultListener<Path> listener) {
+		this.query = query;
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts searching the files in the given directory tree.
+	 *
+	 * @param pool
+	 *            the pool on which the files are searched
+	 * @param root
+	 *            the root of the tree
+	 */
+	public void start(ForkJoinPool pool, Path root) {
+		Thread walker = new Thread(() -> walk(pool, root),
+				"jnotepadpp-find-files");
+		walker.setDaemon(true);
+		walker.start();
+	}
+
+	/**
+	 * Cancels the search. No results are passed on afterwards.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Walks the tree, and queues its files on the pool. Notifies the
+	 * listener once all files are searched.
+	 *
+	 * @param pool
+	 *            the pool on which the files are searched
+	 * @param root
+	 *            the root of the tree
+	 */
+	private void walk(ForkJoinPool pool, Path root) {
+		int maxQueued = QUEUED_PER_THREAD * pool.getParallelism();
+		Semaphore queued = new Semaphore(maxQueued);
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file,
+						BasicFileAttributes attrs) throws IOException {
+					if (cancelled) {
+						return FileVisitResult.TERMINATE;
+					}
+					if (attrs.isRegularFile() && attrs.size() > 0) {
+						queued.acquireUninterruptibly();
+						pool.execute(() -> {
+							try {
+								search(file, attrs.size());
+							} finally {
+								queued.release();
+							}
+						});
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file,
+						IOException exc) throws IOException {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException ignorable) {
+			// the files visited so far are still searched
+		}
+
+		queued.acquireUninterruptibly(maxQueued);
+		if (!cancelled) {
+			listener.searchFinished();
+		}
+	}
+
+	/**
+	 * Searches a single file, and passes its results on.
+	 *
+	 * @param file
+	 *            the file
+	 * @param size
+	 *            the size of the file in bytes
+	 */
+	private void search(Path file, long size) {
+		try {
+			checkCancelled();
+			TextSource source = open(file, size);
+			if (source == null) {
+				return;
+			}
+			RangeHits hits = RangeHits.scan(source, 0, source.length(), query,
+					this::checkCancelled);
+			if (hits.size() > 0) {
+				checkCancelled();
+				listener.resultsFound(hits.toResults(file, 0));
+			}
+		} catch (IOException | BadLocationException ignorable) {
+			// unreadable files are skipped
+		} catch (CancellationException ignorable) {
+		}
+	}
+
+	/**
+	 * Opens a file as a {@link TextSource}.
+	 *
+	 * @param file
+	 *            the file
+	 * @param size
+	 *            the size of the file in bytes
+	 * @return the text of the file, or <code>null</code> if it is binary
+	 * @throws IOException
+	 *             if the file can not be read
+	 */
+	private static TextSource open(Path file, long size) throws IOException {
+		if (size >= MAPPED_THRESHOLD) {
+			try (FileChannel channel = FileChannel.open(file,
+					StandardOpenOption.READ)) {
+				ByteBuffer probe = ByteBuffer.allocate(BINARY_PROBE_BYTES);
+				while (probe.hasRemaining()) {
+					if (channel.read(probe) < 0) {
+						break;
+					}
+				}
+				if (isBinary(probe.array(), probe.position())) {
+					return null;
+				}
+			}
+			return MappedTextSource.open(file);
+		}
+
+		byte[] bytes = Files.readAllBytes(file);
+		if (isBinary(bytes, Math.min(bytes.length, BINARY_PROBE_BYTES))) {
+			return null;
+		}
+		return TextFiles.decode(bytes);
+	}
+
+	/**
+	 * @param bytes
+	 *            the bytes at the start of a file
+	 * @param length
+	 *            the number of checked bytes
+	 * @return true if the bytes contain a zero byte
+	 */
+	private static boolean isBinary(byte[] bytes, int length) {
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @throws CancellationException
+	 *             if the search has been cancelled
+	 */
+	private void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+	}
+}
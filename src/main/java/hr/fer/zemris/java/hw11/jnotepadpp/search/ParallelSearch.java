@@ -0,0 +1,307 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import javax.swing.text.BadLocationException;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Searches the texts of many objects at once on a {@link ForkJoinPool}. Every
+ * text is split into ranges of {@value #RANGE_CHARS_DEFAULT} characters
+ * (unless the query is a regular expression, whose hits may be arbitrarily
+ * long), and all ranges of all texts are searched as separate tasks, so the
+ * search takes about as long as the largest range, and not the number of
+ * searched texts, times the number of cores.
+ * <p>
+ * The texts are supplied lazily and each of them is obtained by a task of the
+ * pool, so texts which have to be read, e.g. from a file, are read in
+ * parallel and not by the thread starting the search. A text which can't be
+ * read is reported to the listener.
+ * <p>
+ * Each range also counts its lines. The results of a range are passed on as
+ * soon as it and all ranges before it in the same text are searched, since
+ * only then the lines of its hits are known.
+ *
+ * @author 0036502252
+ *
+ * @param <T>
+ *            the type of the objects whose text is searched
+ */
+public class ParallelSearch<T> {
+	/**
+	 * The default number of characters in a single searched range.
+	 */
+	private static final int RANGE_CHARS_DEFAULT = 1 << 20;
+	/**
+	 * The number of characters in a single searched range, taken from the
+	 * <code>jnotepadpp.searchRangeChars</code> system property.
+	 */
+	private static final int RANGE_CHARS = Integer
+			.getInteger("jnotepadpp.searchRangeChars", RANGE_CHARS_DEFAULT);
+
+	/**
+	 * The query.
+	 */
+	private final SearchQuery query;
+	/**
+	 * The listener which receives the results.
+	 */
+	private final SearchResultListener<T> listener;
+	/**
+	 * Indicates whether the search has been cancelled.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructs a new {@link ParallelSearch}.
+	 *
+	 * @param query
+	 *            the query
+	 * @param listener
+	 *            the listener which receives the results
+	 */
+	public ParallelSearch(SearchQuery query,
+			SearchResultListener<T> listener) {
+		this.query = query;
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts searching the given texts. The supplied texts must not change
+	 * during the search. A supplier may throw an
+	 * {@link UncheckedIOException} if its text can't be read.
+	 *
+	 * @param pool
+	 *            the pool on which the search is run
+	 * @param sources
+	 *            the suppliers of the searched texts of the objects
+	 */
+	public void start(ForkJoinPool pool,
+			Map<T, Supplier<TextSource>> sources) {
+		List<Text> texts = new ArrayList<>();
+		for (Map.Entry<T, Supplier<TextSource>> entry : sources.entrySet()) {
+			texts.add(new Text(entry.getKey(), entry.getValue()));
+		}
+		pool.execute(new SearchAll(texts));
+	}
+
+	/**
+	 * Cancels the search. No results are passed on afterwards.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @throws CancellationException
+	 *             if the search has been cancelled
+	 */
+	private void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+	}
+
+	/**
+	 * The task which searches all texts and then notifies the listener.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private class SearchAll extends RecursiveAction {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The searched texts.
+		 */
+		private final List<Text> texts;
+
+		/**
+		 * Constructs a new {@link SearchAll}.
+		 *
+		 * @param texts
+		 *            the searched texts
+		 */
+		SearchAll(List<Text> texts) {
+			this.texts = texts;
+		}
+
+		@Override
+		protected void compute() {
+			invokeAll(texts);
+			if (!cancelled) {
+				listener.searchFinished();
+			}
+		}
+	}
+
+	/**
+	 * The task which obtains a searched text and searches all its ranges. It
+	 * collects the results of the ranges and passes them on in order.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private class Text extends RecursiveAction {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The object whose text this is.
+		 */
+		private final T owner;
+		/**
+		 * The supplier of the text.
+		 */
+		private final Supplier<TextSource> supplier;
+		/**
+		 * The text, once it is obtained.
+		 */
+		private TextSource source;
+		/**
+		 * The searched ranges which are waiting for the ranges before them,
+		 * indexed by their positions.
+		 */
+		private List<Range> finished;
+		/**
+		 * The position of the first range whose results weren't passed on.
+		 */
+		private int next;
+		/**
+		 * The number of lines before the first range whose results weren't
+		 * passed on.
+		 */
+		private int lines;
+
+		/**
+		 * Constructs a new {@link Text}.
+		 *
+		 * @param owner
+		 *            the object whose text this is
+		 * @param supplier
+		 *            the supplier of the text
+		 */
+		Text(T owner, Supplier<TextSource> supplier) {
+			this.owner = owner;
+			this.supplier = supplier;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				checkCancelled();
+				source = supplier.get();
+			} catch (UncheckedIOException e) {
+				if (!cancelled) {
+					listener.searchFailed(owner, e.getCause());
+				}
+				return;
+			} catch (CancellationException ignorable) {
+				return;
+			}
+
+			int length = source.length();
+			int count = query.isRegex() || length == 0 ? 1
+					: (int) ((length + (long) RANGE_CHARS - 1) / RANGE_CHARS);
+			List<Range> ranges = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int start = (int) ((long) i * RANGE_CHARS);
+				int end = i == count - 1 ? length : start + RANGE_CHARS;
+				ranges.add(new Range(this, i, start, end));
+			}
+			finished = new ArrayList<>(Collections.nCopies(count, null));
+			invokeAll(ranges);
+		}
+
+		/**
+		 * Records a searched range, and passes on the results of all ranges
+		 * whose preceding ranges are searched.
+		 *
+		 * @param range
+		 *            the searched range
+		 */
+		synchronized void rangeFinished(Range range) {
+			finished.set(range.index, range);
+			while (next < finished.size() && finished.get(next) != null) {
+				Range current = finished.set(next++, null);
+
+				if (current.hits.size() > 0) {
+					checkCancelled();
+					listener.resultsFound(current.hits.toResults(owner, lines));
+				}
+				lines += current.hits.getNewlines();
+			}
+		}
+	}
+
+	/**
+	 * The task which searches a single range of a text.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private class Range extends RecursiveAction {
+		/** Default UID */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The text containing the range.
+		 */
+		private final Text text;
+		/**
+		 * The position of the range in the text.
+		 */
+		private final int index;
+		/**
+		 * The start of the range.
+		 */
+		private final int start;
+		/**
+		 * The end of the range.
+		 */
+		private final int end;
+		/**
+		 * The hits of the range, once it is searched.
+		 */
+		private RangeHits hits;
+
+		/**
+		 * Constructs a new {@link Range}.
+		 *
+		 * @param text
+		 *            the text containing the range
+		 * @param index
+		 *            the position of the range in the text
+		 * @param start
+		 *            the start of the range
+		 * @param end
+		 *            the end of the range
+		 */
+		Range(Text text, int index, int start, int end) {
+			this.text = text;
+			this.index = index;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				checkCancelled();
+				hits = RangeHits.scan(text.source, start, end, query,
+						ParallelSearch.this::checkCancelled);
+				text.rangeFinished(this);
+			} catch (CancellationException ignorable) {
+			} catch (BadLocationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
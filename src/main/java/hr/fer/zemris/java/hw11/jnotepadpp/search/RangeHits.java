@@ -0,0 +1,205 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * The hits of a query which start in a range of a text, together with their
+ * lines relative to the start of the range and the text around them.
+ *
+ * @author 0036502252
+ *
+ */
+class RangeHits {
+	/**
+	 * The maximum number of characters shown on each side of a hit.
+	 */
+	private static final int PREVIEW_CONTEXT = 60;
+
+	/**
+	 * The hits which start in the range.
+	 */
+	private final SearchHits hits;
+	/**
+	 * The lines of the hits, relative to the start of the range.
+	 */
+	private final int[] lines;
+	/**
+	 * The text around the hits.
+	 */
+	private final String[] previews;
+	/**
+	 * The number of newlines in the range.
+	 */
+	private final int newlines;
+
+	/**
+	 * Constructs new {@link RangeHits}.
+	 *
+	 * @param hits
+	 *            the hits which start in the range
+	 * @param lines
+	 *            the relative lines of the hits
+	 * @param previews
+	 *            the text around the hits
+	 * @param newlines
+	 *            the number of newlines in the range
+	 */
+	private RangeHits(SearchHits hits, int[] lines, String[] previews,
+			int newlines) {
+		this.hits = hits;
+		this.lines = lines;
+		this.previews = previews;
+		this.newlines = newlines;
+	}
+
+	/**
+	 * Searches a range of a text, and finds the lines of the hits. Hits of a
+	 * literal query which start in the range are found even if they end
+	 * after it.
+	 *
+	 * @param source
+	 *            the text
+	 * @param start
+	 *            the start of the range
+	 * @param end
+	 *            the end of the range
+	 * @param query
+	 *            the query
+	 * @param cancellation
+	 *            called regularly, throws a
+	 *            {@link java.util.concurrent.CancellationException} to stop
+	 *            the search
+	 * @return the hits of the range
+	 * @throws BadLocationException
+	 *             if the range is outside of the text
+	 */
+	static RangeHits scan(TextSource source, int start, int end,
+			SearchQuery query, Runnable cancellation)
+			throws BadLocationException {
+		SearchHits hits = new SearchHits();
+		// hits starting near the end may continue into the next range
+		int searchEnd = query.isRegex() ? end
+				: Math.min(source.length(), end + query.getText().length() - 1);
+		SearchEngine.find(source, start, searchEnd, query,
+				(offset, length) -> {
+					if (offset < end) {
+						if ((hits.size() & 0xFF) == 0) {
+							cancellation.run();
+						}
+						hits.hitFound(offset, length);
+					}
+				});
+
+		int[] lines = new int[hits.size()];
+		String[] previews = new String[hits.size()];
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		int newlines = 0;
+		int hit = 0;
+		int position = start;
+		while (position < end) {
+			cancellation.run();
+			source.getChars(position, end - position, segment);
+			for (int i = 0; i < segment.count; i++) {
+				while (hit < lines.length
+						&& hits.getOffset(hit) == position + i) {
+					lines[hit++] = newlines;
+				}
+				if (segment.array[segment.offset + i] == '\n') {
+					newlines++;
+				}
+			}
+			position += segment.count;
+		}
+
+		for (int i = 0; i < previews.length; i++) {
+			previews[i] = preview(source, hits.getOffset(i), hits.getLength(i),
+					segment);
+		}
+		return new RangeHits(hits, lines, previews, newlines);
+	}
+
+	/**
+	 * @return the number of hits
+	 */
+	int size() {
+		return hits.size();
+	}
+
+	/**
+	 * @return the number of newlines in the range
+	 */
+	int getNewlines() {
+		return newlines;
+	}
+
+	/**
+	 * Creates the results of the hits.
+	 *
+	 * @param <T>
+	 *            the type of the object whose text was searched
+	 * @param owner
+	 *            the object whose text was searched
+	 * @param firstLine
+	 *            the index of the line at the start of the range
+	 * @return the results
+	 */
+	<T> List<SearchResult<T>> toResults(T owner, int firstLine) {
+		List<SearchResult<T>> results = new ArrayList<>(hits.size());
+		for (int i = 0; i < hits.size(); i++) {
+			results.add(new SearchResult<>(owner, hits.getOffset(i),
+					hits.getLength(i), firstLine + lines[i], previews[i]));
+		}
+		return results;
+	}
+
+	/**
+	 * Extracts the text around a hit, within the hit's line.
+	 *
+	 * @param source
+	 *            the searched text
+	 * @param offset
+	 *            the offset of the hit
+	 * @param length
+	 *            the length of the hit
+	 * @param segment
+	 *            segment used for reading the text
+	 * @return the text around the hit
+	 * @throws BadLocationException
+	 *             if the hit is outside of the text
+	 */
+	private static String preview(TextSource source, int offset, int length,
+			Segment segment) throws BadLocationException {
+		int from = Math.max(0, offset - PREVIEW_CONTEXT);
+		int to = Math.min(source.length(), offset + length + PREVIEW_CONTEXT);
+		segment.setPartialReturn(false);
+		source.getChars(from, to - from, segment);
+
+		int start = offset - from;
+		while (start > 0
+				&& !isLineEnd(segment.array[segment.offset + start - 1])) {
+			start--;
+		}
+		int end = offset - from;
+		while (end < segment.count
+				&& !isLineEnd(segment.array[segment.offset + end])) {
+			end++;
+		}
+		return new String(segment.array, segment.offset + start, end - start);
+	}
+
+	/**
+	 * @param c
+	 *            a character
+	 * @return true if the character ends a line
+	 */
+	private static boolean isLineEnd(char c) {
+		return c == '\n' || c == '\r';
+	}
+}
@@ -0,0 +1,333 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSourceSequence;
+
+/**
+ * Searches a {@link TextSource} without copying its text. Literal queries
+ * are searched with the Boyer-Moore-Horspool algorithm directly in the
+ * segments of the source; only the few characters around the borders of two
+ * segments are copied. Regular expressions are run over a
+ * {@link TextSourceSequence} view of the source.
+ * <p>
+ * A literal query finds all occurrences of its text, including overlapping
+ * ones, so the hits of a longer query can be found among them with
+ * {@link #refine(TextSource, SearchQuery, SearchHits, SearchListener)}
+ * instead of searching the whole source again.
+ * <p>
+ * The searches can be cancelled by interrupting the searching thread, in
+ * which case they throw a {@link CancellationException}.
+ *
+ * @author 0036502252
+ *
+ */
+public class SearchEngine {
+	/**
+	 * The size of the table of shifts, indexed by the low bits of a
+	 * character.
+	 */
+	private static final int SHIFT_TABLE_SIZE = 256;
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private SearchEngine() {
+	}
+
+	/**
+	 * Searches a range of the source.
+	 *
+	 * @param source
+	 *            the source, which must not change during the search
+	 * @param start
+	 *            the start of the searched range
+	 * @param end
+	 *            the end of the searched range
+	 * @param query
+	 *            the query
+	 * @param listener
+	 *            receives the hits
+	 * @throws CancellationException
+	 *             if the thread is interrupted
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             if the query is not a valid regular expression
+	 */
+	public static void find(TextSource source, int start, int end,
+			SearchQuery query, SearchListener listener) {
+		if (query.isRegex()) {
+			findRegex(source, start, end, query, listener);
+		} else {
+			findLiteral(source, start, end, query, listener);
+		}
+	}
+
+	/**
+	 * Searches for a literal query among the hits of a query which it
+	 * refines, see {@link SearchQuery#refines(SearchQuery)}.
+	 *
+	 * @param source
+	 *            the source in which the previous hits were found
+	 * @param query
+	 *            the query
+	 * @param previous
+	 *            the hits of the refined query
+	 * @param listener
+	 *            receives the hits
+	 * @throws CancellationException
+	 *             if the thread is interrupted
+	 */
+	public static void refine(TextSource source, SearchQuery query,
+			SearchHits previous, SearchListener listener) {
+		char[] pattern = pattern(query);
+		boolean ignoreCase = !query.isMatchCase();
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+
+		for (int i = 0, n = previous.size(); i < n; i++) {
+			if ((i & 0xFFF) == 0) {
+				checkInterrupted();
+			}
+			int offset = previous.getOffset(i);
+			if (offset + pattern.length <= source.length()
+					&& matches(source, offset, pattern, ignoreCase, segment)) {
+				listener.hitFound(offset, pattern.length);
+			}
+		}
+	}
+
+	/**
+	 * Searches a range of the source for a literal query.
+	 *
+	 * @param source
+	 *            the source
+	 * @param start
+	 *            the start of the searched range
+	 * @param end
+	 *            the end of the searched range
+	 * @param query
+	 *            the query
+	 * @param listener
+	 *            receives the hits
+	 */
+	private static void findLiteral(TextSource source, int start, int end,
+			SearchQuery query, SearchListener listener) {
+		char[] pattern = pattern(query);
+		int m = pattern.length;
+		boolean ignoreCase = !query.isMatchCase();
+
+		int[] shifts = new int[SHIFT_TABLE_SIZE];
+		Arrays.fill(shifts, m);
+		for (int i = 0; i < m - 1; i++) {
+			// characters sharing the low bits keep the smallest shift
+			shifts[pattern[i] & (SHIFT_TABLE_SIZE - 1)] = m - 1 - i;
+		}
+
+		// the last m - 1 characters before the current segment, followed by
+		// the first m - 1 characters of the segment
+		char[] border = new char[2 * (m - 1)];
+		int carried = 0;
+
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		try {
+			int position = start;
+			while (position < end) {
+				checkInterrupted();
+				source.getChars(position, end - position, segment);
+				char[] array = segment.array;
+				int count = segment.count;
+
+				if (carried > 0) {
+					int taken = Math.min(m - 1, count);
+					System.arraycopy(array, segment.offset, border, carried,
+							taken);
+					// only hits starting in the previous segments
+					search(border, 0, carried + taken, carried, pattern,
+							shifts, ignoreCase, position - carried, listener);
+				}
+				search(array, segment.offset, segment.offset + count, count,
+						pattern, shifts, ignoreCase,
+						position - segment.offset, listener);
+
+				// carry the last m - 1 characters into the next border
+				int kept = Math.min(m - 1, carried + count);
+				int fromBorder = Math.max(0, kept - count);
+				System.arraycopy(border, carried - fromBorder, border, 0,
+						fromBorder);
+				System.arraycopy(array, segment.offset + count
+						- (kept - fromBorder), border, fromBorder,
+						kept - fromBorder);
+				carried = kept;
+
+				position += count;
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Searches an array with the Boyer-Moore-Horspool algorithm.
+	 *
+	 * @param text
+	 *            the array
+	 * @param from
+	 *            the index at which the search starts
+	 * @param to
+	 *            the index at which the searched text ends
+	 * @param starts
+	 *            the number of indexes, starting from <code>from</code>, at
+	 *            which a hit may start
+	 * @param pattern
+	 *            the searched pattern
+	 * @param shifts
+	 *            the table of shifts of the pattern
+	 * @param ignoreCase
+	 *            true if the case is ignored
+	 * @param base
+	 *            the offset in the source of index 0 of the array
+	 * @param listener
+	 *            receives the hits
+	 */
+	private static void search(char[] text, int from, int to, int starts,
+			char[] pattern, int[] shifts, boolean ignoreCase, int base,
+			SearchListener listener) {
+		int m = pattern.length;
+		int last = Math.min(to - m, from + starts - 1);
+
+		int i = from;
+		while (i <= last) {
+			int j = m - 1;
+			while (j >= 0 && fold(text[i + j], ignoreCase) == pattern[j]) {
+				j--;
+			}
+			if (j < 0) {
+				listener.hitFound(base + i, m);
+			}
+			i += shifts[fold(text[i + m - 1], ignoreCase)
+					& (SHIFT_TABLE_SIZE - 1)];
+		}
+	}
+
+	/**
+	 * Searches a range of the source for a regular expression.
+	 *
+	 * @param source
+	 *            the source
+	 * @param start
+	 *            the start of the searched range
+	 * @param end
+	 *            the end of the searched range
+	 * @param query
+	 *            the query
+	 * @param listener
+	 *            receives the hits
+	 */
+	private static void findRegex(TextSource source, int start, int end,
+			SearchQuery query, SearchListener listener) {
+		CharSequence text = new TextSourceSequence(source, start, end) {
+			@Override
+			protected void load(int index) {
+				checkInterrupted();
+				super.load(index);
+			}
+		};
+
+		Matcher matcher = query.getPattern().matcher(text);
+		while (matcher.find()) {
+			if (matcher.end() > matcher.start()) {
+				listener.hitFound(start + matcher.start(),
+						matcher.end() - matcher.start());
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the text at the given offset matches the pattern.
+	 *
+	 * @param source
+	 *            the source
+	 * @param offset
+	 *            the offset of the text
+	 * @param pattern
+	 *            the pattern
+	 * @param ignoreCase
+	 *            true if the case is ignored
+	 * @param segment
+	 *            segment used for reading the source
+	 * @return true if the text matches
+	 */
+	private static boolean matches(TextSource source, int offset,
+			char[] pattern, boolean ignoreCase, Segment segment) {
+		try {
+			int compared = 0;
+			while (compared < pattern.length) {
+				source.getChars(offset + compared, pattern.length - compared,
+						segment);
+				for (int i = 0; i < segment.count; i++) {
+					if (fold(segment.array[segment.offset + i],
+							ignoreCase) != pattern[compared + i]) {
+						return false;
+					}
+				}
+				compared += segment.count;
+			}
+			return true;
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * @param query
+	 *            a literal query
+	 * @return the characters of the query, folded if the case is ignored
+	 */
+	private static char[] pattern(SearchQuery query) {
+		char[] pattern = query.getText().toCharArray();
+		if (!query.isMatchCase()) {
+			for (int i = 0; i < pattern.length; i++) {
+				pattern[i] = fold(pattern[i], true);
+			}
+		}
+		return pattern;
+	}
+
+	/**
+	 * Folds the case of a character, so that characters which differ only in
+	 * case become equal.
+	 *
+	 * @param c
+	 *            the character
+	 * @param ignoreCase
+	 *            true if the case is ignored, otherwise the character is
+	 *            returned as it is
+	 * @return the folded character
+	 */
+	private static char fold(char c, boolean ignoreCase) {
+		if (!ignoreCase) {
+			return c;
+		}
+		if (c < 0x80) {
+			return c >= 'A' && c <= 'Z' ? (char) (c + 'a' - 'A') : c;
+		}
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * @throws CancellationException
+	 *             if the current thread is interrupted
+	 */
+	private static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import java.util.Arrays;
+
+/**
+ * The hits of a search, ordered by their offsets. The offsets and lengths
+ * are kept in growing arrays of primitives, so even millions of hits take
+ * little memory.
+ *
+ * @author 0036502252
+ *
+ */
+public class SearchHits implements SearchListener {
+	/**
+	 * The initial capacity of the arrays.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The offsets of the hits.
+	 */
+	private int[] offsets;
+	/**
+	 * The lengths of the hits.
+	 */
+	private int[] lengths;
+	/**
+	 * The number of hits.
+	 */
+	private int size;
+
+	/**
+	 * Constructs new, empty {@link SearchHits}.
+	 */
+	public SearchHits() {
+		offsets = new int[INITIAL_CAPACITY];
+		lengths = new int[INITIAL_CAPACITY];
+	}
+
+	@Override
+	public void hitFound(int offset, int length) {
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+		}
+		offsets[size] = offset;
+		lengths[size] = length;
+		size++;
+	}
+
+	/**
+	 * Adds all hits of the given hits.
+	 *
+	 * @param hits
+	 *            the added hits, which must come after these
+	 */
+	public void addAll(SearchHits hits) {
+		for (int i = 0; i < hits.size; i++) {
+			hitFound(hits.offsets[i], hits.lengths[i]);
+		}
+	}
+
+	/**
+	 * @return the number of hits
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 *            the index of a hit
+	 * @return the offset of the hit
+	 */
+	public int getOffset(int index) {
+		checkIndex(index);
+		return offsets[index];
+	}
+
+	/**
+	 * @param index
+	 *            the index of a hit
+	 * @return the length of the hit
+	 */
+	public int getLength(int index) {
+		checkIndex(index);
+		return lengths[index];
+	}
+
+	/**
+	 * Finds the first hit which starts at or after the given offset.
+	 *
+	 * @param offset
+	 *            the offset
+	 * @return the index of the hit, or the number of hits if there is none
+	 */
+	public int indexAtOrAfter(int offset) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (offsets[middle] < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Checks whether the given index is valid.
+	 *
+	 * @param index
+	 *            the index
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is invalid
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Invalid index: " + index);
+		}
+	}
+}
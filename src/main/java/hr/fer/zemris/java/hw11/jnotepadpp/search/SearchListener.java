@@ -0,0 +1,21 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+/**
+ * Interface for an observer to register to receive the hits found by a
+ * {@link SearchEngine}, in the order of their offsets. The hits are given on
+ * the searching thread.
+ *
+ * @author 0036502252
+ *
+ */
+public interface SearchListener {
+	/**
+	 * Gives notification that a hit has been found.
+	 *
+	 * @param offset
+	 *            the offset of the hit
+	 * @param length
+	 *            the length of the hit
+	 */
+	void hitFound(int offset, int length);
+}
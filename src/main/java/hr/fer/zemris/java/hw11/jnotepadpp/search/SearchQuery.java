@@ -0,0 +1,123 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * The text searched for by a {@link SearchEngine}, either literally or as a
+ * regular expression, with or without matching the case.
+ *
+ * @author 0036502252
+ *
+ */
+public class SearchQuery {
+	/**
+	 * The searched text.
+	 */
+	private final String text;
+	/**
+	 * Indicates whether the text is a regular expression.
+	 */
+	private final boolean regex;
+	/**
+	 * Indicates whether the case must match.
+	 */
+	private final boolean matchCase;
+	/**
+	 * The compiled regular expression, created when first needed.
+	 */
+	private Pattern pattern;
+
+	/**
+	 * Constructs a new {@link SearchQuery}.
+	 *
+	 * @param text
+	 *            the searched text, which must not be empty
+	 * @param regex
+	 *            true if the text is a regular expression
+	 * @param matchCase
+	 *            true if the case must match
+	 * @throws IllegalArgumentException
+	 *             if the text is empty
+	 */
+	public SearchQuery(String text, boolean regex, boolean matchCase) {
+		Objects.requireNonNull(text, "Text must not be null!");
+		if (text.isEmpty()) {
+			throw new IllegalArgumentException("Text must not be empty!");
+		}
+		this.text = text;
+		this.regex = regex;
+		this.matchCase = matchCase;
+	}
+
+	/**
+	 * @return the searched text
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return true if the text is a regular expression
+	 */
+	public boolean isRegex() {
+		return regex;
+	}
+
+	/**
+	 * @return true if the case must match
+	 */
+	public boolean isMatchCase() {
+		return matchCase;
+	}
+
+	/**
+	 * Compiles the text as a regular expression.
+	 *
+	 * @return the compiled regular expression
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             if the text is not a valid regular expression
+	 */
+	public synchronized Pattern getPattern() {
+		if (pattern == null) {
+			int flags = Pattern.MULTILINE;
+			if (!matchCase) {
+				flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+			}
+			pattern = Pattern.compile(text, flags);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Checks whether every hit of this query starts where a hit of the given
+	 * query starts, so this query's hits can be found among the other
+	 * query's hits. True if both queries are literal, match the case the same
+	 * way, and this query's text extends the other's.
+	 *
+	 * @param other
+	 *            the other query
+	 * @return true if this query's hits are among the other query's hits
+	 */
+	public boolean refines(SearchQuery other) {
+		return other != null && !regex && !other.regex
+				&& matchCase == other.matchCase
+				&& text.startsWith(other.text);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(text, regex, matchCase);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SearchQuery))
+			return false;
+		SearchQuery other = (SearchQuery) obj;
+		return text.equals(other.text) && regex == other.regex
+				&& matchCase == other.matchCase;
+	}
+}
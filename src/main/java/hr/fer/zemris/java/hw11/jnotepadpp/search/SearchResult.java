@@ -0,0 +1,116 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+/**
+ * A single hit found by a {@link ParallelSearch}, together with the line it
+ * was found in, or an object whose text couldn't be searched because it
+ * couldn't be read, see {@link #failure(Object, String)}.
+ *
+ * @author 0036502252
+ *
+ * @param <T>
+ *            the type of the objects whose text is searched
+ */
+public class SearchResult<T> {
+	/**
+	 * The object whose text contains the hit.
+	 */
+	private final T owner;
+	/**
+	 * The offset of the hit.
+	 */
+	private final int offset;
+	/**
+	 * The length of the hit.
+	 */
+	private final int length;
+	/**
+	 * The index of the line containing the start of the hit.
+	 */
+	private final int line;
+	/**
+	 * The text around the hit, within its line.
+	 */
+	private final String preview;
+
+	/**
+	 * Constructs a new {@link SearchResult}.
+	 *
+	 * @param owner
+	 *            the object whose text contains the hit
+	 * @param offset
+	 *            the offset of the hit
+	 * @param length
+	 *            the length of the hit
+	 * @param line
+	 *            the index of the line containing the start of the hit
+	 * @param preview
+	 *            the text around the hit
+	 */
+	public SearchResult(T owner, int offset, int length, int line,
+			String preview) {
+		this.owner = owner;
+		this.offset = offset;
+		this.length = length;
+		this.line = line;
+		this.preview = preview;
+	}
+
+	/**
+	 * Creates a result which reports that the text of an object couldn't be
+	 * read. Its line is -1 and its preview is the reason.
+	 *
+	 * @param <T>
+	 *            the type of the object
+	 * @param owner
+	 *            the object
+	 * @param reason
+	 *            the reason why the text couldn't be read
+	 * @return the result
+	 */
+	public static <T> SearchResult<T> failure(T owner, String reason) {
+		return new SearchResult<>(owner, 0, 0, -1, reason);
+	}
+
+	/**
+	 * @return true if this result reports that the text of its object
+	 *         couldn't be read
+	 */
+	public boolean isFailure() {
+		return line < 0;
+	}
+
+	/**
+	 * @return the object whose text contains the hit
+	 */
+	public T getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @return the offset of the hit
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the length of the hit
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the index of the line containing the start of the hit
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the text around the hit, within its line
+	 */
+	public String getPreview() {
+		return preview;
+	}
+}
@@ -0,0 +1,42 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface for an observer to register to receive the results of a
+ * {@link ParallelSearch}. The methods are called on the searching threads.
+ *
+ * @author 0036502252
+ *
+ * @param <T>
+ *            the type of the objects whose text is searched
+ */
+public interface SearchResultListener<T> {
+	/**
+	 * Gives notification that results have been found. The results of a
+	 * single object are given in the order of their offsets, but the results
+	 * of different objects may be interleaved.
+	 *
+	 * @param results
+	 *            the found results, all of the same object
+	 */
+	void resultsFound(List<SearchResult<T>> results);
+
+	/**
+	 * Gives notification that the text of an object couldn't be read, so it
+	 * wasn't searched.
+	 *
+	 * @param owner
+	 *            the object
+	 * @param cause
+	 *            the reason why the text couldn't be read
+	 */
+	void searchFailed(T owner, IOException cause);
+
+	/**
+	 * Gives notification that the search has finished. Not called if the
+	 * search was cancelled.
+	 */
+	void searchFinished();
+}
@@ -0,0 +1,8 @@
+/**
+ * 
+ */
+/**
+ * @author 0036502252
+ *
+ */
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
\ No newline at end of file
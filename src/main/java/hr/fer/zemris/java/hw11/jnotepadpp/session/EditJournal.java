@@ -0,0 +1,435 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.session;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+import javax.swing.text.BadLocationException;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.CompressedText;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.DocumentDeltaListener;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.io.TextFiles;
+
+/**
+ * An append-only journal of the edits of a single document, from which the
+ * document can be recovered if the program dies before it is saved. The
+ * journal starts from a base text, which is either the document's file as it
+ * was last loaded or saved, or a snapshot of the text. The edits are
+ * recorded as a {@link DocumentDeltaListener} of the document.
+ * <p>
+ * Recording an edit only appends it to a buffer in memory. The buffered
+ * edits are written to the file by the {@link JournalStore} on its own
+ * thread, as a single frame with a checksum, and forced to the disk
+ * together; a frame which was cut off by a crash is ignored on recovery.
+ * The file is only created once there is something to write.
+ *
+ * @author 0036502252
+ *
+ */
+public class EditJournal implements DocumentDeltaListener {
+	/**
+	 * The value at the start of every journal file.
+	 */
+	private static final int MAGIC = 0x4A4E504A;
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * Flag of a journal whose document has a path.
+	 */
+	private static final int HAS_PATH = 1;
+	/**
+	 * Flag of a journal which starts from a snapshot of the text.
+	 */
+	private static final int HAS_SNAPSHOT = 2;
+	/**
+	 * Type of a record of inserted text.
+	 */
+	private static final int INSERT = 1;
+	/**
+	 * Type of a record of removed text.
+	 */
+	private static final int REMOVE = 2;
+
+	/**
+	 * The name of the journal.
+	 */
+	private final String name;
+	/**
+	 * The journal file.
+	 */
+	private final Path file;
+	/**
+	 * The path of the document, or <code>null</code> if it has none.
+	 */
+	private final Path documentPath;
+	/**
+	 * The text from which the journal starts, or <code>null</code> if it
+	 * starts from the document's file, or from an empty text if the document
+	 * has no path.
+	 */
+	private TextSource snapshot;
+	/**
+	 * The size of the document's file when it was last loaded or saved.
+	 */
+	private final long fileSize;
+	/**
+	 * The modification time in milliseconds of the document's file when it
+	 * was last loaded or saved.
+	 */
+	private final long fileModified;
+	/**
+	 * The records which haven't been written yet.
+	 */
+	private final ByteArrayOutputStream pending;
+	/**
+	 * Writes the records into <code>pending</code>.
+	 */
+	private final DataOutputStream pendingOut;
+	/**
+	 * The channel of the journal file, or <code>null</code> if it hasn't been
+	 * created yet. Only used on the thread of the {@link JournalStore}.
+	 */
+	private FileChannel channel;
+	/**
+	 * Indicates whether the journal has been discarded.
+	 */
+	private boolean discarded;
+
+	/**
+	 * Constructs a new {@link EditJournal}.
+	 *
+	 * @param name
+	 *            the name of the journal
+	 * @param file
+	 *            the journal file
+	 * @param documentPath
+	 *            the path of the document, or <code>null</code> if it has
+	 *            none
+	 * @param snapshot
+	 *            the immutable text from which the journal starts, or
+	 *            <code>null</code> if it starts from the document's file
+	 * @param fileSize
+	 *            the size of the document's file when it was last loaded or
+	 *            saved
+	 * @param fileModified
+	 *            the modification time in milliseconds of the document's
+	 *            file when it was last loaded or saved
+	 */
+	EditJournal(String name, Path file, Path documentPath, TextSource snapshot,
+			long fileSize, long fileModified) {
+		this.name = name;
+		this.file = file;
+		this.documentPath = documentPath;
+		this.snapshot = snapshot;
+		this.fileSize = fileSize;
+		this.fileModified = fileModified;
+		this.pending = new ByteArrayOutputStream();
+		this.pendingOut = new DataOutputStream(pending);
+	}
+
+	/**
+	 * @return the name of the journal, by which a {@link SessionEntry} refers
+	 *         to it
+	 */
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public synchronized void textInserted(PieceTableDocument document,
+			int offset, int length) {
+		if (discarded) {
+			return;
+		}
+		try {
+			String text = document.getText(offset, length);
+			pendingOut.writeByte(INSERT);
+			pendingOut.writeInt(offset);
+			pendingOut.writeInt(length);
+			pendingOut.writeChars(text);
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		} catch (IOException e) {
+			// can't happen, the records are written into memory
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void textRemoving(PieceTableDocument document,
+			int offset, int length) {
+		if (discarded) {
+			return;
+		}
+		try {
+			pendingOut.writeByte(REMOVE);
+			pendingOut.writeInt(offset);
+			pendingOut.writeInt(length);
+		} catch (IOException e) {
+			// can't happen, the records are written into memory
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Marks the journal as discarded. No more records are kept, and the
+	 * {@link JournalStore} deletes the file.
+	 */
+	synchronized void discard() {
+		discarded = true;
+		pending.reset();
+	}
+
+	/**
+	 * Writes the pending records as a single frame, and forces them to the
+	 * disk. Creates the file first if needed. Only called on the thread of
+	 * the {@link JournalStore}.
+	 *
+	 * @throws IOException
+	 *             if the records can not be written; they are written again
+	 *             the next time
+	 */
+	void sync() throws IOException {
+		byte[] frame;
+		synchronized (this) {
+			if (discarded || (pending.size() == 0
+					&& (channel != null || snapshot == null))) {
+				return;
+			}
+			frame = pending.toByteArray();
+			pending.reset();
+		}
+
+		try {
+			if (channel == null) {
+				create();
+			}
+			if (frame.length > 0) {
+				writeFrame(frame);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			synchronized (this) {
+				byte[] newer = pending.toByteArray();
+				pending.reset();
+				pending.write(frame, 0, frame.length);
+				pending.write(newer, 0, newer.length);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates the journal file and writes its header.
+	 *
+	 * @throws IOException
+	 *             if the file can not be written
+	 */
+	private void create() throws IOException {
+		FileChannel created = FileChannel.open(file,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(
+							Channels.newOutputStream(created)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeByte((documentPath != null ? HAS_PATH : 0)
+					| (snapshot != null ? HAS_SNAPSHOT : 0));
+			if (documentPath != null) {
+				out.writeUTF(documentPath.toAbsolutePath().toString());
+			}
+			out.writeLong(fileSize);
+			out.writeLong(fileModified);
+			if (snapshot != null) {
+				CompressedText.compress(snapshot).writeTo(out);
+			}
+			out.flush();
+		} catch (IOException e) {
+			created.close();
+			throw e;
+		}
+		channel = created;
+		snapshot = null;
+	}
+
+	/**
+	 * Appends a frame of records, followed by its checksum.
+	 *
+	 * @param frame
+	 *            the records
+	 * @throws IOException
+	 *             if the frame can not be written
+	 */
+	private void writeFrame(byte[] frame) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(frame, 0, frame.length);
+
+		ByteBuffer buffer = ByteBuffer.allocate(frame.length + 8);
+		buffer.putInt(frame.length).put(frame).putInt((int) crc.getValue());
+		buffer.flip();
+
+		long end = channel.position();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			channel.truncate(end);
+			channel.position(end);
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the journal file and deletes it. Only called on the thread of
+	 * the {@link JournalStore}.
+	 */
+	void delete() {
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+			Files.deleteIfExists(file);
+		} catch (IOException ignorable) {
+			// left behind, and deleted after the next recovery
+		}
+	}
+
+	/**
+	 * Replays a journal file onto its base text. The frames after the first
+	 * one which is cut off or damaged are ignored.
+	 *
+	 * @param file
+	 *            the journal file
+	 * @param mappedThreshold
+	 *            the size in bytes from which the document's file is
+	 *            memory-mapped
+	 * @return the recovered document, or <code>null</code> if the document's
+	 *         file has changed since the journal was started, so the
+	 *         journal doesn't apply to it anymore
+	 * @throws IOException
+	 *             if the journal or the document's file can not be read
+	 */
+	static SessionEntry replay(Path file, long mappedThreshold)
+			throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a journal file: " + file);
+			}
+			int flags = in.readByte();
+			Path path = (flags & HAS_PATH) != 0 ? Paths.get(in.readUTF()) : null;
+			long size = in.readLong();
+			long modified = in.readLong();
+
+			TextSource base;
+			if ((flags & HAS_SNAPSHOT) != 0) {
+				base = CompressedText.readFrom(in).decompress();
+			} else if (path != null) {
+				BasicFileAttributes attributes = Files.readAttributes(path,
+						BasicFileAttributes.class);
+				if (attributes.size() != size || attributes.lastModifiedTime()
+						.toMillis() != modified) {
+					return null;
+				}
+				base = TextFiles.read(path, mappedThreshold);
+			} else {
+				base = new ArrayTextSource(new char[0]);
+			}
+
+			PieceTableDocument document = new PieceTableDocument(base);
+			byte[] frame;
+			while ((frame = readFrame(in)) != null) {
+				applyFrame(document, frame);
+			}
+			return new SessionEntry(path, document.snapshot(), 0, 0, null);
+		} catch (BadLocationException | IllegalArgumentException
+				| IllegalStateException e) {
+			throw new IOException("Damaged journal file: " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the next frame of records.
+	 *
+	 * @param in
+	 *            the input
+	 * @return the records, or <code>null</code> if there are no more intact
+	 *         frames
+	 * @throws IOException
+	 *             if the journal can not be read
+	 */
+	private static byte[] readFrame(DataInputStream in) throws IOException {
+		try {
+			int length = in.readInt();
+			if (length < 0 || length > in.available()) {
+				return null;
+			}
+			byte[] frame = new byte[length];
+			in.readFully(frame);
+			int checksum = in.readInt();
+
+			CRC32 crc = new CRC32();
+			crc.update(frame, 0, length);
+			return (int) crc.getValue() == checksum ? frame : null;
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Applies the records of a frame to the document.
+	 *
+	 * @param document
+	 *            the document
+	 * @param frame
+	 *            the records
+	 * @throws IOException
+	 *             if the records are damaged
+	 * @throws BadLocationException
+	 *             if the records don't apply to the document
+	 */
+	private static void applyFrame(PieceTableDocument document, byte[] frame)
+			throws IOException, BadLocationException {
+		DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(frame));
+		while (in.available() > 0) {
+			int type = in.readByte();
+			int offset = in.readInt();
+			int length = in.readInt();
+			if (type == INSERT) {
+				char[] chars = new char[length];
+				for (int i = 0; i < length; i++) {
+					chars[i] = in.readChar();
+				}
+				document.insertString(offset, new String(chars), null);
+			} else if (type == REMOVE) {
+				document.remove(offset, length);
+			} else {
+				throw new IOException("Unknown journal record: " + type);
+			}
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.session;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Keeps the {@link EditJournal}s of the open documents in a directory, and
+ * writes them on a background thread. The edits recorded by all journals
+ * during a sync interval are written and forced to the disk together, so
+ * editing never waits for the disk, and the disk is forced at most once per
+ * journal and interval however fast the user types.
+ *
+ * @author 0036502252
+ *
+ */
+public class JournalStore {
+	/**
+	 * The extension of journal files.
+	 */
+	private static final String EXTENSION = ".jnl";
+
+	/**
+	 * The directory in which the journals are kept.
+	 */
+	private final Path directory;
+	/**
+	 * The size in bytes from which the files of recovered documents are
+	 * memory-mapped.
+	 */
+	private final long mappedThreshold;
+	/**
+	 * The thread on which the journals are written.
+	 */
+	private final ScheduledExecutorService executor;
+	/**
+	 * The journals which haven't been discarded.
+	 */
+	private final Set<EditJournal> journals;
+	/**
+	 * The journal files left behind by a previous run, which were recovered.
+	 */
+	private final List<Path> recovered;
+
+	/**
+	 * Constructs a new {@link JournalStore}.
+	 *
+	 * @param directory
+	 *            the directory in which the journals are kept
+	 * @param syncInterval
+	 *            the interval in milliseconds at which the journals are
+	 *            written and forced to the disk
+	 * @param mappedThreshold
+	 *            the size in bytes from which the files of recovered
+	 *            documents are memory-mapped
+	 */
+	public JournalStore(Path directory, long syncInterval,
+			long mappedThreshold) {
+		this.directory = directory;
+		this.mappedThreshold = mappedThreshold;
+		this.journals = ConcurrentHashMap.newKeySet();
+		this.recovered = new ArrayList<>();
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "jnotepadpp-journal");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::syncAll, syncInterval,
+				syncInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the default journal directory, <code>.jnotepadpp/journal</code>
+	 *         in the user's home directory
+	 */
+	public static Path defaultDirectory() {
+		return Paths.get(System.getProperty("user.home"), ".jnotepadpp",
+				"journal");
+	}
+
+	/**
+	 * Starts a new journal of a document.
+	 *
+	 * @param documentPath
+	 *            the path of the document, or <code>null</code> if it has
+	 *            none
+	 * @param snapshot
+	 *            the immutable text from which the journal starts, or
+	 *            <code>null</code> if it starts from the document's file as
+	 *            it was last loaded or saved, or from an empty text if the
+	 *            document has no path
+	 * @param fileSize
+	 *            the size of the document's file when it was last loaded or
+	 *            saved
+	 * @param fileModified
+	 *            the modification time in milliseconds of the document's
+	 *            file when it was last loaded or saved
+	 * @return the journal, which still has to be registered as a listener of
+	 *         the document
+	 */
+	public EditJournal open(Path documentPath, TextSource snapshot,
+			long fileSize, long fileModified) {
+		String name = UUID.randomUUID().toString();
+		EditJournal journal = new EditJournal(name,
+				directory.resolve(name + EXTENSION), documentPath, snapshot,
+				fileSize, fileModified);
+		journals.add(journal);
+		return journal;
+	}
+
+	/**
+	 * Discards a journal once its document has been saved or closed, and
+	 * deletes its file.
+	 *
+	 * @param journal
+	 *            the journal
+	 */
+	public void discard(EditJournal journal) {
+		journal.discard();
+		journals.remove(journal);
+		executor.execute(journal::delete);
+	}
+
+	/**
+	 * Discards all journals, and waits until their files are deleted. Called
+	 * when the program exits normally.
+	 */
+	public void discardAll() {
+		for (EditJournal journal : journals) {
+			discard(journal);
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Recovers the documents from the journals left behind by a previous run
+	 * which didn't exit normally. Journals which are damaged, or whose
+	 * documents' files have changed since, are skipped. The recovered files
+	 * are deleted by {@link #deleteRecovered()}.
+	 *
+	 * @return the recovered documents by the names of their journals
+	 */
+	public Map<String, SessionEntry> recover() {
+		Map<String, SessionEntry> documents = new LinkedHashMap<>();
+		if (!Files.isDirectory(directory)) {
+			return documents;
+		}
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(
+				directory, "*" + EXTENSION)) {
+			for (Path file : files) {
+				recovered.add(file);
+				String name = file.getFileName().toString();
+				try {
+					SessionEntry document = EditJournal.replay(file,
+							mappedThreshold);
+					if (document != null) {
+						documents.put(name.substring(0,
+								name.length() - EXTENSION.length()), document);
+					}
+				} catch (IOException ignorable) {
+					// a damaged journal is skipped
+				}
+			}
+		} catch (IOException ignorable) {
+			// the journals read so far are recovered
+		}
+		return documents;
+	}
+
+	/**
+	 * Deletes the recovered journal files, once the recovered documents have
+	 * new journals. The files are deleted after the new journals are written.
+	 */
+	public void deleteRecovered() {
+		List<Path> files = new ArrayList<>(recovered);
+		recovered.clear();
+		executor.execute(() -> {
+			syncAll();
+			for (Path file : files) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException ignorable) {
+					// recovered again next time
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes the pending edits of all journals. Only called on the journal
+	 * thread.
+	 */
+	private void syncAll() {
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			return;
+		}
+		for (EditJournal journal : journals) {
+			try {
+				journal.sync();
+			} catch (IOException ignorable) {
+				// written again at the next interval
+			}
+		}
+	}
+}
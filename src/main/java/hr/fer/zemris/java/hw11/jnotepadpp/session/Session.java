@@ -0,0 +1,50 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.session;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The documents which were open in the program, in the order of their tabs,
+ * together with the one which was selected.
+ *
+ * @author 0036502252
+ *
+ */
+public class Session {
+	/**
+	 * The documents.
+	 */
+	private final List<SessionEntry> entries;
+	/**
+	 * The index of the selected document, or -1 if none was selected.
+	 */
+	private final int selectedIndex;
+
+	/**
+	 * Constructs a new {@link Session}.
+	 *
+	 * @param entries
+	 *            the documents, in the order of their tabs
+	 * @param selectedIndex
+	 *            the index of the selected document, or -1 if none was
+	 *            selected
+	 */
+	public Session(List<SessionEntry> entries, int selectedIndex) {
+		this.entries = Collections.unmodifiableList(entries);
+		this.selectedIndex = selectedIndex;
+	}
+
+	/**
+	 * @return the documents, in the order of their tabs
+	 */
+	public List<SessionEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the index of the selected document, or -1 if none was selected
+	 */
+	public int getSelectedIndex() {
+		return selectedIndex;
+	}
+}
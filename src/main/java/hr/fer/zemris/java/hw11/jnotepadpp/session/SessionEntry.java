@@ -0,0 +1,107 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.session;
+
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * A single document of a {@link Session}: its path, its unsaved text, and
+ * the part of it the user was looking at.
+ *
+ * @author 0036502252
+ *
+ */
+public class SessionEntry {
+	/**
+	 * The path of the document, or <code>null</code> if it was never saved.
+	 */
+	private final Path path;
+	/**
+	 * The unsaved text of the document, or <code>null</code> if the text is
+	 * read from the file.
+	 */
+	private final TextSource text;
+	/**
+	 * The position of the caret.
+	 */
+	private final int caretPosition;
+	/**
+	 * The index of the first visible line.
+	 */
+	private final int topLine;
+	/**
+	 * The name of the document's {@link EditJournal}, or <code>null</code>
+	 * if it has none.
+	 */
+	private final String journal;
+
+	/**
+	 * Constructs a new {@link SessionEntry}.
+	 *
+	 * @param path
+	 *            the path of the document, or <code>null</code> if it was
+	 *            never saved
+	 * @param text
+	 *            the immutable unsaved text of the document, or
+	 *            <code>null</code> if the text is read from the file
+	 * @param caretPosition
+	 *            the position of the caret
+	 * @param topLine
+	 *            the index of the first visible line
+	 * @param journal
+	 *            the name of the document's {@link EditJournal}, or
+	 *            <code>null</code> if it has none
+	 * @throws IllegalArgumentException
+	 *             if there is neither a path nor a text
+	 */
+	public SessionEntry(Path path, TextSource text, int caretPosition,
+			int topLine, String journal) {
+		if (path == null && text == null) {
+			throw new IllegalArgumentException(
+					"Entry must have a path or a text.");
+		}
+		this.path = path;
+		this.text = text;
+		this.caretPosition = caretPosition;
+		this.topLine = topLine;
+		this.journal = journal;
+	}
+
+	/**
+	 * @return the path of the document, or <code>null</code> if it was never
+	 *         saved
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the unsaved text of the document, or <code>null</code> if the
+	 *         text is read from the file
+	 */
+	public TextSource getText() {
+		return text;
+	}
+
+	/**
+	 * @return the position of the caret
+	 */
+	public int getCaretPosition() {
+		return caretPosition;
+	}
+
+	/**
+	 * @return the index of the first visible line
+	 */
+	public int getTopLine() {
+		return topLine;
+	}
+
+	/**
+	 * @return the name of the document's {@link EditJournal}, or
+	 *         <code>null</code> if it has none
+	 */
+	public String getJournal() {
+		return journal;
+	}
+}
@@ -0,0 +1,294 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.session;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.CompressedText;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Keeps a {@link Session} in a compact binary file. Paths, caret positions
+ * and the first visible lines are written as they are, and unsaved texts are
+ * compressed. The file is written next to its old version and then moved
+ * over it, so a program which is killed while writing never leaves a damaged
+ * session behind.
+ * <p>
+ * Sessions can be written on the calling thread, or on a background thread
+ * with {@link #writeLater(Session)}. A session is never replaced by one which
+ * was submitted before it.
+ *
+ * @author 0036502252
+ *
+ */
+public class SessionStore {
+	/**
+	 * The value at the start of every session file.
+	 */
+	private static final int MAGIC = 0x4A4E5053;
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 2;
+	/**
+	 * Flag of an entry which has a path.
+	 */
+	private static final int HAS_PATH = 1;
+	/**
+	 * Flag of an entry which has an unsaved text.
+	 */
+	private static final int HAS_TEXT = 2;
+
+	/**
+	 * The file in which the session is kept.
+	 */
+	private final Path file;
+	/**
+	 * The thread on which sessions are written in the background.
+	 */
+	private final ExecutorService executor;
+	/**
+	 * The newest session waiting to be written in the background, together
+	 * with its number, or <code>null</code> if there is none.
+	 */
+	private final AtomicReference<Submitted> pending;
+	/**
+	 * The number given to the next submitted session.
+	 */
+	private long nextNumber;
+	/**
+	 * The number of the last written session.
+	 */
+	private long writtenNumber;
+
+	/**
+	 * Constructs a new {@link SessionStore}.
+	 *
+	 * @param file
+	 *            the file in which the session is kept
+	 */
+	public SessionStore(Path file) {
+		this.file = file;
+		this.pending = new AtomicReference<>();
+		this.writtenNumber = -1;
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "jnotepadpp-session");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return the default session file, <code>.jnotepadpp/session.bin</code>
+	 *         in the user's home directory
+	 */
+	public static Path defaultFile() {
+		return Paths.get(System.getProperty("user.home"), ".jnotepadpp",
+				"session.bin");
+	}
+
+	/**
+	 * Reads the stored session.
+	 *
+	 * @return the session, without documents if none was stored
+	 * @throws IOException
+	 *             if the session can not be read, or is damaged
+	 */
+	public Session read() throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			int magic = in.readInt();
+			int version = in.readInt();
+			if (magic != MAGIC || version < 1 || version > VERSION) {
+				throw new IOException("Not a session file: " + file);
+			}
+			int count = in.readInt();
+			int selectedIndex = in.readInt();
+			List<SessionEntry> entries = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				entries.add(readEntry(in, version));
+			}
+			return new Session(entries, selectedIndex);
+		} catch (NoSuchFileException e) {
+			return new Session(Collections.emptyList(), -1);
+		} catch (IllegalArgumentException | IllegalStateException
+				| UncheckedIOException e) {
+			throw new IOException("Damaged session file: " + file, e);
+		}
+	}
+
+	/**
+	 * Reads a single entry.
+	 *
+	 * @param in
+	 *            the input
+	 * @param version
+	 *            the version of the file format; entries of version 1 have
+	 *            no journals
+	 * @return the entry
+	 * @throws IOException
+	 *             if the entry can not be read
+	 */
+	private static SessionEntry readEntry(DataInputStream in, int version)
+			throws IOException {
+		int flags = in.readByte();
+		Path path = (flags & HAS_PATH) != 0 ? Paths.get(in.readUTF()) : null;
+		int caretPosition = in.readInt();
+		int topLine = in.readInt();
+		String journal = version >= 2 ? in.readUTF() : "";
+		TextSource text = (flags & HAS_TEXT) != 0
+				? CompressedText.readFrom(in).decompress()
+				: null;
+		return new SessionEntry(path, text, caretPosition, topLine,
+				journal.isEmpty() ? null : journal);
+	}
+
+	/**
+	 * Writes the given session in the background. If another session is
+	 * submitted before this one is written, only the newer one is written.
+	 *
+	 * @param session
+	 *            the session
+	 */
+	public void writeLater(Session session) {
+		Submitted submitted = new Submitted(session, number());
+		if (pending.getAndSet(submitted) == null) {
+			executor.execute(() -> {
+				Submitted newest = pending.getAndSet(null);
+				try {
+					write(newest);
+				} catch (IOException ignorable) {
+					// the next session is written again
+				}
+			});
+		}
+	}
+
+	/**
+	 * Writes the given session on the calling thread, e.g. when the program
+	 * is about to exit.
+	 *
+	 * @param session
+	 *            the session
+	 * @throws IOException
+	 *             if the session can not be written
+	 */
+	public void write(Session session) throws IOException {
+		write(new Submitted(session, number()));
+	}
+
+	/**
+	 * @return the number of a newly submitted session
+	 */
+	private synchronized long number() {
+		return nextNumber++;
+	}
+
+	/**
+	 * Writes the submitted session, unless a newer one has already been
+	 * written.
+	 *
+	 * @param submitted
+	 *            the submitted session
+	 * @throws IOException
+	 *             if the session can not be written
+	 */
+	private synchronized void write(Submitted submitted) throws IOException {
+		if (submitted.number < writtenNumber) {
+			return;
+		}
+
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		List<SessionEntry> entries = submitted.session.getEntries();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+			out.writeInt(submitted.session.getSelectedIndex());
+			for (SessionEntry entry : entries) {
+				writeEntry(out, entry);
+			}
+		}
+
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		writtenNumber = submitted.number;
+	}
+
+	/**
+	 * Writes a single entry.
+	 *
+	 * @param out
+	 *            the output
+	 * @param entry
+	 *            the entry
+	 * @throws IOException
+	 *             if the entry can not be written
+	 */
+	private static void writeEntry(DataOutputStream out, SessionEntry entry)
+			throws IOException {
+		int flags = (entry.getPath() != null ? HAS_PATH : 0)
+				| (entry.getText() != null ? HAS_TEXT : 0);
+		out.writeByte(flags);
+		if (entry.getPath() != null) {
+			out.writeUTF(entry.getPath().toAbsolutePath().toString());
+		}
+		out.writeInt(entry.getCaretPosition());
+		out.writeInt(entry.getTopLine());
+		out.writeUTF(entry.getJournal() == null ? "" : entry.getJournal());
+		if (entry.getText() != null) {
+			CompressedText.compress(entry.getText()).writeTo(out);
+		}
+	}
+
+	/**
+	 * A session submitted for writing, numbered in the order of submission.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class Submitted {
+		/**
+		 * The session.
+		 */
+		private final Session session;
+		/**
+		 * The number of the session.
+		 */
+		private final long number;
+
+		/**
+		 * Constructs a new {@link Submitted}.
+		 *
+		 * @param session
+		 *            the session
+		 * @param number
+		 *            the number of the session
+		 */
+		Submitted(Session session, long number) {
+			this.session = session;
+			this.number = number;
+		}
+	}
+}
@@ -0,0 +1,467 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextEdit;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Changes the case of a range of text. The text is read in chunks of about
+ * {@value #DEFAULT_CHUNK_CHARS} characters into reused buffers, and the
+ * result is a list of {@link TextEdit}s which covers only the characters
+ * which actually changed. Chunks of plain ASCII text are converted directly
+ * in the buffers, and all other chunks with the case rules of the given
+ * locale, so supplementary characters and rules such as the Turkish dotless i
+ * or the final sigma are respected.
+ * <p>
+ * The rules which depend on the neighbouring characters only look within a
+ * word, so a chunk only ends after a character which ends a word, see
+ * {@link #endsWord(char)}, preferably after a whitespace character. A chunk
+ * without such a character is grown until it has one. The result is
+ * therefore the same as that of {@link String#toLowerCase(Locale)} or
+ * {@link String#toUpperCase(Locale)} of the whole range.
+ * <p>
+ * Ranges longer than {@value #DEFAULT_PARALLEL_THRESHOLD} characters are
+ * split into parts which are converted in parallel.
+ *
+ * @author 0036502252
+ *
+ */
+public class CaseTransformer {
+	/**
+	 * The possible changes of case.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	public enum Mode {
+		/**
+		 * Turns all letters into lowercase letters.
+		 */
+		LOWER,
+		/**
+		 * Turns all letters into uppercase letters.
+		 */
+		UPPER,
+		/**
+		 * Turns lowercase letters into uppercase letters, and all other
+		 * letters into lowercase letters.
+		 */
+		INVERT
+	}
+
+	/**
+	 * The default number of characters in a single chunk.
+	 */
+	private static final int DEFAULT_CHUNK_CHARS = 16 * 1024;
+	/**
+	 * The default length of the range from which it is converted in
+	 * parallel.
+	 */
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 4 * 1024 * 1024;
+
+	/**
+	 * The change of case.
+	 */
+	private final Mode mode;
+	/**
+	 * The locale whose case rules are used.
+	 */
+	private final Locale locale;
+	/**
+	 * Indicates whether the ASCII letters follow the usual case rules in the
+	 * locale.
+	 */
+	private final boolean asciiRules;
+	/**
+	 * The number of characters in a single chunk.
+	 */
+	private final int chunkChars;
+	/**
+	 * The length of the range from which it is converted in parallel.
+	 */
+	private final int parallelThreshold;
+
+	/**
+	 * Constructs a new {@link CaseTransformer} with the default chunk size.
+	 *
+	 * @param mode
+	 *            the change of case
+	 * @param locale
+	 *            the locale whose case rules are used
+	 */
+	public CaseTransformer(Mode mode, Locale locale) {
+		this(mode, locale, DEFAULT_CHUNK_CHARS, DEFAULT_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Constructs a new {@link CaseTransformer}.
+	 *
+	 * @param mode
+	 *            the change of case
+	 * @param locale
+	 *            the locale whose case rules are used
+	 * @param chunkChars
+	 *            the number of characters in a single chunk
+	 * @param parallelThreshold
+	 *            the length of the range from which it is converted in
+	 *            parallel
+	 */
+	public CaseTransformer(Mode mode, Locale locale, int chunkChars,
+			int parallelThreshold) {
+		if (chunkChars < 1) {
+			throw new IllegalArgumentException(
+					"Chunks must have at least one character.");
+		}
+		this.mode = mode;
+		this.locale = locale;
+		this.chunkChars = chunkChars;
+		this.parallelThreshold = parallelThreshold;
+
+		String language = locale.getLanguage();
+		this.asciiRules = !"tr".equals(language) && !"az".equals(language);
+	}
+
+	/**
+	 * Changes the case of a range of the given source.
+	 *
+	 * @param source
+	 *            the source, which must not change during the conversion
+	 * @param start
+	 *            the start of the range
+	 * @param end
+	 *            the end of the range
+	 * @return the edits which change the case of the range, ordered by their
+	 *         offsets
+	 */
+	public List<TextEdit> transform(TextSource source, int start, int end) {
+		if (end - start < parallelThreshold) {
+			List<TextEdit> edits = new ArrayList<>();
+			transform(source, start, end, edits);
+			return edits;
+		}
+
+		int parts = ForkJoinPool.getCommonPoolParallelism() * 4;
+		int[] bounds = new int[parts + 1];
+		bounds[0] = start;
+		for (int i = 1; i < parts; i++) {
+			int proposed = (int) (start + (long) (end - start) * i / parts);
+			bounds[i] = Math.max(bounds[i - 1], boundary(source,
+					proposed, end));
+		}
+		bounds[parts] = end;
+
+		List<List<TextEdit>> results = new ArrayList<>(parts);
+		for (int i = 0; i < parts; i++) {
+			results.add(new ArrayList<>());
+		}
+		IntStream.range(0, parts).parallel().forEach(part -> transform(source,
+				bounds[part], bounds[part + 1], results.get(part)));
+
+		List<TextEdit> edits = new ArrayList<>();
+		for (List<TextEdit> result : results) {
+			edits.addAll(result);
+		}
+		return edits;
+	}
+
+	/**
+	 * Changes the case of a range of the given source, chunk by chunk.
+	 *
+	 * @param source
+	 *            the source
+	 * @param start
+	 *            the start of the range
+	 * @param end
+	 *            the end of the range
+	 * @param edits
+	 *            receives the edits
+	 */
+	private void transform(TextSource source, int start, int end,
+			List<TextEdit> edits) {
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		char[] chunk = new char[chunkChars];
+		char[] converted = new char[chunkChars];
+
+		int position = start;
+		while (position < end) {
+			int length = Math.min(chunk.length, end - position);
+			read(source, position, length, chunk, 0, segment);
+			int cut = position + length < end ? cut(chunk, length) : length;
+			while (cut == 0) {
+				// no word ends in the chunk, so it is grown
+				int grown = (int) Math.min(2L * chunk.length, end - position);
+				chunk = Arrays.copyOf(chunk, grown);
+				converted = new char[grown];
+				read(source, position + length, grown - length, chunk, length,
+						segment);
+				length = grown;
+				cut = position + length < end ? cut(chunk, length) : length;
+			}
+
+			if (!convertAscii(chunk, cut, converted, position, edits)) {
+				convert(new String(chunk, 0, cut), position, edits);
+			}
+			position += cut;
+		}
+	}
+
+	/**
+	 * Converts a chunk directly, if it is plain ASCII text and the locale uses
+	 * the usual case rules for it.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @param length
+	 *            the length of the chunk
+	 * @param converted
+	 *            the buffer for the converted chunk
+	 * @param offset
+	 *            the offset of the chunk in the source
+	 * @param edits
+	 *            receives the edit of the chunk, if it changed
+	 * @return true if the chunk was converted, false if it has to be converted
+	 *         with the case rules of the locale
+	 */
+	private boolean convertAscii(char[] chunk, int length, char[] converted,
+			int offset, List<TextEdit> edits) {
+		if (!asciiRules) {
+			return false;
+		}
+
+		int first = -1;
+		int last = -1;
+		for (int i = 0; i < length; i++) {
+			char c = chunk[i];
+			if (c >= 0x80) {
+				return false;
+			}
+
+			char result = c;
+			if (c >= 'a' && c <= 'z' && mode != Mode.LOWER) {
+				result = (char) (c - 'a' + 'A');
+			} else if (c >= 'A' && c <= 'Z' && mode != Mode.UPPER) {
+				result = (char) (c - 'A' + 'a');
+			}
+
+			converted[i] = result;
+			if (result != c) {
+				if (first < 0) {
+					first = i;
+				}
+				last = i;
+			}
+		}
+
+		if (first >= 0) {
+			edits.add(new TextEdit(offset + first, last - first + 1,
+					new String(converted, first, last - first + 1)));
+		}
+		return true;
+	}
+
+	/**
+	 * Converts a chunk with the case rules of the locale.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @param offset
+	 *            the offset of the chunk in the source
+	 * @param edits
+	 *            receives the edit of the chunk, if it changed
+	 */
+	private void convert(String chunk, int offset, List<TextEdit> edits) {
+		String converted;
+		switch (mode) {
+		case LOWER:
+			converted = chunk.toLowerCase(locale);
+			break;
+		case UPPER:
+			converted = chunk.toUpperCase(locale);
+			break;
+		default:
+			converted = invert(chunk);
+		}
+
+		if (converted.equals(chunk)) {
+			return;
+		}
+
+		// only the changed part of the chunk is replaced
+		int common = Math.min(chunk.length(), converted.length());
+		int prefix = 0;
+		while (prefix < common && chunk.charAt(prefix) == converted
+				.charAt(prefix)) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < common - prefix
+				&& chunk.charAt(chunk.length() - 1 - suffix) == converted
+						.charAt(converted.length() - 1 - suffix)) {
+			suffix++;
+		}
+
+		edits.add(new TextEdit(offset + prefix,
+				chunk.length() - prefix - suffix, converted.substring(prefix,
+						converted.length() - suffix)));
+	}
+
+	/**
+	 * Inverts the case of a text. The text is split into runs of lowercase
+	 * and other code points, and every run is converted as a whole, so the
+	 * case rules of the locale can look at the neighbouring characters.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the inverted text
+	 */
+	private String invert(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		int runStart = 0;
+		boolean runLower = false;
+
+		for (int i = 0, n = text.length(); i < n;) {
+			int codePoint = text.codePointAt(i);
+			boolean lower = Character.isLowerCase(codePoint);
+			if (i > 0 && lower != runLower) {
+				appendInverted(sb, text.substring(runStart, i), runLower);
+				runStart = i;
+			}
+			runLower = lower;
+			i += Character.charCount(codePoint);
+		}
+		appendInverted(sb, text.substring(runStart), runLower);
+
+		return sb.toString();
+	}
+
+	/**
+	 * Appends an inverted run of code points.
+	 *
+	 * @param sb
+	 *            the builder the run is appended to
+	 * @param run
+	 *            the run
+	 * @param lower
+	 *            true if the run consists of lowercase code points
+	 */
+	private void appendInverted(StringBuilder sb, String run, boolean lower) {
+		sb.append(lower ? run.toUpperCase(locale) : run.toLowerCase(locale));
+	}
+
+	/**
+	 * Reads a range of the source into a buffer.
+	 *
+	 * @param source
+	 *            the source
+	 * @param offset
+	 *            the start of the range
+	 * @param length
+	 *            the length of the range
+	 * @param buffer
+	 *            the buffer
+	 * @param bufferOffset
+	 *            the position in the buffer at which the range is stored
+	 * @param segment
+	 *            segment used for reading the source
+	 */
+	private static void read(TextSource source, int offset, int length,
+			char[] buffer, int bufferOffset, Segment segment) {
+		try {
+			int read = 0;
+			while (read < length) {
+				source.getChars(offset + read, length - read, segment);
+				System.arraycopy(segment.array, segment.offset, buffer,
+						bufferOffset + read, segment.count);
+				read += segment.count;
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Shortens a chunk so that it ends after a character which ends a word,
+	 * preferably after a whitespace character in its second half.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @param length
+	 *            the length of the chunk
+	 * @return the new length of the chunk, or zero if no word ends in it
+	 */
+	private static int cut(char[] chunk, int length) {
+		for (int i = length - 1; i >= length / 2; i--) {
+			if (Character.isWhitespace(chunk[i])) {
+				return i + 1;
+			}
+		}
+		for (int i = length - 1; i >= 0; i--) {
+			if (endsWord(chunk[i])) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Finds a good place for splitting the source near the given offset:
+	 * right after the first character which ends a word.
+	 *
+	 * @param source
+	 *            the source
+	 * @param offset
+	 *            the offset from which the search starts
+	 * @param end
+	 *            the end of the searched range
+	 * @return the found offset, or the end of the range if no word ends in it
+	 */
+	private static int boundary(TextSource source, int offset, int end) {
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		try {
+			int position = offset;
+			while (position < end) {
+				source.getChars(position, end - position, segment);
+				for (int i = 0; i < segment.count; i++) {
+					if (endsWord(segment.array[segment.offset + i])) {
+						return position + i + 1;
+					}
+				}
+				position += segment.count;
+			}
+			return end;
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Checks whether a character ends a word, so that no case rule looks
+	 * past it: a whitespace character, or a printable ASCII character which
+	 * is neither a letter or a digit nor can be a part of a word, like the
+	 * apostrophe in <i>don't</i>, the hyphen or the underscore. The final
+	 * sigma rule finds words with a {@link java.text.BreakIterator}, which
+	 * also keeps the quotation mark and the period within a word.
+	 *
+	 * @param c
+	 *            the character
+	 * @return true if the character ends a word
+	 */
+	private static boolean endsWord(char c) {
+		if (Character.isWhitespace(c)) {
+			return true;
+		}
+		return c < 0x7F && !Character.isLetterOrDigit(c)
+				&& "\"'-._".indexOf(c) < 0;
+	}
+}
@@ -0,0 +1,382 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import javax.swing.text.BadLocationException;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.LineReader;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Sorts lines of text which don't fit into the heap. The lines are read in
+ * runs of about <code>runChars</code> characters, each run is sorted by a
+ * {@link LineSorter} and spilled to a temporary file, and the runs are then
+ * merged. At most {@value #MAX_FAN_IN} runs are merged at once, so larger
+ * inputs are merged in several passes. The sort is stable, and uses the
+ * collation rules of the given locale.
+ * <p>
+ * The sorted lines are written to a {@link Writer}, each followed by a
+ * newline, so they can go to a file or back into a document.
+ *
+ * @author 0036502252
+ *
+ */
+public class ExternalLineSorter {
+	/**
+	 * The default number of characters in a single run.
+	 */
+	public static final int DEFAULT_RUN_CHARS = 4 * 1024 * 1024;
+	/**
+	 * The maximum number of runs merged at once.
+	 */
+	private static final int MAX_FAN_IN = 64;
+	/**
+	 * The size of the buffers used for the run files.
+	 */
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	/**
+	 * Sorts the lines of a single run.
+	 */
+	private final LineSorter sorter;
+	/**
+	 * The number of characters in a single run.
+	 */
+	private final int runChars;
+
+	/**
+	 * Constructs a new {@link ExternalLineSorter} with the default run size.
+	 *
+	 * @param locale
+	 *            the locale whose collation rules are used
+	 */
+	public ExternalLineSorter(Locale locale) {
+		this(locale, DEFAULT_RUN_CHARS);
+	}
+
+	/**
+	 * Constructs a new {@link ExternalLineSorter}.
+	 *
+	 * @param locale
+	 *            the locale whose collation rules are used
+	 * @param runChars
+	 *            the number of characters in a single run
+	 */
+	public ExternalLineSorter(Locale locale, int runChars) {
+		this.sorter = new LineSorter(locale);
+		this.runChars = runChars;
+	}
+
+	/**
+	 * Sorts the lines of a range of the given source.
+	 *
+	 * @param source
+	 *            the source, which must not change during the sort
+	 * @param start
+	 *            the start of the sorted range
+	 * @param end
+	 *            the end of the sorted range
+	 * @param descending
+	 *            true if the lines should be sorted in descending order
+	 * @param out
+	 *            receives the sorted lines, each followed by a newline
+	 * @throws IOException
+	 *             if the runs can't be spilled, or the output can't be
+	 *             written
+	 */
+	public void sort(TextSource source, int start, int end,
+			boolean descending, Writer out) throws IOException {
+		List<Path> runs = new ArrayList<>();
+		try {
+			LineReader reader = new LineReader(source, start, end);
+			List<String> run = new ArrayList<>();
+			long chars = 0;
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				run.add(line);
+				chars += line.length() + 1;
+				if (chars >= runChars) {
+					runs.add(spill(sorter.sort(run, descending)));
+					run.clear();
+					chars = 0;
+				}
+			}
+
+			if (runs.isEmpty()) {
+				// everything fit into a single run
+				for (String sorted : sorter.sort(run, descending)) {
+					out.write(sorted);
+					out.write('\n');
+				}
+				return;
+			}
+			if (!run.isEmpty()) {
+				runs.add(spill(sorter.sort(run, descending)));
+			}
+			run = null;
+
+			while (runs.size() > MAX_FAN_IN) {
+				runs = mergePass(runs, descending);
+			}
+			merge(runs, descending, sorted -> {
+				out.write(sorted);
+				out.write('\n');
+			});
+
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		} finally {
+			for (Path path : runs) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * Merges groups of consecutive runs into bigger runs.
+	 *
+	 * @param runs
+	 *            the runs, which are deleted once merged
+	 * @param descending
+	 *            true if the runs are sorted in descending order
+	 * @return the merged runs
+	 * @throws IOException
+	 *             if the runs can't be read or written
+	 */
+	private List<Path> mergePass(List<Path> runs, boolean descending)
+			throws IOException {
+		List<Path> merged = new ArrayList<>();
+		try {
+			for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+				List<Path> group = runs.subList(i,
+						Math.min(runs.size(), i + MAX_FAN_IN));
+				Path target = Files.createTempFile("jnotepadpp-sort", ".run");
+				merged.add(target);
+
+				try (DataOutputStream out = openRun(target)) {
+					merge(group, descending, line -> writeLine(out, line));
+				}
+				for (Path path : group) {
+					Files.deleteIfExists(path);
+				}
+			}
+			return merged;
+		} catch (IOException e) {
+			for (Path path : merged) {
+				Files.deleteIfExists(path);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Merges the given sorted runs. Equal lines are taken from the earlier
+	 * run first, which keeps the sort stable.
+	 *
+	 * @param runs
+	 *            the runs, in the order of the input
+	 * @param descending
+	 *            true if the runs are sorted in descending order
+	 * @param out
+	 *            receives the merged lines
+	 * @throws IOException
+	 *             if the runs can't be read, or the output can't be written
+	 */
+	private void merge(List<Path> runs, boolean descending, LineOutput out)
+			throws IOException {
+		Collator collator = sorter.newCollator();
+		int sign = descending ? -1 : 1;
+		PriorityQueue<RunHead> queue = new PriorityQueue<>(runs.size(),
+				(a, b) -> {
+					int result = sign * a.key.compareTo(b.key);
+					return result != 0 ? result : Integer.compare(a.run, b.run);
+				});
+
+		List<DataInputStream> inputs = new ArrayList<>();
+		try {
+			for (int i = 0; i < runs.size(); i++) {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(
+						Files.newInputStream(runs.get(i)), BUFFER_BYTES));
+				inputs.add(in);
+				advance(queue, new RunHead(i, in), collator);
+			}
+
+			while (!queue.isEmpty()) {
+				RunHead head = queue.poll();
+				out.write(head.key.getSourceString());
+				advance(queue, head, collator);
+			}
+		} finally {
+			for (DataInputStream in : inputs) {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads the next line of a run, and puts the run back into the queue if
+	 * it has one.
+	 *
+	 * @param queue
+	 *            the queue of runs
+	 * @param head
+	 *            the run
+	 * @param collator
+	 *            the collator used for computing the key of the line
+	 * @throws IOException
+	 *             if the run can't be read
+	 */
+	private static void advance(PriorityQueue<RunHead> queue, RunHead head,
+			Collator collator) throws IOException {
+		String line = readLine(head.in);
+		if (line != null) {
+			head.key = collator.getCollationKey(line);
+			queue.add(head);
+		}
+	}
+
+	/**
+	 * Writes the given sorted lines into a new temporary run file.
+	 *
+	 * @param lines
+	 *            the sorted lines
+	 * @return the path of the run file
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	private static Path spill(List<String> lines) throws IOException {
+		Path path = Files.createTempFile("jnotepadpp-sort", ".run");
+		try (DataOutputStream out = openRun(path)) {
+			for (String line : lines) {
+				writeLine(out, line);
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(path);
+			throw e;
+		}
+		return path;
+	}
+
+	/**
+	 * @param path
+	 *            the path of a run file
+	 * @return a buffered stream writing into the run file
+	 * @throws IOException
+	 *             if the file can't be opened
+	 */
+	private static DataOutputStream openRun(Path path) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(path), BUFFER_BYTES));
+	}
+
+	/**
+	 * Writes a line into a run file. The characters are written as they are,
+	 * so even unpaired surrogates survive.
+	 *
+	 * @param out
+	 *            the run file
+	 * @param line
+	 *            the line
+	 * @throws IOException
+	 *             if the line can't be written
+	 */
+	private static void writeLine(DataOutputStream out, String line)
+			throws IOException {
+		out.writeInt(line.length());
+		out.writeChars(line);
+	}
+
+	/**
+	 * Reads a line from a run file.
+	 *
+	 * @param in
+	 *            the run file
+	 * @return the line, or <code>null</code> if the run has no more lines
+	 * @throws IOException
+	 *             if the line can't be read
+	 */
+	private static String readLine(DataInputStream in) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length * 2];
+		in.readFully(bytes);
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) ((bytes[2 * i] & 0xFF) << 8
+					| bytes[2 * i + 1] & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Receives the merged lines.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private interface LineOutput {
+		/**
+		 * Receives a single line.
+		 *
+		 * @param line
+		 *            the line
+		 * @throws IOException
+		 *             if the line can't be written
+		 */
+		void write(String line) throws IOException;
+	}
+
+	/**
+	 * A run being merged, together with its current line.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static final class RunHead {
+		/**
+		 * The index of the run.
+		 */
+		final int run;
+		/**
+		 * The stream the run is read from.
+		 */
+		final DataInputStream in;
+		/**
+		 * The key of the current line.
+		 */
+		CollationKey key;
+
+		/**
+		 * Constructs a new {@link RunHead}.
+		 *
+		 * @param run
+		 *            the index of the run
+		 * @param in
+		 *            the stream the run is read from
+		 */
+		RunHead(int run, DataInputStream in) {
+			this.run = run;
+			this.in = in;
+		}
+	}
+}
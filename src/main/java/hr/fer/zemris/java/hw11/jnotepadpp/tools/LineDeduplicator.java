@@ -0,0 +1,247 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.LineReader;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Removes duplicate lines from a range of text, keeping the first occurrence
+ * of every line. Instead of the lines themselves, only a 64-bit fingerprint
+ * and the location of every kept line is stored, in an open addressing hash
+ * table of {@value #SLOT_BYTES} bytes per line. When two fingerprints match,
+ * the lines are compared in the source, so a collision never removes a line
+ * which isn't a duplicate.
+ * <p>
+ * The table can be kept off the heap, in a direct buffer, so even very large
+ * selections don't need a bigger heap. The kept lines are written out as soon
+ * as they are read.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineDeduplicator implements LineTransform {
+	/**
+	 * The size of a single slot of the table: the fingerprint, the offset and
+	 * the length of a line.
+	 */
+	private static final int SLOT_BYTES = 16;
+	/**
+	 * The initial number of slots in the table.
+	 */
+	private static final int INITIAL_SLOTS = 1024;
+	/**
+	 * The fingerprint which marks an empty slot.
+	 */
+	private static final long EMPTY = 0;
+
+	/**
+	 * Indicates whether the table is kept off the heap.
+	 */
+	private final boolean offHeap;
+
+	/**
+	 * The table of the kept lines.
+	 */
+	private ByteBuffer table;
+	/**
+	 * The number of slots in the table, always a power of two.
+	 */
+	private int slots;
+	/**
+	 * The number of used slots.
+	 */
+	private int used;
+	/**
+	 * Segment used for comparing lines in the source.
+	 */
+	private final Segment segment;
+
+	/**
+	 * Constructs a new {@link LineDeduplicator}.
+	 *
+	 * @param offHeap
+	 *            true if the table should be kept off the heap
+	 */
+	public LineDeduplicator(boolean offHeap) {
+		this.offHeap = offHeap;
+		this.segment = new Segment();
+		this.segment.setPartialReturn(true);
+	}
+
+	@Override
+	public void transform(TextSource source, int start, int end, Writer out)
+			throws IOException {
+		slots = INITIAL_SLOTS;
+		used = 0;
+		table = allocate(slots);
+
+		try {
+			LineReader reader = new LineReader(source, start, end);
+			int offset = reader.getPosition();
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (add(source, fingerprint(line), offset, line)) {
+					out.write(line);
+					out.write('\n');
+				}
+				offset = reader.getPosition();
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalArgumentException(e);
+		} finally {
+			table = null;
+		}
+	}
+
+	/**
+	 * Adds a line to the table, unless an equal line is already in it.
+	 *
+	 * @param source
+	 *            the source of the lines
+	 * @param fingerprint
+	 *            the fingerprint of the line
+	 * @param offset
+	 *            the offset of the line in the source
+	 * @param line
+	 *            the line
+	 * @return true if the line was added, false if it is a duplicate
+	 * @throws BadLocationException
+	 *             if a line can't be read from the source
+	 */
+	private boolean add(TextSource source, long fingerprint, int offset,
+			String line) throws BadLocationException {
+		int mask = slots - 1;
+		int slot = (int) (fingerprint ^ fingerprint >>> 32) & mask;
+
+		while (true) {
+			int position = slot * SLOT_BYTES;
+			long stored = table.getLong(position);
+			if (stored == EMPTY) {
+				break;
+			}
+			if (stored == fingerprint
+					&& table.getInt(position + 12) == line.length()
+					&& equals(source, table.getInt(position + 8), line)) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		int position = slot * SLOT_BYTES;
+		table.putLong(position, fingerprint);
+		table.putInt(position + 8, offset);
+		table.putInt(position + 12, line.length());
+
+		if (++used > slots / 2) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Compares a line in the source with the given line, which has the same
+	 * length.
+	 *
+	 * @param source
+	 *            the source
+	 * @param offset
+	 *            the offset of the line in the source
+	 * @param line
+	 *            the compared line
+	 * @return true if the lines are equal
+	 * @throws BadLocationException
+	 *             if the line can't be read from the source
+	 */
+	private boolean equals(TextSource source, int offset, String line)
+			throws BadLocationException {
+		int compared = 0;
+		while (compared < line.length()) {
+			source.getChars(offset + compared, line.length() - compared,
+					segment);
+			for (int i = 0; i < segment.count; i++) {
+				if (segment.array[segment.offset + i] != line
+						.charAt(compared + i)) {
+					return false;
+				}
+			}
+			compared += segment.count;
+		}
+		return true;
+	}
+
+	/**
+	 * Doubles the size of the table.
+	 */
+	private void grow() {
+		ByteBuffer old = table;
+		int oldSlots = slots;
+
+		slots *= 2;
+		table = allocate(slots);
+		int mask = slots - 1;
+
+		for (int i = 0; i < oldSlots; i++) {
+			long fingerprint = old.getLong(i * SLOT_BYTES);
+			if (fingerprint == EMPTY) {
+				continue;
+			}
+
+			int slot = (int) (fingerprint ^ fingerprint >>> 32) & mask;
+			while (table.getLong(slot * SLOT_BYTES) != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			int position = slot * SLOT_BYTES;
+			table.putLong(position, fingerprint);
+			table.putInt(position + 8, old.getInt(i * SLOT_BYTES + 8));
+			table.putInt(position + 12, old.getInt(i * SLOT_BYTES + 12));
+		}
+	}
+
+	/**
+	 * Allocates a zeroed table.
+	 *
+	 * @param slots
+	 *            the number of slots
+	 * @return the table
+	 */
+	private ByteBuffer allocate(int slots) {
+		if ((long) slots * SLOT_BYTES > Integer.MAX_VALUE) {
+			throw new OutOfMemoryError("Too many distinct lines.");
+		}
+		int bytes = slots * SLOT_BYTES;
+		return offHeap ? ByteBuffer.allocateDirect(bytes)
+				: ByteBuffer.allocate(bytes);
+	}
+
+	/**
+	 * Computes the 64-bit fingerprint of a line. The characters are mixed
+	 * into the hash by multiplication, and the result is finalized the same
+	 * way as in MurmurHash3, so that similar lines get very different
+	 * fingerprints.
+	 *
+	 * @param line
+	 *            the line
+	 * @return the fingerprint, never {@link #EMPTY}
+	 */
+	private static long fingerprint(String line) {
+		long h = 0x9E3779B97F4A7C15L ^ line.length();
+		for (int i = 0, n = line.length(); i < n; i++) {
+			h = (h ^ line.charAt(i)) * 0x100000001B3L;
+		}
+
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+
+		return h == EMPTY ? 1 : h;
+	}
+}
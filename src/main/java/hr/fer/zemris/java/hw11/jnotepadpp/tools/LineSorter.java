@@ -0,0 +1,117 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Sorts lines of text using the collation rules of a language. Every line is
+ * converted into a {@link CollationKey} only once, so the sort itself just
+ * compares keys. Large selections are converted and sorted in parallel.
+ * <p>
+ * Collators are cached per locale. Since a collator can't be used by several
+ * threads at once, every sort works with its own clones of the cached one.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineSorter {
+	/**
+	 * The number of lines from which the lines are sorted in parallel.
+	 */
+	private static final int PARALLEL_THRESHOLD = 8192;
+	/**
+	 * The cached collators, by locale.
+	 */
+	private static final Map<Locale, Collator> COLLATORS =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * The collator used as the prototype of the clones.
+	 */
+	private final Collator collator;
+
+	/**
+	 * Constructs a new {@link LineSorter} for the given locale.
+	 *
+	 * @param locale
+	 *            the locale whose collation rules are used
+	 */
+	public LineSorter(Locale locale) {
+		this.collator = COLLATORS.computeIfAbsent(locale,
+				Collator::getInstance);
+	}
+
+	/**
+	 * Sorts the given lines. The sort is stable, so equal lines keep their
+	 * relative order.
+	 *
+	 * @param lines
+	 *            the lines to be sorted
+	 * @param descending
+	 *            true if the lines should be sorted in descending order
+	 * @return the sorted lines
+	 */
+	public List<String> sort(Collection<String> lines, boolean descending) {
+		String[] source = lines.toArray(new String[lines.size()]);
+		CollationKey[] keys = new CollationKey[source.length];
+		Comparator<CollationKey> order = descending
+				? Comparator.reverseOrder()
+				: Comparator.naturalOrder();
+
+		if (source.length < PARALLEL_THRESHOLD) {
+			computeKeys(source, keys, 0, source.length);
+			Arrays.sort(keys, order);
+		} else {
+			int chunks = ForkJoinPool.getCommonPoolParallelism() * 4;
+			int chunkSize = (source.length + chunks - 1) / chunks;
+			IntStream.range(0, chunks).parallel().forEach(chunk -> computeKeys(
+					source, keys, chunk * chunkSize,
+					Math.min(source.length, (chunk + 1) * chunkSize)));
+			Arrays.parallelSort(keys, order);
+		}
+
+		List<String> sorted = new ArrayList<>(keys.length);
+		for (CollationKey key : keys) {
+			sorted.add(key.getSourceString());
+		}
+		return sorted;
+	}
+
+	/**
+	 * @return a new clone of the collator, for use by a single thread
+	 */
+	Collator newCollator() {
+		return (Collator) collator.clone();
+	}
+
+	/**
+	 * Computes the collation keys of a range of lines, using a clone of the
+	 * collator.
+	 *
+	 * @param source
+	 *            the lines
+	 * @param keys
+	 *            the array which receives the keys
+	 * @param from
+	 *            the first line of the range
+	 * @param to
+	 *            the end of the range
+	 */
+	private void computeKeys(String[] source, CollationKey[] keys, int from,
+			int to) {
+		Collator clone = newCollator();
+		for (int i = from; i < to; i++) {
+			keys[i] = clone.getCollationKey(source[i]);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * A tool which transforms the lines of a range of text, reading the range
+ * line by line and writing the resulting lines to a {@link Writer}, each
+ * followed by a newline.
+ *
+ * @author 0036502252
+ *
+ */
+@FunctionalInterface
+public interface LineTransform {
+	/**
+	 * Transforms the lines of a range of the given source.
+	 *
+	 * @param source
+	 *            the source, which must not change during the transformation
+	 * @param start
+	 *            the start of the range
+	 * @param end
+	 *            the end of the range
+	 * @param out
+	 *            receives the resulting lines
+	 * @throws IOException
+	 *             if the output can't be written, or the transformation
+	 *             needs files which can't be used
+	 */
+	void transform(TextSource source, int start, int end, Writer out)
+			throws IOException;
+}
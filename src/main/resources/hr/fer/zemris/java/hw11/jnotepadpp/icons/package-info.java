@@ -1,8 +1,8 @@
-/**
- * 
- */
-/**
- * @author 0036502252
- *
- */
+/**
+ * 
+ */
+/**
+ * @author 0036502252
+ *
+ */
 package hr.fer.zemris.java.hw11.jnotepadpp.icons;
\ No newline at end of file
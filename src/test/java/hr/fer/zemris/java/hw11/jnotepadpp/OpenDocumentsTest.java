@@ -0,0 +1,140 @@
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
+
+/**
+ * Tests the indexes of the {@link OpenDocuments}, comparing the indexes of
+ * the documents with a plain list, and finding documents by different paths
+ * of their files.
+ *
+ * @author 0036502252
+ *
+ */
+public class OpenDocumentsTest {
+	/**
+	 * The directory of the files of the documents.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Inserts and removes documents at random indexes, looking up random
+	 * documents in between, so the indexes are sometimes stale.
+	 */
+	@Test
+	public void testRandomEdits() {
+		Random random = new Random(19);
+		OpenDocuments documents = new OpenDocuments();
+		List<SingleDocumentModel> expected = new ArrayList<>();
+		List<SingleDocumentModel> closed = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			int operation = random.nextInt(4);
+			if (operation == 0 && !expected.isEmpty()) {
+				int index = random.nextInt(expected.size());
+				closed.add(expected.remove(index));
+				assertSame(closed.get(closed.size() - 1),
+						documents.remove(index));
+			} else if (operation == 1 && !expected.isEmpty()) {
+				SingleDocumentModel model = expected
+						.get(random.nextInt(expected.size()));
+				assertEquals(expected.indexOf(model),
+						documents.indexOf(model));
+			} else {
+				SingleDocumentModel model = new DefaultSingleDocumentModel(
+						null, "");
+				int index = random.nextBoolean() ? expected.size()
+						: random.nextInt(expected.size() + 1);
+				expected.add(index, model);
+				documents.insert(index, model);
+			}
+		}
+
+		assertEquals(expected.size(), documents.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), documents.get(i));
+			assertEquals(i, documents.indexOf(expected.get(i)));
+		}
+		for (SingleDocumentModel model : closed) {
+			assertEquals(-1, documents.indexOf(model));
+		}
+	}
+
+	/**
+	 * Finds documents by other paths of their files, after the files are
+	 * saved under new paths and after the documents are closed.
+	 *
+	 * @throws IOException
+	 *             if the files can't be created
+	 */
+	@Test
+	public void testPaths() throws IOException {
+		Path directory = folder.newFolder("sub").toPath();
+		Path file = Files.createFile(directory.resolve("a.txt"));
+		Path unsaved = directory.resolve("new.txt");
+
+		OpenDocuments documents = new OpenDocuments();
+		SingleDocumentModel first = open(documents,
+				directory.resolve("..").resolve("sub").resolve("a.txt"));
+		SingleDocumentModel second = open(documents, unsaved);
+		SingleDocumentModel third = open(documents, null);
+
+		assertSame(first, documents.find(file));
+		assertSame(first, documents.find(file.toAbsolutePath()));
+		assertSame(second, documents.find(directory.resolve("./new.txt")));
+		assertSame(second, documents.findByKey(OpenDocuments.pathKey(
+				unsaved)));
+		assertTrue(documents.isPathIndexed(first));
+		assertFalse(documents.isPathIndexed(third));
+		assertNull(documents.find(directory.resolve("b.txt")));
+
+		// saved under another path
+		Path moved = Files.createFile(directory.resolve("b.txt"));
+		documents.unindexPath(first);
+		first.setFilePath(moved);
+		documents.indexPath(first);
+		assertNull(documents.find(file));
+		assertSame(first, documents.find(moved));
+
+		assertEquals(1, documents.indexOf(second));
+		documents.unindexPath(documents.remove(0));
+		assertNull(documents.find(moved));
+		assertEquals(-1, documents.indexOf(first));
+		assertEquals(0, documents.indexOf(second));
+		assertEquals(1, documents.indexOf(third));
+	}
+
+	/**
+	 * Adds a document to the end of the list, and indexes it by its path.
+	 *
+	 * @param documents
+	 *            the open documents
+	 * @param path
+	 *            the path of the document, or <code>null</code>
+	 * @return the added document
+	 */
+	private static SingleDocumentModel open(OpenDocuments documents,
+			Path path) {
+		SingleDocumentModel model = new DefaultSingleDocumentModel(path, "");
+		documents.insert(documents.size(), model);
+		documents.indexPath(model);
+		return model;
+	}
+}
@@ -0,0 +1,334 @@
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.JLabel;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentListener;
+import hr.fer.zemris.java.hw11.interfaces.MultipleDocumentModel;
+import hr.fer.zemris.java.hw11.interfaces.SingleDocumentModel;
+import hr.fer.zemris.java.hw11.jnotepadpp.local.LocalizationProvider;
+
+/**
+ * Tests the {@link StatusBar}, checking that bursts of changes are rendered
+ * once, with the texts of the last change, and that the clock changes once a
+ * second.
+ *
+ * @author 0036502252
+ *
+ */
+public class StatusBarTest {
+	/**
+	 * The time in milliseconds after which all scheduled renders are done.
+	 */
+	private static final long RENDER_WAIT = 300;
+
+	/**
+	 * The localization provider.
+	 */
+	private final LocalizationProvider provider = LocalizationProvider
+			.getInstance();
+	/**
+	 * The documents shown by the status bar.
+	 */
+	private final Documents documents = new Documents();
+	/**
+	 * The tested status bar.
+	 */
+	private StatusBar bar;
+	/**
+	 * The texts set on the labels of the status bar, by the labels'
+	 * positions.
+	 */
+	private List<List<String>> texts;
+
+	/**
+	 * Creates the status bar, and records the texts of its labels.
+	 *
+	 * @throws Exception
+	 *             if the status bar can't be created
+	 */
+	@Before
+	public void setUp() throws Exception {
+		onEdt(() -> {
+			bar = new StatusBar(documents, provider);
+			texts = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				List<String> labelTexts = new ArrayList<>();
+				texts.add(labelTexts);
+				((JLabel) bar.getComponent(i)).addPropertyChangeListener(
+						"text", e -> labelTexts.add((String) e.getNewValue()));
+			}
+		});
+	}
+
+	/**
+	 * Switches back to the default language.
+	 *
+	 * @throws Exception
+	 *             if the language can't be switched
+	 */
+	@After
+	public void tearDown() throws Exception {
+		onEdt(() -> provider.setLanguage("en"));
+	}
+
+	/**
+	 * Moves the caret and edits the document many times during a single
+	 * event, and checks that each label is set once, to the final values.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testBurst() throws Exception {
+		Random random = new Random(24);
+		DefaultSingleDocumentModel model = new DefaultSingleDocumentModel(
+				null, TestTexts.randomText(random, TestTexts.LINES, 5000));
+		documents.models.add(model);
+		onEdt(bar::documentChanged);
+		awaitRender();
+		assertShown(model);
+
+		for (int round = 0; round < 5; round++) {
+			int[] counts = counts();
+			onEdt(() -> {
+				JTextArea editor = model.getTextComponent();
+				for (int i = 0; i < 1000; i++) {
+					if (i % 100 == 0) {
+						editor.insert("a\n", random.nextInt(
+								editor.getDocument().getLength() + 1));
+					}
+					editor.setCaretPosition(random.nextInt(
+							editor.getDocument().getLength() + 1));
+					editor.moveCaretPosition(random.nextInt(
+							editor.getDocument().getLength() + 1));
+					bar.caretMoved();
+				}
+			});
+			awaitRender();
+			assertShown(model);
+			for (int i = 0; i < 3; i++) {
+				assertEquals(counts[i] + 1, texts.get(i).size());
+			}
+
+			// nothing changed, so nothing is set
+			counts = counts();
+			onEdt(bar::caretMoved);
+			awaitRender();
+			for (int i = 0; i < 3; i++) {
+				assertEquals(counts[i], texts.get(i).size());
+			}
+		}
+	}
+
+	/**
+	 * Checks that the labels are cleared once the last document is closed,
+	 * and rendered in a new language.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testDocumentsAndLanguage() throws Exception {
+		DefaultSingleDocumentModel model = new DefaultSingleDocumentModel(
+				null, "ab\n c\n");
+		documents.models.add(model);
+		onEdt(bar::documentChanged);
+		awaitRender();
+		assertShown(model);
+
+		onEdt(() -> provider.setLanguage("de"));
+		awaitRender();
+		assertShown(model);
+
+		documents.models.clear();
+		onEdt(bar::documentChanged);
+		awaitRender();
+		for (int i = 0; i < 3; i++) {
+			assertEquals("", label(i));
+		}
+	}
+
+	/**
+	 * Checks that the clock is set once a second.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testClock() throws Exception {
+		Thread.sleep(2500);
+		List<String> clock = new ArrayList<>();
+		onEdt(() -> clock.addAll(texts.get(3)));
+		assertTrue(clock.toString(), clock.size() >= 2);
+		assertTrue(clock.toString(), clock.size() <= 4);
+		for (String text : clock) {
+			assertTrue(text,
+					text.matches("\\d{4}/\\d\\d/\\d\\d \\d\\d:\\d\\d:\\d\\d"));
+		}
+	}
+
+	/**
+	 * Checks that the labels show the length, statistics and caret of the
+	 * document.
+	 *
+	 * @param model
+	 *            the shown document
+	 * @throws Exception
+	 *             if the labels can't be read
+	 */
+	private void assertShown(DefaultSingleDocumentModel model)
+			throws Exception {
+		onEdt(() -> {
+			JTextArea editor = model.getTextComponent();
+			String text = editor.getText();
+			int caret = editor.getCaretPosition();
+			int lineStart = text.lastIndexOf('\n', caret - 1) + 1;
+			int row = text.substring(0, lineStart).split("\n", -1).length - 1;
+
+			assertEquals(provider.getTemplate("status_length")
+					.format(text.length()), label(0));
+			assertEquals(provider.getTemplate("status_stats").format(
+					text.split("\n", -1).length,
+					text.replaceAll("\\s", "").length()), label(1));
+			assertEquals(provider.getTemplate("status_caret").format(row,
+					caret - lineStart, Math.abs(caret
+							- editor.getCaret().getMark())), label(2));
+		});
+	}
+
+	/**
+	 * @param index
+	 *            the position of a label
+	 * @return the text of the label
+	 */
+	private String label(int index) {
+		return ((JLabel) bar.getComponent(index)).getText();
+	}
+
+	/**
+	 * @return the numbers of texts set on the labels so far
+	 * @throws Exception
+	 *             if the labels can't be read
+	 */
+	private int[] counts() throws Exception {
+		int[] counts = new int[texts.size()];
+		onEdt(() -> {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = texts.get(i).size();
+			}
+		});
+		return counts;
+	}
+
+	/**
+	 * Waits until the scheduled renders are done.
+	 *
+	 * @throws Exception
+	 *             if the waiting is interrupted
+	 */
+	private static void awaitRender() throws Exception {
+		Thread.sleep(RENDER_WAIT);
+		onEdt(() -> {
+		});
+	}
+
+	/**
+	 * Runs an action on the event dispatch thread, and waits for it.
+	 *
+	 * @param action
+	 *            the action
+	 * @throws Exception
+	 *             if the action fails
+	 */
+	private static void onEdt(Runnable action) throws Exception {
+		try {
+			SwingUtilities.invokeAndWait(action);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * A list of documents, the last of which is the current one.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class Documents implements MultipleDocumentModel {
+		/**
+		 * The documents.
+		 */
+		final List<SingleDocumentModel> models = Collections
+				.synchronizedList(new ArrayList<>());
+
+		@Override
+		public Iterator<SingleDocumentModel> iterator() {
+			return models.iterator();
+		}
+
+		@Override
+		public SingleDocumentModel createNewDocument() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public SingleDocumentModel getCurrentDocument() {
+			return models.isEmpty() ? null : models.get(models.size() - 1);
+		}
+
+		@Override
+		public SingleDocumentModel loadDocument(Path path) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void saveDocument(SingleDocumentModel model, Path newPath) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void closeDocument(SingleDocumentModel model) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void addMultipleDocumentListener(
+				MultipleDocumentListener l) {
+		}
+
+		@Override
+		public void removeMultipleDocumentListener(
+				MultipleDocumentListener l) {
+		}
+
+		@Override
+		public int getNumberOfDocuments() {
+			return models.size();
+		}
+
+		@Override
+		public SingleDocumentModel getDocument(int index) {
+			return models.get(index);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package hr.fer.zemris.java.hw11.jnotepadpp;
+
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Segment;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Random texts and edits shared by the randomized tests, which compare the
+ * engines of the editor with simple reference implementations. Every test
+ * seeds its own {@link Random}, so a failure can be repeated.
+ *
+ * @author 0036502252
+ *
+ */
+public final class TestTexts {
+	/**
+	 * The characters of random texts: newlines, blanks, and characters
+	 * encoded as two and three bytes in UTF-8.
+	 */
+	public static final String TEXT = "abc \n\u017e\u20ac";
+	/**
+	 * The characters of random texts with many short lines.
+	 */
+	public static final String LINES = "ab \n";
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private TestTexts() {
+	}
+
+	/**
+	 * @param random
+	 *            the random generator
+	 * @param length
+	 *            the length of the text
+	 * @return a random text of the characters in {@link #TEXT}
+	 */
+	public static String randomText(Random random, int length) {
+		return randomText(random, TEXT, length);
+	}
+
+	/**
+	 * @param random
+	 *            the random generator
+	 * @param alphabet
+	 *            the characters of the text
+	 * @param length
+	 *            the length of the text
+	 * @return a random text of the given characters
+	 */
+	public static String randomText(Random random, String alphabet,
+			int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Does the same random insert or removal on all given documents, which
+	 * must have the same text. A third of the edits are removals.
+	 *
+	 * @param random
+	 *            the random generator
+	 * @param alphabet
+	 *            the characters of the inserted text
+	 * @param maxLength
+	 *            the maximum number of inserted or removed characters
+	 * @param documents
+	 *            the edited documents
+	 * @return the offset right after the inserted text, or -1 if text was
+	 *         removed
+	 * @throws BadLocationException
+	 *             if the documents don't have the same length
+	 */
+	public static int randomEdit(Random random, String alphabet,
+			int maxLength, Document... documents)
+			throws BadLocationException {
+		int length = documents[0].getLength();
+		if (length > 0 && random.nextInt(3) == 0) {
+			int offset = random.nextInt(length);
+			int count = 1 + random.nextInt(Math.min(length - offset, maxLength));
+			for (Document document : documents) {
+				document.remove(offset, count);
+			}
+			return -1;
+		}
+		int offset = random.nextInt(length + 1);
+		String text = randomText(random, alphabet,
+				1 + random.nextInt(maxLength));
+		for (Document document : documents) {
+			document.insertString(offset, text, null);
+		}
+		return offset + text.length();
+	}
+
+	/**
+	 * @param document
+	 *            a document
+	 * @return the whole text of the document
+	 * @throws BadLocationException
+	 *             if the document is broken
+	 */
+	public static String text(Document document) throws BadLocationException {
+		return document.getText(0, document.getLength());
+	}
+
+	/**
+	 * @param document
+	 *            a document
+	 * @return a {@link PlainDocument} with the same text, as the reference
+	 *         for the tested document
+	 * @throws BadLocationException
+	 *             if the document is broken
+	 */
+	public static PlainDocument plainCopy(Document document)
+			throws BadLocationException {
+		PlainDocument plain = new PlainDocument();
+		plain.insertString(0, text(document), null);
+		return plain;
+	}
+
+	/**
+	 * @param source
+	 *            a source
+	 * @return the whole text of the source
+	 * @throws BadLocationException
+	 *             if the source is broken
+	 */
+	public static String read(TextSource source) throws BadLocationException {
+		return read(source, 0, source.length());
+	}
+
+	/**
+	 * Reads a range of a source in partial segments, the way the engines
+	 * read their sources.
+	 *
+	 * @param source
+	 *            a source
+	 * @param start
+	 *            the start of the range
+	 * @param end
+	 *            the end of the range
+	 * @return the text of the range
+	 * @throws BadLocationException
+	 *             if the range is not in the source
+	 */
+	public static String read(TextSource source, int start, int end)
+			throws BadLocationException {
+		StringBuilder sb = new StringBuilder(end - start);
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		while (start < end) {
+			source.getChars(start, end - start, segment);
+			sb.append(segment.array, segment.offset, segment.count);
+			start += segment.count;
+		}
+		return sb.toString();
+	}
+}
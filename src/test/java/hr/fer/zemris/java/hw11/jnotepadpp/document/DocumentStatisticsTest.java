@@ -0,0 +1,125 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+
+/**
+ * Tests the {@link DocumentStatistics} kept up to date by a
+ * {@link PieceTableDocument}, comparing them with the statistics counted
+ * from scratch after every edit.
+ *
+ * @author 0036502252
+ *
+ */
+public class DocumentStatisticsTest {
+	/**
+	 * The characters of the tested texts, with all kinds of line breaks.
+	 */
+	private static final String BREAKS = "a \r\n\t\r\n";
+
+	/**
+	 * Edits a document so that <code>\r\n</code> pairs are split and joined
+	 * by inserts and removals.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testRandomEdits() throws BadLocationException {
+		Random random = new Random(13);
+		PieceTableDocument document = new PieceTableDocument(
+				TestTexts.randomText(random, BREAKS, 1000));
+		assertRecounted(document);
+
+		for (int i = 0; i < 3000; i++) {
+			TestTexts.randomEdit(random, BREAKS, 5, document);
+			assertRecounted(document);
+		}
+	}
+
+	/**
+	 * Scans texts added in chunks of random lengths, so pairs are split
+	 * between chunks, and compares the statistics with the text counted at
+	 * once.
+	 */
+	@Test
+	public void testScannedChunks() {
+		Random random = new Random(17);
+		for (int i = 0; i < 100; i++) {
+			char[] text = TestTexts.randomText(random, BREAKS, 500)
+					.toCharArray();
+			TextScan scan = new TextScan();
+			for (int offset = 0; offset < text.length;) {
+				int count = Math.min(text.length - offset,
+						random.nextInt(4));
+				scan.add(text, offset, count);
+				offset += count;
+			}
+			scan.finish();
+			assertSame(count(new String(text)), scan.getStatistics());
+		}
+	}
+
+	/**
+	 * Compares the statistics of a document with the statistics of its text
+	 * counted from scratch, both by a new {@link DocumentStatistics} and by
+	 * {@link #count(String)}.
+	 *
+	 * @param document
+	 *            the document
+	 * @throws BadLocationException
+	 *             if the document is broken
+	 */
+	private static void assertRecounted(PieceTableDocument document)
+			throws BadLocationException {
+		DocumentStatistics statistics = document.getStatistics();
+		assertSame(new DocumentStatistics(document), statistics);
+		assertSame(count(TestTexts.text(document)), statistics);
+	}
+
+	/**
+	 * @param expected
+	 *            the expected characters, non-blank characters and lines
+	 * @param actual
+	 *            the checked statistics
+	 */
+	private static void assertSame(int[] expected,
+			DocumentStatistics actual) {
+		assertEquals(expected[0], actual.getCharacters());
+		assertEquals(expected[1], actual.getNonBlankCharacters());
+		assertEquals(expected[2], actual.getLines());
+	}
+
+	/**
+	 * @param expected
+	 *            the expected statistics
+	 * @param actual
+	 *            the checked statistics
+	 */
+	private static void assertSame(DocumentStatistics expected,
+			DocumentStatistics actual) {
+		assertSame(new int[] { expected.getCharacters(),
+				expected.getNonBlankCharacters(), expected.getLines() },
+				actual);
+	}
+
+	/**
+	 * Counts a text the straightforward way.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the characters, non-blank characters and lines of the text
+	 */
+	private static int[] count(String text) {
+		return new int[] { text.length(),
+				text.replaceAll("\\s", "").length(),
+				text.split("\r\n|\r|\n", -1).length };
+	}
+}
@@ -0,0 +1,220 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.undo.UndoManager;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link LineDiff} and the {@link PieceTableDocument#replaceLines}
+ * built on it, on random lists of lines and their random changes.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineDiffTest {
+
+	/**
+	 * Checks that the changes turn the old lines into the new ones, and that
+	 * they are the smallest ones, by comparing them with the longest common
+	 * subsequence of the lines.
+	 */
+	@Test
+	public void testRandomLists() {
+		Random random = new Random(1);
+		for (int i = 0; i < 300; i++) {
+			List<String> oldLines = randomLines(random, random.nextInt(200));
+			List<String> newLines = change(random, oldLines);
+			List<LineDiff.Change> changes = LineDiff.diff(oldLines, newLines);
+
+			assertEquals(newLines, apply(oldLines, newLines, changes));
+			assertEquals(oldLines.size() + newLines.size()
+					- 2 * commonLength(oldLines, newLines), size(changes));
+		}
+	}
+
+	/**
+	 * Checks that lists which differ too much for Myers' algorithm are still
+	 * diffed correctly.
+	 */
+	@Test
+	public void testDistantLists() {
+		Random random = new Random(2);
+		List<String> oldLines = randomLines(random, 5000);
+		List<String> newLines = randomLines(random, 5000);
+		newLines.add(0, "first");
+		oldLines.add(0, "first");
+		oldLines.add("last");
+		newLines.add("last");
+
+		assertEquals(newLines, apply(oldLines, newLines,
+				LineDiff.diff(oldLines, newLines)));
+	}
+
+	/**
+	 * Replaces random ranges of a document by their changed lines, and checks
+	 * the text of the document and that each replacement is undone at once.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testReplaceLines() throws BadLocationException {
+		Random random = new Random(3);
+		String text = String.join("\n", randomLines(random, 2000));
+		PieceTableDocument document = new PieceTableDocument(text);
+		UndoManager undo = new UndoManager();
+		undo.setLimit(-1);
+		document.addUndoableEditListener(undo);
+		List<String> texts = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			int start = random.nextInt(text.length() + 1);
+			int end = start + random.nextInt(text.length() - start + 1);
+			List<String> lines = new ArrayList<>();
+			for (String line : text.substring(start, end).split("\n", -1)) {
+				lines.add(line);
+			}
+			String replacement = String.join("\n", change(random, lines));
+
+			document.replaceLines(start, end - start, replacement);
+			String changed = text.substring(0, start) + replacement
+					+ text.substring(end);
+			if (!changed.equals(text)) {
+				// nothing is undone for an unchanged text
+				texts.add(text);
+				text = changed;
+			}
+			assertEquals(text, document.getText(0, document.getLength()));
+		}
+
+		for (int i = texts.size() - 1; i >= 0; i--) {
+			assertTrue(undo.canUndo());
+			undo.undo();
+			assertEquals(texts.get(i),
+					document.getText(0, document.getLength()));
+		}
+	}
+
+	/**
+	 * Applies changes to a list of lines.
+	 *
+	 * @param oldLines
+	 *            the old lines
+	 * @param newLines
+	 *            the new lines, from which the inserted lines are taken
+	 * @param changes
+	 *            the changes
+	 * @return the changed lines
+	 */
+	private static List<String> apply(List<String> oldLines,
+			List<String> newLines, List<LineDiff.Change> changes) {
+		List<String> lines = new ArrayList<>(oldLines);
+		int shift = 0;
+		int previousEnd = 0;
+		for (LineDiff.Change change : changes) {
+			assertTrue(change.getOldStart() >= previousEnd);
+			assertEquals(change.getOldStart() + shift, change.getNewStart());
+			previousEnd = change.getOldStart() + change.getOldCount();
+
+			for (int i = 0; i < change.getOldCount(); i++) {
+				lines.remove(change.getNewStart());
+			}
+			for (int i = 0; i < change.getNewCount(); i++) {
+				lines.add(change.getNewStart() + i,
+						newLines.get(change.getNewStart() + i));
+			}
+			shift += change.getNewCount() - change.getOldCount();
+		}
+		return lines;
+	}
+
+	/**
+	 * @param changes
+	 *            the changes
+	 * @return the number of removed and inserted lines
+	 */
+	private static int size(List<LineDiff.Change> changes) {
+		int size = 0;
+		for (LineDiff.Change change : changes) {
+			size += change.getOldCount() + change.getNewCount();
+		}
+		return size;
+	}
+
+	/**
+	 * @param a
+	 *            the first list
+	 * @param b
+	 *            the second list
+	 * @return the length of the longest common subsequence of the lists
+	 */
+	private static int commonLength(List<String> a, List<String> b) {
+		int[][] lengths = new int[a.size() + 1][b.size() + 1];
+		for (int i = 1; i <= a.size(); i++) {
+			for (int j = 1; j <= b.size(); j++) {
+				lengths[i][j] = a.get(i - 1).equals(b.get(j - 1))
+						? lengths[i - 1][j - 1] + 1
+						: Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+			}
+		}
+		return lengths[a.size()][b.size()];
+	}
+
+	/**
+	 * Randomly removes, inserts and replaces lines of a list.
+	 *
+	 * @param random
+	 *            the random generator
+	 * @param lines
+	 *            the lines
+	 * @return the changed lines
+	 */
+	private static List<String> change(Random random, List<String> lines) {
+		List<String> changed = new ArrayList<>(lines);
+		int count = random.nextInt(10);
+		for (int i = 0; i < count; i++) {
+			int index = random.nextInt(changed.size() + 1);
+			int choice = random.nextInt(3);
+			if (choice == 0 && index < changed.size()) {
+				changed.remove(index);
+			} else if (choice == 1 && index < changed.size()) {
+				changed.set(index, randomLine(random));
+			} else {
+				changed.add(index, randomLine(random));
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * @param random
+	 *            the random generator
+	 * @param count
+	 *            the number of lines
+	 * @return a list of random lines
+	 */
+	private static List<String> randomLines(Random random, int count) {
+		List<String> lines = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			lines.add(randomLine(random));
+		}
+		return lines;
+	}
+
+	/**
+	 * @param random
+	 *            the random generator
+	 * @return a random line from a small set, so lines often repeat
+	 */
+	private static String randomLine(Random random) {
+		return "line " + random.nextInt(8);
+	}
+}
@@ -0,0 +1,202 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import javax.swing.undo.UndoManager;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+
+/**
+ * Tests the {@link LineIndex} and the line elements of a
+ * {@link PieceTableDocument} against the line elements of a
+ * {@link PlainDocument}, after random inserts and removals.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineIndexTest {
+	/**
+	 * Edits a document with many short lines, so blocks of the index are
+	 * split and merged.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testRandomEdits() throws BadLocationException {
+		Random random = new Random(42);
+		PieceTableDocument document = new PieceTableDocument();
+		PlainDocument plain = new PlainDocument();
+
+		for (int i = 0; i < 1000; i++) {
+			TestTexts.randomEdit(random, TestTexts.LINES, 3000, document,
+					plain);
+			if (i % 100 == 0) {
+				assertSameLines(plain, document);
+			}
+		}
+		assertSameLines(plain, document);
+	}
+
+	/**
+	 * Builds the index of an initial text with blank lines and lines much
+	 * longer than a block, and edits it.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testInitialText() throws BadLocationException {
+		Random random = new Random(7);
+		char[] longLine = new char[40_000];
+		Arrays.fill(longLine, 'a');
+		String text = "\n\n" + TestTexts.randomText(random, TestTexts.LINES,
+				100_000) + "\n\n\n" + new String(longLine) + "\n"
+				+ new String(longLine) + "\n\n";
+
+		PieceTableDocument document = new PieceTableDocument(text);
+		PlainDocument plain = TestTexts.plainCopy(document);
+		assertSameLines(plain, document);
+
+		for (int i = 0; i < 200; i++) {
+			TestTexts.randomEdit(random, TestTexts.LINES, 20_000, document,
+					plain);
+		}
+		assertSameLines(plain, document);
+	}
+
+	/**
+	 * Reads a text of more blocks than stay loaded, so the lengths of lines
+	 * are dropped and scanned again, and edits it.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testUnloadedBlocks() throws BadLocationException {
+		Random random = new Random(3);
+		PieceTableDocument document = new PieceTableDocument(
+				TestTexts.randomText(random, "abcdefghij\n", 10_000_000));
+		assertSameLines(TestTexts.text(document), document.getLineIndex());
+
+		for (int i = 0; i < 20; i++) {
+			TestTexts.randomEdit(random, "ab\n", 100_000, document);
+		}
+		assertSameLines(TestTexts.text(document), document.getLineIndex());
+	}
+
+	/**
+	 * Undoes and redoes random edits, and checks that the same line elements
+	 * are restored.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testUndoRedo() throws BadLocationException {
+		Random random = new Random(11);
+		PieceTableDocument document = new PieceTableDocument(
+				TestTexts.randomText(random, TestTexts.LINES, 20_000));
+		PlainDocument initial = TestTexts.plainCopy(document);
+		Element first = document.getDefaultRootElement().getElement(1);
+		UndoManager undo = new UndoManager();
+		undo.setLimit(-1);
+		document.addUndoableEditListener(undo);
+
+		for (int i = 0; i < 300; i++) {
+			TestTexts.randomEdit(random, TestTexts.LINES, 500, document);
+		}
+		PlainDocument edited = TestTexts.plainCopy(document);
+
+		while (undo.canUndo()) {
+			undo.undo();
+		}
+		assertSameLines(initial, document);
+		assertSame(first, document.getDefaultRootElement().getElement(1));
+
+		while (undo.canRedo()) {
+			undo.redo();
+		}
+		assertSameLines(edited, document);
+	}
+
+	/**
+	 * Compares every line of the index and the root element of a document,
+	 * and a sample of offsets, with the line elements of a
+	 * {@link PlainDocument}.
+	 *
+	 * @param plain
+	 *            a document with the same text
+	 * @param document
+	 *            the tested document
+	 * @throws BadLocationException
+	 *             if the index is broken
+	 */
+	private static void assertSameLines(PlainDocument plain,
+			PieceTableDocument document) throws BadLocationException {
+		Element expected = plain.getDefaultRootElement();
+		Element root = document.getDefaultRootElement();
+		LineIndex index = document.getLineIndex();
+		int count = expected.getElementCount();
+		assertEquals(count, index.getLineCount());
+		assertEquals(count, root.getElementCount());
+		assertEquals(plain.getLength(), index.getLength());
+
+		for (int i = 0; i < count; i++) {
+			Element line = expected.getElement(i);
+			// the index leaves the implied newline out of the last line
+			int end = i == count - 1 ? line.getEndOffset() - 1
+					: line.getEndOffset();
+			assertEquals(line.getStartOffset(), index.getLineStartOffset(i));
+			assertEquals(end, index.getLineEndOffset(i));
+			assertEquals(line.getStartOffset(),
+					root.getElement(i).getStartOffset());
+			assertEquals(line.getEndOffset(),
+					root.getElement(i).getEndOffset());
+		}
+		for (int offset = 0; offset <= plain.getLength(); offset += 7) {
+			int line = expected.getElementIndex(offset);
+			assertEquals(line, index.getLineOfOffset(offset));
+			assertEquals(line, root.getElementIndex(offset));
+		}
+	}
+
+	/**
+	 * Compares every line of an index with the lines of a text.
+	 *
+	 * @param text
+	 *            the text of the index
+	 * @param index
+	 *            the tested index
+	 * @throws BadLocationException
+	 *             if the index is broken
+	 */
+	private static void assertSameLines(String text, LineIndex index)
+			throws BadLocationException {
+		assertEquals(text.length(), index.getLength());
+		int line = 0;
+		int start = 0;
+		while (true) {
+			int end = text.indexOf('\n', start);
+			assertEquals(start, index.getLineStartOffset(line));
+			assertEquals(line, index.getLineOfOffset(start));
+			if (end < 0) {
+				assertEquals(text.length(), index.getLineEndOffset(line));
+				break;
+			}
+			assertEquals(end + 1, index.getLineEndOffset(line));
+			line++;
+			start = end + 1;
+		}
+		assertEquals(line + 1, index.getLineCount());
+	}
+}
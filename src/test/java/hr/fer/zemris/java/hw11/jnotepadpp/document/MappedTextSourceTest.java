@@ -0,0 +1,167 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomText;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.read;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.text.BadLocationException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.io.DocumentWriter;
+
+/**
+ * Tests a {@link MappedTextSource} whose file is changed, replaced or
+ * deleted after it was opened.
+ *
+ * @author 0036502252
+ *
+ */
+public class MappedTextSourceTest {
+	/**
+	 * The directory of the mapped files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * The text of the mapped file, of many pages.
+	 */
+	private String text;
+	/**
+	 * The mapped file.
+	 */
+	private Path path;
+	/**
+	 * The tested source.
+	 */
+	private MappedTextSource source;
+	/**
+	 * The number of times the change listener was notified.
+	 */
+	private AtomicInteger changes;
+
+	/**
+	 * Writes and maps a random file.
+	 *
+	 * @throws IOException
+	 *             if the file can not be written or mapped
+	 */
+	@Before
+	public void setUp() throws IOException {
+		text = randomText(new Random(1), 1_000_000);
+		path = folder.newFile().toPath();
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		source = MappedTextSource.open(path);
+		changes = new AtomicInteger();
+		source.setChangeListener(changes::incrementAndGet);
+	}
+
+	/**
+	 * Checks that the opened source has the text of the file.
+	 *
+	 * @throws BadLocationException
+	 *             if the source is broken
+	 */
+	@Test
+	public void testRead() throws BadLocationException {
+		assertEquals(text, read(source));
+		assertEquals(text.substring(300_000, 500_000),
+				read(source, 300_000, 500_000));
+		assertFalse(source.isStale());
+	}
+
+	/**
+	 * Saves a shorter text over the mapped file, as when the document of the
+	 * source is saved, and checks that the source keeps the old text.
+	 *
+	 * @throws Exception
+	 *             if the test fails
+	 */
+	@Test
+	public void testSavedOver() throws Exception {
+		String saved = text.substring(text.length() / 2);
+		new DocumentWriter().write(new ArrayTextSource(saved.toCharArray()),
+				path);
+
+		assertEquals(text, read(source));
+		assertFalse(source.isStale());
+		assertEquals(0, changes.get());
+	}
+
+	/**
+	 * Deletes the mapped file, and checks that the source keeps the text.
+	 *
+	 * @throws Exception
+	 *             if the test fails
+	 */
+	@Test
+	public void testDeleted() throws Exception {
+		Files.delete(path);
+
+		assertEquals(text, read(source));
+		assertFalse(source.isStale());
+	}
+
+	/**
+	 * Truncates the mapped file in place, and checks that the lost text is
+	 * replaced while the length of the source stays the same.
+	 *
+	 * @throws Exception
+	 *             if the test fails
+	 */
+	@Test
+	public void testTruncated() throws Exception {
+		long size = Files.size(path);
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.WRITE)) {
+			channel.truncate(size / 2);
+		}
+
+		String read = read(source);
+		assertEquals(text.length(), read.length());
+		assertEquals(text.substring(0, 100_000), read.substring(0, 100_000));
+		assertTrue(read.endsWith("\uFFFD\uFFFD\uFFFD"));
+		assertTrue(source.isStale());
+		assertEquals(1, changes.get());
+	}
+
+	/**
+	 * Changes a byte of the mapped file in place, and checks that the source
+	 * turns stale.
+	 *
+	 * @throws Exception
+	 *             if the test fails
+	 */
+	@Test
+	public void testChangedInPlace() throws Exception {
+		int offset = text.indexOf('a', text.length() / 2);
+		int byteOffset = text.substring(0, offset)
+				.getBytes(StandardCharsets.UTF_8).length;
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 'b' }), byteOffset);
+		}
+
+		String changed = text.substring(0, offset) + 'b'
+				+ text.substring(offset + 1);
+		assertEquals(changed, read(source));
+		assertTrue(source.isStale());
+		assertEquals(1, changes.get());
+	}
+}
@@ -0,0 +1,157 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.plainCopy;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomEdit;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomText;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.read;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.text;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Position;
+import javax.swing.undo.UndoManager;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+
+/**
+ * Tests the {@link PieceTableContent}, through a {@link PieceTableDocument},
+ * against a {@link PlainDocument} receiving the same random edits.
+ *
+ * @author 0036502252
+ *
+ */
+public class PieceTableContentTest {
+
+	/**
+	 * Compares the texts and the positions of both documents after random
+	 * inserts and removals, some of which extend the previous insert.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testRandomEdits() throws BadLocationException {
+		Random random = new Random(1);
+		PieceTableDocument document = new PieceTableDocument(
+				randomText(random, 10_000));
+		PlainDocument expected = plainCopy(document);
+
+		List<Position> positions = new ArrayList<>();
+		List<Position> expectedPositions = new ArrayList<>();
+		int typed = -1;
+
+		for (int i = 0; i < 3000; i++) {
+			int choice = random.nextInt(4);
+			if (choice == 0 && typed >= 0) {
+				// typing right after the previous insert
+				String text = randomText(random, 1);
+				document.insertString(typed, text, null);
+				expected.insertString(typed, text, null);
+				typed++;
+			} else if (choice == 1) {
+				int offset = random.nextInt(expected.getLength() + 1);
+				positions.add(document.createPosition(offset));
+				expectedPositions.add(expected.createPosition(offset));
+			} else {
+				typed = randomEdit(random, TestTexts.TEXT, 300, document,
+						expected);
+			}
+		}
+
+		assertEquals(text(expected), text(document));
+		assertEquals(text(expected), read(document.snapshot(), 0,
+				document.getLength()));
+		for (int i = 0; i < positions.size(); i++) {
+			assertEquals(expectedPositions.get(i).getOffset(),
+					positions.get(i).getOffset());
+		}
+	}
+
+	/**
+	 * Undoes and redoes random edits of both documents, so the removed text
+	 * is put back from the slices kept by the undo edits.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testUndoRedo() throws BadLocationException {
+		Random random = new Random(2);
+		PieceTableDocument document = new PieceTableDocument(
+				randomText(random, 5_000));
+		PlainDocument expected = plainCopy(document);
+
+		UndoManager undo = new UndoManager();
+		UndoManager expectedUndo = new UndoManager();
+		undo.setLimit(-1);
+		expectedUndo.setLimit(-1);
+		document.addUndoableEditListener(undo);
+		expected.addUndoableEditListener(expectedUndo);
+
+		for (int i = 0; i < 2000; i++) {
+			int choice = random.nextInt(5);
+			if (choice == 0 && undo.canUndo()) {
+				undo.undo();
+				expectedUndo.undo();
+			} else if (choice == 1 && undo.canRedo()) {
+				undo.redo();
+				expectedUndo.redo();
+			} else {
+				randomEdit(random, TestTexts.TEXT, 800, document, expected);
+			}
+			if (i % 100 == 0) {
+				assertEquals(text(expected), text(document));
+			}
+		}
+
+		while (undo.canUndo()) {
+			undo.undo();
+			expectedUndo.undo();
+		}
+		assertEquals(text(expected), text(document));
+	}
+
+	/**
+	 * Checks that snapshots and slices keep their text while the document
+	 * changes, and that equal texts have equal fingerprints.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testSnapshotsAndFingerprints() throws BadLocationException {
+		Random random = new Random(3);
+		PieceTableDocument document = new PieceTableDocument(
+				randomText(random, 20_000));
+		List<TextSource> snapshots = new ArrayList<>();
+		List<String> texts = new ArrayList<>();
+
+		for (int i = 0; i < 500; i++) {
+			randomEdit(random, TestTexts.TEXT, 3000, document);
+
+			String text = text(document);
+			assertEquals(new PieceTableDocument(text).fingerprint(),
+					document.fingerprint());
+
+			if (i % 10 == 0) {
+				snapshots.add(document.snapshot());
+				texts.add(text);
+				int start = random.nextInt(text.length() + 1);
+				int end = start + random.nextInt(text.length() - start + 1);
+				snapshots.add(document.slice(start, end - start));
+				texts.add(text.substring(start, end));
+			}
+		}
+
+		for (int i = 0; i < snapshots.size(); i++) {
+			assertEquals(texts.get(i), read(snapshots.get(i)));
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+
+/**
+ * Tests the {@link UndoHistory} of a {@link PieceTableDocument}, comparing
+ * the undone and redone texts with the texts the document had.
+ *
+ * @author 0036502252
+ *
+ */
+public class UndoHistoryTest {
+	/**
+	 * The edited document.
+	 */
+	private PieceTableDocument document;
+	/**
+	 * The tested history.
+	 */
+	private UndoHistory history;
+
+	/**
+	 * Creates the document and its history.
+	 */
+	@Before
+	public void setUp() {
+		document = new PieceTableDocument(TestTexts.TEXT);
+		history = new UndoHistory(document);
+	}
+
+	/**
+	 * Disposes the history, so it doesn't count against the global budget of
+	 * the other tests.
+	 */
+	@After
+	public void tearDown() {
+		history.dispose();
+	}
+
+	/**
+	 * Undoes and redoes random edits one by one.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testRandomEdits() throws BadLocationException {
+		Random random = new Random(5);
+		List<String> texts = new ArrayList<>();
+		texts.add(TestTexts.text(document));
+		for (int i = 0; i < 500; i++) {
+			// edits of a single character could be merged, so every edit
+			// inserts or removes at least two
+			int length = document.getLength();
+			if (length >= 2 && random.nextInt(3) == 0) {
+				int offset = random.nextInt(length - 1);
+				document.remove(offset, 2 + random.nextInt(
+						Math.min(length - offset - 1, 50)));
+			} else {
+				document.insertString(random.nextInt(length + 1),
+						TestTexts.randomText(random, TestTexts.TEXT,
+								2 + random.nextInt(50)),
+						null);
+			}
+			texts.add(TestTexts.text(document));
+		}
+
+		for (int i = texts.size() - 2; i >= 0; i--) {
+			assertTrue(history.canUndo());
+			history.undo();
+			assertEquals(texts.get(i), TestTexts.text(document));
+		}
+		assertFalse(history.canUndo());
+
+		for (int i = 1; i < texts.size(); i++) {
+			assertTrue(history.canRedo());
+			history.redo();
+			assertEquals(texts.get(i), TestTexts.text(document));
+		}
+		assertFalse(history.canRedo());
+	}
+
+	/**
+	 * Checks that the characters of a typed word are undone at once, and
+	 * that the following word is a new entry.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testTypedWords() throws BadLocationException {
+		String typed = "ab cd";
+		for (int i = 0; i < typed.length(); i++) {
+			document.insertString(i, typed.substring(i, i + 1), null);
+		}
+		assertEquals("ab cd" + TestTexts.TEXT, TestTexts.text(document));
+
+		assertEquals(3, history.undo());
+		assertEquals("ab " + TestTexts.TEXT, TestTexts.text(document));
+		assertEquals(0, history.undo());
+		assertEquals(TestTexts.TEXT, TestTexts.text(document));
+		assertFalse(history.canUndo());
+	}
+
+	/**
+	 * Checks that a group of changes is undone at once, and that a new
+	 * change can't be redone after an undone one.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testGroup() throws BadLocationException {
+		history.beginGroup();
+		document.insertString(0, "first\n", null);
+		document.remove(8, 2);
+		document.insertString(3, "second", null);
+		history.endGroup(true);
+		String grouped = TestTexts.text(document);
+
+		history.undo();
+		assertEquals(TestTexts.TEXT, TestTexts.text(document));
+		history.redo();
+		assertEquals(grouped, TestTexts.text(document));
+
+		history.undo();
+		document.insertString(0, "new\n", null);
+		assertFalse(history.canRedo());
+		history.undo();
+		assertEquals(TestTexts.TEXT, TestTexts.text(document));
+	}
+
+	/**
+	 * Checks that only the newest entries are kept, and that changes made
+	 * while not recording can't be undone.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testLimits() throws BadLocationException {
+		for (int i = 0; i < 1100; i++) {
+			document.insertString(0, "line\n", null);
+		}
+		int undone = 0;
+		while (history.canUndo()) {
+			history.undo();
+			undone++;
+		}
+		assertEquals(1024, undone);
+		assertEquals(76 * "line\n".length() + TestTexts.TEXT.length(),
+				document.getLength());
+
+		history.setRecording(false);
+		document.insertString(0, "loaded", null);
+		history.setRecording(true);
+		assertFalse(history.canUndo());
+	}
+}
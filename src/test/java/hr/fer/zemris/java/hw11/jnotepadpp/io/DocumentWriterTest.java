@@ -0,0 +1,249 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomText;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import javax.swing.text.Segment;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Tests the {@link DocumentWriter}, comparing the written files with the
+ * text encoded by {@link String#getBytes(java.nio.charset.Charset)}.
+ *
+ * @author 0036502252
+ *
+ */
+public class DocumentWriterTest {
+	/**
+	 * The supplementary character U+1F600, as a surrogate pair.
+	 */
+	private static final String PAIR = "\uD83D\uDE00";
+
+	/**
+	 * The directory of the written files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Writes texts with surrogate pairs split across the character buffer of
+	 * the writer, which holds 8K characters, and across short segments.
+	 *
+	 * @throws IOException
+	 *             if the test fails
+	 */
+	@Test
+	public void testSurrogatePairs() throws IOException {
+		DocumentWriter writer = new DocumentWriter();
+		Path path = folder.getRoot().toPath().resolve("text");
+		char[] filler = new char[3 * 8192];
+		Arrays.fill(filler, 'a');
+
+		for (int split = 8190; split <= 8193; split++) {
+			String text = new String(filler, 0, split) + PAIR
+					+ new String(filler, 0, split) + PAIR;
+			writer.write(new ArrayTextSource(text.toCharArray()), path);
+			assertWritten(text, path);
+
+			writer.write(new ShortSegments(text, 3), path);
+			assertWritten(text, path);
+		}
+
+		Random random = new Random(1);
+		String text = randomText(random, "ab\n\u017e" + PAIR, 100_000);
+		writer.write(new ShortSegments(text, 7), path);
+		assertWritten(text, path);
+	}
+
+	/**
+	 * Checks that a failed move leaves the target untouched and deletes the
+	 * temporary file.
+	 *
+	 * @throws IOException
+	 *             if the test fails
+	 */
+	@Test
+	public void testFailedMove() throws IOException {
+		// a non-empty directory can't be replaced by a file
+		File target = folder.newFolder("target");
+		new File(target, "child").createNewFile();
+
+		try {
+			new DocumentWriter().write(
+					new ArrayTextSource("text".toCharArray()), target.toPath());
+			fail("A directory should not be replaced.");
+		} catch (IOException expected) {
+		}
+		assertEquals("[child]", Arrays.toString(target.list()));
+		assertEquals("[target]", Arrays.toString(folder.getRoot().list()));
+	}
+
+	/**
+	 * Checks that a source failing while it is written leaves the target
+	 * untouched and deletes the temporary file.
+	 *
+	 * @throws IOException
+	 *             if the test fails
+	 */
+	@Test
+	public void testFailedSource() throws IOException {
+		Path path = folder.newFile("target").toPath();
+		Files.write(path, "old".getBytes(StandardCharsets.UTF_8));
+		TextSource broken = new ShortSegments("new", 1) {
+			@Override
+			public void getChars(int where, int len, Segment txt) {
+				throw new IllegalStateException("broken");
+			}
+		};
+
+		try {
+			new DocumentWriter().write(broken, path);
+			fail("The exception of the source should be thrown.");
+		} catch (IllegalStateException expected) {
+		}
+		assertWritten("old", path);
+		assertEquals("[target]", Arrays.toString(folder.getRoot().list()));
+	}
+
+	/**
+	 * Checks that a replaced file keeps its permissions.
+	 *
+	 * @throws IOException
+	 *             if the test fails
+	 */
+	@Test
+	public void testPermissions() throws IOException {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews()
+				.contains("posix"));
+		Path path = folder.newFile().toPath();
+		Set<PosixFilePermission> permissions = PosixFilePermissions
+				.fromString("rw-r-xr--");
+		Files.setPosixFilePermissions(path, permissions);
+
+		new DocumentWriter().write(new ArrayTextSource("text".toCharArray()),
+				path);
+		assertWritten("text", path);
+		assertEquals(permissions, Files.getPosixFilePermissions(path));
+	}
+
+	/**
+	 * Checks that a target renamed aside is replaced and then deleted.
+	 *
+	 * @throws IOException
+	 *             if the test fails
+	 */
+	@Test
+	public void testReplaceAside() throws IOException {
+		Path target = folder.newFile("target").toPath();
+		Path temp = folder.newFile("temp").toPath();
+		Files.write(target, "old".getBytes(StandardCharsets.UTF_8));
+		Files.write(temp, "new".getBytes(StandardCharsets.UTF_8));
+
+		DocumentWriter.replaceAside(temp, target);
+		assertWritten("new", target);
+		assertFalse(Files.exists(temp));
+		assertEquals("[target]", Arrays.toString(folder.getRoot().list()));
+	}
+
+	/**
+	 * Checks that a target renamed aside is restored if it can't be
+	 * replaced.
+	 *
+	 * @throws IOException
+	 *             if the test fails
+	 */
+	@Test
+	public void testReplaceAsideRestored() throws IOException {
+		Path target = folder.newFile("target").toPath();
+		Files.write(target, "old".getBytes(StandardCharsets.UTF_8));
+		Path missing = folder.getRoot().toPath().resolve("missing");
+
+		try {
+			DocumentWriter.replaceAside(missing, target);
+			fail("A missing file should not replace the target.");
+		} catch (IOException expected) {
+		}
+		assertWritten("old", target);
+		assertEquals("[target]", Arrays.toString(folder.getRoot().list()));
+	}
+
+	/**
+	 * @param text
+	 *            the expected text
+	 * @param path
+	 *            a written file
+	 * @throws IOException
+	 *             if the file can not be read
+	 */
+	private static void assertWritten(String text, Path path)
+			throws IOException {
+		assertArrayEquals(text.getBytes(StandardCharsets.UTF_8),
+				Files.readAllBytes(path));
+	}
+
+	/**
+	 * A source returning segments of at most a given length, as a source of
+	 * many pieces does.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class ShortSegments implements TextSource {
+		/**
+		 * The text of the source.
+		 */
+		private final char[] text;
+		/**
+		 * The maximum length of a returned segment.
+		 */
+		private final int segmentLength;
+
+		/**
+		 * Constructs a new {@link ShortSegments}.
+		 *
+		 * @param text
+		 *            the text of the source
+		 * @param segmentLength
+		 *            the maximum length of a returned segment
+		 */
+		ShortSegments(String text, int segmentLength) {
+			this.text = text.toCharArray();
+			this.segmentLength = segmentLength;
+		}
+
+		@Override
+		public int length() {
+			return text.length;
+		}
+
+		@Override
+		public void getChars(int where, int len, Segment txt) {
+			txt.array = text;
+			txt.offset = where;
+			txt.count = txt.isPartialReturn() ? Math.min(len, segmentLength)
+					: len;
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomText;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link FileBlocks} of random files, by rebuilding each edited
+ * text from the blocks which didn't change and the decoded bytes between
+ * them, as a reload does.
+ *
+ * @author 0036502252
+ *
+ */
+public class FileBlocksTest {
+	/**
+	 * The directory of the scanned files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Checks the sizes and offsets of the blocks of random files.
+	 *
+	 * @throws IOException
+	 *             if the files can not be written or read
+	 */
+	@Test
+	public void testScan() throws IOException {
+		Random random = new Random(1);
+		Path path = folder.newFile().toPath();
+		for (int length : new int[] { 0, 1, 5000, 300_000, 3_000_000 }) {
+			String text = randomText(random, length);
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			Files.write(path, bytes);
+			FileBlocks blocks = FileBlocks.scan(path);
+
+			assertEquals(bytes.length, blocks.getSize());
+			assertEquals(text.length(), blocks.getLength());
+			assertTrue(blocks.isUpToDate(path));
+			// blocks are only cut between characters
+			int chars = 0;
+			for (int i = 0; i < blocks.getBlockCount(); i++) {
+				assertEquals(chars, blocks.getCharStart(i));
+				chars += decode(bytes, (int) blocks.getByteStart(i),
+						(int) blocks.getByteStart(i + 1)).length();
+			}
+			assertEquals(text.length(), chars);
+		}
+	}
+
+	/**
+	 * Edits a file at random, and checks that the text is rebuilt from the
+	 * common blocks, and that a small edit leaves most blocks in common.
+	 *
+	 * @throws IOException
+	 *             if the files can not be written or read
+	 */
+	@Test
+	public void testRandomEdits() throws IOException {
+		Random random = new Random(2);
+		Path path = folder.newFile().toPath();
+		String text = randomText(random, 1_000_000);
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		FileBlocks blocks = FileBlocks.scan(path);
+
+		for (int i = 0; i < 30; i++) {
+			int start;
+			int end;
+			if (random.nextInt(4) == 0) {
+				// appended
+				start = text.length();
+				end = start;
+			} else {
+				start = random.nextInt(text.length() + 1);
+				end = Math.min(text.length(), start + random.nextInt(100));
+			}
+			String changed = text.substring(0, start)
+					+ randomText(random, random.nextInt(100))
+					+ text.substring(end);
+			byte[] bytes = changed.getBytes(StandardCharsets.UTF_8);
+			Files.write(path, bytes);
+			FileBlocks changedBlocks = FileBlocks.scan(path);
+
+			int prefix = blocks.commonPrefix(changedBlocks);
+			int suffix = blocks.commonSuffix(changedBlocks, prefix);
+			int from = (int) changedBlocks.getByteStart(prefix);
+			int to = (int) changedBlocks.getByteStart(
+					changedBlocks.getBlockCount() - suffix);
+			String rebuilt = text.substring(0, blocks.getCharStart(prefix))
+					+ decode(bytes, from, to)
+					+ text.substring(blocks.getCharStart(
+							blocks.getBlockCount() - suffix));
+
+			assertEquals(changed, rebuilt);
+			assertTrue(to - from < bytes.length / 4);
+
+			text = changed;
+			blocks = changedBlocks;
+		}
+	}
+
+	/**
+	 * Changes a single byte of a file, and checks that only the block which
+	 * contains it differs, or two blocks if the changed line moved a cut.
+	 *
+	 * @throws IOException
+	 *             if the files can not be written or read
+	 */
+	@Test
+	public void testChangedByte() throws IOException {
+		Random random = new Random(3);
+		Path path = folder.newFile().toPath();
+		byte[] bytes = randomText(random, 200_000)
+				.getBytes(StandardCharsets.UTF_8);
+		Files.write(path, bytes);
+		FileBlocks blocks = FileBlocks.scan(path);
+
+		for (int i = 0; i < 20; i++) {
+			int offset = random.nextInt(bytes.length);
+			while (bytes[offset] != 'a' && bytes[offset] != 'b') {
+				offset = (offset + 1) % bytes.length;
+			}
+			byte[] changed = Arrays.copyOf(bytes, bytes.length);
+			changed[offset] = bytes[offset] == 'a' ? (byte) 'b' : (byte) 'a';
+			Files.write(path, changed);
+			FileBlocks changedBlocks = FileBlocks.scan(path);
+
+			int prefix = blocks.commonPrefix(changedBlocks);
+			int suffix = blocks.commonSuffix(changedBlocks, prefix);
+			assertTrue(prefix + suffix >= blocks.getBlockCount() - 2);
+			assertTrue(blocks.getByteStart(prefix) <= offset);
+			assertTrue(offset < blocks
+					.getByteStart(blocks.getBlockCount() - suffix));
+		}
+	}
+
+	/**
+	 * @param bytes
+	 *            UTF-8 bytes
+	 * @param from
+	 *            the start of the decoded range
+	 * @param to
+	 *            the end of the decoded range
+	 * @return the decoded text
+	 */
+	private static String decode(byte[] bytes, int from, int to) {
+		return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+	}
+}
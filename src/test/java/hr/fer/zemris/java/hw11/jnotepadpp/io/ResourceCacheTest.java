@@ -0,0 +1,124 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.MediaTracker;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.swing.ImageIcon;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.JNotepadPP;
+
+/**
+ * Tests the {@link ResourceCache} with the resources of the program,
+ * comparing the cached contents with the resources read directly.
+ *
+ * @author 0036502252
+ *
+ */
+public class ResourceCacheTest {
+	/**
+	 * The tested cache.
+	 */
+	private final ResourceCache cache = ResourceCache.getInstance();
+
+	/**
+	 * Reads resources by relative and absolute names, and checks that each
+	 * of them is read once.
+	 *
+	 * @throws IOException
+	 *             if a resource can't be read directly
+	 */
+	@Test
+	public void testBytes() throws IOException {
+		for (String name : new String[] { "icons/red.png",
+				"local/translations_en.properties" }) {
+			byte[] bytes = cache.getBytes(JNotepadPP.class, name);
+			assertArrayEquals(read(name), bytes);
+			assertSame(bytes, cache.getBytes(JNotepadPP.class, name));
+			assertSame(bytes, cache.getBytes(ResourceCache.class,
+					"/hr/fer/zemris/java/hw11/jnotepadpp/" + name));
+		}
+	}
+
+	/**
+	 * Decodes icons, and checks that every icon is decoded once, even when
+	 * it is requested by many threads at once.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testIcons() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (String name : new String[] { "icons/green.png",
+					"icons/yellow.png" }) {
+				List<Callable<ImageIcon>> tasks = new ArrayList<>();
+				for (int i = 0; i < 16; i++) {
+					tasks.add(() -> cache.getIcon(JNotepadPP.class, name));
+				}
+				ImageIcon icon = cache.getIcon(JNotepadPP.class, name);
+				for (Future<ImageIcon> future : executor.invokeAll(tasks)) {
+					assertSame(icon, future.get());
+				}
+				assertEquals(MediaTracker.COMPLETE, icon.getImageLoadStatus());
+				assertTrue(icon.getIconWidth() > 0);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks that a missing resource fails when it is requested, but not when
+	 * it is preloaded.
+	 */
+	@Test
+	public void testMissing() {
+		cache.preloadIcons(JNotepadPP.class, "icons/none.png",
+				"icons/red.png");
+		try {
+			cache.getIcon(JNotepadPP.class, "icons/none.png");
+			fail("A missing icon should not be loaded.");
+		} catch (IllegalArgumentException expected) {
+		}
+		assertTrue(cache.getIcon(JNotepadPP.class, "icons/red.png")
+				.getIconWidth() > 0);
+	}
+
+	/**
+	 * Reads a resource directly.
+	 *
+	 * @param name
+	 *            the name of the resource, relative to {@link JNotepadPP}
+	 * @return the contents of the resource
+	 * @throws IOException
+	 *             if the resource can't be read
+	 */
+	private static byte[] read(String name) throws IOException {
+		try (InputStream in = JNotepadPP.class.getResourceAsStream(name)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[100];
+			int n;
+			while ((n = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+}
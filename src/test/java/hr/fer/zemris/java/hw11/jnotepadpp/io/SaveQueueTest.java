@@ -0,0 +1,267 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.Segment;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Tests the {@link SaveQueue} on an executor whose tasks are run by hand, so
+ * the order of the saves is known.
+ *
+ * @author 0036502252
+ *
+ */
+public class SaveQueueTest {
+	/**
+	 * The directory of the saved files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * The tasks given to the executor of the queue.
+	 */
+	private Deque<Runnable> tasks;
+	/**
+	 * The notifications of the listener, as "completed" or "failed" and the
+	 * version or cause.
+	 */
+	private List<String> events;
+	/**
+	 * The causes of the failed saves.
+	 */
+	private List<IOException> failures;
+	/**
+	 * The tested queue.
+	 */
+	private SaveQueue queue;
+
+	/**
+	 * Creates the queue.
+	 */
+	@Before
+	public void setUp() {
+		tasks = new ArrayDeque<>();
+		events = new ArrayList<>();
+		failures = new ArrayList<>();
+		queue = new SaveQueue(tasks::add, new SaveListener() {
+			@Override
+			public void saveCompleted(Path path, long version) {
+				events.add("completed " + version);
+			}
+
+			@Override
+			public void saveFailed(Path path, IOException cause) {
+				events.add("failed");
+				failures.add(cause);
+			}
+		});
+	}
+
+	/**
+	 * Checks that a waiting save of a path is replaced by a newer one.
+	 *
+	 * @throws Exception
+	 *             if the test fails
+	 */
+	@Test
+	public void testReplacedSave() throws Exception {
+		Path path = folder.newFile().toPath();
+		Path other = folder.newFile().toPath();
+		submit("first", path, 1);
+		submit("other", other, 2);
+		submit("second", path, 3);
+		assertEquals(1, tasks.size());
+		assertTrue(isSaving());
+
+		tasks.poll().run();
+		flush();
+		assertEquals("[completed 2, completed 3]", events.toString());
+		assertEquals("second", read(path));
+		assertEquals("other", read(other));
+		assertFalse(isSaving());
+	}
+
+	/**
+	 * Checks that an exception of a broken snapshot is reported as a failed
+	 * save, and that the following saves are still written.
+	 *
+	 * @throws Exception
+	 *             if the test fails
+	 */
+	@Test
+	public void testRuntimeException() throws Exception {
+		Path path = folder.newFile().toPath();
+		Path other = folder.newFile().toPath();
+		IllegalStateException broken = new IllegalStateException("broken");
+		submit(new BrokenSource(broken), path, 1);
+		submit("other", other, 2);
+
+		tasks.poll().run();
+		flush();
+		assertEquals("[failed, completed 2]", events.toString());
+		assertEquals(broken, failures.get(0).getCause());
+		assertEquals("other", read(other));
+		assertTrue(tasks.isEmpty());
+		assertFalse(isSaving());
+	}
+
+	/**
+	 * Checks that the queue is drained by the next save if an error killed
+	 * the task draining it.
+	 *
+	 * @throws Exception
+	 *             if the test fails
+	 */
+	@Test
+	public void testError() throws Exception {
+		Path path = folder.newFile().toPath();
+		Path other = folder.newFile().toPath();
+		AssertionError error = new AssertionError("error");
+		submit(new BrokenSource(error), path, 1);
+		try {
+			tasks.poll().run();
+			fail("The error should escape the task.");
+		} catch (AssertionError e) {
+			assertEquals(error, e);
+		}
+
+		submit("other", other, 2);
+		assertEquals(1, tasks.size());
+		tasks.poll().run();
+		flush();
+		assertEquals("[completed 2]", events.toString());
+		assertEquals("other", read(other));
+	}
+
+	/**
+	 * Submits a text on the event dispatch thread.
+	 *
+	 * @param text
+	 *            the saved text
+	 * @param path
+	 *            the path to which the text is saved
+	 * @param version
+	 *            the version of the save
+	 * @throws Exception
+	 *             if the submitting fails
+	 */
+	private void submit(String text, Path path, long version)
+			throws Exception {
+		submit(new ArrayTextSource(text.toCharArray()), path, version);
+	}
+
+	/**
+	 * Submits a snapshot on the event dispatch thread.
+	 *
+	 * @param snapshot
+	 *            the saved snapshot
+	 * @param path
+	 *            the path to which the snapshot is saved
+	 * @param version
+	 *            the version of the save
+	 * @throws Exception
+	 *             if the submitting fails
+	 */
+	private void submit(TextSource snapshot, Path path, long version)
+			throws Exception {
+		SwingUtilities.invokeAndWait(
+				() -> queue.submit(snapshot, path, version));
+	}
+
+	/**
+	 * @return whether the queue is saving, checked on the event dispatch
+	 *         thread
+	 * @throws Exception
+	 *             if the checking fails
+	 */
+	private boolean isSaving() throws Exception {
+		boolean[] saving = new boolean[1];
+		SwingUtilities.invokeAndWait(() -> saving[0] = queue.isSaving());
+		return saving[0];
+	}
+
+	/**
+	 * Waits for the notifications already posted to the event dispatch
+	 * thread.
+	 *
+	 * @throws InvocationTargetException
+	 *             if a notification fails
+	 * @throws InterruptedException
+	 *             if the waiting is interrupted
+	 */
+	private static void flush()
+			throws InvocationTargetException, InterruptedException {
+		SwingUtilities.invokeAndWait(() -> {
+		});
+	}
+
+	/**
+	 * @param path
+	 *            a saved file
+	 * @return the text of the file
+	 * @throws IOException
+	 *             if the file can not be read
+	 */
+	private static String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A snapshot which throws when it is read.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class BrokenSource implements TextSource {
+		/**
+		 * The thrown exception or error.
+		 */
+		private final Throwable thrown;
+
+		/**
+		 * Constructs a new {@link BrokenSource}.
+		 *
+		 * @param thrown
+		 *            an unchecked exception or an error
+		 */
+		BrokenSource(Throwable thrown) {
+			this.thrown = thrown;
+		}
+
+		@Override
+		public int length() {
+			return 10;
+		}
+
+		@Override
+		public void getChars(int where, int len, Segment txt) {
+			if (thrown instanceof Error) {
+				throw (Error) thrown;
+			}
+			throw (RuntimeException) thrown;
+		}
+	}
+}
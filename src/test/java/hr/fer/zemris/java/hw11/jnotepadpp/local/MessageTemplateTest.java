@@ -0,0 +1,168 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.Random;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+
+/**
+ * Tests the {@link MessageTemplate} and the {@link LocalizedMessages} of the
+ * program's languages, comparing the formatted messages with the messages
+ * whose arguments are replaced by a regular expression.
+ *
+ * @author 0036502252
+ *
+ */
+public class MessageTemplateTest {
+	/**
+	 * The base name of the program's bundles.
+	 */
+	private static final String BUNDLE =
+			"hr.fer.zemris.java.hw11.jnotepadpp.local.translations";
+	/**
+	 * The languages of the program.
+	 */
+	private static final String[] LANGUAGES = { "en", "de", "hr" };
+	/**
+	 * An argument of a message.
+	 */
+	private static final Pattern ARGUMENT = Pattern
+			.compile("\\{(\\d{1,2})\\}");
+
+	/**
+	 * Formats random messages of braces, digits and apostrophes with up to
+	 * three values.
+	 */
+	@Test
+	public void testRandomMessages() {
+		Random random = new Random(23);
+		for (int i = 0; i < 5000; i++) {
+			String message = TestTexts.randomText(random, "{}{}0123 '",
+					random.nextInt(20));
+			MessageTemplate template = MessageTemplate.parse(message);
+			long[] values = { random.nextInt(), -random.nextInt(1000),
+					random.nextLong() };
+
+			assertEquals(message, expected(message, new Object[0]),
+					template.format());
+			assertEquals(message, expected(message, values[0]),
+					template.appendTo(new StringBuilder(), values[0])
+							.toString());
+			assertEquals(message, expected(message, values[0], values[1]),
+					template.appendTo(new StringBuilder("x"), values[0],
+							values[1]).substring(1));
+			assertEquals(message,
+					expected(message, values[0], values[1], values[2]),
+					template.appendTo(new StringBuilder(), values[0],
+							values[1], values[2]).toString());
+			assertEquals(message, expected(message, "a", null, 'c', "d"),
+					template.format("a", null, 'c', "d"));
+		}
+	}
+
+	/**
+	 * Compiles the bundles of all languages, and checks that they have the
+	 * same keys, and that the messages of every key have the same arguments
+	 * in all languages.
+	 */
+	@Test
+	public void testBundles() {
+		Set<String> keys = null;
+		for (String language : LANGUAGES) {
+			ResourceBundle bundle = ResourceBundle.getBundle(BUNDLE,
+					Locale.forLanguageTag(language));
+			LocalizedMessages messages = new LocalizedMessages(bundle);
+			Set<String> languageKeys = new TreeSet<>(
+					Collections.list(bundle.getKeys()));
+			if (keys == null) {
+				keys = languageKeys;
+			}
+			assertEquals(language, keys, languageKeys);
+
+			ResourceBundle english = ResourceBundle.getBundle(BUNDLE,
+					Locale.ENGLISH);
+			for (String key : keys) {
+				String message = bundle.getString(key);
+				assertEquals(message, messages.getString(key));
+				assertEquals(message, expected(message, 7, 8, 9),
+						messages.getTemplate(key).format(7, 8, 9));
+				assertEquals(language + " " + key,
+						arguments(english.getString(key)),
+						arguments(message));
+			}
+			try {
+				messages.getTemplate("no such key");
+				fail("A missing key should not be found.");
+			} catch (MissingResourceException expected) {
+			}
+		}
+	}
+
+	/**
+	 * Switches the language of the provider, and checks that its messages
+	 * are switched with it.
+	 */
+	@Test
+	public void testSetLanguage() {
+		LocalizationProvider provider = LocalizationProvider.getInstance();
+		try {
+			for (String language : LANGUAGES) {
+				provider.setLanguage(language);
+				assertEquals(language, provider.getString("current_lang"));
+				assertEquals(ResourceBundle.getBundle(BUNDLE,
+						Locale.forLanguageTag(language))
+						.getString("status_length"),
+						provider.getTemplate("status_length").format("{0}"));
+			}
+		} finally {
+			provider.setLanguage("en");
+		}
+	}
+
+	/**
+	 * Replaces the arguments of a message which have values.
+	 *
+	 * @param message
+	 *            the message
+	 * @param values
+	 *            the values of the arguments
+	 * @return the formatted message
+	 */
+	private static String expected(String message, Object... values) {
+		StringBuffer sb = new StringBuffer();
+		Matcher matcher = ARGUMENT.matcher(message);
+		while (matcher.find()) {
+			int index = Integer.parseInt(matcher.group(1));
+			matcher.appendReplacement(sb, Matcher.quoteReplacement(
+					index < values.length ? String.valueOf(values[index])
+							: matcher.group()));
+		}
+		return matcher.appendTail(sb).toString();
+	}
+
+	/**
+	 * @param message
+	 *            a message
+	 * @return the indexes of the arguments of the message
+	 */
+	private static Set<Integer> arguments(String message) {
+		Set<Integer> arguments = new TreeSet<>();
+		Matcher matcher = ARGUMENT.matcher(message);
+		while (matcher.find()) {
+			arguments.add(Integer.parseInt(matcher.group(1)));
+		}
+		return arguments;
+	}
+}
@@ -0,0 +1,322 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Tests the {@link ParallelSearch} on texts of several ranges, comparing the
+ * results with the hits found by {@link String#indexOf(String, int)}.
+ *
+ * @author 0036502252
+ *
+ */
+public class ParallelSearchTest {
+	/**
+	 * The default number of characters in a searched range.
+	 */
+	private static final int RANGE_CHARS = 1 << 20;
+	/**
+	 * The pool of the searches.
+	 */
+	private final ForkJoinPool pool = new ForkJoinPool(2);
+
+	/**
+	 * Shuts the pool down.
+	 */
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Searches several texts, one of which can't be read, and checks that
+	 * the texts are read by the pool and the failure is reported.
+	 *
+	 * @throws InterruptedException
+	 *             if the waiting is interrupted
+	 */
+	@Test
+	public void testSuppliedTexts() throws InterruptedException {
+		Random random = new Random(9);
+		Map<String, String> texts = new LinkedHashMap<>();
+		texts.put("large", TestTexts.randomText(random, 2_500_000));
+		texts.put("small", TestTexts.randomText(random, 1000));
+		texts.put("empty", "");
+
+		List<String> readers = Collections.synchronizedList(new ArrayList<>());
+		Map<String, Supplier<TextSource>> sources = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : texts.entrySet()) {
+			sources.put(entry.getKey(), () -> {
+				readers.add(entry.getKey());
+				assertTrue(Thread
+						.currentThread() instanceof ForkJoinWorkerThread);
+				return new ArrayTextSource(entry.getValue().toCharArray());
+			});
+		}
+		IOException cause = new IOException("missing");
+		sources.put("broken", () -> {
+			throw new UncheckedIOException(cause);
+		});
+
+		Collected collected = new Collected();
+		new ParallelSearch<>(new SearchQuery("ab", false, true), collected)
+				.start(pool, sources);
+		assertTrue(collected.finished.await(30, TimeUnit.SECONDS));
+		assertEquals(3, readers.size());
+
+		for (Map.Entry<String, String> entry : texts.entrySet()) {
+			assertEquals(expected(entry.getValue(),
+					new SearchQuery("ab", false, true)),
+					collected.hits(entry.getKey()));
+		}
+		assertEquals(Collections.singletonMap("broken", cause),
+				collected.failures);
+	}
+
+	/**
+	 * Searches a hundred and fifty small texts, as many open tabs, with
+	 * literal queries, with and without matching the case, and regular
+	 * expressions, and checks the hits of every text, their order, lines and
+	 * previews.
+	 *
+	 * @throws InterruptedException
+	 *             if the waiting is interrupted
+	 */
+	@Test
+	public void testManyTexts() throws InterruptedException {
+		Random random = new Random(10);
+		Map<String, String> texts = new LinkedHashMap<>();
+		for (int i = 0; i < 150; i++) {
+			texts.put("tab" + i, TestTexts.randomText(random, "abAB \n",
+					random.nextInt(5000)));
+		}
+		for (SearchQuery query : new SearchQuery[] {
+				new SearchQuery("aba", false, true),
+				new SearchQuery("aBa", false, false),
+				new SearchQuery("b+ ?A", true, true) }) {
+			assertSearched(texts, query);
+		}
+	}
+
+	/**
+	 * Searches a text of a few ranges, with hits ending at, spanning and
+	 * starting at the borders of the ranges, and a line starting at a
+	 * border.
+	 *
+	 * @throws InterruptedException
+	 *             if the waiting is interrupted
+	 */
+	@Test
+	public void testRangeBorders() throws InterruptedException {
+		char[] text = new char[3 * RANGE_CHARS + 100];
+		Arrays.fill(text, 'x');
+		for (int i = 1000; i < text.length; i += 1000) {
+			text[i] = '\n';
+		}
+		// needles ending at, spanning and starting at the borders
+		for (int i = 1; i <= 3; i++) {
+			int border = i * RANGE_CHARS;
+			"needle".getChars(0, 6, text, border - 9 + 3 * i);
+		}
+		text[3 * RANGE_CHARS - 1] = '\n';
+		for (boolean matchCase : new boolean[] { false, true }) {
+			assertSearched(Collections.singletonMap("large",
+					new String(text)), new SearchQuery("needle", false,
+							matchCase));
+		}
+	}
+
+	/**
+	 * Cancels a search before it starts, and checks that nothing is passed
+	 * on.
+	 */
+	@Test
+	public void testCancelled() {
+		Map<String, Supplier<TextSource>> sources = new LinkedHashMap<>();
+		sources.put("text", () -> new ArrayTextSource("ab ab".toCharArray()));
+		Collected collected = new Collected();
+		ParallelSearch<String> search = new ParallelSearch<>(
+				new SearchQuery("ab", false, true), collected);
+		search.cancel();
+		search.start(pool, sources);
+
+		assertTrue(pool.awaitQuiescence(30, TimeUnit.SECONDS));
+		assertEquals(1, collected.finished.getCount());
+		assertTrue(collected.results.isEmpty());
+	}
+
+	/**
+	 * Searches the texts and compares the results of every text with the
+	 * expected ones.
+	 *
+	 * @param texts
+	 *            the searched texts of their names
+	 * @param query
+	 *            the query
+	 * @throws InterruptedException
+	 *             if the waiting is interrupted
+	 */
+	private void assertSearched(Map<String, String> texts, SearchQuery query)
+			throws InterruptedException {
+		Map<String, Supplier<TextSource>> sources = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : texts.entrySet()) {
+			sources.put(entry.getKey(), () -> new ArrayTextSource(
+					entry.getValue().toCharArray()));
+		}
+		Collected collected = new Collected();
+		new ParallelSearch<>(query, collected).start(pool, sources);
+		assertTrue(collected.finished.await(30, TimeUnit.SECONDS));
+
+		for (Map.Entry<String, String> entry : texts.entrySet()) {
+			String text = entry.getValue();
+			assertEquals(entry.getKey(), expected(text, query),
+					collected.hits(entry.getKey()));
+			for (SearchResult<String> result : collected.results) {
+				if (result.getOwner().equals(entry.getKey())) {
+					assertEquals(preview(text, result.getOffset(),
+							result.getLength()), result.getPreview());
+				}
+			}
+		}
+		assertTrue(collected.failures.isEmpty());
+	}
+
+	/**
+	 * @param text
+	 *            a text
+	 * @param query
+	 *            a query
+	 * @return the offsets, lengths and lines of all hits of the query in the
+	 *         text, including overlapping hits of a literal query
+	 */
+	private static List<String> expected(String text, SearchQuery query) {
+		List<int[]> found = new ArrayList<>();
+		if (query.isRegex()) {
+			Matcher matcher = query.getPattern().matcher(text);
+			while (matcher.find()) {
+				found.add(new int[] { matcher.start(), matcher.end() });
+			}
+		} else {
+			String pattern = query.getText();
+			for (int offset = 0; offset + pattern.length() <= text
+					.length(); offset++) {
+				if (text.regionMatches(!query.isMatchCase(), offset, pattern,
+						0, pattern.length())) {
+					found.add(new int[] { offset,
+							offset + pattern.length() });
+				}
+			}
+		}
+
+		List<String> hits = new ArrayList<>();
+		int line = 0;
+		int counted = 0;
+		for (int[] hit : found) {
+			for (; counted < hit[0]; counted++) {
+				if (text.charAt(counted) == '\n') {
+					line++;
+				}
+			}
+			hits.add(hit[0] + "+" + (hit[1] - hit[0]) + ":" + line);
+		}
+		return hits;
+	}
+
+	/**
+	 * @param text
+	 *            a text without carriage returns
+	 * @param offset
+	 *            the offset of a hit
+	 * @param length
+	 *            the length of the hit
+	 * @return the part of the line of the hit shown around it
+	 */
+	private static String preview(String text, int offset, int length) {
+		int start = text.lastIndexOf('\n', offset - 1) + 1;
+		int end = text.indexOf('\n', offset);
+		if (end < 0) {
+			end = text.length();
+		}
+		// at most 60 characters on each side of the hit
+		start = Math.max(start, offset - 60);
+		end = Math.min(end, offset + length + 60);
+		return text.substring(start, end);
+	}
+
+	/**
+	 * Collects the notifications of a search.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class Collected implements SearchResultListener<String> {
+		/**
+		 * The found results.
+		 */
+		final List<SearchResult<String>> results = new ArrayList<>();
+		/**
+		 * The causes of the failures of the objects.
+		 */
+		final Map<String, IOException> failures = new LinkedHashMap<>();
+		/**
+		 * Released once the search is finished.
+		 */
+		final CountDownLatch finished = new CountDownLatch(1);
+
+		@Override
+		public synchronized void resultsFound(
+				List<SearchResult<String>> found) {
+			results.addAll(found);
+		}
+
+		@Override
+		public synchronized void searchFailed(String owner,
+				IOException cause) {
+			failures.put(owner, cause);
+		}
+
+		@Override
+		public void searchFinished() {
+			finished.countDown();
+		}
+
+		/**
+		 * @param owner
+		 *            an object
+		 * @return the offsets, lengths and lines of the results of the object
+		 */
+		synchronized List<String> hits(String owner) {
+			List<String> hits = new ArrayList<>();
+			for (SearchResult<String> result : results) {
+				if (result.getOwner().equals(owner)) {
+					hits.add(result.getOffset() + "+" + result.getLength() + ":"
+							+ result.getLine());
+				}
+			}
+			return hits;
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableContent;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Tests the literal search of the {@link SearchEngine} on sources whose
+ * segments are shorter than the searched text, comparing the hits with all
+ * occurrences found by {@link String#regionMatches(boolean, int, String,
+ * int, int)}, overlapping ones included.
+ *
+ * @author 0036502252
+ *
+ */
+public class SearchEngineTest {
+	/**
+	 * The characters of the tested texts: few letters, so the searched texts
+	 * occur often and overlap, in both cases, and non-ASCII letters whose
+	 * case is changed by {@link Character#toUpperCase(char)} and
+	 * {@link Character#toLowerCase(char)} in special ways.
+	 */
+	private static final String ALPHABET = "aaaAbB \u017E\u017D\u03C3\u03A3"
+			+ "\u03C2\u0130i\u017Fs\u20AC";
+
+	/**
+	 * Searches sources which return random segments of one to a few
+	 * characters.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testShortSegments() throws BadLocationException {
+		Random random = new Random(31);
+		for (int i = 0; i < 300; i++) {
+			String text = TestTexts.randomText(random, ALPHABET, 200);
+			TextSource source = new RandomSegments(text, random,
+					1 + random.nextInt(4));
+			assertFound(random, text, source);
+		}
+	}
+
+	/**
+	 * Searches a piece table after many inserts and removals at random
+	 * offsets, so most of its pieces are shorter than the searched texts.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testPieces() throws BadLocationException {
+		Random random = new Random(32);
+		PieceTableContent content = new PieceTableContent(
+				TestTexts.randomText(random, ALPHABET, 100));
+		for (int i = 0; i < 3000; i++) {
+			int length = content.length() - 1;
+			if (length > 0 && random.nextInt(4) == 0) {
+				int offset = random.nextInt(length);
+				content.remove(offset, 1 + random.nextInt(
+						Math.min(length - offset, 3)));
+			} else {
+				content.insertString(random.nextInt(length + 1), TestTexts
+						.randomText(random, ALPHABET, 1 + random.nextInt(3)));
+			}
+			if (i % 100 == 0) {
+				TextSource snapshot = content.snapshot();
+				assertFound(random, TestTexts.read(snapshot), snapshot);
+			}
+		}
+		assertTrue(content.getPieceCount() > content.length() / 4);
+	}
+
+	/**
+	 * Searches texts of repeated letters in both cases, so the hits
+	 * overlap as much as possible.
+	 *
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testOverlapping() throws BadLocationException {
+		Random random = new Random(33);
+		String text = "aAaaAaaaaAAaaa\u03C3\u03A3\u03C2\u03A3\u03C3";
+		for (int segmentLength = 1; segmentLength <= 5; segmentLength++) {
+			TextSource source = new RandomSegments(text, random,
+					segmentLength);
+			for (String pattern : new String[] { "a", "aa", "aAa", "aaaa",
+					"\u03C3\u03C3", "\u03A3\u03C3\u03A3" }) {
+				assertFound(text, source, 0, text.length(),
+						new SearchQuery(pattern, false, false));
+				assertFound(text, source, 0, text.length(),
+						new SearchQuery(pattern, false, true));
+			}
+		}
+	}
+
+	/**
+	 * Searches random ranges of a source for texts taken from it and random
+	 * texts, with and without matching the case, and refines the hits found
+	 * in the whole source.
+	 *
+	 * @param random
+	 *            the random generator
+	 * @param text
+	 *            the text of the source
+	 * @param source
+	 *            the searched source
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	private static void assertFound(Random random, String text,
+			TextSource source) throws BadLocationException {
+		for (int i = 0; i < 10; i++) {
+			int length = 1 + random.nextInt(8);
+			String pattern;
+			if (text.length() >= length && random.nextBoolean()) {
+				int offset = random.nextInt(text.length() - length + 1);
+				pattern = text.substring(offset, offset + length);
+			} else {
+				pattern = TestTexts.randomText(random, ALPHABET, length);
+			}
+			int start = random.nextInt(text.length() + 1);
+			int end = start + random.nextInt(text.length() - start + 1);
+			if (random.nextBoolean()) {
+				start = 0;
+				end = text.length();
+			}
+
+			for (boolean matchCase : new boolean[] { false, true }) {
+				SearchQuery query = new SearchQuery(pattern, false, matchCase);
+				SearchHits hits = assertFound(text, source, start, end, query);
+				if (start > 0 || end < text.length()) {
+					// only the hits in the whole source are refined
+					continue;
+				}
+				SearchQuery longer = new SearchQuery(pattern + TestTexts
+						.randomText(random, ALPHABET, random.nextInt(3)),
+						false, matchCase);
+				SearchHits refined = new SearchHits();
+				SearchEngine.refine(source, longer, hits, refined);
+				assertEquals(expected(text, 0, end, longer), offsets(refined));
+			}
+		}
+	}
+
+	/**
+	 * Searches a range of a source and compares the hits with the expected
+	 * ones.
+	 *
+	 * @param text
+	 *            the text of the source
+	 * @param source
+	 *            the searched source
+	 * @param start
+	 *            the start of the searched range
+	 * @param end
+	 *            the end of the searched range
+	 * @param query
+	 *            a literal query
+	 * @return the found hits
+	 */
+	private static SearchHits assertFound(String text, TextSource source,
+			int start, int end, SearchQuery query) {
+		SearchHits hits = new SearchHits();
+		SearchEngine.find(source, start, end, query, hits);
+		assertEquals(query.getText() + " " + query.isMatchCase() + " in "
+				+ start + "-" + end, expected(text, start, end, query),
+				offsets(hits));
+		for (int i = 0; i < hits.size(); i++) {
+			assertEquals(query.getText().length(), hits.getLength(i));
+		}
+		return hits;
+	}
+
+	/**
+	 * @param text
+	 *            a text
+	 * @param start
+	 *            the start of the searched range
+	 * @param end
+	 *            the end of the searched range
+	 * @param query
+	 *            a literal query
+	 * @return the offsets of all occurrences of the query in the range, in
+	 *         order
+	 */
+	private static List<Integer> expected(String text, int start, int end,
+			SearchQuery query) {
+		String pattern = query.getText();
+		List<Integer> offsets = new ArrayList<>();
+		for (int offset = start; offset + pattern.length() <= end; offset++) {
+			if (text.regionMatches(!query.isMatchCase(), offset, pattern, 0,
+					pattern.length())) {
+				offsets.add(offset);
+			}
+		}
+		return offsets;
+	}
+
+	/**
+	 * @param hits
+	 *            hits of a search
+	 * @return the offsets of the hits
+	 */
+	private static List<Integer> offsets(SearchHits hits) {
+		List<Integer> offsets = new ArrayList<>();
+		for (int i = 0; i < hits.size(); i++) {
+			offsets.add(hits.getOffset(i));
+		}
+		return offsets;
+	}
+
+	/**
+	 * A source which returns partial segments of random lengths, at most the
+	 * given one.
+	 *
+	 * @author 0036502252
+	 *
+	 */
+	private static class RandomSegments implements TextSource {
+		/**
+		 * The text of the source.
+		 */
+		private final char[] text;
+		/**
+		 * The generator of the lengths of the segments.
+		 */
+		private final Random random;
+		/**
+		 * The maximum length of a returned segment.
+		 */
+		private final int segmentLength;
+
+		/**
+		 * Constructs a new {@link RandomSegments}.
+		 *
+		 * @param text
+		 *            the text of the source
+		 * @param random
+		 *            the generator of the lengths of the segments
+		 * @param segmentLength
+		 *            the maximum length of a returned segment
+		 */
+		RandomSegments(String text, Random random, int segmentLength) {
+			this.text = text.toCharArray();
+			this.random = random;
+			this.segmentLength = segmentLength;
+		}
+
+		@Override
+		public int length() {
+			return text.length;
+		}
+
+		@Override
+		public void getChars(int where, int len, Segment txt)
+				throws BadLocationException {
+			if (where < 0 || len < 0 || where + len > text.length) {
+				throw new BadLocationException("Invalid range!", where);
+			}
+			// a copy surrounded by other letters, so reading outside of the
+			// segment gives wrong hits
+			int count = txt.isPartialReturn() ? Math.min(len,
+					1 + random.nextInt(segmentLength)) : len;
+			txt.array = new char[count + 2];
+			Arrays.fill(txt.array, 'a');
+			System.arraycopy(text, where, txt.array, 1, count);
+			txt.offset = 1;
+			txt.count = count;
+		}
+	}
+}
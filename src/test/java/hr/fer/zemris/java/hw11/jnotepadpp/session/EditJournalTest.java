@@ -0,0 +1,206 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.session;
+
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.plainCopy;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomEdit;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomText;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.read;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.text;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+
+/**
+ * Tests {@link EditJournal#replay} by journaling random edits of a document,
+ * also done on a {@link PlainDocument}, and comparing the replayed text with
+ * it.
+ *
+ * @author 0036502252
+ *
+ */
+public class EditJournalTest {
+	/**
+	 * The directory of the journals and documents.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Replays a journal which starts from a snapshot of the text.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testSnapshotBase() throws Exception {
+		Random random = new Random(1);
+		String initial = randomText(random, 5000);
+		PieceTableDocument document = new PieceTableDocument(initial);
+		document.insertString(0, randomText(random, 100), null);
+		PlainDocument expected = plainCopy(document);
+
+		Path file = folder.getRoot().toPath().resolve("snapshot.journal");
+		EditJournal journal = new EditJournal("snapshot", file, null,
+				document.snapshot(), 0, 0);
+		document.addDocumentDeltaListener(journal);
+
+		for (int i = 0; i < 20; i++) {
+			edit(random, 50, document, expected);
+			journal.sync();
+			assertReplayed(expected, file);
+		}
+	}
+
+	/**
+	 * Replays a journal which starts from the document's file, and checks
+	 * that it isn't replayed once the file changes.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testFileBase() throws Exception {
+		Random random = new Random(2);
+		Path path = folder.newFile("document.txt").toPath();
+		String initial = randomText(random, 5000);
+		Files.write(path, initial.getBytes(StandardCharsets.UTF_8));
+		long size = Files.size(path);
+		long modified = Files.getLastModifiedTime(path).toMillis();
+
+		PieceTableDocument document = new PieceTableDocument(initial);
+		PlainDocument expected = plainCopy(document);
+		Path file = folder.getRoot().toPath().resolve("file.journal");
+		EditJournal journal = new EditJournal("file", file, path, null, size,
+				modified);
+		document.addDocumentDeltaListener(journal);
+
+		for (int i = 0; i < 20; i++) {
+			edit(random, 50, document, expected);
+			journal.sync();
+			assertReplayed(expected, file);
+		}
+
+		Files.setLastModifiedTime(path,
+				FileTime.fromMillis(modified + 10_000));
+		assertNull(EditJournal.replay(file, Long.MAX_VALUE));
+	}
+
+	/**
+	 * Replays a journal of a new document, which starts from an empty text.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testEmptyBase() throws Exception {
+		Random random = new Random(3);
+		PieceTableDocument document = new PieceTableDocument("");
+		PlainDocument expected = plainCopy(document);
+		Path file = folder.getRoot().toPath().resolve("empty.journal");
+		EditJournal journal = new EditJournal("empty", file, null, null, 0,
+				0);
+		document.addDocumentDeltaListener(journal);
+
+		for (int i = 0; i < 10; i++) {
+			edit(random, 50, document, expected);
+			journal.sync();
+			assertReplayed(expected, file);
+		}
+	}
+
+	/**
+	 * Cuts off the last frame of a journal at random lengths, and checks that
+	 * the journal is replayed up to the previous frame.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testCutFrame() throws Exception {
+		Random random = new Random(4);
+		PieceTableDocument document = new PieceTableDocument(
+				randomText(random, 1000));
+		PlainDocument expected = plainCopy(document);
+		Path file = folder.getRoot().toPath().resolve("cut.journal");
+		EditJournal journal = new EditJournal("cut", file, null,
+				document.snapshot(), 0, 0);
+		document.addDocumentDeltaListener(journal);
+
+		edit(random, 100, document, expected);
+		journal.sync();
+		String synced = text(expected);
+		long intact = Files.size(file);
+
+		edit(random, 100, document, expected);
+		journal.sync();
+		byte[] bytes = Files.readAllBytes(file);
+		journal.delete();
+
+		for (int i = 0; i < 20; i++) {
+			Path copy = folder.getRoot().toPath().resolve("copy" + i);
+			Files.write(copy, bytes);
+			try (FileChannel channel = FileChannel.open(copy,
+					StandardOpenOption.WRITE)) {
+				channel.truncate(intact
+						+ random.nextInt((int) (bytes.length - intact)));
+			}
+			assertEquals(synced,
+					read(EditJournal.replay(copy, Long.MAX_VALUE).getText()));
+		}
+	}
+
+	/**
+	 * Replays a journal and compares its text with the expected one.
+	 *
+	 * @param expected
+	 *            the expected text
+	 * @param file
+	 *            the journal file
+	 * @throws IOException
+	 *             if the journal can not be read
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	private static void assertReplayed(PlainDocument expected, Path file)
+			throws IOException, BadLocationException {
+		SessionEntry entry = EditJournal.replay(file, Long.MAX_VALUE);
+		assertEquals(text(expected), read(entry.getText()));
+	}
+
+	/**
+	 * Does random edits on the journaled and the reference document.
+	 *
+	 * @param random
+	 *            the random generator
+	 * @param count
+	 *            the number of edits
+	 * @param documents
+	 *            the edited documents
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	private static void edit(Random random, int count, Document... documents)
+			throws BadLocationException {
+		for (int i = 0; i < count; i++) {
+			randomEdit(random, TestTexts.TEXT, 150, documents);
+		}
+	}
+}
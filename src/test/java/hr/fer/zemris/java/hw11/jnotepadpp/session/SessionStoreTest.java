@@ -0,0 +1,242 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.session;
+
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.randomText;
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.read;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+
+/**
+ * Tests the {@link SessionStore} by writing sessions and reading them back,
+ * in the foreground and in the background, and by reading files of the
+ * first version and damaged files.
+ *
+ * @author 0036502252
+ *
+ */
+public class SessionStoreTest {
+	/**
+	 * The directory of the session files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Writes sessions of documents with and without paths, unsaved texts
+	 * and journals, and reads them back.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testWriteRead() throws Exception {
+		Random random = new Random(20);
+		SessionStore store = new SessionStore(
+				folder.getRoot().toPath().resolve("dir").resolve("s.bin"));
+		for (int i = 0; i < 10; i++) {
+			Session session = randomSession(random, i * 7);
+			store.write(session);
+			assertSame(session, store.read());
+		}
+	}
+
+	/**
+	 * Reads a missing session file as an empty session.
+	 *
+	 * @throws IOException
+	 *             if the test is broken
+	 */
+	@Test
+	public void testMissingFile() throws IOException {
+		Session session = new SessionStore(
+				folder.getRoot().toPath().resolve("none.bin")).read();
+		assertTrue(session.getEntries().isEmpty());
+		assertEquals(-1, session.getSelectedIndex());
+	}
+
+	/**
+	 * Reads a file of the first version, whose entries have no journals.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testFirstVersion() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0x4A4E5053);
+		out.writeInt(1);
+		out.writeInt(1);
+		out.writeInt(0);
+		out.writeByte(1);
+		out.writeUTF(folder.getRoot().toPath().resolve("a.txt").toString());
+		out.writeInt(5);
+		out.writeInt(2);
+		Path file = folder.getRoot().toPath().resolve("v1.bin");
+		Files.write(file, bytes.toByteArray());
+
+		Session session = new SessionStore(file).read();
+		assertEquals(0, session.getSelectedIndex());
+		SessionEntry entry = session.getEntries().get(0);
+		assertEquals(folder.getRoot().toPath().resolve("a.txt"),
+				entry.getPath());
+		assertNull(entry.getText());
+		assertEquals(5, entry.getCaretPosition());
+		assertEquals(2, entry.getTopLine());
+		assertNull(entry.getJournal());
+	}
+
+	/**
+	 * Checks that files which aren't session files, and session files cut
+	 * short, can't be read.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testDamagedFiles() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("s.bin");
+		SessionStore store = new SessionStore(file);
+		store.write(randomSession(new Random(21), 5));
+		byte[] written = Files.readAllBytes(file);
+
+		List<byte[]> damaged = new ArrayList<>();
+		damaged.add("not a session".getBytes("UTF-8"));
+		for (int length = 0; length < written.length; length += 7) {
+			damaged.add(Arrays.copyOf(written, length));
+		}
+		for (byte[] content : damaged) {
+			Files.write(file, content);
+			try {
+				store.read();
+				fail("Read " + content.length + " bytes.");
+			} catch (IOException expected) {
+			}
+		}
+	}
+
+	/**
+	 * Submits many sessions to be written in the background, and checks that
+	 * the newest one is written, and that a session written in the
+	 * foreground isn't replaced by one submitted before it.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testWriteLater() throws Exception {
+		Random random = new Random(22);
+		SessionStore store = new SessionStore(
+				folder.getRoot().toPath().resolve("s.bin"));
+		Session session = null;
+		for (int i = 0; i < 50; i++) {
+			session = randomSession(random, 3);
+			store.writeLater(session);
+		}
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (!isSame(session, store.read())) {
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 50; i++) {
+			store.writeLater(randomSession(random, 3));
+		}
+		session = randomSession(random, 3);
+		store.write(session);
+		Thread.sleep(200);
+		assertSame(session, store.read());
+	}
+
+	/**
+	 * @param random
+	 *            the random generator
+	 * @param count
+	 *            the number of documents
+	 * @return a random session
+	 */
+	private Session randomSession(Random random, int count) {
+		List<SessionEntry> entries = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Path path = random.nextInt(3) == 0 ? null
+					: folder.getRoot().toPath().resolve("f" + i + ".txt");
+			ArrayTextSource text = path != null && random.nextBoolean() ? null
+					: new ArrayTextSource(randomText(random,
+							random.nextInt(20_000)).toCharArray());
+			entries.add(new SessionEntry(path, text, random.nextInt(1000),
+					random.nextInt(100),
+					random.nextBoolean() ? null : "journal" + i));
+		}
+		return new Session(entries, count == 0 ? -1 : random.nextInt(count));
+	}
+
+	/**
+	 * Compares two sessions.
+	 *
+	 * @param expected
+	 *            the written session
+	 * @param actual
+	 *            the read session
+	 * @throws BadLocationException
+	 *             if a text is broken
+	 */
+	private static void assertSame(Session expected, Session actual)
+			throws BadLocationException {
+		assertTrue(isSame(expected, actual));
+	}
+
+	/**
+	 * @param expected
+	 *            the written session
+	 * @param actual
+	 *            the read session
+	 * @return true if the sessions have the same documents in the same
+	 *         order, and the same one is selected
+	 * @throws BadLocationException
+	 *             if a text is broken
+	 */
+	private static boolean isSame(Session expected, Session actual)
+			throws BadLocationException {
+		if (expected.getSelectedIndex() != actual.getSelectedIndex()
+				|| expected.getEntries().size() != actual.getEntries()
+						.size()) {
+			return false;
+		}
+		for (int i = 0; i < expected.getEntries().size(); i++) {
+			SessionEntry a = expected.getEntries().get(i);
+			SessionEntry b = actual.getEntries().get(i);
+			boolean same = (a.getPath() == null ? b.getPath() == null
+					: a.getPath().toAbsolutePath().equals(b.getPath()))
+					&& (a.getText() == null ? b.getText() == null
+							: b.getText() != null && read(a.getText())
+									.equals(read(b.getText())))
+					&& a.getCaretPosition() == b.getCaretPosition()
+					&& a.getTopLine() == b.getTopLine()
+					&& (a.getJournal() == null ? b.getJournal() == null
+							: a.getJournal().equals(b.getJournal()));
+			if (!same) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,217 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextEdit;
+import hr.fer.zemris.java.hw11.jnotepadpp.tools.CaseTransformer.Mode;
+
+/**
+ * Tests the {@link CaseTransformer} with chunks of many sizes, comparing the
+ * converted texts with {@link String#toLowerCase(Locale)} and
+ * {@link String#toUpperCase(Locale)} of the whole texts.
+ *
+ * @author 0036502252
+ *
+ */
+public class CaseTransformerTest {
+	/**
+	 * The parts of the tested texts: ASCII letters, digits and punctuation
+	 * which may or may not end a word, the Greek sigma, the Turkish dotted
+	 * and dotless i, a combining dot, the Croatian digraphs, characters whose
+	 * case changes their length, and supplementary letters. The word
+	 * boundaries the JDK finds after a supplementary letter depend on whether
+	 * the letter starts the text, so the supplementary letters are followed
+	 * by a space, and come last.
+	 */
+	private static final String[] PARTS = { "a", "B", "i", "I", "z", "7", " ",
+			"\n", "-", ",", "'", ".", ":", "_", "\u0391", "\u03A3", "\u03C3",
+			"\u03C2", "\u03B1", "\u0130", "\u0131", "\u0307", "\u01C4",
+			"\u01C5", "\u01C6", "\u01C7", "\u01C8", "\u01C9", "\u01CA",
+			"\u01CB", "\u01CC", "\u00DF", "\uFB01", "\u0149",
+			"\uD801\uDC00 ", "\uD801\uDC28 ", "\uD835\uDC00 " };
+	/**
+	 * The locales whose case rules are tested.
+	 */
+	private static final Locale[] LOCALES = { Locale.ENGLISH,
+			new Locale("tr"), new Locale("hr"), new Locale("lt"),
+			new Locale("el") };
+	/**
+	 * The tested chunk sizes.
+	 */
+	private static final int[] CHUNK_CHARS = { 1, 2, 3, 5, 8, 64, 1000 };
+	/**
+	 * The tested parallel thresholds: never and always parallel.
+	 */
+	private static final int[] THRESHOLDS = { Integer.MAX_VALUE, 1 };
+
+	/**
+	 * Converts random texts with few spaces.
+	 */
+	@Test
+	public void testRandomTexts() {
+		Random random = new Random(21);
+		for (int i = 0; i < 20; i++) {
+			assertConverted(randomText(random, 500, PARTS.length));
+		}
+	}
+
+	/**
+	 * Converts random texts without any character ending a word, so the
+	 * chunks have to be grown.
+	 */
+	@Test
+	public void testWordsOnly() {
+		Random random = new Random(22);
+		for (int i = 0; i < 20; i++) {
+			String text = randomText(random, 300, PARTS.length - 3)
+					.replaceAll("[\\s,:]", "");
+			assertConverted(text);
+		}
+	}
+
+	/**
+	 * Converts ASCII texts, which are converted directly unless the locale
+	 * has its own rules for the ASCII letters.
+	 */
+	@Test
+	public void testAscii() {
+		Random random = new Random(23);
+		for (int i = 0; i < 20; i++) {
+			assertConverted(randomText(random, 500, 14));
+		}
+	}
+
+	/**
+	 * Converts known texts whose results depend on the neighbouring
+	 * characters.
+	 */
+	@Test
+	public void testContext() {
+		assertConverted("\u0391\u03A3 \u0391\u03A3\u0391 \u0391\u03A37"
+				+ " \u0391\u03A3_\u0391 \u0391\u03A3'\u0391 \u0391\u03A3-");
+		assertConverted("\u0130 \u0130stanbul \u0131I I\u0307 i\u0307"
+				+ " \u01C5ep");
+	}
+
+	/**
+	 * Converts a range of a longer source.
+	 */
+	@Test
+	public void testRange() {
+		String text = "xxAB \u03A3\u03A3 \u0130\u01C4yy";
+		for (Mode mode : Mode.values()) {
+			CaseTransformer transformer = new CaseTransformer(mode,
+					Locale.ENGLISH, 3, Integer.MAX_VALUE);
+			List<TextEdit> edits = transformer.transform(
+					new ArrayTextSource(text.toCharArray()), 2,
+					text.length() - 2);
+			String range = text.substring(2, text.length() - 2);
+			assertEquals("xx" + expected(mode, range, Locale.ENGLISH) + "yy",
+					apply(text, edits));
+		}
+	}
+
+	/**
+	 * Converts a text in every mode and locale, with every tested chunk size,
+	 * sequentially and in parallel.
+	 *
+	 * @param text
+	 *            the text
+	 */
+	private static void assertConverted(String text) {
+		ArrayTextSource source = new ArrayTextSource(text.toCharArray());
+		for (Locale locale : LOCALES) {
+			for (Mode mode : Mode.values()) {
+				String expected = expected(mode, text, locale);
+				for (int chunkChars : CHUNK_CHARS) {
+					for (int threshold : THRESHOLDS) {
+						List<TextEdit> edits = new CaseTransformer(mode, locale,
+								chunkChars, threshold).transform(source, 0,
+										text.length());
+						assertEquals(mode + " " + locale + " " + chunkChars
+								+ " " + threshold, expected,
+								apply(text, edits));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param mode
+	 *            the change of case
+	 * @param text
+	 *            a text
+	 * @param locale
+	 *            the locale
+	 * @return the text converted as a whole
+	 */
+	private static String expected(Mode mode, String text, Locale locale) {
+		switch (mode) {
+		case LOWER:
+			return text.toLowerCase(locale);
+		case UPPER:
+			return text.toUpperCase(locale);
+		default:
+			// runs of lowercase and other code points are converted
+			StringBuilder sb = new StringBuilder();
+			int runStart = 0;
+			for (int i = 0; i < text.length();) {
+				int codePoint = text.codePointAt(i);
+				int next = i + Character.charCount(codePoint);
+				if (next == text.length() || Character.isLowerCase(
+						codePoint) != Character.isLowerCase(
+								text.codePointAt(next))) {
+					String run = text.substring(runStart, next);
+					sb.append(Character.isLowerCase(codePoint)
+							? run.toUpperCase(locale)
+							: run.toLowerCase(locale));
+					runStart = next;
+				}
+				i = next;
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * @param text
+	 *            a text
+	 * @param edits
+	 *            edits of the text, ordered by their offsets
+	 * @return the edited text
+	 */
+	private static String apply(String text, List<TextEdit> edits) {
+		StringBuilder sb = new StringBuilder();
+		int position = 0;
+		for (TextEdit edit : edits) {
+			sb.append(text, position, edit.getOffset()).append(edit.getText());
+			position = edit.getOffset() + edit.getLength();
+		}
+		return sb.append(text, position, text.length()).toString();
+	}
+
+	/**
+	 * @param random
+	 *            the random generator
+	 * @param parts
+	 *            the number of parts of the text
+	 * @param kinds
+	 *            the number of the first {@link #PARTS} which are used
+	 * @return a random text of the parts
+	 */
+	private static String randomText(Random random, int parts, int kinds) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < parts; i++) {
+			sb.append(PARTS[random.nextInt(kinds)]);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,124 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.TestTexts;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.ArrayTextSource;
+
+/**
+ * Tests the {@link ExternalLineSorter} against {@link List#sort} with the
+ * {@link Collator} of the same locale.
+ *
+ * @author 0036502252
+ *
+ */
+public class ExternalLineSorterTest {
+	/**
+	 * The characters of the random lines, which the Croatian collator orders
+	 * differently from the English one.
+	 */
+	private static final String LETTERS = "aAbcC\u010d\u010cz\u017e1 ";
+
+	/**
+	 * Sorts lines which fit into a single run.
+	 *
+	 * @throws IOException
+	 *             if the runs can't be spilled
+	 */
+	@Test
+	public void testSingleRun() throws IOException {
+		Random random = new Random(1);
+		for (int i = 0; i < 20; i++) {
+			assertSorted(random, random.nextInt(300),
+					ExternalLineSorter.DEFAULT_RUN_CHARS);
+		}
+	}
+
+	/**
+	 * Sorts lines spilled into a few runs, merged at once.
+	 *
+	 * @throws IOException
+	 *             if the runs can't be spilled
+	 */
+	@Test
+	public void testFewRuns() throws IOException {
+		Random random = new Random(2);
+		for (int i = 0; i < 5; i++) {
+			assertSorted(random, 2000, 1000);
+		}
+	}
+
+	/**
+	 * Sorts lines spilled into so many runs that they are merged in several
+	 * passes.
+	 *
+	 * @throws IOException
+	 *             if the runs can't be spilled
+	 */
+	@Test
+	public void testManyRuns() throws IOException {
+		assertSorted(new Random(3), 5000, 100);
+	}
+
+	/**
+	 * Sorts random lines in both orders and both locales of the editor, and
+	 * compares them with the lines sorted in memory.
+	 *
+	 * @param random
+	 *            the random generator
+	 * @param count
+	 *            the number of lines
+	 * @param runChars
+	 *            the number of characters sorted in memory at once
+	 * @throws IOException
+	 *             if the runs can't be spilled
+	 */
+	private static void assertSorted(Random random, int count, int runChars)
+			throws IOException {
+		List<String> lines = new ArrayList<>(count);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			String line = TestTexts.randomText(random, LETTERS,
+					1 + random.nextInt(6));
+			lines.add(line);
+			sb.append(line).append('\n');
+		}
+		char[] text = sb.toString().toCharArray();
+
+		for (Locale locale : new Locale[] { new Locale("en"),
+				new Locale("hr") }) {
+			for (boolean descending : new boolean[] { false, true }) {
+				Comparator<Object> order = Collator.getInstance(locale);
+				List<String> expected = new ArrayList<>(lines);
+				expected.sort(descending ? Collections.reverseOrder(order)
+						: order);
+
+				StringWriter out = new StringWriter();
+				new ExternalLineSorter(locale, runChars).sort(
+						new ArrayTextSource(text), 0, text.length,
+						descending, out);
+
+				List<String> sorted = new ArrayList<>();
+				for (String line : out.toString().split("\n")) {
+					sorted.add(line);
+				}
+				if (count == 0) {
+					sorted.clear();
+				}
+				assertEquals(expected, sorted);
+			}
+		}
+	}
+}
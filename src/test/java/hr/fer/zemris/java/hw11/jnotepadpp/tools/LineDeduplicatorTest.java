@@ -0,0 +1,164 @@
+package hr.fer.zemris.java.hw11.jnotepadpp.tools;
+
+import static hr.fer.zemris.java.hw11.jnotepadpp.TestTexts.read;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import javax.swing.text.BadLocationException;
+
+import org.junit.Test;
+
+import hr.fer.zemris.java.hw11.jnotepadpp.document.PieceTableDocument;
+import hr.fer.zemris.java.hw11.jnotepadpp.document.TextSource;
+
+/**
+ * Tests the {@link LineDeduplicator}, with its table both on and off the
+ * heap, against a {@link LinkedHashSet} of the same lines.
+ *
+ * @author 0036502252
+ *
+ */
+public class LineDeduplicatorTest {
+
+	/**
+	 * Removes duplicates from a few lines which often repeat.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testFewDistinctLines() throws Exception {
+		Random random = new Random(1);
+		for (int i = 0; i < 50; i++) {
+			assertDeduplicated(randomSource(random, random.nextInt(500), 20));
+		}
+	}
+
+	/**
+	 * Removes duplicates from many distinct lines, so the table grows.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testManyDistinctLines() throws Exception {
+		Random random = new Random(2);
+		assertDeduplicated(randomSource(random, 50_000, 20_000));
+	}
+
+	/**
+	 * Removes duplicates from a range of the source which starts and ends
+	 * inside lines.
+	 *
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	@Test
+	public void testRange() throws Exception {
+		Random random = new Random(3);
+		TextSource source = randomSource(random, 1000, 50);
+		for (int i = 0; i < 50; i++) {
+			int start = random.nextInt(source.length() + 1);
+			int end = start + random.nextInt(source.length() - start + 1);
+			assertDeduplicated(source, start, end);
+		}
+	}
+
+	/**
+	 * @param source
+	 *            the whole deduplicated source
+	 * @throws Exception
+	 *             if the test is broken
+	 */
+	private static void assertDeduplicated(TextSource source)
+			throws Exception {
+		assertDeduplicated(source, 0, source.length());
+	}
+
+	/**
+	 * Checks the output of both kinds of deduplicators against a
+	 * {@link LinkedHashSet}.
+	 *
+	 * @param source
+	 *            the source
+	 * @param start
+	 *            the start of the deduplicated range
+	 * @param end
+	 *            the end of the deduplicated range
+	 * @throws IOException
+	 *             if the test is broken
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	private static void assertDeduplicated(TextSource source, int start,
+			int end) throws IOException, BadLocationException {
+		Set<String> lines = new LinkedHashSet<>();
+		String text = read(source, start, end);
+		if (!text.isEmpty()) {
+			String[] split = text.split("\n", -1);
+			// a newline at the end doesn't start another line
+			int count = text.endsWith("\n") ? split.length - 1
+					: split.length;
+			for (int i = 0; i < count; i++) {
+				lines.add(split[i]);
+			}
+		}
+		StringBuilder expected = new StringBuilder();
+		for (String line : lines) {
+			expected.append(line).append('\n');
+		}
+
+		for (boolean offHeap : new boolean[] { false, true }) {
+			StringWriter out = new StringWriter();
+			new LineDeduplicator(offHeap).transform(source, start, end, out);
+			assertEquals(expected.toString(), out.toString());
+		}
+	}
+
+	/**
+	 * Creates a source of random lines, edited so that its lines are split
+	 * across the pieces of a piece table.
+	 *
+	 * @param random
+	 *            the random generator
+	 * @param count
+	 *            the number of lines
+	 * @param distinct
+	 *            the number of distinct lines
+	 * @return the source
+	 * @throws BadLocationException
+	 *             if the test is broken
+	 */
+	private static TextSource randomSource(Random random, int count,
+			int distinct) throws BadLocationException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			int line = random.nextInt(distinct);
+			// lines of different lengths, some of them empty
+			for (int j = line % 7; j > 0; j--) {
+				sb.append((char) ('a' + j));
+			}
+			sb.append(line).append('\n');
+		}
+		if (random.nextBoolean() && sb.length() > 0) {
+			sb.setLength(sb.length() - 1);
+		}
+
+		PieceTableDocument document = new PieceTableDocument(sb.toString());
+		for (int i = 0; i < count / 10; i++) {
+			int offset = random.nextInt(document.getLength() + 1);
+			if (offset < document.getLength()) {
+				// the same character, but moved to another piece
+				String moved = document.getText(offset, 1);
+				document.remove(offset, 1);
+				document.insertString(offset, moved, null);
+			}
+		}
+		return document.snapshot();
+	}
+}